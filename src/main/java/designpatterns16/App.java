@@ -1,5 +1,8 @@
 package designpatterns16;
 
+import designpatterns16.categorization.AutoCategorizer;
+import designpatterns16.categorization.CategoryRule;
+import designpatterns16.design_patterns.composite.Category;
 import designpatterns16.design_patterns.composite.ProductCategory;
 import designpatterns16.design_patterns.composite.ProductLeaf;
 import designpatterns16.design_patterns.state.UsableState;
@@ -9,12 +12,39 @@ import designpatterns16.items.Medicine;
 import designpatterns16.items.Serum;
 import designpatterns16.items.Vaccine;
 import designpatterns16.items.Consumable;
+import designpatterns16.Stockmonitor.CoarseClock;
+import designpatterns16.Stockmonitor.AlertGate;
 import designpatterns16.Stockmonitor.CriticalStockObserver;
 import designpatterns16.Stockmonitor.ExpirationAlarmObserver;
 import designpatterns16.Stockmonitor.Inventory;
+import designpatterns16.Stockmonitor.InventoryReport;
+import designpatterns16.Stockmonitor.LotView;
+import designpatterns16.Stockmonitor.ProductCatalog;
+import designpatterns16.Stockmonitor.ProductSearchIndex;
+import designpatterns16.Stockmonitor.ReportEngine;
 import designpatterns16.Stockmonitor.StockItem;
-
+import designpatterns16.alerts.AlertSinks;
+import designpatterns16.maintenance.DeviceStats;
+import designpatterns16.maintenance.DeviceTelemetry;
+import designpatterns16.maintenance.MaintenanceScheduler;
+import designpatterns16.maintenance.MaintenanceTeam;
+import designpatterns16.maintenance.PlannedMaintenance;
+import designpatterns16.service.InventoryHttpService;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.UnsupportedEncodingException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.text.ParseException;
 import java.text.SimpleDateFormat;
 
 /**
@@ -45,9 +75,26 @@ public class App
     private static ExpirationAlarmObserver expirationObserver;
     private static Scanner scanner;
     private static SimpleDateFormat dateFormat;
+    private static final DateTimeFormatter DISPLAY_DATE = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    private static final ReportEngine reportEngine = new ReportEngine();
+    private static ProductSearchIndex productSearch;
+    private static MaintenanceScheduler maintenanceScheduler;
+    private static DeviceTelemetry deviceTelemetry;
+    private static final String MAINTENANCE_TEAM = "Biomedical";
 
     public static void main( String[] args )
     {
+        // Non-interactive batch mode: --batch [file], reads stdin when no file is given
+        if (args.length > 0 && args[0].equals("--batch")) {
+            runBatch(args.length > 1 ? args[1] : null);
+            return;
+        }
+        // Embedded HTTP/JSON service: --serve [port], default 8080
+        if (args.length > 0 && args[0].equals("--serve")) {
+            runServer(args.length > 1 ? Integer.parseInt(args[1]) : 8080);
+            return;
+        }
+
         // Terminal encoding'i UTF-8 olarak ayarla
         try {
             System.setOut(new java.io.PrintStream(System.out, true, "UTF-8"));
@@ -60,7 +107,7 @@ public class App
         }
         
         scanner = new Scanner(System.in, "UTF-8");
-        dateFormat = new SimpleDateFormat("dd/MM/yyyy");
+        dateFormat = strictDateFormat();
         
         // Sistem başlatma
         initializeSystem();
@@ -72,6 +119,7 @@ public class App
         // Ana menü döngüsü
         boolean running = true;
         while (running) {
+            AlertSinks.get().flush();   // pending alarms before the menu
             showMainMenu();
             int choice = getIntInput("Your choice: ");
             System.out.println();
@@ -99,17 +147,33 @@ public class App
     }
 
     private static void initializeSystem() {
+        initializeSystem(true);
+    }
+
+    private static void initializeSystem(boolean withSampleData) {
         inventory = new Inventory();
         devices = new ArrayList<>();
         rootCategory = new ProductCategory("All Products");
         inventory.setRootCategory(rootCategory);
+        productSearch = new ProductSearchIndex();
+        inventory.addListener(productSearch);
+        maintenanceScheduler = new MaintenanceScheduler();
+        maintenanceScheduler.addTeam(new MaintenanceTeam(MAINTENANCE_TEAM, 2, MaintenanceScheduler.DAY_MILLIS));
+        deviceTelemetry = new DeviceTelemetry();
         
         // Observer'ları oluştur
-        stockObserver = new CriticalStockObserver(10);
-        expirationObserver = new ExpirationAlarmObserver(30);
+        // One gate per observer (keys are lot ids); as listeners they forget removed lots
+        AlertGate stockGate = new AlertGate();
+        AlertGate expirationGate = new AlertGate();
+        inventory.addListener(stockGate);
+        inventory.addListener(expirationGate);
+        stockObserver = new CriticalStockObserver(10, 0, stockGate);
+        expirationObserver = new ExpirationAlarmObserver(30, 0, expirationGate);
         
         // Örnek veriler ekle
-        addSampleData();
+        if (withSampleData) {
+            addSampleData();
+        }
     }
 
     private static void addSampleData() {
@@ -118,13 +182,11 @@ public class App
         Medicine ibuprofen = new Medicine("Ibuprofen", "Painkiller", 8.75, "Capsule");
         Serum saline = new Serum("Saline Solution", "IV Fluid", 15.00, 500.0);
         
-        Calendar cal = Calendar.getInstance();
-        cal.add(Calendar.DAY_OF_YEAR, 60);
-        Date expiration = cal.getTime();
+        LocalDate expiration = CoarseClock.today().plusDays(60);
         
-        StockItem stock1 = new StockItem(paracetamol, 20, expiration);
-        StockItem stock2 = new StockItem(ibuprofen, 15, expiration);
-        StockItem stock3 = new StockItem(saline, 10, expiration);
+        StockItem stock1 = StockItem.withExpiry(paracetamol, 20, expiration);
+        StockItem stock2 = StockItem.withExpiry(ibuprofen, 15, expiration);
+        StockItem stock3 = StockItem.withExpiry(saline, 10, expiration);
         
         stock1.addObserver(stockObserver);
         stock1.addObserver(expirationObserver);
@@ -139,7 +201,7 @@ public class App
         
         // Sample device
         Device mri = new Device("MRI Machine");
-        devices.add(mri);
+        registerDevice(mri);
     }
 
     // Yardımcı formatlama metodları
@@ -345,6 +407,7 @@ public class App
             System.out.println("  1. Show Category Structure");
             System.out.println("  2. Add New Category");
             System.out.println("  3. Add Product to Category");
+            System.out.println("  4. Auto-categorize Stock");
             System.out.println("  0. Main Menu");
             printSubSeparator();
             
@@ -366,11 +429,15 @@ public class App
                     addProductToCategory();
                     pause();
                     break;
+                case 4:
+                    autoCategorizeStock();
+                    pause();
+                    break;
                 case 0:
                     back = true;
                     break;
                 default:
-                    printError("Invalid choice! Please enter a number between 0-3.");
+                    printError("Invalid choice! Please enter a number between 0-4.");
                     pause();
             }
         }
@@ -381,6 +448,8 @@ public class App
         System.out.println("  1. All Stock Report");
         System.out.println("  2. Critical Stock Alerts");
         System.out.println("  3. Expiration Date Alerts");
+        System.out.println("  4. Maintenance Plan");
+        System.out.println("  5. Device Utilization");
         System.out.println("  0. Main Menu");
         printSubSeparator();
         
@@ -400,10 +469,18 @@ public class App
                 printExpirationAlerts();
                 pause();
                 break;
+            case 4:
+                printMaintenancePlan();
+                pause();
+                break;
+            case 5:
+                printDeviceUtilization();
+                pause();
+                break;
             case 0:
                 break;
             default:
-                printError("Invalid choice! Please enter a number between 0-3.");
+                printError("Invalid choice! Please enter a number between 0-5.");
                 pause();
         }
     }
@@ -418,21 +495,29 @@ public class App
         }
         
         printHeader("STOCK LIST");
-        printSubSeparator();
-        System.out.printf("%-3s | %-25s | %-10s | %-15s | %-15s%n", 
-                         "No", "Product Name", "Quantity", "Expiration", "Total Value");
-        printSubSeparator();
+        printStockTableHeader();
         
         for (int i = 0; i < items.size(); i++) {
             StockItem item = items.get(i);
-            String expiration = item.getExpirationDate() != null ? 
-                               dateFormat.format(item.getExpirationDate()) : "None";
-            System.out.printf("%-3d | %-25s | %-10d | %-15s | %-15.2f TL%n",
-                            (i + 1), item.getName(), item.getStock(), expiration, item.getTotalValue());
+            printStockRow(i + 1, item.getName(), item.getStock(),
+                          item.hasExpiration() ? item.getExpirationLocalDate() : null, item.getTotalValue());
         }
         printSubSeparator();
     }
 
+    private static void printStockTableHeader() {
+        printSubSeparator();
+        System.out.printf("%-3s | %-25s | %-10s | %-15s | %-15s%n", 
+                         "No", "Product Name", "Quantity", "Expiration", "Total Value");
+        printSubSeparator();
+    }
+
+    private static void printStockRow(int no, String name, int quantity, LocalDate expirationDate, double totalValue) {
+        String expiration = expirationDate != null ? expirationDate.format(DISPLAY_DATE) : "None";
+        System.out.printf("%-3d | %-25s | %-10d | %-15s | %-15.2f TL%n",
+                        no, name, quantity, expiration, totalValue);
+    }
+
     private static void addStock() {
         printHeader("ADD STOCK");
         System.out.println("Select Product Type:");
@@ -464,13 +549,13 @@ public class App
         Consumable product = null;
         if (type == 1) {
             String drugForm = getStringInput("Drug Form (Tablet/Capsule/Syrup): ");
-            product = new Medicine(name, productType, price, drugForm);
+            product = inventory.getCatalog().medicine(name, productType, price, drugForm);
         } else if (type == 2) {
             double capacity = getDoubleInput("Capacity (ml): ");
-            product = new Serum(name, productType, price, capacity);
+            product = inventory.getCatalog().serum(name, productType, price, capacity);
         } else if (type == 3) {
             double dosage = getDoubleInput("Dosage (ml): ");
-            product = new Vaccine(name, productType, price, dosage);
+            product = inventory.getCatalog().vaccine(name, productType, price, dosage);
         }
         
         int quantity = getIntInput("Quantity: ");
@@ -523,7 +608,22 @@ public class App
         List<StockItem> results = inventory.getStockByProduct(name);
         
         if (results.isEmpty()) {
-            printInfo("Product not found.");
+            // No exact name, fall back to prefix / typo tolerant matches
+            List<ProductSearchIndex.Hit> hits = productSearch.search(name, 10);
+            if (hits.isEmpty()) {
+                printInfo("Product not found.");
+                return;
+            }
+            printHeader("DID YOU MEAN");
+            for (ProductSearchIndex.Hit hit : hits) {
+                int units = 0;
+                List<StockItem> lots = inventory.getStockByProduct(hit.getName());
+                for (StockItem lot : lots) {
+                    units += lot.getStock();
+                }
+                System.out.printf("  %-25s - Lots: %-5d Units: %d%n", hit.getName(), lots.size(), units);
+            }
+            System.out.println();
         } else {
             printHeader("SEARCH RESULTS");
             for (StockItem item : results) {
@@ -574,10 +674,16 @@ public class App
     private static void addDevice() {
         String name = getStringInput("Device Name: ");
         Device device = new Device(name);
-        devices.add(device);
+        registerDevice(device);
         printSuccess("Device added successfully!");
     }
 
+    private static void registerDevice(Device device) {
+        devices.add(device);
+        maintenanceScheduler.register(device, MAINTENANCE_TEAM);
+        deviceTelemetry.register(device);
+    }
+
     private static void beginDeviceUse() {
         listDevices();
         if (devices.isEmpty()) return;
@@ -641,8 +747,12 @@ public class App
         if (parentName.equals("0") || parentName.isEmpty()) {
             rootCategory.add(category);
         } else {
-            // Basit implementasyon - gerçek uygulamada daha gelişmiş olabilir
-            rootCategory.add(category);
+            Category parent = inventory.findCategory(parentName);
+            if (!(parent instanceof ProductCategory)) {
+                printError("Parent category not found: " + parentName);
+                return;
+            }
+            parent.add(category);
         }
         
         printSuccess("Category added successfully!");
@@ -660,66 +770,419 @@ public class App
         }
         
         String categoryName = getStringInput("Category name: ");
-        // Basit implementasyon
+        Category category = inventory.findCategory(categoryName);
+        if (!(category instanceof ProductCategory)) {
+            printError("Category not found: " + categoryName);
+            return;
+        }
+        category.add(new ProductLeaf(items.get(index).getProduct()));
         printSuccess("Product added to category successfully!");
     }
 
+    // Places every stocked product that is not in the tree yet by the default rules
+    private static void autoCategorizeStock() {
+        Set<String> placed = new HashSet<>();
+        collectLeafNames(rootCategory, placed);
+        Map<String, Consumable> products = new LinkedHashMap<>();
+        for (StockItem item : inventory.getAllStockItems()) {
+            if (!placed.contains(item.getProduct().getName())) {
+                products.putIfAbsent(item.getProduct().getName(), item.getProduct());
+            }
+        }
+        int count = new AutoCategorizer(rootCategory, defaultCategoryRules()).categorizeAll(products.values());
+        printSuccess(count + " of " + products.size() + " uncategorized products placed.");
+    }
+
+    private static void collectLeafNames(Category category, Set<String> names) {
+        for (Category child : category.getChildren()) {
+            if (child instanceof ProductLeaf) {
+                names.add(child.getName());
+            } else {
+                collectLeafNames(child, names);
+            }
+        }
+    }
+
+    private static List<CategoryRule> defaultCategoryRules() {
+        List<CategoryRule> rules = new ArrayList<>();
+        rules.add(CategoryRule.into("Medicines/Antibiotics").atcPrefix("J01"));
+        rules.add(CategoryRule.into("Medicines/Antibiotics").type("Antibiotic"));
+        rules.add(CategoryRule.into("Medicines/Painkillers").atcPrefix("N02"));
+        rules.add(CategoryRule.into("Medicines/Painkillers").type("Painkiller"));
+        rules.add(CategoryRule.into("Vaccines").type("Vaccine"));
+        rules.add(CategoryRule.into("Vaccines").nameMatches("vaccine"));
+        rules.add(CategoryRule.into("Serums").type("IV Fluid"));
+        rules.add(CategoryRule.into("Serums").nameMatches("serum|saline"));
+        rules.add(CategoryRule.into("Medicines/Other").drugForm("Tablet"));
+        rules.add(CategoryRule.into("Medicines/Other").drugForm("Capsule"));
+        rules.add(CategoryRule.into("Medicines/Other").drugForm("Syrup"));
+        return rules;
+    }
+
     // Rapor metodları
+    // Every report renders from one ReportEngine pass over a single snapshot
     private static void printStockReport() {
         printHeader("ALL STOCK REPORT");
-        listStock();
-        double totalValue = inventory.getAllStockItems().stream()
-            .mapToDouble(StockItem::getTotalValue)
-            .sum();
+        InventoryReport report = reportEngine.generate(inventory);
+        if (report.getLots().isEmpty()) {
+            printInfo("No products in stock.");
+        } else {
+            printStockTableHeader();
+            int no = 1;
+            for (LotView lot : report.getLots()) {
+                printStockRow(no++, lot.getName(), lot.getStock(),
+                              lot.hasExpiration() ? lot.getExpirationLocalDate() : null, lot.getTotalValue());
+            }
+        }
         printSubSeparator();
-        System.out.printf("TOTAL STOCK VALUE: %,.2f TL%n", totalValue);
+        System.out.printf("TOTAL STOCK VALUE: %,.2f TL%n", report.getTotal().getValue());
+        printSubSeparator();
+        printBreakdown("BY TYPE", report.getByType());
+        printBreakdown("BY CATEGORY", report.getByCategory());
+    }
+
+    private static void printBreakdown(String title, Map<String, InventoryReport.Totals> totals) {
+        if (totals.isEmpty()) {
+            return;
+        }
+        System.out.println(title);
+        for (Map.Entry<String, InventoryReport.Totals> entry : totals.entrySet()) {
+            InventoryReport.Totals group = entry.getValue();
+            System.out.printf("  %-25s - Lots: %-5d Units: %-8d Value: %,.2f TL%n",
+                            entry.getKey(), group.getLots(), group.getUnits(), group.getValue());
+        }
         printSubSeparator();
     }
 
     private static void printCriticalStockAlerts() {
         printHeader("CRITICAL STOCK ALERTS");
-        List<StockItem> items = inventory.getAllStockItems();
-        boolean found = false;
+        InventoryReport report = reportEngine.generate(inventory);
         
         printSubSeparator();
-        for (StockItem item : items) {
-            if (item.getStock() <= 10) {
-                System.out.printf("  [ALERT] %-25s - Remaining: %-5d units (Critical level: 10)%n", 
-                                item.getName(), item.getStock());
-                found = true;
-            }
+        for (LotView lot : report.getCriticalLots()) {
+            System.out.printf("  [ALERT] %-25s - Remaining: %-5d units (Critical level: %d)%n", 
+                            lot.getName(), lot.getStock(), report.getCriticalLevel());
         }
         printSubSeparator();
         
-        if (!found) {
+        if (report.getCriticalLots().isEmpty()) {
             printInfo("No critical stock alerts. All products have sufficient stock.");
         }
     }
 
     private static void printExpirationAlerts() {
         printHeader("EXPIRATION DATE ALERTS");
-        List<StockItem> items = inventory.getAllStockItems();
-        Calendar cal = Calendar.getInstance();
-        cal.add(Calendar.DAY_OF_YEAR, 30);
-        Date threshold = cal.getTime();
-        boolean found = false;
+        InventoryReport report = reportEngine.generate(inventory);
         
         printSubSeparator();
-        for (StockItem item : items) {
-            if (item.getExpirationDate() != null && item.getExpirationDate().before(threshold)) {
-                long daysLeft = (item.getExpirationDate().getTime() - System.currentTimeMillis()) / (1000 * 60 * 60 * 24);
-                System.out.printf("  [ALERT] %-25s - Expiration: %-12s (Days left: %d)%n", 
-                                item.getName(), dateFormat.format(item.getExpirationDate()), daysLeft);
-                found = true;
-            }
+        for (LotView lot : report.getExpiringLots()) {
+            System.out.printf("  [ALERT] %-25s - Expiration: %-12s (Days left: %d)%n", 
+                            lot.getName(), lot.getExpirationLocalDate().format(DISPLAY_DATE),
+                            lot.getExpiryEpochDay() - report.getGeneratedOnEpochDay());
         }
         printSubSeparator();
         
-        if (!found) {
+        if (report.getExpiringLots().isEmpty()) {
             printInfo("No upcoming expiration date alerts.");
         }
     }
 
+    private static void printMaintenancePlan() {
+        printHeader("MAINTENANCE PLAN");
+        List<PlannedMaintenance> plan = maintenanceScheduler.plan(MAINTENANCE_TEAM, 20);
+        if (plan.isEmpty()) {
+            printInfo("No devices scheduled for maintenance.");
+            return;
+        }
+        printSubSeparator();
+        for (PlannedMaintenance entry : plan) {
+            Device device = entry.getDevice();
+            System.out.printf("  %-25s - Uses left: %-3d Due: %-12s Planned start: %s%n",
+                            device.getName(), device.getUsesUntilMaintenance(),
+                            formatMillis(entry.getDueTime()), formatMillis(entry.getPlannedStart()));
+        }
+        printSubSeparator();
+    }
+
+    private static void printDeviceUtilization() {
+        printHeader("DEVICE UTILIZATION");
+        if (devices.isEmpty()) {
+            printInfo("No devices found.");
+            return;
+        }
+        printSubSeparator();
+        for (Device device : devices) {
+            printDeviceStats(device.getName(), deviceTelemetry.getStats(device));
+        }
+        printSubSeparator();
+        for (String type : deviceTelemetry.getTypes()) {
+            printDeviceStats("[" + type + "]", deviceTelemetry.getTypeStats(type));
+        }
+        printSubSeparator();
+    }
+
+    private static void printDeviceStats(String label, DeviceStats stats) {
+        System.out.printf("  %-25s - Utilization: %5.1f%% | Sessions: %-4d (mean %.0f ms, p99 %d ms)"
+                        + " | Maintenance: %d (mean turnaround %.0f ms)%n",
+                        label, stats.getUtilizationPercent(), stats.getSessionCount(),
+                        stats.getMeanSessionMillis(), stats.getP99SessionMillis(),
+                        stats.getMaintenanceCount(), stats.getMeanTurnaroundMillis());
+    }
+
+    private static String formatMillis(long millis) {
+        return Instant.ofEpochMilli(millis).atZone(CoarseClock.zone()).toLocalDate().format(DISPLAY_DATE);
+    }
+
+    // Rejects dates like 31/02/2026 instead of rolling them over into the next month
+    private static SimpleDateFormat strictDateFormat() {
+        SimpleDateFormat format = new SimpleDateFormat("dd/MM/yyyy");
+        format.setLenient(false);
+        return format;
+    }
+
+    // HTTP service metodları
+    private static void runServer(int port) {
+        dateFormat = strictDateFormat();
+        initializeSystem();
+        final InventoryHttpService service = new InventoryHttpService(inventory, devices);
+        try {
+            service.start(port);
+        } catch (IOException e) {
+            printError("Cannot start HTTP service: " + e.getMessage());
+            return;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(service::stop));
+        printInfo("HTTP service listening on " + service.getAddress());
+    }
+
+    // Batch mode metodları
+    // One command per line, fields separated by whitespace, names with spaces in double quotes:
+    //   add medicine "Paracetamol" Painkiller 5.50 Tablet 20 [dd/MM/yyyy]
+    //   add serum|vaccine <name> <type> <price> <capacity|dosage ml> <quantity> [dd/MM/yyyy]
+    //   dispense <name> <amount>
+    //   device add <name> [maintenance threshold]
+    //   device use|end|maintain|complete <name>
+    //   report stock|critical|expiry|devices|maintenance|utilization
+    // Empty lines and lines starting with # are ignored.
+    private static void runBatch(String fileName) {
+        PrintStream buffered;
+        try {
+            buffered = new PrintStream(new BufferedOutputStream(
+                    new FileOutputStream(FileDescriptor.out), 1 << 16), false, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+        try (BufferedReader reader = fileName == null
+                ? new BufferedReader(new InputStreamReader(System.in, "UTF-8"))
+                : new BufferedReader(new InputStreamReader(new FileInputStream(fileName), "UTF-8"))) {
+            runBatch(reader, buffered);
+        } catch (IOException e) {
+            buffered.println(">>> ERROR: Cannot read batch input: " + e.getMessage());
+            buffered.flush();
+        }
+    }
+
+    // Runs the commands against a fresh inventory, writing all output to out; returns the error count
+    static long runBatch(BufferedReader reader, PrintStream out) throws IOException {
+        PrintStream console = System.out;
+        System.setOut(out);
+        try {
+            return runBatchCommands(reader);
+        } finally {
+            System.setOut(console);   // also when a line or the reader throws
+        }
+    }
+
+    private static long runBatchCommands(BufferedReader reader) throws IOException {
+        // Alarms and device messages are written by the default sink's background thread in batches
+        dateFormat = strictDateFormat();
+        initializeSystem(false);
+
+        long commands = 0;
+        long errors = 0;
+        long start = System.nanoTime();
+        try {
+            String line;
+            long lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                commands++;
+                try {
+                    executeBatchCommand(tokenize(line));
+                } catch (RuntimeException | ParseException e) {
+                    errors++;
+                    System.out.println(">>> ERROR (line " + lineNumber + "): " + e.getMessage());
+                }
+            }
+        } finally {
+            AlertSinks.get().flush();   // before System.out is restored
+        }
+        long elapsedNanos = System.nanoTime() - start;
+
+        double seconds = elapsedNanos / 1_000_000_000.0;
+        printSeparator();
+        System.out.println("  BATCH SUMMARY");
+        printSeparator();
+        System.out.printf("Commands executed : %d%n", commands);
+        System.out.printf("Errors            : %d%n", errors);
+        System.out.printf("Elapsed time      : %.3f s%n", seconds);
+        System.out.printf("Throughput        : %.0f commands/s%n", seconds > 0 ? commands / seconds : 0.0);
+        printSeparator();
+        System.out.flush();
+        return errors;
+    }
+
+    private static void executeBatchCommand(List<String> tokens) throws ParseException {
+        String command = tokens.get(0).toLowerCase();
+        switch (command) {
+            case "add":
+                batchAddStock(tokens);
+                break;
+            case "dispense":
+                requireArgs(tokens, 3);
+                inventory.dispense(tokens.get(1), Integer.parseInt(tokens.get(2)));
+                break;
+            case "device":
+                batchDevice(tokens);
+                break;
+            case "report":
+                requireArgs(tokens, 2);
+                batchReport(tokens.get(1).toLowerCase());
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown command: " + tokens.get(0));
+        }
+    }
+
+    private static void batchAddStock(List<String> tokens) throws ParseException {
+        requireArgs(tokens, 7);
+        String name = tokens.get(2);
+        String type = tokens.get(3);
+        double price = Double.parseDouble(tokens.get(4));
+        ProductCatalog catalog = inventory.getCatalog();
+        Consumable product;
+        switch (tokens.get(1).toLowerCase()) {
+            case "medicine":
+                product = catalog.medicine(name, type, price, tokens.get(5));
+                break;
+            case "serum":
+                product = catalog.serum(name, type, price, Double.parseDouble(tokens.get(5)));
+                break;
+            case "vaccine":
+                product = catalog.vaccine(name, type, price, Double.parseDouble(tokens.get(5)));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown product type: " + tokens.get(1));
+        }
+        int quantity = Integer.parseInt(tokens.get(6));
+        Date expiration = tokens.size() > 7 ? dateFormat.parse(tokens.get(7)) : null;
+
+        StockItem stockItem = new StockItem(product, quantity, expiration);
+        stockItem.addObserver(stockObserver);
+        stockItem.addObserver(expirationObserver);
+        inventory.addStock(stockItem);
+    }
+
+    private static void batchDevice(List<String> tokens) {
+        requireArgs(tokens, 3);
+        String action = tokens.get(1).toLowerCase();
+        String name = tokens.get(2);
+        if (action.equals("add")) {
+            Device device = tokens.size() > 3 ? new Device(name, Integer.parseInt(tokens.get(3))) : new Device(name);
+            registerDevice(device);
+            return;
+        }
+        Device device = null;
+        for (Device candidate : devices) {
+            if (candidate.getName().equals(name)) {
+                device = candidate;
+                break;
+            }
+        }
+        if (device == null) {
+            throw new IllegalArgumentException("Device not found: " + name);
+        }
+        switch (action) {
+            case "use":
+                device.beginUse();
+                break;
+            case "end":
+                device.endUse();
+                break;
+            case "maintain":
+                device.sendForMaintenance();
+                break;
+            case "complete":
+                device.completeMaintenance();
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown device action: " + action);
+        }
+    }
+
+    private static void batchReport(String report) {
+        switch (report) {
+            case "stock":
+                printStockReport();
+                break;
+            case "critical":
+                printCriticalStockAlerts();
+                break;
+            case "expiry":
+                printExpirationAlerts();
+                break;
+            case "devices":
+                listDevices();
+                break;
+            case "maintenance":
+                printMaintenancePlan();
+                break;
+            case "utilization":
+                printDeviceUtilization();
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown report: " + report);
+        }
+    }
+
+    private static void requireArgs(List<String> tokens, int required) {
+        if (tokens.size() < required) {
+            throw new IllegalArgumentException("Missing arguments for '" + tokens.get(0) + "'");
+        }
+    }
+
+    // Splits on whitespace, double quotes group words into one token
+    private static List<String> tokenize(String line) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        boolean inToken = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+                inToken = true;
+            } else if (Character.isWhitespace(c) && !quoted) {
+                if (inToken) {
+                    tokens.add(current.toString());
+                    current.setLength(0);
+                    inToken = false;
+                }
+            } else {
+                current.append(c);
+                inToken = true;
+            }
+        }
+        if (inToken) {
+            tokens.add(current.toString());
+        }
+        return tokens;
+    }
+
     // Yardımcı metodlar
     private static int getIntInput(String prompt) {
         System.out.print(prompt);
@@ -870,17 +1333,12 @@ public class App
         Serum saline = new Serum("Saline Solution", "IV Fluid", 15.00, 500.0);
 
         // Create expiration dates
-        Calendar cal = Calendar.getInstance();
-        cal.add(Calendar.DAY_OF_YEAR, 20); // 20 days later
-        Date nearExpiration = cal.getTime();
-
-        cal = Calendar.getInstance();
-        cal.add(Calendar.DAY_OF_YEAR, 60); // 60 days later
-        Date farExpiration = cal.getTime();
+        LocalDate nearExpiration = CoarseClock.today().plusDays(20); // 20 days later
+        LocalDate farExpiration = CoarseClock.today().plusDays(60);  // 60 days later
 
         // Create stock items
-        StockItem paracetamolStock = new StockItem(paracetamol, 15, farExpiration);
-        StockItem salineStock = new StockItem(saline, 5, nearExpiration);
+        StockItem paracetamolStock = StockItem.withExpiry(paracetamol, 15, farExpiration);
+        StockItem salineStock = StockItem.withExpiry(saline, 5, nearExpiration);
 
         // Add observers
         paracetamolStock.addObserver(stockObserver);
@@ -0,0 +1,226 @@
+package designpatterns16.Stockmonitor;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+//Pipeline stage between an observer's condition check and its alarm output.
+//Keeps one raised/cleared flag per key (lot id) so an alert fires on the rising edge only,
+//clears with hysteresis, and passes through a token bucket that limits the alert rate.
+//A raise over the rate limit is queued with its alert and delivered, oldest first, as soon as
+//tokens refill, so an alert for a lot that never changes again is not lost.
+//Each offer is O(1); the per-key state and the queue are LRU maps of bounded size.
+//Registered as an InventoryListener, the state of removed lots is forgotten.
+public class AlertGate implements InventoryListener {
+
+    public enum Decision {
+        NONE,        // nothing changed
+        RAISE,       // condition became active, emit the alert
+        CLEAR,       // condition went back to normal
+        SUPPRESSED   // would raise but the rate limit is exhausted, the alert is queued or retried
+    }
+
+    // Shared by all gates on the real clock; one daemon thread delivers the queued alerts
+    private static class Retries {
+        static final ScheduledExecutorService EXECUTOR = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "alert-gate-retry");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private final Map<Long, Boolean> raised;
+    private final Map<Long, Runnable> pending;          // suppressed raises in arrival order
+    private final double tokensPerNano;
+    private final double burst;
+    private final LongSupplier nanoClock;
+    private final ScheduledExecutorService retries;     // null: the caller drains with drainPending()
+    private double tokens;
+    private long lastRefill;
+    private boolean retryScheduled = false;
+    private long suppressed = 0;
+
+    public AlertGate() {
+        this(10_000, 50, 100);
+    }
+
+    public AlertGate(int maxTrackedKeys, double alertsPerSecond, int burst) {
+        this(maxTrackedKeys, alertsPerSecond, burst, System::nanoTime, Retries.EXECUTOR);
+    }
+
+    public AlertGate(int maxTrackedKeys, double alertsPerSecond, int burst, LongSupplier nanoClock) {
+        this(maxTrackedKeys, alertsPerSecond, burst, nanoClock, null);
+    }
+
+    public AlertGate(final int maxTrackedKeys, double alertsPerSecond, int burst, LongSupplier nanoClock,
+                     ScheduledExecutorService retries) {
+        this.raised = new LinkedHashMap<Long, Boolean>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+                return size() > maxTrackedKeys;
+            }
+        };
+        this.pending = new LinkedHashMap<Long, Runnable>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Runnable> eldest) {
+                return size() > maxTrackedKeys;
+            }
+        };
+        this.tokensPerNano = alertsPerSecond / 1_000_000_000.0;
+        this.burst = burst;
+        this.tokens = burst;
+        this.nanoClock = nanoClock;
+        this.retries = retries;
+        this.lastRefill = nanoClock.getAsLong();
+    }
+
+    // raiseCondition: alert level reached; clearCondition: back past the hysteresis band.
+    // Between both (inside the band) the current state is kept.
+    public Decision offer(long key, boolean raiseCondition, boolean clearCondition) {
+        return offer(key, raiseCondition, clearCondition, null);
+    }
+
+    // Same as above; when the raise is suppressed, deferredAlert runs once a token is available,
+    // unless the condition has gone away or the key was forgotten by then.
+    // Without a deferredAlert a suppressed raise is only retried on the key's next offer.
+    public Decision offer(long key, boolean raiseCondition, boolean clearCondition, Runnable deferredAlert) {
+        List<Runnable> due;
+        Decision decision;
+        synchronized (this) {
+            due = takeDue();   // queued alerts get the refilled tokens first
+            decision = decide(key, raiseCondition, clearCondition, deferredAlert);
+        }
+        runAll(due);
+        return decision;
+    }
+
+    // Delivers the queued alerts the token bucket allows now; returns how many were delivered
+    public int drainPending() {
+        List<Runnable> due;
+        synchronized (this) {
+            due = takeDue();
+        }
+        runAll(due);
+        return due.size();
+    }
+
+    // Drops the state of a key, e.g. when the lot leaves the inventory
+    public synchronized void forget(long key) {
+        raised.remove(key);
+        pending.remove(key);
+    }
+
+    public synchronized boolean isRaised(long key) {
+        return Boolean.TRUE.equals(raised.get(key));
+    }
+
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    public synchronized long getSuppressedCount() {
+        return suppressed;
+    }
+
+    // ---------- InventoryListener ----------
+
+    @Override
+    public void lotAdded(StockItem stockItem) {
+    }
+
+    @Override
+    public void lotRemoved(StockItem stockItem) {
+        forget(stockItem.getLotId());
+    }
+
+    @Override
+    public void lotChanged(StockItem stockItem) {
+    }
+
+    // ---------- internals (guarded by this) ----------
+
+    private Decision decide(long key, boolean raiseCondition, boolean clearCondition, Runnable deferredAlert) {
+        boolean active = Boolean.TRUE.equals(raised.get(key));
+        if (!active && raiseCondition) {
+            if (pending.containsKey(key)) {
+                // still waiting for its turn, keep the latest alert
+                if (deferredAlert != null) {
+                    pending.put(key, deferredAlert);
+                }
+                return Decision.SUPPRESSED;
+            }
+            if (pending.isEmpty() && takeToken()) {
+                raised.put(key, Boolean.TRUE);
+                return Decision.RAISE;
+            }
+            suppressed++;
+            if (deferredAlert != null) {
+                pending.put(key, deferredAlert);
+                scheduleRetry();
+            }
+            return Decision.SUPPRESSED;
+        }
+        if (!raiseCondition) {
+            pending.remove(key);
+        }
+        if (active && clearCondition) {
+            raised.remove(key);
+            return Decision.CLEAR;
+        }
+        return Decision.NONE;
+    }
+
+    private List<Runnable> takeDue() {
+        List<Runnable> due = new ArrayList<>();
+        Iterator<Map.Entry<Long, Runnable>> queued = pending.entrySet().iterator();
+        while (queued.hasNext() && takeToken()) {
+            Map.Entry<Long, Runnable> entry = queued.next();
+            queued.remove();
+            raised.put(entry.getKey(), Boolean.TRUE);
+            due.add(entry.getValue());
+        }
+        if (!pending.isEmpty()) {
+            scheduleRetry();
+        }
+        return due;
+    }
+
+    private void scheduleRetry() {
+        if (retries == null || retryScheduled) {
+            return;
+        }
+        retryScheduled = true;
+        long delay = (long) Math.ceil((1 - tokens) / tokensPerNano);
+        retries.schedule(this::retry, Math.max(delay, 0), TimeUnit.NANOSECONDS);
+    }
+
+    private void retry() {
+        synchronized (this) {
+            retryScheduled = false;
+        }
+        drainPending();
+    }
+
+    private boolean takeToken() {
+        long now = nanoClock.getAsLong();
+        tokens = Math.min(burst, tokens + (now - lastRefill) * tokensPerNano);
+        lastRefill = now;
+        if (tokens >= 1) {
+            tokens -= 1;
+            return true;
+        }
+        return false;
+    }
+
+    private static void runAll(List<Runnable> alerts) {
+        for (Runnable alert : alerts) {
+            alert.run();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package designpatterns16.Stockmonitor;
+
+import designpatterns16.design_patterns.composite.Category;
+import designpatterns16.design_patterns.composite.ProductCategory;
+import designpatterns16.design_patterns.composite.ProductLeaf;
+import designpatterns16.items.Consumable;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+//Pre-order interval labels of a category tree.
+//Every node gets [pre, last]: its own pre-order number and the largest one in its subtree, so
+//"X is under C" is a range check and the leaves of a subtree are a contiguous label range.
+//A labeling is immutable; it is rebuilt in bulk once the structure version of its tree moves.
+final class CategoryLabels {
+
+    private static final int[] NO_LABELS = new int[0];
+
+    private final Category root;
+    private final long structureVersion;
+    private final Map<Category, int[]> intervals = new IdentityHashMap<>();
+    // First node of each name in pre-order, the node a depth-first name search finds
+    private final Map<String, Category> byName = new HashMap<>();
+    private final Map<Integer, int[]> leafLabelsByProduct = new HashMap<>();
+    private boolean repeatedProducts;
+    private int next;
+
+    private CategoryLabels(Category root, long structureVersion) {
+        this.root = root;
+        this.structureVersion = structureVersion;
+    }
+
+    // Leaf products are catalogued so lots added later resolve to the same ids
+    static CategoryLabels label(Category root, ProductCatalog catalog) {
+        CategoryLabels labels = new CategoryLabels(root, structureVersion(root));
+        labels.visit(root, catalog);
+        return labels;
+    }
+
+    private void visit(Category node, ProductCatalog catalog) {
+        int[] interval = new int[]{next++, 0};
+        intervals.put(node, interval);
+        byName.putIfAbsent(node.getName(), node);
+        if (node instanceof ProductLeaf && ((ProductLeaf) node).getItem() instanceof Consumable) {
+            int productId = catalog.intern((Consumable) ((ProductLeaf) node).getItem());
+            int[] leaves = leafLabelsByProduct.get(productId);
+            if (leaves == null) {
+                leafLabelsByProduct.put(productId, new int[]{interval[0]});
+            } else {
+                int[] grown = Arrays.copyOf(leaves, leaves.length + 1);
+                grown[leaves.length] = interval[0];
+                leafLabelsByProduct.put(productId, grown);
+                repeatedProducts = true;
+            }
+        }
+        for (Category child : node.getChildren()) {
+            visit(child, catalog);
+        }
+        interval[1] = next - 1;
+    }
+
+    boolean isCurrent(Category root) {
+        return this.root == root && structureVersion == structureVersion(root);
+    }
+
+    // Trees are only edited through ProductCategory; any other root is treated as fixed
+    static long structureVersion(Category root) {
+        return root instanceof ProductCategory ? ((ProductCategory) root).structureVersion() : 0;
+    }
+
+    Category find(String name) {
+        return byName.get(name);
+    }
+
+    // {pre, last} of a labelled node, null for nodes outside the tree
+    int[] interval(Category category) {
+        return intervals.get(category);
+    }
+
+    // Pre-order labels of the leaves holding a product
+    int[] leafLabels(int productId) {
+        int[] leaves = leafLabelsByProduct.get(productId);
+        return leaves == null ? NO_LABELS : leaves;
+    }
+
+    // Whether some product sits in more than one leaf (range scans may then meet it twice)
+    boolean hasRepeatedProducts() {
+        return repeatedProducts;
+    }
+
+    boolean contains(int[] interval, int productId) {
+        for (int label : leafLabels(productId)) {
+            if (label >= interval[0] && label <= interval[1]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    int size() {
+        return next;
+    }
+}
@@ -0,0 +1,88 @@
+package designpatterns16.Stockmonitor;
+
+//Immutable, sequence-numbered record of one inventory or device mutation.
+//Published by the ChangeFeed, serialized as one tab separated line when spilled to disk.
+public final class ChangeEvent {
+
+    public enum Kind {
+        LOT_ADDED,
+        LOT_REMOVED,
+        STOCK_CHANGED,
+        DEVICE_STATE_CHANGED
+    }
+
+    private final long sequence;
+    private final long timestamp;
+    private final Kind kind;
+    private final long lotId;       // -1 for device events
+    private final String name;      // product or device name
+    private final int quantity;     // lot quantity after the change, -1 for device events
+    private final String detail;    // product type or new device state
+
+    public ChangeEvent(long sequence, long timestamp, Kind kind, long lotId,
+                       String name, int quantity, String detail) {
+        this.sequence = sequence;
+        this.timestamp = timestamp;
+        this.kind = kind;
+        this.lotId = lotId;
+        this.name = name;
+        this.quantity = quantity;
+        this.detail = detail;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public long getLotId() {
+        return lotId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public String getDetail() {
+        return detail;
+    }
+
+    // ---------- SERIALIZATION ----------
+    String toLine() {
+        return sequence + "\t" + timestamp + "\t" + kind + "\t" + lotId + "\t"
+                + clean(name) + "\t" + quantity + "\t" + clean(detail);
+    }
+
+    static ChangeEvent fromLine(String line) {
+        String[] f = line.split("\t", -1);
+        return new ChangeEvent(Long.parseLong(f[0]), Long.parseLong(f[1]), Kind.valueOf(f[2]),
+                Long.parseLong(f[3]), f[4], Integer.parseInt(f[5]), f[6]);
+    }
+
+    private static String clean(String value) {
+        return value == null ? "" : value.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+
+    @Override
+    public String toString() {
+        return "ChangeEvent{" +
+                "seq=" + sequence +
+                ", kind=" + kind +
+                ", lotId=" + lotId +
+                ", name=" + name +
+                ", quantity=" + quantity +
+                ", detail=" + detail +
+                '}';
+    }
+}
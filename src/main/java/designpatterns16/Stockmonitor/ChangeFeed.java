@@ -0,0 +1,286 @@
+package designpatterns16.Stockmonitor;
+
+import designpatterns16.design_patterns.state.DeviceState;
+import designpatterns16.design_patterns.state.DeviceStateListener;
+import designpatterns16.items.Device;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+//Change-data-capture feed of inventory and device mutations.
+//Events get consecutive sequence numbers and are kept in a bounded ring buffer. With a spill
+//file every event is also appended to the file, which is the durable log: a restarted feed
+//recovers its sequence numbers from it, so consumers can resume from any sequence number they
+//have persisted, also across restarts. Events are flushed to the file before a consumer sees
+//them, so a sequence number handed out is never reused after a crash.
+public class ChangeFeed implements InventoryListener, DeviceStateListener, Closeable {
+
+    private static final int INDEX_INTERVAL = 256;   // one spill file offset per N events
+    private static final int READ_CHUNK = 8192;
+
+    private final ChangeEvent[] ring;
+    private long lastSequence = 0;
+    private long firstInRing = 1;                     // events before this one are only on disk
+
+    private final Path spillFile;
+    private OutputStream spillOut;
+    private FileChannel spillReader;                  // positional reads, shared by all pollers
+    private long spillBytes = 0;
+    private long flushedUpTo = 0;                     // highest sequence the file is known to hold
+    private long[] spillIndex = new long[16];         // byte offset of every INDEX_INTERVAL-th event
+    private int spillIndexSize = 0;
+    private boolean closed;
+
+    // In-memory only feed, consumers that fall behind the ring lose events
+    public ChangeFeed(int capacity) {
+        this(capacity, null);
+    }
+
+    // Appends to an existing spill file and continues its sequence numbers
+    public ChangeFeed(int capacity, Path spillFile) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive!");
+        }
+        this.ring = new ChangeEvent[capacity];
+        this.spillFile = spillFile;
+        if (spillFile != null) {
+            try {
+                recover();
+                this.spillOut = new BufferedOutputStream(new FileOutputStream(spillFile.toFile(), true));
+                this.spillReader = FileChannel.open(spillFile, StandardOpenOption.READ);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    // Rebuilds the sequence number and the offset index, cutting off a torn last line
+    private void recover() throws IOException {
+        try (FileChannel channel = FileChannel.open(spillFile, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer chunk = ByteBuffer.allocate(READ_CHUNK);
+            long position = 0;
+            long lineStart = 0;
+            while (channel.read(chunk, position) > 0) {
+                chunk.flip();
+                while (chunk.hasRemaining()) {
+                    position++;
+                    if (chunk.get() == '\n') {
+                        index(++lastSequence, lineStart);
+                        lineStart = position;
+                    }
+                }
+                chunk.clear();
+            }
+            if (lineStart < channel.size()) {
+                channel.truncate(lineStart);
+            }
+            spillBytes = lineStart;
+        }
+        flushedUpTo = lastSequence;
+        firstInRing = lastSequence + 1;
+    }
+
+    // ---------- PUBLISHING ----------
+    @Override
+    public void lotAdded(StockItem stockItem) {
+        publish(ChangeEvent.Kind.LOT_ADDED, stockItem.getLotId(), stockItem.getName(),
+                stockItem.getStock(), stockItem.getType());
+    }
+
+    @Override
+    public void lotRemoved(StockItem stockItem) {
+        publish(ChangeEvent.Kind.LOT_REMOVED, stockItem.getLotId(), stockItem.getName(),
+                stockItem.getStock(), stockItem.getType());
+    }
+
+    @Override
+    public void lotChanged(StockItem stockItem) {
+        publish(ChangeEvent.Kind.STOCK_CHANGED, stockItem.getLotId(), stockItem.getName(),
+                stockItem.getStock(), stockItem.getType());
+    }
+
+    @Override
+    public void stateChanged(Device device, DeviceState from, DeviceState to) {
+        publish(ChangeEvent.Kind.DEVICE_STATE_CHANGED, -1, device.getName(), -1,
+                to.getClass().getSimpleName());
+    }
+
+    public synchronized long publish(ChangeEvent.Kind kind, long lotId, String name, int quantity, String detail) {
+        if (closed) {
+            throw new IllegalStateException("Change feed is closed!");
+        }
+        long sequence = ++lastSequence;
+        ChangeEvent event = new ChangeEvent(sequence, System.currentTimeMillis(), kind, lotId, name, quantity, detail);
+        if (spillOut != null) {
+            append(event);
+        }
+        ring[slot(sequence)] = event;
+        return sequence;
+    }
+
+    private int slot(long sequence) {
+        return (int) ((sequence - 1) % ring.length);
+    }
+
+    private void append(ChangeEvent event) {
+        index(event.getSequence(), spillBytes);
+        byte[] line = (event.toLine() + "\n").getBytes(StandardCharsets.UTF_8);
+        try {
+            spillOut.write(line);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        spillBytes += line.length;
+    }
+
+    private void index(long sequence, long offset) {
+        if ((sequence - 1) % INDEX_INTERVAL == 0) {
+            if (spillIndexSize == spillIndex.length) {
+                spillIndex = Arrays.copyOf(spillIndex, spillIndexSize * 2);
+            }
+            spillIndex[spillIndexSize++] = offset;
+        }
+    }
+
+    // Makes every published event readable from the file; callers hold the feed lock
+    private void flushSpill() {
+        if (spillOut != null && flushedUpTo < lastSequence) {
+            try {
+                spillOut.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            flushedUpTo = lastSequence;
+        }
+    }
+
+    // ---------- CONSUMING ----------
+    // Cursor positioned after the latest event: only future changes are delivered
+    public synchronized Cursor tail() {
+        return new Cursor(lastSequence + 1);
+    }
+
+    // Cursor resuming at a previously persisted position (first sequence number is 1)
+    public Cursor cursorAt(long nextSequence) {
+        return new Cursor(Math.max(1, nextSequence));
+    }
+
+    public synchronized long getLastSequence() {
+        return lastSequence;
+    }
+
+    public synchronized long getOldestInMemory() {
+        return Math.max(firstInRing, lastSequence - ring.length + 1);
+    }
+
+    // Returns up to max events starting at the cursor position and advances the cursor.
+    // Events older than the ring are read from the spill file without holding the feed lock,
+    // so publishers are not stalled by slow consumers catching up.
+    public List<ChangeEvent> poll(Cursor cursor, int max) {
+        List<ChangeEvent> result = new ArrayList<>();
+        long next = cursor.next;
+        int count;
+        long offset;
+        long sequence;
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("Change feed is closed!");
+            }
+            long oldest = getOldestInMemory();
+            if (next >= oldest || next > lastSequence) {
+                while (result.size() < max && next <= lastSequence) {
+                    result.add(ring[slot(next)]);
+                    next++;
+                }
+                flushSpill();
+                cursor.next = next;
+                return result;
+            }
+            if (spillOut == null) {
+                throw new IllegalStateException("Cursor at " + next
+                        + " fell behind the feed, oldest available is " + oldest);
+            }
+            flushSpill();
+            count = (int) Math.min(max, oldest - next);
+            int indexSlot = (int) ((next - 1) / INDEX_INTERVAL);
+            offset = spillIndex[indexSlot];
+            sequence = (long) indexSlot * INDEX_INTERVAL + 1;
+        }
+        readSpilled(next, count, offset, sequence, result);
+        cursor.next = next + result.size();
+        return result;
+    }
+
+    // Parses lines from offset (which holds event `sequence`) until count events from `from` on
+    private void readSpilled(long from, int count, long offset, long sequence, List<ChangeEvent> out) {
+        ByteBuffer chunk = ByteBuffer.allocate(READ_CHUNK);
+        ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+        long position = offset;
+        try {
+            while (out.size() < count) {
+                chunk.clear();
+                int read = spillReader.read(chunk, position);
+                if (read <= 0) {
+                    break;
+                }
+                position += read;
+                chunk.flip();
+                while (chunk.hasRemaining() && out.size() < count) {
+                    byte b = chunk.get();
+                    if (b != '\n') {
+                        line.write(b);
+                        continue;
+                    }
+                    if (sequence++ >= from) {
+                        out.add(ChangeEvent.fromLine(new String(line.toByteArray(), StandardCharsets.UTF_8)));
+                    }
+                    line.reset();
+                }
+            }
+        } catch (ClosedChannelException e) {
+            throw new IllegalStateException("Change feed is closed!");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (spillOut != null) {
+            spillOut.close();
+            spillReader.close();
+        }
+    }
+
+    //Position of one consumer in the feed, persist getPosition() to resume later.
+    public static final class Cursor {
+        private long next;
+
+        private Cursor(long next) {
+            this.next = next;
+        }
+
+        public long getPosition() {
+            return next;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package designpatterns16.Stockmonitor;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+
+//Shared day-granularity clock for the expiry path.
+//The current epoch day is cached and only recomputed (with java.time) when the wall clock
+//passes the next local midnight, so a check costs one currentTimeMillis() and no allocation.
+//Components reach it through DayClock.SYSTEM; a DayClock.fixed instance pins the date instead.
+public final class CoarseClock {
+
+    private static volatile ZoneId zone = ZoneId.systemDefault();
+    private static volatile long today;
+    private static volatile long nextDayStartMillis = Long.MIN_VALUE;   // forces the first refresh
+
+    private CoarseClock() {
+    }
+
+    public static long todayEpochDay() {
+        if (System.currentTimeMillis() >= nextDayStartMillis) {
+            refresh();
+        }
+        return today;
+    }
+
+    public static LocalDate today() {
+        return LocalDate.ofEpochDay(todayEpochDay());
+    }
+
+    public static ZoneId zone() {
+        return zone;
+    }
+
+    private static synchronized void refresh() {
+        LocalDate date = LocalDate.now(zone);
+        today = date.toEpochDay();
+        nextDayStartMillis = date.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+    }
+
+    // Days roll over at midnight in the given zone
+    public static synchronized void setZone(ZoneId newZone) {
+        zone = newZone;
+        nextDayStartMillis = Long.MIN_VALUE;
+    }
+}
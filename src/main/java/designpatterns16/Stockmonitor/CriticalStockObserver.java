@@ -1,30 +1,61 @@
 package designpatterns16.Stockmonitor;
 
+import designpatterns16.alerts.AlertSinks;
 import designpatterns16.design_patterns.observer.IObserver;
 import designpatterns16.Stockmonitor.StockItem;
 
 public class CriticalStockObserver implements IObserver {
 
     private int threshold;   // alarm threshold
+    private int hysteresis;  // stock must rise above threshold + hysteresis to clear the alarm
+    private AlertGate gate;  // deduplicates and rate limits the alarms per lot, null alarms on every update
         
     public CriticalStockObserver(int threshold) {
+        this(threshold, 0, null);
+    }
+
+    // Register the gate as an InventoryListener so removed lots are forgotten
+    public CriticalStockObserver(int threshold, int hysteresis, AlertGate gate) {
         this.threshold = threshold;
+        this.hysteresis = hysteresis;
+        this.gate = gate;
     }
 
     @Override
     public void update(StockItem stockItem) {
         int current = stockItem.getStock();
 
-        if (current <= threshold) {
-            sendAlarm(stockItem, current);
+        if (gate == null) {
+            if (current <= threshold) {
+                sendAlarm(stockItem, current);
+            }
+            return;
+        }
+        switch (gate.offer(stockItem.getLotId(), current <= threshold, current > threshold + hysteresis,
+                () -> sendAlarm(stockItem, stockItem.getStock()))) {
+            case RAISE:
+                sendAlarm(stockItem, current);
+                break;
+            case CLEAR:
+                sendClear(stockItem, current);
+                break;
+            default:
+                break;
         }
     }
 
     private void sendAlarm(StockItem stockItem, int currentStock) {
-        System.out.println(
+        AlertSinks.get().emit(
             "[CRITICAL STOCK ALERT] Item: " + stockItem.getName() +
             " | Current stock: " + currentStock +
             " | Threshold: " + threshold
         );
     }
+
+    private void sendClear(StockItem stockItem, int currentStock) {
+        AlertSinks.get().emit(
+            "[CRITICAL STOCK CLEARED] Item: " + stockItem.getName() +
+            " | Current stock: " + currentStock
+        );
+    }
 }
@@ -0,0 +1,22 @@
+package designpatterns16.Stockmonitor;
+
+import java.time.LocalDate;
+
+//Source of the current day for expiry decisions.
+//Inventories, report engines and monitors take one, so tests and simulations pin the date
+//per instance; SYSTEM reads the shared CoarseClock.
+public interface DayClock {
+
+    DayClock SYSTEM = CoarseClock::todayEpochDay;
+
+    long todayEpochDay();
+
+    default LocalDate today() {
+        return LocalDate.ofEpochDay(todayEpochDay());
+    }
+
+    static DayClock fixed(LocalDate date) {
+        final long day = date.toEpochDay();
+        return () -> day;
+    }
+}
@@ -1,35 +1,58 @@
 package designpatterns16.Stockmonitor;
 
+import designpatterns16.alerts.AlertSinks;
 import designpatterns16.design_patterns.observer.IObserver;
 import designpatterns16.Stockmonitor.StockItem;
-import java.util.Date;
 
 public class ExpirationAlarmObserver implements IObserver {
 
     private int thresholdDays;     // alarm threshold in days
+    private int hysteresisDays;    // days beyond the threshold needed to clear the alarm
+    private AlertGate gate;        // deduplicates and rate limits the alarms per lot, null alarms on every update
+    private DayClock clock;        // today, for the days left
 
     public ExpirationAlarmObserver(int thresholdDays) {
+        this(thresholdDays, 0, null);
+    }
+
+    // Register the gate as an InventoryListener so removed lots are forgotten
+    public ExpirationAlarmObserver(int thresholdDays, int hysteresisDays, AlertGate gate) {
+        this(thresholdDays, hysteresisDays, gate, DayClock.SYSTEM);
+    }
+
+    // gate may be null for an alarm on every update
+    public ExpirationAlarmObserver(int thresholdDays, int hysteresisDays, AlertGate gate, DayClock clock) {
         this.thresholdDays = thresholdDays;
+        this.hysteresisDays = hysteresisDays;
+        this.gate = gate;
+        this.clock = clock;
     }
 
     @Override
     public void update(StockItem stockItem) {
-        Date exp = stockItem.getExpirationDate();
-        if (exp == null) return; // No expiration date set
+        if (!stockItem.hasExpiration()) return; // No expiration date set
 
-        long millisLeft = exp.getTime() - System.currentTimeMillis();
-        long daysLeft = millisLeft / (1000 * 60 * 60 * 24);
+        long daysLeft = stockItem.daysUntilExpiry(clock);   // epoch-day arithmetic, no allocation
 
-        if (daysLeft <= thresholdDays) {
+        if (gate == null) {
+            if (daysLeft <= thresholdDays) {
+                sendAlarm(stockItem, daysLeft);
+            }
+            return;
+        }
+        AlertGate.Decision decision = gate.offer(stockItem.getLotId(),
+                daysLeft <= thresholdDays, daysLeft > thresholdDays + hysteresisDays,
+                () -> sendAlarm(stockItem, stockItem.daysUntilExpiry(clock)));
+        if (decision == AlertGate.Decision.RAISE) {
             sendAlarm(stockItem, daysLeft);
         }
     }
 
     private void sendAlarm(StockItem stockItem, long daysLeft) {
-        System.out.println(
+        AlertSinks.get().emit(
             "[EXPIRATION ALERT] Item: " + stockItem.getName()
             + " | Days left: " + daysLeft
-            + " | Expiration date: " + stockItem.getExpirationDate()
+            + " | Expiration date: " + stockItem.getExpirationLocalDate()
         );
     }
 }
@@ -0,0 +1,38 @@
+package designpatterns16.Stockmonitor;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Date;
+
+//Adapter between the epoch-day expiry model and legacy java.util.Date callers.
+public final class ExpiryDates {
+
+    // Sentinel for lots without an expiration date, sorts after every real date
+    public static final long NO_EXPIRY = Long.MAX_VALUE;
+
+    private ExpiryDates() {
+    }
+
+    public static long toEpochDay(Date date) {
+        if (date == null) {
+            return NO_EXPIRY;
+        }
+        return Instant.ofEpochMilli(date.getTime()).atZone(CoarseClock.zone()).toLocalDate().toEpochDay();
+    }
+
+    public static long toEpochDay(LocalDate date) {
+        return date == null ? NO_EXPIRY : date.toEpochDay();
+    }
+
+    // Start of the day in the clock's zone, null for NO_EXPIRY
+    public static Date toDate(long epochDay) {
+        if (epochDay == NO_EXPIRY) {
+            return null;
+        }
+        return Date.from(LocalDate.ofEpochDay(epochDay).atStartOfDay(CoarseClock.zone()).toInstant());
+    }
+
+    public static LocalDate toLocalDate(long epochDay) {
+        return epochDay == NO_EXPIRY ? null : LocalDate.ofEpochDay(epochDay);
+    }
+}
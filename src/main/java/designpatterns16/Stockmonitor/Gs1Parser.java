@@ -0,0 +1,214 @@
+package designpatterns16.Stockmonitor;
+
+import java.nio.ByteBuffer;
+
+//Parser for GS1 element strings as read from DataMatrix / GS1-128 codes, e.g.
+//  ]d2 01 09501101530003 17 270531 10 AB-123 <GS> 21 0042
+//Understands GTIN (01), expiry (17), lot (10) and serial (21); other AIs are skipped, using the
+//GS1 predefined-length table or the FNC1 (GS, 0x1D) separator. Works on absolute positions of
+//a ByteBuffer and fills a reusable Gs1Scan, so parsing allocates nothing.
+public final class Gs1Parser {
+
+    public static final byte GS = 0x1D;
+
+    private static final int MAX_VARIABLE_LENGTH = 20;
+    private static final long NO_DATE = Long.MIN_VALUE;
+    // Length of AI + data for AIs with a predefined length, by the first two AI digits; 0 = FNC1 terminated
+    private static final int[] PREDEFINED_LENGTH = new int[100];
+
+    static {
+        PREDEFINED_LENGTH[0] = 20;
+        PREDEFINED_LENGTH[1] = 16;
+        PREDEFINED_LENGTH[2] = 16;
+        PREDEFINED_LENGTH[3] = 16;
+        PREDEFINED_LENGTH[4] = 18;
+        for (int ai = 11; ai <= 19; ai++) {
+            PREDEFINED_LENGTH[ai] = 8;
+        }
+        PREDEFINED_LENGTH[20] = 4;
+        for (int ai = 31; ai <= 36; ai++) {
+            PREDEFINED_LENGTH[ai] = 10;
+        }
+        PREDEFINED_LENGTH[41] = 16;
+    }
+
+    private Gs1Parser() {
+    }
+
+    // Parses buffer[start, end); false when the code is malformed or carries no valid GTIN
+    public static boolean parse(ByteBuffer buffer, int start, int end, Gs1Scan out) {
+        return parse(buffer, start, end, out, CoarseClock.todayEpochDay());
+    }
+
+    // todayEpochDay anchors the century window of two-digit expiry years
+    public static boolean parse(ByteBuffer buffer, int start, int end, Gs1Scan out, long todayEpochDay) {
+        out.reset(buffer);
+        int pos = start;
+        if (end - pos >= 3 && buffer.get(pos) == ']') {
+            pos += 3;   // symbology identifier (]d2, ]C1)
+        }
+        if (pos < end && buffer.get(pos) == GS) {
+            pos++;      // leading FNC1
+        }
+        while (pos < end) {
+            int ai = pos + 2 <= end ? twoDigits(buffer, pos) : -1;
+            if (ai < 0) {
+                return false;
+            }
+            if (ai == 10 || ai == 21) {
+                int dataStart = pos + 2;
+                int stop = dataStart;
+                while (stop < end && buffer.get(stop) != GS) {
+                    stop++;
+                }
+                int length = stop - dataStart;
+                if (length == 0 || length > MAX_VARIABLE_LENGTH) {
+                    return false;
+                }
+                if (ai == 10) {
+                    out.lotStart = dataStart;
+                    out.lotLength = length;
+                } else {
+                    out.serialStart = dataStart;
+                    out.serialLength = length;
+                }
+                pos = stop < end ? stop + 1 : stop;
+                continue;
+            }
+            int fixed = PREDEFINED_LENGTH[ai];
+            if (fixed == 0) {
+                while (pos < end && buffer.get(pos) != GS) {
+                    pos++;
+                }
+                pos = pos < end ? pos + 1 : pos;
+                continue;
+            }
+            if (pos + fixed > end) {
+                return false;
+            }
+            if (ai == 1) {
+                long gtin = digits(buffer, pos + 2, 14);
+                if (gtin < 0 || !validCheckDigit(gtin)) {
+                    return false;
+                }
+                out.gtin = gtin;
+            } else if (ai == 17) {
+                long day = expiryDay(buffer, pos + 2, todayEpochDay);
+                if (day == NO_DATE) {
+                    return false;
+                }
+                out.expiryEpochDay = day;
+            }
+            pos += fixed;
+            if (pos < end && buffer.get(pos) == GS) {
+                pos++;      // some printers terminate fixed-length AIs too
+            }
+        }
+        return out.gtin != 0;
+    }
+
+    // GTIN-8/12/13/14 text as a 14 digit GTIN; IllegalArgumentException when malformed
+    public static long parseGtin(String text) {
+        int length = text.length();
+        if (length != 8 && length != 12 && length != 13 && length != 14) {
+            throw new IllegalArgumentException("GTIN must have 8, 12, 13 or 14 digits: " + text);
+        }
+        long gtin = 0;
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new IllegalArgumentException("GTIN must be numeric: " + text);
+            }
+            gtin = gtin * 10 + (c - '0');
+        }
+        if (gtin == 0 || !validCheckDigit(gtin)) {
+            throw new IllegalArgumentException("Invalid GTIN check digit: " + text);
+        }
+        return gtin;
+    }
+
+    // Mod-10 check: weights 3, 1, 3, ... from the digit left of the check digit
+    static boolean validCheckDigit(long gtin) {
+        long rest = gtin / 10;
+        int sum = 0;
+        for (int weight = 3; rest > 0; rest /= 10, weight = 4 - weight) {
+            sum += (int) (rest % 10) * weight;
+        }
+        return (10 - sum % 10) % 10 == gtin % 10;
+    }
+
+    // YYMMDD with the GS1 century window around the current year; DD 00 is the month's last day
+    private static long expiryDay(ByteBuffer buffer, int pos, long todayEpochDay) {
+        int yy = twoDigits(buffer, pos);
+        int month = twoDigits(buffer, pos + 2);
+        int day = twoDigits(buffer, pos + 4);
+        if (yy < 0 || month < 1 || month > 12 || day < 0) {
+            return NO_DATE;
+        }
+        int currentYear = yearOfEpochDay(todayEpochDay);
+        int year = currentYear - currentYear % 100 + yy;
+        int offset = yy - currentYear % 100;
+        if (offset >= 51) {
+            year -= 100;
+        } else if (offset <= -50) {
+            year += 100;
+        }
+        int monthLength = monthLength(year, month);
+        if (day == 0) {
+            day = monthLength;
+        } else if (day > monthLength) {
+            return NO_DATE;
+        }
+        return epochDay(year, month, day);
+    }
+
+    private static int twoDigits(ByteBuffer buffer, int pos) {
+        int high = buffer.get(pos) - '0';
+        int low = buffer.get(pos + 1) - '0';
+        if (high < 0 || high > 9 || low < 0 || low > 9) {
+            return -1;
+        }
+        return high * 10 + low;
+    }
+
+    private static long digits(ByteBuffer buffer, int pos, int count) {
+        long value = 0;
+        for (int i = 0; i < count; i++) {
+            int digit = buffer.get(pos + i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static int monthLength(int year, int month) {
+        if (month == 2) {
+            boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+            return leap ? 29 : 28;
+        }
+        return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+    }
+
+    // Proleptic Gregorian date arithmetic on plain longs (what LocalDate does, minus the objects)
+    static long epochDay(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    static int yearOfEpochDay(long epochDay) {
+        long z = epochDay + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long dayOfEra = z - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long shiftedMonth = (5 * dayOfYear + 2) / 153;   // 0 = March
+        long year = yearOfEra + era * 400;
+        return (int) (shiftedMonth >= 10 ? year + 1 : year);
+    }
+}
@@ -0,0 +1,78 @@
+package designpatterns16.Stockmonitor;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+//Result of parsing one GS1 element string, reused from scan to scan.
+//The lot and serial are kept as ranges of the scanned buffer; only getLotCode()/getSerial()
+//materialize them as strings, so the parse itself allocates nothing.
+public final class Gs1Scan {
+
+    long gtin;
+    long expiryEpochDay;
+    ByteBuffer source;
+    int lotStart;
+    int lotLength;
+    int serialStart;
+    int serialLength;
+
+    void reset(ByteBuffer source) {
+        this.source = source;
+        gtin = 0;
+        expiryEpochDay = ExpiryDates.NO_EXPIRY;
+        lotLength = -1;
+        serialLength = -1;
+    }
+
+    // 14 digit GTIN (AI 01) including its check digit
+    public long getGtin() {
+        return gtin;
+    }
+
+    // Expiry (AI 17) as an epoch day, ExpiryDates.NO_EXPIRY when the code carries none
+    public long getExpiryEpochDay() {
+        return expiryEpochDay;
+    }
+
+    public boolean hasLot() {
+        return lotLength >= 0;
+    }
+
+    // Batch/lot number (AI 10), null when absent
+    public String getLotCode() {
+        return hasLot() ? text(lotStart, lotLength) : null;
+    }
+
+    public boolean hasSerial() {
+        return serialLength >= 0;
+    }
+
+    // Serial number (AI 21), null when absent
+    public String getSerial() {
+        return hasSerial() ? text(serialStart, serialLength) : null;
+    }
+
+    // Whether the scanned lot number equals a string, without materializing it
+    boolean lotEquals(String lotCode) {
+        if (!hasLot()) {
+            return lotCode == null;
+        }
+        if (lotCode == null || lotCode.length() != lotLength) {
+            return false;
+        }
+        for (int i = 0; i < lotLength; i++) {
+            if (source.get(lotStart + i) != lotCode.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String text(int start, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = source.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+}
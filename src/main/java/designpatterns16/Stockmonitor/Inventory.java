@@ -2,37 +2,302 @@ package designpatterns16.Stockmonitor;
 
 import designpatterns16.design_patterns.composite.Category;
 import designpatterns16.design_patterns.composite.ProductCategory;
-import designpatterns16.items.Item;
+import designpatterns16.design_patterns.observer.IObserver;
+import designpatterns16.items.Consumable;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 
-public class Inventory {
+public class Inventory implements LotStore {
     private List<StockItem> stockItems = new ArrayList<>();
-    private ProductCategory rootCategory;
+    // Product name -> lots, keeps product lookups independent of the inventory size
+    private Map<String, List<StockItem>> lotsByProduct = new HashMap<>();
+    private Map<Long, StockItem> lotsById = new HashMap<>();
+    // Catalog product id -> lots; every lot shares the catalog's canonical product instance
+    private Map<Integer, List<StockItem>> lotsByProductId = new HashMap<>();
+    private final ProductCatalog catalog;
+    private final DayClock clock;
+    private final LotAttributeIndex attributeIndex = new LotAttributeIndex();
+    // Volatile: read without the inventory lock by caches that hold their own lock
+    private volatile ProductCategory rootCategory;
+    // Interval labels of the category tree, relabelled lazily after the tree changed
+    private CategoryLabels labels;
+    // Leaf label -> lots of the leaf's product; a subtree's lots are one sub-range
+    private final TreeMap<Integer, List<StockItem>> lotsByLabel = new TreeMap<>();
+    private List<InventoryListener> listeners = new ArrayList<>();
+    // Latest published version of the lots, replaced (never mutated) under the inventory lock
+    private volatile InventorySnapshot current = new InventorySnapshot(PersistentLotMap.<LotView>empty(), 0);
+    // Non-null while a multi-lot write is in progress; published as one version at its end
+    private PersistentLotMap<LotView> pendingLots;
+    // Attached to every lot so quantity changes reach the snapshot and the inventory listeners
+    private final IObserver lotChangeForwarder = new IObserver() {
+        @Override
+        public void update(StockItem stockItem) {
+            synchronized (Inventory.this) {
+                publish(lots().put(stockItem.getLotId(), new LotView(stockItem)));
+                for (InventoryListener listener : listeners) {
+                    listener.lotChanged(stockItem);
+                }
+            }
+        }
+    };
 
     public Inventory() {
+        this(new ProductCatalog());
+    }
+
+    // Inventories sharing a catalog agree on product ids (shards, replicas)
+    public Inventory(ProductCatalog catalog) {
+        this(catalog, DayClock.SYSTEM);
+    }
+
+    // The clock decides which lots count as expired
+    public Inventory(DayClock clock) {
+        this(new ProductCatalog(), clock);
+    }
+
+    public Inventory(ProductCatalog catalog, DayClock clock) {
+        this.catalog = catalog;
+        this.clock = clock;
         this.rootCategory = new ProductCategory("All Products");
     }
 
-    public void addStock(StockItem item) {
+    public ProductCatalog getCatalog() {
+        return catalog;
+    }
+
+    @Override
+    public DayClock getClock() {
+        return clock;
+    }
+
+    @Override
+    public synchronized void addStock(StockItem item) {
+        int productId = catalog.intern(item.getProduct());
+        item.bindProduct(productId, catalog.get(productId));
         stockItems.add(item);
+        lotsByProductId.computeIfAbsent(productId, k -> new ArrayList<>()).add(item);
+        lotsByProduct.computeIfAbsent(item.getName(), k -> new ArrayList<>()).add(item);
+        lotsById.put(item.getLotId(), item);
+        attributeIndex.add(item);
+        if (labels != null && labels.isCurrent(rootCategory)) {
+            for (int label : labels.leafLabels(productId)) {
+                lotsByLabel.computeIfAbsent(label, k -> new ArrayList<>()).add(item);
+            }
+        }
+        item.addObserver(lotChangeForwarder);
+        publish(lots().put(item.getLotId(), new LotView(item)));
+        for (InventoryListener listener : listeners) {
+            listener.lotAdded(item);
+        }
     }
 
-    public void removeStock(StockItem item) {
-        if(!stockItems.contains(item)) {
+    @Override
+    public synchronized void removeStock(StockItem item) {
+        if(!contains(item)) {
             throw new IllegalArgumentException("Item not found in inventory!");
         }
         stockItems.remove(item);
+        unindex(item);
     }
 
-    public List<StockItem> getStockByProduct(String name) {
-        return stockItems.stream()
-                .filter(s -> s.getProduct().getName().equals(name))
-                .collect(Collectors.toList());
+    // Removes many lots in one pass over the lot list, published as one snapshot version
+    public synchronized void removeStock(Collection<StockItem> items) {
+        final Set<StockItem> removed = new LinkedHashSet<>();   // StockItem has identity equality
+        for (StockItem item : items) {
+            if (!contains(item)) {
+                throw new IllegalArgumentException("Item not found in inventory!");
+            }
+            removed.add(item);
+        }
+        writeBatch(() -> {
+            stockItems.removeIf(removed::contains);
+            for (StockItem item : removed) {
+                unindex(item);
+            }
+        });
     }
 
+    // Everything removeStock does besides taking the lot out of stockItems
+    private void unindex(StockItem item) {
+        List<StockItem> lots = lotsByProduct.get(item.getName());
+        if (lots != null) {
+            lots.remove(item);
+            if (lots.isEmpty()) {
+                lotsByProduct.remove(item.getName());
+            }
+        }
+        List<StockItem> productLots = lotsByProductId.get(item.getProductId());
+        if (productLots != null) {
+            productLots.remove(item);
+            if (productLots.isEmpty()) {
+                lotsByProductId.remove(item.getProductId());
+            }
+        }
+        if (labels != null && labels.isCurrent(rootCategory)) {
+            for (int label : labels.leafLabels(item.getProductId())) {
+                List<StockItem> labelled = lotsByLabel.get(label);
+                labelled.remove(item);
+                if (labelled.isEmpty()) {
+                    lotsByLabel.remove(label);
+                }
+            }
+        }
+        lotsById.remove(item.getLotId());
+        attributeIndex.remove(item.getLotId());
+        item.removeObserver(lotChangeForwarder);
+        publish(lots().remove(item.getLotId()));
+        for (InventoryListener listener : listeners) {
+            listener.lotRemoved(item);
+        }
+    }
+
+    // Callers hold the inventory lock, so versions are published in write order
+    private void publish(PersistentLotMap<LotView> lots) {
+        if (pendingLots != null) {
+            pendingLots = lots;
+        } else {
+            current = new InventorySnapshot(lots, current.getVersion() + 1);
+        }
+    }
+
+    private PersistentLotMap<LotView> lots() {
+        return pendingLots != null ? pendingLots : current.lots();
+    }
+
+    // Consistent read-only view of all lots; O(1), lock free, unaffected by later writes
+    public InventorySnapshot snapshot() {
+        return current;
+    }
+
+    // Listeners are called under the inventory lock, so the list only changes under it too
+    public synchronized void addListener(InventoryListener listener) {
+        listeners.add(listener);
+    }
+
+    public synchronized void removeListener(InventoryListener listener) {
+        listeners.remove(listener);
+    }
+
+    public synchronized boolean contains(StockItem item) {
+        return item != null && lotsById.get(item.getLotId()) == item;
+    }
+
+    // ---------- ATTRIBUTE QUERIES ----------
+    // Filters lots by type, drug form and price/dosage/capacity ranges through secondary indexes
+    public LotQuery query() {
+        return new LotQuery(this);
+    }
+
+    synchronized long[] runQuery(LotQuery query) {
+        return query.evaluate(attributeIndex);
+    }
+
+    synchronized List<StockItem> lotsById(long[] ids) {
+        List<StockItem> lots = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            StockItem lot = lotsById.get(id);
+            if (lot != null) {
+                lots.add(lot);
+            }
+        }
+        return lots;
+    }
+
+    // Re-reads the product attributes of a lot after its product was edited
+    public synchronized void reindex(StockItem item) {
+        if (!contains(item)) {
+            throw new IllegalArgumentException("Item not found in inventory!");
+        }
+        attributeIndex.add(item);
+    }
+
+    // Cold chain breach: shortens the lot's expiry under the inventory lock, published as one version.
+    // Returns false (and changes nothing) when the lot is not in this inventory.
+    public synchronized boolean markExcursion(StockItem item, long useByEpochDay) {
+        if (!contains(item)) {
+            return false;
+        }
+        writeBatch(() -> item.recordTemperatureExcursion(useByEpochDay));
+        return true;
+    }
+
+    @Override
+    public synchronized List<StockItem> getStockByProduct(String name) {
+        List<StockItem> lots = lotsByProduct.get(name);
+        return lots == null ? new ArrayList<StockItem>() : new ArrayList<>(lots);
+    }
+
+    public synchronized List<StockItem> getStockByProductId(int productId) {
+        List<StockItem> lots = lotsByProductId.get(productId);
+        return lots == null ? new ArrayList<StockItem>() : new ArrayList<>(lots);
+    }
+
+    // Dispenses from the lots of a product, earliest expiration first (lots without date last).
+    // Expired lots are never dispensed and do not count as available stock.
+    @Override
+    public synchronized void dispense(String productName, int amount) {
+        if (amount <= 0) {
+            throw new IllegalArgumentException("Amount must be positive!");
+        }
+        List<StockItem> lots = getStockByProduct(productName);
+        if (lots.isEmpty()) {
+            throw new IllegalArgumentException("Product not found: " + productName);
+        }
+        lots.removeIf(lot -> lot.isExpired(clock));
+        int available = 0;
+        for (StockItem lot : lots) {
+            available += lot.getStock();
+        }
+        if (available < amount) {
+            throw new IllegalArgumentException("Insufficient stock!");
+        }
+        Collections.sort(lots, FIRST_EXPIRY_FIRST);
+        // Snapshot readers see the dispense as a whole, never a partly drained product
+        writeBatch(() -> {
+            int remaining = amount;
+            for (StockItem lot : lots) {
+                int take = Math.min(remaining, lot.getStock());
+                if (take > 0) {
+                    lot.reduceStock(take);
+                    remaining -= take;
+                }
+                if (remaining == 0) {
+                    break;
+                }
+            }
+        });
+    }
+
+    // Runs several writes under the inventory lock and publishes them as one snapshot version
+    synchronized void writeBatch(Runnable writes) {
+        if (pendingLots != null) {
+            writes.run();   // already inside a batch
+            return;
+        }
+        pendingLots = current.lots();
+        try {
+            writes.run();
+        } finally {
+            PersistentLotMap<LotView> written = pendingLots;
+            pendingLots = null;
+            publish(written);
+        }
+    }
+
+    // NO_EXPIRY is Long.MAX_VALUE, so lots without a date sort last
+    private static final Comparator<StockItem> FIRST_EXPIRY_FIRST =
+            Comparator.comparingLong(StockItem::getExpiryEpochDay);
+
     // Composite pattern integration
     public ProductCategory getRootCategory() {
         return rootCategory;
@@ -42,32 +307,52 @@ public class Inventory {
         this.rootCategory = rootCategory;
     }
 
-    public List<StockItem> getStockByCategory(String categoryName) {
+    // Lots of every product under the category, in category pre-order. The subtree is one label
+    // range, so this is a range scan of the label ordered lots instead of a subtree walk.
+    // Leaves match lots of equal products held by other instances; a product listed twice counts once
+    public synchronized List<StockItem> getStockByCategory(String categoryName) {
         List<StockItem> result = new ArrayList<>();
-        Category category = findCategoryByName(rootCategory, categoryName);
-        if (category != null) {
-            List<Item> items = category.getAllItems();
-            for (Item item : items) {
-                List<StockItem> stockForItem = stockItems.stream()
-                        .filter(s -> s.getProduct().equals(item))
-                        .collect(Collectors.toList());
-                result.addAll(stockForItem);
+        CategoryLabels labels = labels();
+        Category category = labels.find(categoryName);
+        if (category == null) {
+            return result;
+        }
+        int[] interval = labels.interval(category);
+        Set<Integer> seenProducts = labels.hasRepeatedProducts() ? new HashSet<Integer>() : null;
+        for (List<StockItem> lots : lotsByLabel.subMap(interval[0], true, interval[1], true).values()) {
+            if (seenProducts == null || seenProducts.add(lots.get(0).getProductId())) {
+                result.addAll(lots);
             }
         }
         return result;
     }
 
-    private Category findCategoryByName(Category category, String name) {
-        if (category.getName().equals(name)) {
-            return category;
+    // O(1) for a product listed in one leaf: a check of its leaf label against the category interval
+    public synchronized boolean isInCategory(StockItem item, String categoryName) {
+        if (!contains(item)) {
+            throw new IllegalArgumentException("Item not found in inventory!");
         }
-        for (Category child : category.getChildren()) {
-            Category found = findCategoryByName(child, name);
-            if (found != null) {
-                return found;
+        CategoryLabels labels = labels();
+        Category category = labels.find(categoryName);
+        return category != null && labels.contains(labels.interval(category), item.getProductId());
+    }
+
+    private CategoryLabels labels() {
+        if (labels == null || !labels.isCurrent(rootCategory)) {
+            labels = CategoryLabels.label(rootCategory, catalog);
+            lotsByLabel.clear();
+            for (Map.Entry<Integer, List<StockItem>> entry : lotsByProductId.entrySet()) {
+                for (int label : labels.leafLabels(entry.getKey())) {
+                    lotsByLabel.put(label, new ArrayList<>(entry.getValue()));
+                }
             }
         }
-        return null;
+        return labels;
+    }
+
+    // First category or product leaf with the name in pre-order, null when there is none
+    public synchronized Category findCategory(String name) {
+        return rootCategory == null ? null : labels().find(name);
     }
 
     public void displayCategoryStructure() {
@@ -75,7 +360,8 @@ public class Inventory {
         rootCategory.display();
     }
 
-    public List<StockItem> getAllStockItems() {
+    @Override
+    public synchronized List<StockItem> getAllStockItems() {
         return new ArrayList<>(stockItems);
     }
 }
@@ -0,0 +1,9 @@
+package designpatterns16.Stockmonitor;
+
+//Listener for structural and quantity changes of the lots held by an Inventory.
+//Unlike IObserver it is registered once on the Inventory instead of on every lot.
+public interface InventoryListener {
+    void lotAdded(StockItem stockItem);
+    void lotRemoved(StockItem stockItem);
+    void lotChanged(StockItem stockItem);
+}
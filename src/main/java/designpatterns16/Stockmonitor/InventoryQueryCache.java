@@ -0,0 +1,197 @@
+package designpatterns16.Stockmonitor;
+
+import designpatterns16.design_patterns.composite.Category;
+import designpatterns16.design_patterns.composite.ProductCategory;
+import designpatterns16.design_patterns.composite.ProductLeaf;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+//Bounded LRU cache for getStockByProduct / getStockByCategory results.
+//Invalidation is precise for lots: a lot change only drops the entry of its product and the
+//entries of the categories that contain the product. Category entries and the ancestor index
+//are keyed off the root category and its structure version, so any edit of the tree (or a new
+//root) drops the category entries on the next access without callers having to report it.
+public class InventoryQueryCache implements InventoryListener {
+
+    private static final char PRODUCT = 'P';
+    private static final char CATEGORY = 'C';
+
+    private final Inventory inventory;
+    private final LinkedHashMap<String, List<StockItem>> entries;
+    // product name -> names of every category whose subtree holds the product
+    private Map<String, Set<String>> productAncestors;
+    // Tree the category entries and the ancestor index were built from
+    private ProductCategory indexedRoot;
+    private long indexedVersion;
+    private long invalidations = 0;      // bumped on every invalidation, guards racing misses
+
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    public InventoryQueryCache(Inventory inventory, final int maxEntries) {
+        this.inventory = inventory;
+        this.entries = new LinkedHashMap<String, List<StockItem>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, List<StockItem>> eldest) {
+                if (size() > maxEntries) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+        inventory.addListener(this);
+    }
+
+    // ---------- QUERIES ----------
+    public List<StockItem> getStockByProduct(String name) {
+        String key = PRODUCT + name;
+        List<StockItem> cached = lookup(key);
+        if (cached != null) {
+            return cached;
+        }
+        long seen = invalidationCount();
+        return store(key, inventory.getStockByProduct(name), seen);
+    }
+
+    public List<StockItem> getStockByCategory(String categoryName) {
+        String key = CATEGORY + categoryName;
+        List<StockItem> cached = lookup(key);
+        if (cached != null) {
+            return cached;
+        }
+        long seen = invalidationCount();
+        return store(key, inventory.getStockByCategory(categoryName), seen);
+    }
+
+    private synchronized List<StockItem> lookup(String key) {
+        checkTree();
+        List<StockItem> cached = entries.get(key);
+        if (cached != null) {
+            hits++;
+        } else {
+            misses++;
+        }
+        return cached;
+    }
+
+    private synchronized long invalidationCount() {
+        checkTree();
+        return invalidations;
+    }
+
+    // The inventory is queried outside the cache lock; if anything was invalidated meanwhile
+    // the result may already be stale and is returned without being cached.
+    private synchronized List<StockItem> store(String key, List<StockItem> result, long seenInvalidations) {
+        List<StockItem> value = Collections.unmodifiableList(result);
+        checkTree();
+        if (seenInvalidations == invalidations) {
+            entries.put(key, value);
+        }
+        return value;
+    }
+
+    // ---------- INVALIDATION ----------
+    @Override
+    public void lotAdded(StockItem stockItem) {
+        invalidateProduct(stockItem.getName());
+    }
+
+    @Override
+    public void lotRemoved(StockItem stockItem) {
+        invalidateProduct(stockItem.getName());
+    }
+
+    @Override
+    public void lotChanged(StockItem stockItem) {
+        invalidateProduct(stockItem.getName());
+    }
+
+    public synchronized void invalidateProduct(String productName) {
+        checkTree();
+        invalidations++;
+        entries.remove(PRODUCT + productName);
+        Set<String> categories = productAncestors().get(productName);
+        if (categories != null) {
+            for (String category : categories) {
+                entries.remove(CATEGORY + category);
+            }
+        }
+    }
+
+    // Drops the category entries and the ancestor index once the tree is no longer the indexed one
+    private void checkTree() {
+        ProductCategory root = inventory.getRootCategory();
+        long version = root == null ? 0 : root.structureVersion();
+        if (root == indexedRoot && version == indexedVersion) {
+            return;
+        }
+        invalidations++;
+        entries.keySet().removeIf(key -> key.charAt(0) == CATEGORY);
+        productAncestors = null;
+        indexedRoot = root;
+        indexedVersion = version;
+    }
+
+    public synchronized void clear() {
+        invalidations++;
+        entries.clear();
+    }
+
+    private Map<String, Set<String>> productAncestors() {
+        if (productAncestors == null) {
+            indexTree();
+        }
+        return productAncestors;
+    }
+
+    private void indexTree() {
+        productAncestors = new HashMap<>();
+        if (indexedRoot != null) {
+            indexTree(indexedRoot, new ArrayList<String>());
+        }
+    }
+
+    private void indexTree(Category category, List<String> path) {
+        if (category instanceof ProductLeaf) {
+            Set<String> ancestors = productAncestors.computeIfAbsent(category.getName(), k -> new HashSet<>());
+            ancestors.addAll(path);
+            return;
+        }
+        path.add(category.getName());
+        for (Category child : category.getChildren()) {
+            indexTree(child, path);
+        }
+        path.remove(path.size() - 1);
+    }
+
+    // ---------- STATISTICS ----------
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized double getHitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+}
@@ -0,0 +1,206 @@
+package designpatterns16.Stockmonitor;
+
+import designpatterns16.alerts.AlertSinks;
+import designpatterns16.design_patterns.composite.ProductCategory;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+//Read-only copy of a primary Inventory, kept up to date by a ReplicationPrimary.
+//Batches received over TCP are applied atomically with respect to the query methods and
+//published as one snapshot version, so readers never observe half of a batch.
+//Queries hand out immutable LotViews: the replica's lots can only change through replication.
+public class InventoryReplica implements Closeable {
+
+    private final Inventory inventory = new Inventory();
+    private final Map<Long, StockItem> lots = new HashMap<>();
+    private final Socket socket;
+    private final Thread applier;
+    private volatile boolean running = true;
+    private long appliedRecords = 0;
+    private long appliedBatches = 0;
+
+    public InventoryReplica(int primaryPort) throws IOException {
+        this(InetAddress.getLoopbackAddress().getHostAddress(), primaryPort);
+    }
+
+    public InventoryReplica(String host, int primaryPort) throws IOException {
+        this.socket = new Socket(host, primaryPort);
+        socket.setTcpNoDelay(true);
+        applier = new Thread(this::applyLoop, "replica-applier");
+        applier.setDaemon(true);
+        applier.start();
+    }
+
+    private void applyLoop() {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+            while (running) {
+                int records = in.readInt();
+                synchronized (this) {
+                    applyBatch(in, records);
+                    appliedRecords += records;
+                    appliedBatches++;
+                    notifyAll();
+                }
+            }
+        } catch (EOFException e) {
+            // primary closed the stream
+        } catch (IOException e) {
+            if (running) {
+                AlertSinks.get().emit("[REPLICATION] Replica lost primary: " + e.getMessage());
+            }
+        }
+    }
+
+    private void applyBatch(DataInputStream in, int records) throws IOException {
+        try {
+            inventory.writeBatch(() -> {
+                try {
+                    for (int i = 0; i < records; i++) {
+                        apply(in);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void apply(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case ReplicationPrimary.RECORD_RESET:
+                for (StockItem item : lots.values()) {
+                    inventory.removeStock(item);
+                }
+                lots.clear();
+                break;
+            case ReplicationPrimary.RECORD_ADD: {
+                StockItem item = ProductCodec.readLot(in);
+                StockItem previous = lots.put(item.getLotId(), item);
+                if (previous != null) {
+                    inventory.removeStock(previous);
+                }
+                inventory.addStock(item);
+                break;
+            }
+            case ReplicationPrimary.RECORD_QUANTITY: {
+                StockItem item = lots.get(in.readLong());
+                int quantity = in.readInt();
+                if (item != null) {
+                    int delta = quantity - item.getStock();
+                    if (delta > 0) {
+                        item.increaseStock(delta);
+                    } else if (delta < 0) {
+                        item.reduceStock(-delta);
+                    }
+                }
+                break;
+            }
+            case ReplicationPrimary.RECORD_EXPIRY: {
+                StockItem item = lots.get(in.readLong());
+                long useByEpochDay = in.readLong();
+                if (item != null) {
+                    item.recordTemperatureExcursion(useByEpochDay);
+                }
+                break;
+            }
+            case ReplicationPrimary.RECORD_REMOVE: {
+                StockItem item = lots.remove(in.readLong());
+                if (item != null) {
+                    inventory.removeStock(item);
+                }
+                break;
+            }
+            default:
+                throw new IOException("Unknown replication record: " + type);
+        }
+    }
+
+    // ---------- READ-ONLY QUERIES ----------
+    public synchronized List<LotView> getStockByProduct(String name) {
+        return views(inventory.getStockByProduct(name));
+    }
+
+    public synchronized List<LotView> getStockByCategory(String categoryName) {
+        return views(inventory.getStockByCategory(categoryName));
+    }
+
+    public synchronized List<LotView> getAllStockItems() {
+        return views(inventory.getAllStockItems());
+    }
+
+    // Latest fully applied state; lock free and unaffected by batches applied later
+    public InventorySnapshot snapshot() {
+        return inventory.snapshot();
+    }
+
+    // Reports run on the replica's snapshot, offloading them from the primary
+    public InventoryReport generateReport(ReportEngine engine) {
+        ProductCategory rootCategory;
+        synchronized (this) {
+            rootCategory = inventory.getRootCategory();
+        }
+        return engine.generate(inventory.snapshot(), rootCategory, inventory.getCatalog(), inventory.getClock());
+    }
+
+    private static List<LotView> views(List<StockItem> lots) {
+        List<LotView> views = new ArrayList<>(lots.size());
+        for (StockItem lot : lots) {
+            views.add(new LotView(lot));
+        }
+        return views;
+    }
+
+    public synchronized double getTotalValue() {
+        double total = 0;
+        for (StockItem item : lots.values()) {
+            total += item.getTotalValue();
+        }
+        return total;
+    }
+
+    // Categories are not replicated, each replica installs the tree it wants to query with
+    public synchronized void setRootCategory(ProductCategory rootCategory) {
+        inventory.setRootCategory(rootCategory);
+    }
+
+    public synchronized long getAppliedRecords() {
+        return appliedRecords;
+    }
+
+    public synchronized long getAppliedBatches() {
+        return appliedBatches;
+    }
+
+    // Blocks until at least the given number of records has been applied, false on timeout
+    public synchronized boolean awaitApplied(long records, long timeoutMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (appliedRecords < records) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return false;
+            }
+            wait(remaining);
+        }
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        socket.close();
+    }
+}
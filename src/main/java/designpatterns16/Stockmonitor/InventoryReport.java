@@ -0,0 +1,132 @@
+package designpatterns16.Stockmonitor;
+
+import designpatterns16.design_patterns.composite.Category;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+//Result of one ReportEngine pass: the stock, critical and expiration reports plus
+//per-type and per-category totals, all computed from the same snapshot version.
+//Renderers (console, HTTP) only read it, so no view recomputes anything.
+public final class InventoryReport {
+
+    private final long snapshotVersion;
+    private final long generatedOnEpochDay;
+    private final int criticalLevel;
+    private final int expiryWindowDays;
+    private final List<LotView> lots;
+    private final List<LotView> criticalLots;
+    private final List<LotView> expiringLots;
+    private final Totals total;
+    private final Map<String, Totals> byType;
+    private final Map<String, Totals> byCategory;
+    private final Map<Category, Totals> byCategoryNode;
+
+    InventoryReport(long snapshotVersion, long generatedOnEpochDay, int criticalLevel, int expiryWindowDays,
+                    List<LotView> lots, List<LotView> criticalLots, List<LotView> expiringLots,
+                    Totals total, Map<String, Totals> byType, Map<String, Totals> byCategory,
+                    Map<Category, Totals> byCategoryNode) {
+        this.snapshotVersion = snapshotVersion;
+        this.generatedOnEpochDay = generatedOnEpochDay;
+        this.criticalLevel = criticalLevel;
+        this.expiryWindowDays = expiryWindowDays;
+        this.lots = Collections.unmodifiableList(lots);
+        this.criticalLots = Collections.unmodifiableList(criticalLots);
+        this.expiringLots = Collections.unmodifiableList(expiringLots);
+        this.total = total;
+        this.byType = Collections.unmodifiableMap(byType);
+        this.byCategory = Collections.unmodifiableMap(byCategory);
+        this.byCategoryNode = byCategoryNode;
+    }
+
+    public long getSnapshotVersion() {
+        return snapshotVersion;
+    }
+
+    public long getGeneratedOnEpochDay() {
+        return generatedOnEpochDay;
+    }
+
+    // Lots at or below this quantity are critical
+    public int getCriticalLevel() {
+        return criticalLevel;
+    }
+
+    // Lots expiring in fewer days than this (or already expired) are listed as expiring
+    public int getExpiryWindowDays() {
+        return expiryWindowDays;
+    }
+
+    // All lots, ascending lot id
+    public List<LotView> getLots() {
+        return lots;
+    }
+
+    public List<LotView> getCriticalLots() {
+        return criticalLots;
+    }
+
+    public List<LotView> getExpiringLots() {
+        return expiringLots;
+    }
+
+    public Totals getTotal() {
+        return total;
+    }
+
+    // Product type -> totals, sorted by type
+    public Map<String, Totals> getByType() {
+        return byType;
+    }
+
+    // Category name -> totals of every lot below it, in category tree order.
+    // A name shared by several categories is keyed by its path instead ("All Products/Vaccines/Other").
+    public Map<String, Totals> getByCategory() {
+        return byCategory;
+    }
+
+    // Totals of every lot below the given category node, null when it was not in the reported tree
+    public Totals getCategoryTotals(Category category) {
+        return byCategoryNode.get(category);
+    }
+
+    //Lot count, units and value of a group of lots.
+    public static final class Totals {
+        private int lots;
+        private long units;
+        private double value;
+
+        Totals() {
+        }
+
+        void add(LotView lot) {
+            lots++;
+            units += lot.getStock();
+            value += lot.getTotalValue();
+        }
+
+        void add(Totals other) {
+            lots += other.lots;
+            units += other.units;
+            value += other.value;
+        }
+
+        public int getLots() {
+            return lots;
+        }
+
+        public long getUnits() {
+            return units;
+        }
+
+        public double getValue() {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return "Totals{lots=" + lots + ", units=" + units + ", value=" + value + '}';
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package designpatterns16.Stockmonitor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+//Point-in-time, read-only view of an inventory.
+//Taking one is O(1): it pins the current version of the persistent lot map, which later
+//writes never modify. Reports iterate it without holding the inventory lock and always see
+//one consistent state, lots in ascending lot id order.
+public final class InventorySnapshot {
+
+    private final PersistentLotMap<LotView> lots;
+    private final long version;
+
+    InventorySnapshot(PersistentLotMap<LotView> lots, long version) {
+        this.lots = lots;
+        this.version = version;
+    }
+
+    PersistentLotMap<LotView> lots() {
+        return lots;
+    }
+
+    // Number of writes applied to the inventory before this snapshot was taken
+    public long getVersion() {
+        return version;
+    }
+
+    public int size() {
+        return lots.size();
+    }
+
+    public boolean isEmpty() {
+        return lots.isEmpty();
+    }
+
+    public LotView getLot(long lotId) {
+        return lots.get(lotId);
+    }
+
+    public void forEach(Consumer<? super LotView> action) {
+        lots.forEach(action);
+    }
+
+    public List<LotView> getLots() {
+        return lots.values();
+    }
+
+    public List<LotView> getStockByProduct(final String name) {
+        final List<LotView> result = new ArrayList<>();
+        lots.forEach(lot -> {
+            if (lot.getName().equals(name)) {
+                result.add(lot);
+            }
+        });
+        return result;
+    }
+
+    public double getTotalValue() {
+        final double[] total = new double[1];
+        lots.forEach(lot -> total[0] += lot.getTotalValue());
+        return total[0];
+    }
+}
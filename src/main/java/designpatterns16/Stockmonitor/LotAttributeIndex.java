@@ -0,0 +1,174 @@
+package designpatterns16.Stockmonitor;
+
+import designpatterns16.items.Consumable;
+import designpatterns16.items.Medicine;
+import designpatterns16.items.Serum;
+import designpatterns16.items.Vaccine;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+//Secondary indexes over the lots of an Inventory, keyed by product attributes.
+//Type and drug form are hash indexes; price, dosage and capacity are sorted (TreeMap) so
+//ranges are answered from a sub-map. Every posting list is a sorted array of lot ids, which
+//lets LotQuery combine predicates by intersecting lists instead of scanning lots. Each predicate
+//can also be counted without materializing it and probed for a single lot id, so a query only
+//materializes its most selective predicate and checks the candidates against much larger ones.
+//Attribute values are captured when a lot is indexed; Inventory.reindex picks up later edits.
+final class LotAttributeIndex {
+
+    enum KeyAttribute { TYPE, DRUG_FORM }
+
+    enum RangeAttribute { PRICE, DOSAGE, CAPACITY }
+
+    private final Map<String, SortedLongList> byType = new HashMap<>();
+    private final Map<String, SortedLongList> byDrugForm = new HashMap<>();
+    private final TreeMap<Double, SortedLongList> byPrice = new TreeMap<>();
+    private final TreeMap<Double, SortedLongList> byDosage = new TreeMap<>();
+    private final TreeMap<Double, SortedLongList> byCapacity = new TreeMap<>();
+    private final SortedLongList all = new SortedLongList();
+    // Values each lot was indexed under, needed to unindex it after the product changed
+    private final Map<Long, IndexedValues> indexed = new HashMap<>();
+
+    void add(StockItem item) {
+        IndexedValues values = new IndexedValues(item.getProduct());
+        long lotId = item.getLotId();
+        remove(lotId);
+        indexed.put(lotId, values);
+        all.add(lotId);
+        post(byType, values.type, lotId);
+        post(byDrugForm, values.drugForm, lotId);
+        post(byPrice, values.price, lotId);
+        post(byDosage, values.dosage, lotId);
+        post(byCapacity, values.capacity, lotId);
+    }
+
+    void remove(long lotId) {
+        IndexedValues values = indexed.remove(lotId);
+        if (values == null) {
+            return;
+        }
+        all.remove(lotId);
+        unpost(byType, values.type, lotId);
+        unpost(byDrugForm, values.drugForm, lotId);
+        unpost(byPrice, values.price, lotId);
+        unpost(byDosage, values.dosage, lotId);
+        unpost(byCapacity, values.capacity, lotId);
+    }
+
+    // ---------- LOOKUPS (sorted lot id arrays) ----------
+    long[] all() {
+        return all.toArray();
+    }
+
+    long[] lookup(KeyAttribute attribute, String key) {
+        SortedLongList ids = keyIndex(attribute).get(key);
+        return ids == null ? new long[0] : ids.toArray();
+    }
+
+    // Every posting list in the range is disjoint from the others (one value per lot), so a k-way
+    // merge of the sorted lists yields the sorted result without copying and sorting it again
+    long[] range(RangeAttribute attribute, double min, boolean minInclusive, double max, boolean maxInclusive) {
+        Collection<SortedLongList> lists = slice(attribute, min, minInclusive, max, maxInclusive);
+        int total = 0;
+        for (SortedLongList ids : lists) {
+            total += ids.size();
+        }
+        return SortedLongList.merge(lists.toArray(new SortedLongList[0]), total);
+    }
+
+    // ---------- ESTIMATES (exact sizes, nothing materialized) ----------
+    int count(KeyAttribute attribute, String key) {
+        SortedLongList ids = keyIndex(attribute).get(key);
+        return ids == null ? 0 : ids.size();
+    }
+
+    int rangeCount(RangeAttribute attribute, double min, boolean minInclusive, double max, boolean maxInclusive) {
+        int total = 0;
+        for (SortedLongList ids : slice(attribute, min, minInclusive, max, maxInclusive)) {
+            total += ids.size();
+        }
+        return total;
+    }
+
+    // ---------- PROBES (one lot against a predicate) ----------
+    boolean matches(long lotId, KeyAttribute attribute, String key) {
+        IndexedValues values = indexed.get(lotId);
+        return values != null && key != null && key.equals(values.get(attribute));
+    }
+
+    boolean inRange(long lotId, RangeAttribute attribute, double min, boolean minInclusive,
+                    double max, boolean maxInclusive) {
+        IndexedValues values = indexed.get(lotId);
+        Double value = values == null ? null : values.get(attribute);
+        if (value == null) {
+            return false;
+        }
+        int low = Double.compare(value, min);
+        int high = Double.compare(value, max);
+        return (minInclusive ? low >= 0 : low > 0) && (maxInclusive ? high <= 0 : high < 0);
+    }
+
+    private Map<String, SortedLongList> keyIndex(KeyAttribute attribute) {
+        return attribute == KeyAttribute.TYPE ? byType : byDrugForm;
+    }
+
+    private Collection<SortedLongList> slice(RangeAttribute attribute, double min, boolean minInclusive,
+                                             double max, boolean maxInclusive) {
+        if (min > max) {
+            return Collections.emptyList();
+        }
+        TreeMap<Double, SortedLongList> index = attribute == RangeAttribute.PRICE ? byPrice
+                : attribute == RangeAttribute.DOSAGE ? byDosage : byCapacity;
+        NavigableMap<Double, SortedLongList> slice = index.subMap(min, minInclusive, max, maxInclusive);
+        return slice.values();
+    }
+
+    private static <K> void post(Map<K, SortedLongList> index, K key, long lotId) {
+        if (key != null) {
+            index.computeIfAbsent(key, k -> new SortedLongList()).add(lotId);
+        }
+    }
+
+    private static <K> void unpost(Map<K, SortedLongList> index, K key, long lotId) {
+        if (key == null) {
+            return;
+        }
+        SortedLongList ids = index.get(key);
+        if (ids != null) {
+            ids.remove(lotId);
+            if (ids.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    //Attribute values of a product at indexing time; null where the product has no such attribute.
+    private static final class IndexedValues {
+        final String type;
+        final String drugForm;
+        final Double price;
+        final Double dosage;
+        final Double capacity;
+
+        IndexedValues(Consumable product) {
+            this.type = product.getType();
+            this.price = product.getPricePerUnit();
+            this.drugForm = product instanceof Medicine ? ((Medicine) product).getDrugForm() : null;
+            this.dosage = product instanceof Vaccine ? ((Vaccine) product).getDosageMl() : null;
+            this.capacity = product instanceof Serum ? ((Serum) product).getCapacityMl() : null;
+        }
+
+        String get(KeyAttribute attribute) {
+            return attribute == KeyAttribute.TYPE ? type : drugForm;
+        }
+
+        Double get(RangeAttribute attribute) {
+            return attribute == RangeAttribute.PRICE ? price : attribute == RangeAttribute.DOSAGE ? dosage : capacity;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package designpatterns16.Stockmonitor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+//Conjunctive query over the secondary indexes of an Inventory, e.g.
+//  inventory.query().type("Antibiotic").drugForm("Tablet").priceBelow(20).list()
+//Each predicate yields a sorted lot id list; the lists are intersected smallest first.
+public final class LotQuery {
+
+    static final int PROBE_RATIO = 8;
+
+    private final Inventory inventory;
+    private final List<Predicate> predicates = new ArrayList<>();
+
+    LotQuery(Inventory inventory) {
+        this.inventory = inventory;
+    }
+
+    public LotQuery type(String type) {
+        predicates.add(new KeyPredicate(LotAttributeIndex.KeyAttribute.TYPE, type));
+        return this;
+    }
+
+    public LotQuery drugForm(String drugForm) {
+        predicates.add(new KeyPredicate(LotAttributeIndex.KeyAttribute.DRUG_FORM, drugForm));
+        return this;
+    }
+
+    // Inclusive bounds
+    public LotQuery priceBetween(double min, double max) {
+        predicates.add(new RangePredicate(LotAttributeIndex.RangeAttribute.PRICE, min, true, max, true));
+        return this;
+    }
+
+    public LotQuery priceBelow(double max) {
+        predicates.add(new RangePredicate(LotAttributeIndex.RangeAttribute.PRICE,
+                Double.NEGATIVE_INFINITY, true, max, false));
+        return this;
+    }
+
+    public LotQuery dosageBetween(double minMl, double maxMl) {
+        predicates.add(new RangePredicate(LotAttributeIndex.RangeAttribute.DOSAGE, minMl, true, maxMl, true));
+        return this;
+    }
+
+    public LotQuery capacityBetween(double minMl, double maxMl) {
+        predicates.add(new RangePredicate(LotAttributeIndex.RangeAttribute.CAPACITY, minMl, true, maxMl, true));
+        return this;
+    }
+
+    // Matching lot ids, ascending
+    public long[] ids() {
+        return inventory.runQuery(this);
+    }
+
+    // Matching lots, ascending lot id
+    public List<StockItem> list() {
+        return inventory.lotsById(ids());
+    }
+
+    public int count() {
+        return ids().length;
+    }
+
+    // Called by Inventory under its lock.
+    // Only the most selective predicate is materialized; a larger one is intersected as a list
+    // when comparable in size, or probed per candidate lot when PROBE_RATIO times larger.
+    long[] evaluate(LotAttributeIndex index) {
+        if (predicates.isEmpty()) {
+            return index.all();
+        }
+        int n = predicates.size();
+        Predicate[] ordered = predicates.toArray(new Predicate[n]);
+        int[] counts = new int[n];
+        for (int i = 0; i < n; i++) {
+            counts[i] = ordered[i].count(index);
+        }
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Integer.compare(counts[a], counts[b]));
+
+        long[] result = ordered[order[0]].lookup(index);
+        for (int i = 1; i < n && result.length > 0; i++) {
+            Predicate predicate = ordered[order[i]];
+            if ((long) counts[order[i]] > (long) result.length * PROBE_RATIO) {
+                result = probe(result, predicate, index);
+            } else {
+                result = SortedLongList.intersect(result, predicate.lookup(index));
+            }
+        }
+        return result;
+    }
+
+    private static long[] probe(long[] candidates, Predicate predicate, LotAttributeIndex index) {
+        long[] kept = new long[candidates.length];
+        int n = 0;
+        for (long lotId : candidates) {
+            if (predicate.matches(index, lotId)) {
+                kept[n++] = lotId;
+            }
+        }
+        return n == kept.length ? kept : Arrays.copyOf(kept, n);
+    }
+
+    private interface Predicate {
+        int count(LotAttributeIndex index);
+
+        long[] lookup(LotAttributeIndex index);
+
+        boolean matches(LotAttributeIndex index, long lotId);
+    }
+
+    private static final class KeyPredicate implements Predicate {
+        private final LotAttributeIndex.KeyAttribute attribute;
+        private final String key;
+
+        KeyPredicate(LotAttributeIndex.KeyAttribute attribute, String key) {
+            this.attribute = attribute;
+            this.key = key;
+        }
+
+        @Override
+        public int count(LotAttributeIndex index) {
+            return index.count(attribute, key);
+        }
+
+        @Override
+        public long[] lookup(LotAttributeIndex index) {
+            return index.lookup(attribute, key);
+        }
+
+        @Override
+        public boolean matches(LotAttributeIndex index, long lotId) {
+            return index.matches(lotId, attribute, key);
+        }
+    }
+
+    private static final class RangePredicate implements Predicate {
+        private final LotAttributeIndex.RangeAttribute attribute;
+        private final double min;
+        private final boolean minInclusive;
+        private final double max;
+        private final boolean maxInclusive;
+
+        RangePredicate(LotAttributeIndex.RangeAttribute attribute, double min, boolean minInclusive,
+                       double max, boolean maxInclusive) {
+            this.attribute = attribute;
+            this.min = min;
+            this.minInclusive = minInclusive;
+            this.max = max;
+            this.maxInclusive = maxInclusive;
+        }
+
+        @Override
+        public int count(LotAttributeIndex index) {
+            return index.rangeCount(attribute, min, minInclusive, max, maxInclusive);
+        }
+
+        @Override
+        public long[] lookup(LotAttributeIndex index) {
+            return index.range(attribute, min, minInclusive, max, maxInclusive);
+        }
+
+        @Override
+        public boolean matches(LotAttributeIndex index, long lotId) {
+            return index.inRange(lotId, attribute, min, minInclusive, max, maxInclusive);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package designpatterns16.Stockmonitor;
+
+import java.io.IOException;
+import java.util.List;
+
+//Lot storage as seen by code that only stocks, looks up and dispenses lots.
+//Implemented by the heap Inventory (never throws IOException, returns its live lots) and by
+//storage.DiskInventory (lots on disk, returns detached copies), so both can be swapped behind it.
+//Listeners, snapshots, categories and queries stay specific to Inventory.
+public interface LotStore {
+
+    DayClock getClock();
+
+    void addStock(StockItem item) throws IOException;
+
+    void removeStock(StockItem item) throws IOException;
+
+    List<StockItem> getStockByProduct(String name) throws IOException;
+
+    List<StockItem> getAllStockItems() throws IOException;
+
+    // Earliest expiration first, expired lots are never dispensed
+    void dispense(String productName, int amount) throws IOException;
+}
@@ -0,0 +1,100 @@
+package designpatterns16.Stockmonitor;
+
+import designpatterns16.items.Consumable;
+
+import java.time.LocalDate;
+
+//Immutable copy of a lot as it was when a snapshot version was published.
+//Mirrors the read side of StockItem so reports can run on snapshots unchanged.
+public final class LotView {
+
+    private final long lotId;
+    private final Consumable product;
+    private final int productId;   // catalog id of the inventory the lot belongs to
+    private final int quantity;
+    private final long expiryEpochDay;
+    private final String lotCode;
+
+    LotView(StockItem item) {
+        this.lotId = item.getLotId();
+        this.product = item.getProduct();
+        this.productId = item.getProductId();
+        this.quantity = item.getStock();
+        this.expiryEpochDay = item.getExpiryEpochDay();
+        this.lotCode = item.getLotCode();
+    }
+
+    public long getLotId() {
+        return lotId;
+    }
+
+    public Consumable getProduct() {
+        return product;
+    }
+
+    public int getProductId() {
+        return productId;
+    }
+
+    public int getStock() {
+        return quantity;
+    }
+
+    public String getLotCode() {
+        return lotCode;
+    }
+
+    public String getName() {
+        return product.getName();
+    }
+
+    public String getType() {
+        return product.getType();
+    }
+
+    public double getTotalValue() {
+        return product.getPricePerUnit() * quantity;
+    }
+
+    public long getExpiryEpochDay() {
+        return expiryEpochDay;
+    }
+
+    public LocalDate getExpirationLocalDate() {
+        return ExpiryDates.toLocalDate(expiryEpochDay);
+    }
+
+    public boolean hasExpiration() {
+        return expiryEpochDay != ExpiryDates.NO_EXPIRY;
+    }
+
+    // Whole days until expiry (negative once expired), Long.MAX_VALUE without a date
+    public long daysUntilExpiry() {
+        return daysUntilExpiry(DayClock.SYSTEM);
+    }
+
+    public long daysUntilExpiry(DayClock clock) {
+        if (expiryEpochDay == ExpiryDates.NO_EXPIRY) {
+            return Long.MAX_VALUE;
+        }
+        return expiryEpochDay - clock.todayEpochDay();
+    }
+
+    public boolean isExpired() {
+        return isExpired(DayClock.SYSTEM);
+    }
+
+    public boolean isExpired(DayClock clock) {
+        return expiryEpochDay != ExpiryDates.NO_EXPIRY && expiryEpochDay < clock.todayEpochDay();
+    }
+
+    @Override
+    public String toString() {
+        return "LotView{" +
+                "lotId=" + lotId +
+                ", product=" + product.getName() +
+                ", quantity=" + quantity +
+                ", expirationDate=" + (hasExpiration() ? getExpirationLocalDate() : null) +
+                '}';
+    }
+}
@@ -0,0 +1,191 @@
+package designpatterns16.Stockmonitor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+//Immutable map from lot id to value, implemented as a 32-way bitmapped trie.
+//put/remove return a new map that shares every untouched node with the old one, so keeping
+//an old version alive (a snapshot) costs O(1). The trie grows in height with the largest key
+//and is walked most significant digit first, so iteration is in ascending lot id order.
+public final class PersistentLotMap<V> {
+
+    private static final int BITS = 5;
+    private static final int MASK = 31;
+    private static final PersistentLotMap<?> EMPTY = new PersistentLotMap<>(null, 0, 0);
+
+    private final Node root;
+    private final int shift;     // shift of the root level, leaves are at shift 0
+    private final int size;
+
+    private PersistentLotMap(Node root, int shift, int size) {
+        this.root = root;
+        this.shift = shift;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <V> PersistentLotMap<V> empty() {
+        return (PersistentLotMap<V>) EMPTY;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        if (root == null || key < 0 || !fits(key, shift)) {
+            return null;
+        }
+        Node node = root;
+        for (int s = shift; ; s -= BITS) {
+            int bit = 1 << (int) ((key >>> s) & MASK);
+            if ((node.bitmap & bit) == 0) {
+                return null;
+            }
+            Object slot = node.slots[Integer.bitCount(node.bitmap & (bit - 1))];
+            if (s == 0) {
+                return (V) slot;
+            }
+            node = (Node) slot;
+        }
+    }
+
+    public PersistentLotMap<V> put(long key, V value) {
+        if (key < 0) {
+            throw new IllegalArgumentException("Lot ids must not be negative: " + key);
+        }
+        Node newRoot = root == null ? Node.EMPTY : root;
+        int newShift = root == null ? 0 : shift;
+        while (!fits(key, newShift)) {
+            if (newRoot != Node.EMPTY) {
+                newRoot = new Node(1, new Object[]{newRoot});
+            }
+            newShift += BITS;
+        }
+        boolean[] added = new boolean[1];
+        newRoot = put(newRoot, newShift, key, value, added);
+        return new PersistentLotMap<>(newRoot, newShift, added[0] ? size + 1 : size);
+    }
+
+    public PersistentLotMap<V> remove(long key) {
+        if (root == null || key < 0 || !fits(key, shift)) {
+            return this;
+        }
+        Node newRoot = remove(root, shift, key);
+        if (newRoot == root) {
+            return this;
+        }
+        if (newRoot == null) {
+            return empty();
+        }
+        return new PersistentLotMap<>(newRoot, shift, size - 1);
+    }
+
+    // Visits values in ascending key order
+    public void forEach(Consumer<? super V> action) {
+        if (root != null) {
+            forEach(root, shift, action);
+        }
+    }
+
+    public List<V> values() {
+        List<V> values = new ArrayList<>(size);
+        forEach(values::add);
+        return values;
+    }
+
+    // ---------- TRIE OPERATIONS ----------
+    private static boolean fits(long key, int shift) {
+        int bits = shift + BITS;
+        return bits >= 63 || (key >>> bits) == 0;
+    }
+
+    private static Node put(Node node, int shift, long key, Object value, boolean[] added) {
+        int bit = 1 << (int) ((key >>> shift) & MASK);
+        int pos = Integer.bitCount(node.bitmap & (bit - 1));
+        boolean present = (node.bitmap & bit) != 0;
+        Object slot;
+        if (shift == 0) {
+            slot = value;
+            added[0] = !present;
+        } else {
+            Node child = present ? (Node) node.slots[pos] : Node.EMPTY;
+            slot = put(child, shift - BITS, key, value, added);
+        }
+        return present ? node.replace(pos, slot) : node.insert(bit, pos, slot);
+    }
+
+    // Returns the same node when the key is absent, null when the node became empty
+    private static Node remove(Node node, int shift, long key) {
+        int bit = 1 << (int) ((key >>> shift) & MASK);
+        if ((node.bitmap & bit) == 0) {
+            return node;
+        }
+        int pos = Integer.bitCount(node.bitmap & (bit - 1));
+        if (shift > 0) {
+            Node child = (Node) node.slots[pos];
+            Node newChild = remove(child, shift - BITS, key);
+            if (newChild == child) {
+                return node;
+            }
+            if (newChild != null) {
+                return node.replace(pos, newChild);
+            }
+        }
+        return node.delete(bit, pos);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> void forEach(Node node, int shift, Consumer<? super V> action) {
+        for (Object slot : node.slots) {
+            if (shift == 0) {
+                action.accept((V) slot);
+            } else {
+                forEach((Node) slot, shift - BITS, action);
+            }
+        }
+    }
+
+    //Trie node: bitmap of occupied digits and a compact array of the occupied slots.
+    private static final class Node {
+        static final Node EMPTY = new Node(0, new Object[0]);
+
+        final int bitmap;
+        final Object[] slots;
+
+        Node(int bitmap, Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+
+        Node replace(int pos, Object slot) {
+            Object[] copy = slots.clone();
+            copy[pos] = slot;
+            return new Node(bitmap, copy);
+        }
+
+        Node insert(int bit, int pos, Object slot) {
+            Object[] copy = new Object[slots.length + 1];
+            System.arraycopy(slots, 0, copy, 0, pos);
+            copy[pos] = slot;
+            System.arraycopy(slots, pos, copy, pos + 1, slots.length - pos);
+            return new Node(bitmap | bit, copy);
+        }
+
+        Node delete(int bit, int pos) {
+            if (slots.length == 1) {
+                return null;
+            }
+            Object[] copy = new Object[slots.length - 1];
+            System.arraycopy(slots, 0, copy, 0, pos);
+            System.arraycopy(slots, pos + 1, copy, pos, slots.length - pos - 1);
+            return new Node(bitmap & ~bit, copy);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package designpatterns16.Stockmonitor;
+
+import designpatterns16.items.Consumable;
+import designpatterns16.items.Medicine;
+import designpatterns16.items.Serum;
+import designpatterns16.items.Vaccine;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+//Canonical product registry: one shared Consumable instance and one stable int id per product.
+//A product is identified by its kind, name, type, unit price and kind specific attribute
+//(drug form, capacity or dosage). Strings are interned into a catalog-wide pool, so the many
+//lots of a product share one object graph and product keyed indexes can key on the int id.
+//Attributes are captured when a product is first seen; edit a catalogued product only through
+//a new catalog entry.
+public class ProductCatalog {
+
+    public static final int UNCATALOGUED = -1;
+
+    private final Map<String, String> strings = new HashMap<>();
+    private final Map<ProductKey, Integer> idsByKey = new HashMap<>();
+    private final Map<Consumable, Integer> idsByInstance = new IdentityHashMap<>();
+    private final List<Consumable> products = new ArrayList<>();
+
+    // ---------- INTERNING ----------
+    // Id of the product, registering it (as the canonical instance) when it is new
+    public synchronized int intern(Consumable product) {
+        Integer id = idsByInstance.get(product);
+        if (id != null) {
+            return id;
+        }
+        ProductKey key = new ProductKey(product);
+        id = idsByKey.get(key);
+        if (id == null) {
+            id = products.size();
+            internStrings(product);
+            products.add(product);
+            idsByKey.put(new ProductKey(product), id);
+            idsByInstance.put(product, id);
+        }
+        return id;
+    }
+
+    // Id of an equal product, UNCATALOGUED when there is none; never registers
+    public synchronized int idOf(Consumable product) {
+        Integer id = idsByInstance.get(product);
+        if (id == null) {
+            id = idsByKey.get(new ProductKey(product));
+        }
+        return id == null ? UNCATALOGUED : id;
+    }
+
+    public synchronized Consumable get(int id) {
+        if (id < 0 || id >= products.size()) {
+            throw new IllegalArgumentException("Unknown product id: " + id);
+        }
+        return products.get(id);
+    }
+
+    public synchronized int size() {
+        return products.size();
+    }
+
+    public synchronized String internString(String value) {
+        if (value == null) {
+            return null;
+        }
+        String pooled = strings.get(value);
+        if (pooled == null) {
+            strings.put(value, value);
+            pooled = value;
+        }
+        return pooled;
+    }
+
+    // ---------- FACTORIES (return the canonical instance) ----------
+    public Medicine medicine(String name, String type, double price, String drugForm) {
+        return (Medicine) canonical(new Medicine(name, type, price, drugForm));
+    }
+
+    public Serum serum(String name, String type, double price, double capacityMl) {
+        return (Serum) canonical(new Serum(name, type, price, capacityMl));
+    }
+
+    public Vaccine vaccine(String name, String type, double price, double dosageMl) {
+        return (Vaccine) canonical(new Vaccine(name, type, price, dosageMl));
+    }
+
+    public synchronized Consumable canonical(Consumable product) {
+        return products.get(intern(product));
+    }
+
+    private void internStrings(Consumable product) {
+        product.setName(internString(product.getName()));
+        product.setType(internString(product.getType()));
+        product.setAtcCode(internString(product.getAtcCode()));
+        if (product instanceof Medicine) {
+            Medicine medicine = (Medicine) product;
+            medicine.setDrugForm(internString(medicine.getDrugForm()));
+        }
+    }
+
+    //Identity of a product: kind plus every defining attribute, the ATC code included.
+    private static final class ProductKey {
+        private final Class<?> kind;
+        private final String name;
+        private final String type;
+        private final Double price;
+        private final String atcCode;
+        private final Object attribute;
+
+        ProductKey(Consumable product) {
+            this.kind = product.getClass();
+            this.name = product.getName();
+            this.type = product.getType();
+            this.price = product.getPricePerUnit();
+            this.atcCode = product.getAtcCode();
+            if (product instanceof Medicine) {
+                this.attribute = ((Medicine) product).getDrugForm();
+            } else if (product instanceof Serum) {
+                this.attribute = ((Serum) product).getCapacityMl();
+            } else if (product instanceof Vaccine) {
+                this.attribute = ((Vaccine) product).getDosageMl();
+            } else {
+                this.attribute = null;
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof ProductKey)) {
+                return false;
+            }
+            ProductKey other = (ProductKey) o;
+            return kind == other.kind
+                    && equal(name, other.name)
+                    && equal(type, other.type)
+                    && equal(price, other.price)
+                    && equal(atcCode, other.atcCode)
+                    && equal(attribute, other.attribute);
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = kind.hashCode();
+            hash = 31 * hash + (name == null ? 0 : name.hashCode());
+            hash = 31 * hash + (type == null ? 0 : type.hashCode());
+            hash = 31 * hash + (price == null ? 0 : price.hashCode());
+            hash = 31 * hash + (atcCode == null ? 0 : atcCode.hashCode());
+            return 31 * hash + (attribute == null ? 0 : attribute.hashCode());
+        }
+
+        private static boolean equal(Object a, Object b) {
+            return a == null ? b == null : a.equals(b);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package designpatterns16.Stockmonitor;
+
+import designpatterns16.items.Consumable;
+import designpatterns16.items.Medicine;
+import designpatterns16.items.Serum;
+import designpatterns16.items.Vaccine;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+//Binary encoding of consumables and lots, shared by replication and on-disk storage.
+public final class ProductCodec {
+
+    private static final byte MEDICINE = 'M';
+    private static final byte SERUM = 'S';
+    private static final byte VACCINE = 'V';
+
+    private ProductCodec() {
+    }
+
+    public static void writeProduct(DataOutput out, Consumable product) throws IOException {
+        if (product instanceof Medicine) {
+            out.writeByte(MEDICINE);
+        } else if (product instanceof Serum) {
+            out.writeByte(SERUM);
+        } else if (product instanceof Vaccine) {
+            out.writeByte(VACCINE);
+        } else {
+            throw new IllegalArgumentException("Unsupported product: " + product.getClass().getSimpleName());
+        }
+        out.writeUTF(product.getName());
+        out.writeUTF(product.getType() == null ? "" : product.getType());
+        out.writeDouble(product.getPricePerUnit() == null ? 0.0 : product.getPricePerUnit());
+        if (product instanceof Medicine) {
+            String drugForm = ((Medicine) product).getDrugForm();
+            out.writeUTF(drugForm == null ? "" : drugForm);
+        } else if (product instanceof Serum) {
+            Double capacity = ((Serum) product).getCapacityMl();
+            out.writeDouble(capacity == null ? 0.0 : capacity);
+        } else {
+            Double dosage = ((Vaccine) product).getDosageMl();
+            out.writeDouble(dosage == null ? 0.0 : dosage);
+        }
+        out.writeBoolean(product.getAtcCode() != null);
+        if (product.getAtcCode() != null) {
+            out.writeUTF(product.getAtcCode());
+        }
+    }
+
+    public static Consumable readProduct(DataInput in) throws IOException {
+        byte kind = in.readByte();
+        String name = in.readUTF();
+        String type = in.readUTF();
+        double price = in.readDouble();
+        Consumable product;
+        switch (kind) {
+            case MEDICINE:
+                product = new Medicine(name, type, price, in.readUTF());
+                break;
+            case SERUM:
+                product = new Serum(name, type, price, in.readDouble());
+                break;
+            case VACCINE:
+                product = new Vaccine(name, type, price, in.readDouble());
+                break;
+            default:
+                throw new IOException("Unknown product kind: " + kind);
+        }
+        if (in.readBoolean()) {
+            product.setAtcCode(in.readUTF());
+        }
+        return product;
+    }
+
+    // Lot id, product, quantity, expiry epoch day (ExpiryDates.NO_EXPIRY when none), the
+    // cold chain excursion flag (the expiry is then already the shortened one) and the optional
+    // GS1 lot code
+    public static void writeLot(DataOutput out, StockItem item) throws IOException {
+        out.writeLong(item.getLotId());
+        writeProduct(out, item.getProduct());
+        out.writeInt(item.getStock());
+        out.writeLong(item.getExpiryEpochDay());
+        out.writeBoolean(item.hasTemperatureExcursion());
+        out.writeBoolean(item.getLotCode() != null);
+        if (item.getLotCode() != null) {
+            out.writeUTF(item.getLotCode());
+        }
+    }
+
+    public static StockItem readLot(DataInput in) throws IOException {
+        long lotId = in.readLong();
+        Consumable product = readProduct(in);
+        int quantity = in.readInt();
+        long expiryEpochDay = in.readLong();
+        StockItem item = new StockItem(lotId, product, quantity, expiryEpochDay);
+        if (in.readBoolean()) {
+            item.recordTemperatureExcursion(expiryEpochDay);
+        }
+        if (in.readBoolean()) {
+            item.setLotCode(in.readUTF());
+        }
+        return item;
+    }
+}
@@ -0,0 +1,416 @@
+package designpatterns16.Stockmonitor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+//In-memory search over product names: exact, prefix, word prefix and typo tolerant matches.
+//Names are normalized (lower case, punctuation to spaces). Prefix lookups use sorted maps of
+//names and words; typo tolerant lookups use an inverted index of word-anchored trigrams.
+//Candidates must share enough trigrams with the query (checked rarest list first, so common
+//trigrams never drive the candidate set) and are then verified with a bounded edit distance.
+//Registered as an InventoryListener it follows the inventory incrementally, one entry per
+//distinct product name, reference counted over its lots.
+public class ProductSearchIndex implements InventoryListener {
+
+    public enum MatchKind {
+        EXACT, PREFIX, WORD_PREFIX, FUZZY
+    }
+
+    //One ranked result.
+    public static final class Hit {
+        private final String name;
+        private final MatchKind kind;
+        private final int distance;
+
+        Hit(String name, MatchKind kind, int distance) {
+            this.name = name;
+            this.kind = kind;
+            this.distance = distance;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public MatchKind getKind() {
+            return kind;
+        }
+
+        // Edit distance to the query, 0 unless the match is fuzzy
+        public int getDistance() {
+            return distance;
+        }
+
+        @Override
+        public String toString() {
+            return name + " (" + kind + (distance > 0 ? ", " + distance + " edits" : "") + ")";
+        }
+    }
+
+    private static final int PREFIX_SCAN_FACTOR = 8;
+    private static final int MAX_VERIFIED = 512;
+
+    // Entries, addressed by id; ids of removed names are reused
+    private final List<String> displayNames = new ArrayList<>();
+    private final List<String> normalizedNames = new ArrayList<>();
+    private final List<Integer> refCounts = new ArrayList<>();
+    private final List<Integer> freeIds = new ArrayList<>();
+    private final Map<String, Integer> idsByName = new HashMap<>();          // display name -> id
+    private final TreeMap<String, SortedIntList> byNormalizedName = new TreeMap<>();
+    private final TreeMap<String, SortedIntList> byWord = new TreeMap<>();
+    private final Map<Long, SortedIntList> byTrigram = new HashMap<>();
+    private int size = 0;
+    // Trigram hit counts per entry id, scratch space of search (reset after each use)
+    private int[] counts = new int[0];
+
+    // ---------- INVENTORY LISTENER ----------
+    @Override
+    public void lotAdded(StockItem stockItem) {
+        addProduct(stockItem.getName());
+    }
+
+    @Override
+    public void lotRemoved(StockItem stockItem) {
+        removeProduct(stockItem.getName());
+    }
+
+    @Override
+    public void lotChanged(StockItem stockItem) {
+        // quantities do not affect the index
+    }
+
+    // ---------- UPDATES ----------
+    public synchronized void addProduct(String name) {
+        Integer id = idsByName.get(name);
+        if (id != null) {
+            refCounts.set(id, refCounts.get(id) + 1);
+            return;
+        }
+        String normalized = normalize(name);
+        if (freeIds.isEmpty()) {
+            id = displayNames.size();
+            displayNames.add(name);
+            normalizedNames.add(normalized);
+            refCounts.add(1);
+        } else {
+            id = freeIds.remove(freeIds.size() - 1);
+            displayNames.set(id, name);
+            normalizedNames.set(id, normalized);
+            refCounts.set(id, 1);
+        }
+        idsByName.put(name, id);
+        post(byNormalizedName, normalized, id);
+        for (String word : words(normalized)) {
+            post(byWord, word, id);
+        }
+        for (long trigram : trigrams(normalized)) {
+            post(byTrigram, trigram, id);
+        }
+        size++;
+    }
+
+    public synchronized void removeProduct(String name) {
+        Integer id = idsByName.get(name);
+        if (id == null) {
+            return;
+        }
+        int count = refCounts.get(id) - 1;
+        refCounts.set(id, count);
+        if (count > 0) {
+            return;
+        }
+        String normalized = normalizedNames.get(id);
+        unpost(byNormalizedName, normalized, id);
+        for (String word : words(normalized)) {
+            unpost(byWord, word, id);
+        }
+        for (long trigram : trigrams(normalized)) {
+            unpost(byTrigram, trigram, id);
+        }
+        idsByName.remove(name);
+        displayNames.set(id, null);
+        normalizedNames.set(id, null);
+        freeIds.add(id);
+        size--;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    // ---------- SEARCH ----------
+    // Best matches first: exact, then name prefix, word prefix and fuzzy; shorter names first within a kind
+    public synchronized List<Hit> search(String query, int limit) {
+        String normalized = normalize(query);
+        if (normalized.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        Map<Integer, Hit> hits = new HashMap<>();
+        String upper = normalized + Character.MAX_VALUE;
+        int scanLimit = limit * PREFIX_SCAN_FACTOR;
+
+        collect(hits, byNormalizedName.subMap(normalized, upper), scanLimit, normalized);
+        if (!normalized.contains(" ") && hits.size() < scanLimit) {
+            collect(hits, byWord.subMap(normalized, upper), scanLimit, null);
+        }
+        // one edit first: its trigram filter is much tighter, two edits only if still short
+        int maxEdits = normalized.length() <= 3 ? 0 : normalized.length() <= 7 ? 1 : 2;
+        for (int edits = 1; edits <= maxEdits && hits.size() < limit; edits++) {
+            collectFuzzy(hits, normalized, edits);
+        }
+
+        List<Hit> ranked = new ArrayList<>(hits.values());
+        Collections.sort(ranked, (a, b) -> {
+            int order = a.kind.compareTo(b.kind);
+            if (order == 0) {
+                order = Integer.compare(a.distance, b.distance);
+            }
+            if (order == 0) {
+                order = Integer.compare(a.name.length(), b.name.length());
+            }
+            return order != 0 ? order : a.name.compareTo(b.name);
+        });
+        return ranked.size() > limit ? new ArrayList<>(ranked.subList(0, limit)) : ranked;
+    }
+
+    // Names (or words) starting with the query; fullQuery marks name matches, exact when equal
+    private void collect(Map<Integer, Hit> hits, SortedMap<String, SortedIntList> range, int scanLimit,
+                         String fullQuery) {
+        for (Map.Entry<String, SortedIntList> entry : range.entrySet()) {
+            MatchKind kind = fullQuery == null ? MatchKind.WORD_PREFIX
+                    : entry.getKey().equals(fullQuery) ? MatchKind.EXACT : MatchKind.PREFIX;
+            SortedIntList ids = entry.getValue();
+            for (int i = 0; i < ids.size(); i++) {
+                int id = ids.get(i);
+                if (!hits.containsKey(id)) {
+                    hits.put(id, new Hit(displayNames.get(id), kind, 0));
+                    if (hits.size() >= scanLimit) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    private void collectFuzzy(Map<Integer, Hit> hits, String query, int maxEdits) {
+        Set<Long> distinct = trigrams(query);
+        List<SortedIntList> lists = new ArrayList<>();
+        for (long trigram : distinct) {
+            SortedIntList ids = byTrigram.get(trigram);
+            lists.add(ids == null ? SortedIntList.EMPTY : ids);
+        }
+        // one edit changes at most three trigrams
+        int required = Math.max(1, lists.size() - 3 * maxEdits);
+        Collections.sort(lists, (a, b) -> Integer.compare(a.size(), b.size()));
+        if (counts.length < displayNames.size()) {
+            counts = new int[displayNames.size() * 2];
+        }
+
+        // a name sharing `required` trigrams must appear in one of the rarest n - required + 1 lists
+        int seedLists = lists.size() - required + 1;
+        int[] candidates = new int[16];
+        int candidateCount = 0;
+        for (int l = 0; l < seedLists; l++) {
+            SortedIntList ids = lists.get(l);
+            for (int i = 0; i < ids.size(); i++) {
+                int id = ids.get(i);
+                if (counts[id]++ == 0) {
+                    if (candidateCount == candidates.length) {
+                        candidates = Arrays.copyOf(candidates, candidateCount * 2);
+                    }
+                    candidates[candidateCount++] = id;
+                }
+            }
+        }
+        for (int l = seedLists; l < lists.size(); l++) {
+            SortedIntList ids = lists.get(l);
+            for (int i = 0; i < ids.size(); i++) {
+                int id = ids.get(i);
+                if (counts[id] > 0) {
+                    counts[id]++;
+                }
+            }
+        }
+
+        // verify the candidates sharing the most trigrams first (counting sort), at most MAX_VERIFIED
+        int[] perShared = new int[lists.size() + 2];
+        for (int i = 0; i < candidateCount; i++) {
+            int shared = counts[candidates[i]];
+            if (shared >= required) {
+                perShared[lists.size() - shared + 1]++;
+            }
+        }
+        for (int i = 1; i < perShared.length; i++) {
+            perShared[i] += perShared[i - 1];
+        }
+        int[] ordered = new int[perShared[perShared.length - 1]];
+        for (int i = 0; i < candidateCount; i++) {
+            int id = candidates[i];
+            int shared = counts[id];
+            if (shared >= required) {
+                ordered[perShared[lists.size() - shared]++] = id;
+            }
+            counts[id] = 0;
+        }
+        int verified = 0;
+        for (int i = 0; i < ordered.length && verified < MAX_VERIFIED; i++) {
+            int id = ordered[i];
+            if (hits.containsKey(id)) {
+                continue;
+            }
+            verified++;
+            int distance = bestDistance(query, normalizedNames.get(id), maxEdits);
+            if (distance <= maxEdits) {
+                hits.put(id, new Hit(displayNames.get(id), MatchKind.FUZZY, distance));
+            }
+        }
+    }
+
+    // Smallest edit distance between the query and a prefix of the name or of one of its words
+    private static int bestDistance(String query, String name, int maxEdits) {
+        int best = prefixDistance(query, name, 0, maxEdits);
+        for (int i = 1; i < name.length() && best > 0; i++) {
+            if (name.charAt(i - 1) == ' ') {
+                best = Math.min(best, prefixDistance(query, name, i, maxEdits));
+            }
+        }
+        return best;
+    }
+
+    // Levenshtein distance from the query to the closest prefix of name[start..]; > maxEdits when too far
+    private static int prefixDistance(String query, String name, int start, int maxEdits) {
+        int n = name.length() - start;
+        int[] previous = new int[n + 1];
+        int[] current = new int[n + 1];
+        for (int j = 0; j <= n; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= query.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            char q = query.charAt(i - 1);
+            for (int j = 1; j <= n; j++) {
+                int cost = q == name.charAt(start + j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > maxEdits) {
+                return maxEdits + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        int best = Integer.MAX_VALUE;
+        for (int j = 0; j <= n; j++) {
+            best = Math.min(best, previous[j]);
+        }
+        return best;
+    }
+
+    // ---------- TEXT ----------
+    static String normalize(String text) {
+        StringBuilder normalized = new StringBuilder(text.length());
+        boolean space = true;
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            if (Character.isLetterOrDigit(c)) {
+                normalized.append(c);
+                space = false;
+            } else if (!space) {
+                normalized.append(' ');
+                space = true;
+            }
+        }
+        int length = normalized.length();
+        if (length > 0 && normalized.charAt(length - 1) == ' ') {
+            normalized.setLength(length - 1);
+        }
+        return normalized.toString();
+    }
+
+    private static Set<String> words(String normalized) {
+        return new LinkedHashSet<>(Arrays.asList(normalized.split(" ")));
+    }
+
+    // Trigrams of every word, anchored at the word start ("$$a", "$am", "amo", ...)
+    private static Set<Long> trigrams(String normalized) {
+        Set<Long> trigrams = new LinkedHashSet<>();
+        for (String word : words(normalized)) {
+            String padded = "$$" + word;
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                trigrams.add(((long) padded.charAt(i) << 32) | ((long) padded.charAt(i + 1) << 16) | padded.charAt(i + 2));
+            }
+        }
+        return trigrams;
+    }
+
+    private static <K> void post(Map<K, SortedIntList> index, K key, int id) {
+        SortedIntList ids = index.get(key);
+        if (ids == null) {
+            ids = new SortedIntList();
+            index.put(key, ids);
+        }
+        ids.add(id);
+    }
+
+    private static <K> void unpost(Map<K, SortedIntList> index, K key, int id) {
+        SortedIntList ids = index.get(key);
+        if (ids != null) {
+            ids.remove(id);
+            if (ids.size() == 0) {
+                index.remove(key);
+            }
+        }
+    }
+
+    //Sorted set of entry ids backed by an int[].
+    static final class SortedIntList {
+        static final SortedIntList EMPTY = new SortedIntList();
+
+        private int[] ids = new int[2];
+        private int size;
+
+        void add(int id) {
+            int pos = size == 0 || ids[size - 1] < id ? -size - 1 : Arrays.binarySearch(ids, 0, size, id);
+            if (pos >= 0) {
+                return;
+            }
+            pos = -pos - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+            ids[pos] = id;
+            size++;
+        }
+
+        void remove(int id) {
+            int pos = Arrays.binarySearch(ids, 0, size, id);
+            if (pos >= 0) {
+                System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+                size--;
+            }
+        }
+
+        boolean contains(int id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+
+        int get(int index) {
+            return ids[index];
+        }
+
+        int size() {
+            return size;
+        }
+    }
+}
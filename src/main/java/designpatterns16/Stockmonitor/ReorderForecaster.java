@@ -0,0 +1,165 @@
+package designpatterns16.Stockmonitor;
+
+import designpatterns16.alerts.AlertSinks;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.LongSupplier;
+
+//Streaming reorder-point forecasting per product.
+//Consumption rate is an exponentially time-decayed sum (EWMA over time, not over events),
+//updated in O(1) on every reduceStock. The reorder point covers the expected demand during the
+//product's lead time plus safety stock; products crossing it are tracked incrementally, so
+//asking for all products to reorder never rescans the catalog.
+public class ReorderForecaster implements InventoryListener {
+
+    private static final double DAY_MILLIS = 24.0 * 60 * 60 * 1000;
+
+    private final LongSupplier clock;
+    private final double tauDays;            // averaging horizon of the rate
+    private final double defaultLeadTimeDays;
+    private final double safetyFactor;       // z-score of the safety stock (Poisson demand)
+    private final Map<String, Forecast> forecasts = new HashMap<>();
+    private final Set<String> belowReorderPoint = new LinkedHashSet<>();
+
+    public ReorderForecaster() {
+        this(System::currentTimeMillis, 14, 3, 1.65);
+    }
+
+    public ReorderForecaster(LongSupplier clock, double tauDays, double defaultLeadTimeDays, double safetyFactor) {
+        this.clock = clock;
+        this.tauDays = tauDays;
+        this.defaultLeadTimeDays = defaultLeadTimeDays;
+        this.safetyFactor = safetyFactor;
+    }
+
+    // ---------- INGESTION ----------
+    @Override
+    public synchronized void lotAdded(StockItem stockItem) {
+        Forecast forecast = forecast(stockItem.getName());
+        forecast.onHand += stockItem.getStock();
+        evaluate(stockItem.getName(), forecast, clock.getAsLong());
+    }
+
+    @Override
+    public synchronized void lotRemoved(StockItem stockItem) {
+        Forecast forecast = forecast(stockItem.getName());
+        forecast.onHand -= stockItem.getStock();
+        evaluate(stockItem.getName(), forecast, clock.getAsLong());
+    }
+
+    @Override
+    public synchronized void lotChanged(StockItem stockItem) {
+        int change = stockItem.getLastChange();
+        if (change == 0) {
+            return;
+        }
+        long now = clock.getAsLong();
+        Forecast forecast = forecast(stockItem.getName());
+        forecast.onHand += change;
+        if (change < 0) {
+            forecast.consume(-change, now, tauDays);
+        }
+        evaluate(stockItem.getName(), forecast, now);
+    }
+
+    private Forecast forecast(String product) {
+        Forecast forecast = forecasts.get(product);
+        if (forecast == null) {
+            forecast = new Forecast(clock.getAsLong(), defaultLeadTimeDays);
+            forecasts.put(product, forecast);
+        }
+        return forecast;
+    }
+
+    // Edge triggered: one alert when the product drops to its reorder point, re-armed above it
+    private void evaluate(String product, Forecast forecast, long now) {
+        double reorderPoint = reorderPoint(forecast, now);
+        boolean below = forecast.onHand <= reorderPoint && forecast.sum > 0;
+        if (below && belowReorderPoint.add(product)) {
+            sendAlert(product, forecast, reorderPoint, now);
+        } else if (!below) {
+            belowReorderPoint.remove(product);
+        }
+    }
+
+    private void sendAlert(String product, Forecast forecast, double reorderPoint, long now) {
+        double rate = forecast.dailyRate(now, tauDays);
+        AlertSinks.get().emit(String.format(
+                "[REORDER ALERT] Item: %s | On hand: %d | Reorder point: %.0f | Usage: %.1f/day"
+                        + " | Runs out in: %.1f days | Lead time: %.1f days",
+                product, forecast.onHand, reorderPoint, rate,
+                rate > 0 ? forecast.onHand / rate : Double.POSITIVE_INFINITY, forecast.leadTimeDays));
+    }
+
+    private double reorderPoint(Forecast forecast, long now) {
+        double leadTimeDemand = forecast.dailyRate(now, tauDays) * forecast.leadTimeDays;
+        return leadTimeDemand + safetyFactor * Math.sqrt(leadTimeDemand);
+    }
+
+    // ---------- QUERIES ----------
+    public synchronized void setLeadTimeDays(String product, double leadTimeDays) {
+        forecast(product).leadTimeDays = leadTimeDays;
+    }
+
+    public synchronized double getDailyRate(String product) {
+        Forecast forecast = forecasts.get(product);
+        return forecast == null ? 0.0 : forecast.dailyRate(clock.getAsLong(), tauDays);
+    }
+
+    public synchronized double getReorderPoint(String product) {
+        Forecast forecast = forecasts.get(product);
+        return forecast == null ? 0.0 : reorderPoint(forecast, clock.getAsLong());
+    }
+
+    public synchronized long getOnHand(String product) {
+        Forecast forecast = forecasts.get(product);
+        return forecast == null ? 0 : forecast.onHand;
+    }
+
+    // Days until the product runs out at the current rate (infinite without consumption)
+    public synchronized double getDaysOfCover(String product) {
+        double rate = getDailyRate(product);
+        return rate > 0 ? getOnHand(product) / rate : Double.POSITIVE_INFINITY;
+    }
+
+    // Products at or below their reorder point as of their latest change
+    public synchronized Set<String> getProductsToReorder() {
+        return Collections.unmodifiableSet(new LinkedHashSet<>(belowReorderPoint));
+    }
+
+    //Per product state, constant size.
+    private static final class Forecast {
+        long onHand;
+        double sum;             // decayed consumption, units
+        long lastUpdate;
+        final long firstSeen;
+        double leadTimeDays;
+
+        Forecast(long now, double leadTimeDays) {
+            this.firstSeen = now;
+            this.lastUpdate = now;
+            this.leadTimeDays = leadTimeDays;
+        }
+
+        void consume(int units, long now, double tauDays) {
+            sum = decayed(now, tauDays) + units;
+            lastUpdate = Math.max(now, lastUpdate);
+        }
+
+        double decayed(long now, double tauDays) {
+            double elapsedDays = Math.max(0, now - lastUpdate) / DAY_MILLIS;
+            return sum * Math.exp(-elapsedDays / tauDays);
+        }
+
+        // Units per day; the window is corrected while the product is younger than the horizon
+        double dailyRate(long now, double tauDays) {
+            double ageDays = Math.max(1.0, (now - firstSeen) / DAY_MILLIS);
+            double window = tauDays * (1 - Math.exp(-ageDays / tauDays));
+            return decayed(now, tauDays) / window;
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package designpatterns16.Stockmonitor;
+
+import designpatterns16.alerts.AlertSinks;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+//Primary side of log-shipping replication.
+//Every lot mutation of the primary Inventory becomes an idempotent record (add, quantity, expiry, remove),
+//records are shipped in batches over TCP to all connected InventoryReplica instances.
+//A replica that connects first receives a full snapshot, then the ongoing stream.
+public class ReplicationPrimary implements InventoryListener, Closeable {
+
+    static final byte RECORD_RESET = 0;
+    static final byte RECORD_ADD = 1;
+    static final byte RECORD_QUANTITY = 2;
+    static final byte RECORD_REMOVE = 3;
+    static final byte RECORD_EXPIRY = 4;   // cold chain excursion: shortened expiry, flag set
+
+    private final Inventory inventory;
+    private final Object lock = new Object();
+    private final Map<Long, StockItem> mirror = new LinkedHashMap<>();   // lots known to replicas
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private DataOutputStream pendingOut = new DataOutputStream(pending);
+    private int pendingRecords = 0;
+    private final List<Socket> newReplicas = new ArrayList<>();
+    private final List<DataOutputStream> replicas = new CopyOnWriteArrayList<>();
+
+    private final ServerSocket serverSocket;
+    private final long flushIntervalMillis;
+    private final Thread acceptor;
+    private final Thread shipper;
+    private volatile boolean running = true;
+
+    // Listens on localhost, port 0 picks a free port (see getPort())
+    public ReplicationPrimary(Inventory inventory, int port) throws IOException {
+        this(inventory, port, 5);
+    }
+
+    public ReplicationPrimary(Inventory inventory, int port, long flushIntervalMillis) throws IOException {
+        this.inventory = inventory;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.serverSocket = new ServerSocket();
+        serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        // Seeded and registered under one inventory lock, so no mutation falls in between
+        synchronized (inventory) {
+            synchronized (lock) {
+                for (StockItem item : inventory.getAllStockItems()) {
+                    mirror.put(item.getLotId(), item);
+                }
+            }
+            inventory.addListener(this);
+        }
+
+        acceptor = new Thread(this::acceptLoop, "replication-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        shipper = new Thread(this::shipLoop, "replication-shipper");
+        shipper.setDaemon(true);
+        shipper.start();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public int getReplicaCount() {
+        synchronized (lock) {
+            return replicas.size() + newReplicas.size();
+        }
+    }
+
+    // ---------- CAPTURE ----------
+    @Override
+    public void lotAdded(StockItem stockItem) {
+        synchronized (lock) {
+            mirror.put(stockItem.getLotId(), stockItem);
+            try {
+                pendingOut.writeByte(RECORD_ADD);
+                ProductCodec.writeLot(pendingOut, stockItem);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            recordAppended();
+        }
+    }
+
+    @Override
+    public void lotRemoved(StockItem stockItem) {
+        synchronized (lock) {
+            mirror.remove(stockItem.getLotId());
+            try {
+                pendingOut.writeByte(RECORD_REMOVE);
+                pendingOut.writeLong(stockItem.getLotId());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            recordAppended();
+        }
+    }
+
+    @Override
+    public void lotChanged(StockItem stockItem) {
+        synchronized (lock) {
+            try {
+                if (stockItem.getLastChange() == 0 && stockItem.hasTemperatureExcursion()) {
+                    pendingOut.writeByte(RECORD_EXPIRY);
+                    pendingOut.writeLong(stockItem.getLotId());
+                    pendingOut.writeLong(stockItem.getExpiryEpochDay());
+                } else {
+                    pendingOut.writeByte(RECORD_QUANTITY);
+                    pendingOut.writeLong(stockItem.getLotId());
+                    pendingOut.writeInt(stockItem.getStock());
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            recordAppended();
+        }
+    }
+
+    int getPendingRecords() {
+        synchronized (lock) {
+            return pendingRecords;
+        }
+    }
+
+    private void recordAppended() {
+        pendingRecords++;
+        lock.notifyAll();
+    }
+
+    // ---------- SHIPPING ----------
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                synchronized (lock) {
+                    newReplicas.add(socket);
+                    lock.notifyAll();
+                }
+            } catch (IOException e) {
+                if (running) {
+                    AlertSinks.get().emit("[REPLICATION] Accept failed: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void shipLoop() {
+        while (running) {
+            byte[] batch;
+            int batchRecords;
+            byte[] snapshot = null;
+            int snapshotRecords = 0;
+            List<Socket> joined;
+            synchronized (lock) {
+                while (running && pendingRecords == 0 && newReplicas.isEmpty()) {
+                    try {
+                        lock.wait(flushIntervalMillis);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                batch = pending.toByteArray();
+                batchRecords = pendingRecords;
+                pending = new ByteArrayOutputStream();
+                pendingOut = new DataOutputStream(pending);
+                pendingRecords = 0;
+                joined = new ArrayList<>(newReplicas);
+                newReplicas.clear();
+                if (!joined.isEmpty()) {
+                    snapshot = encodeSnapshot();
+                    snapshotRecords = mirror.size() + 1;
+                }
+            }
+            if (batchRecords > 0) {
+                for (DataOutputStream out : replicas) {
+                    if (!send(out, batchRecords, batch)) {
+                        replicas.remove(out);
+                    }
+                }
+            }
+            for (Socket socket : joined) {
+                try {
+                    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                    if (send(out, snapshotRecords, snapshot)) {
+                        replicas.add(out);
+                    }
+                } catch (IOException e) {
+                    AlertSinks.get().emit("[REPLICATION] Replica dropped: " + e.getMessage());
+                }
+            }
+            try {
+                Thread.sleep(flushIntervalMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    // Snapshot = RESET record followed by one ADD per live lot
+    private byte[] encodeSnapshot() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try {
+            out.writeByte(RECORD_RESET);
+            for (StockItem item : mirror.values()) {
+                out.writeByte(RECORD_ADD);
+                ProductCodec.writeLot(out, item);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    // Frame = record count followed by the encoded records
+    private boolean send(DataOutputStream out, int records, byte[] payload) {
+        try {
+            out.writeInt(records);
+            out.write(payload);
+            out.flush();
+            return true;
+        } catch (IOException e) {
+            AlertSinks.get().emit("[REPLICATION] Replica dropped: " + e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        inventory.removeListener(this);   // nothing would ship what is captured from here on
+        running = false;
+        serverSocket.close();
+        shipper.interrupt();
+        for (DataOutputStream out : replicas) {
+            out.close();
+        }
+        replicas.clear();
+        synchronized (lock) {
+            for (Socket socket : newReplicas) {
+                socket.close();
+            }
+            newReplicas.clear();
+            mirror.clear();
+            pending = new ByteArrayOutputStream();
+            pendingOut = new DataOutputStream(pending);
+            pendingRecords = 0;
+        }
+    }
+}
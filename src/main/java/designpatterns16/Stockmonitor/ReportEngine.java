@@ -0,0 +1,269 @@
+package designpatterns16.Stockmonitor;
+
+import designpatterns16.design_patterns.composite.Category;
+import designpatterns16.design_patterns.composite.ProductLeaf;
+import designpatterns16.items.Consumable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+//Builds every inventory report in one fused pass over a snapshot.
+//Each lot is visited once and feeds the totals, the critical and expiring lists and the
+//per-type / per-category breakdowns together. Large snapshots are split fork-join style into
+//ranges whose partial results are merged in lot order, so the output does not depend on
+//how the work was split. The category index is kept between reports and only rebuilt once
+//the tree's structure version moves. Leaves and lots are matched by catalog product id, like
+//the inventory's own category queries, so a leaf holding an equal product instance counts.
+public class ReportEngine {
+
+    public static final int DEFAULT_CRITICAL_LEVEL = 10;
+    public static final int DEFAULT_EXPIRY_WINDOW_DAYS = 30;
+    static final int DEFAULT_SPLIT_THRESHOLD = 4096;
+
+    private final int criticalLevel;
+    private final int expiryWindowDays;
+    private final int splitThreshold;
+    private final ForkJoinPool pool;
+    private volatile CategoryIndex categoryIndex;   // of the last tree reported on
+
+    public ReportEngine() {
+        this(DEFAULT_CRITICAL_LEVEL, DEFAULT_EXPIRY_WINDOW_DAYS);
+    }
+
+    public ReportEngine(int criticalLevel, int expiryWindowDays) {
+        this(criticalLevel, expiryWindowDays, DEFAULT_SPLIT_THRESHOLD, ForkJoinPool.commonPool());
+    }
+
+    public ReportEngine(int criticalLevel, int expiryWindowDays, int splitThreshold, ForkJoinPool pool) {
+        if (splitThreshold < 1) {
+            throw new IllegalArgumentException("Split threshold must be positive!");
+        }
+        this.criticalLevel = criticalLevel;
+        this.expiryWindowDays = expiryWindowDays;
+        this.splitThreshold = splitThreshold;
+        this.pool = pool;
+    }
+
+    public InventoryReport generate(Inventory inventory) {
+        return generate(inventory.snapshot(), inventory.getRootCategory(), inventory.getCatalog(), inventory.getClock());
+    }
+
+    // rootCategory may be null when no category breakdown is wanted; catalog is the one of the
+    // inventory the snapshot was taken from
+    public InventoryReport generate(InventorySnapshot snapshot, Category rootCategory, ProductCatalog catalog) {
+        return generate(snapshot, rootCategory, catalog, DayClock.SYSTEM);
+    }
+
+    public InventoryReport generate(InventorySnapshot snapshot, Category rootCategory, ProductCatalog catalog,
+                                    DayClock clock) {
+        long today = clock.todayEpochDay();
+        CategoryIndex index = CategoryIndex.EMPTY;
+        if (rootCategory != null) {
+            index = categoryIndex;
+            if (index == null || !index.isCurrent(rootCategory, catalog)) {
+                index = CategoryIndex.build(rootCategory, catalog);
+                categoryIndex = index;
+            }
+        }
+        LotView[] lots = snapshot.getLots().toArray(new LotView[0]);
+        Pass pass = new Pass(lots, 0, lots.length, today, index.nodes.length, index.categoriesByProduct);
+        Partial result = lots.length <= splitThreshold ? pass.compute() : pool.invoke(pass);
+
+        Map<String, InventoryReport.Totals> byType = new TreeMap<>(result.byType);
+        Map<String, InventoryReport.Totals> byCategory = new LinkedHashMap<>();
+        Map<Category, InventoryReport.Totals> byCategoryNode = new IdentityHashMap<>();
+        for (int i = 0; i < index.nodes.length; i++) {
+            byCategory.put(index.keys[i], result.byCategory[i]);
+            byCategoryNode.put(index.nodes[i], result.byCategory[i]);
+        }
+        return new InventoryReport(snapshot.getVersion(), today, criticalLevel, expiryWindowDays,
+                Arrays.asList(lots), result.critical, result.expiring, result.total, byType, byCategory,
+                byCategoryNode);
+    }
+
+    //Categories of one tree numbered in pre-order, with each catalog product id mapped to the
+    //categories above its leaves. Nodes are told apart by identity; a name used by several nodes
+    //is reported under its path.
+    private static final class CategoryIndex {
+        static final CategoryIndex EMPTY = new CategoryIndex(null, null, 0, new Category[0], new String[0],
+                new HashMap<Integer, int[]>());
+
+        final Category root;
+        final ProductCatalog catalog;
+        final long structureVersion;
+        final Category[] nodes;
+        final String[] keys;
+        final Map<Integer, int[]> categoriesByProduct;
+
+        private CategoryIndex(Category root, ProductCatalog catalog, long structureVersion, Category[] nodes,
+                              String[] keys, Map<Integer, int[]> categoriesByProduct) {
+            this.root = root;
+            this.catalog = catalog;
+            this.structureVersion = structureVersion;
+            this.nodes = nodes;
+            this.keys = keys;
+            this.categoriesByProduct = categoriesByProduct;
+        }
+
+        static CategoryIndex build(Category root, ProductCatalog catalog) {
+            long version = CategoryLabels.structureVersion(root);   // read first, a concurrent edit forces a rebuild
+            List<Category> nodes = new ArrayList<>();
+            List<String> paths = new ArrayList<>();
+            Map<Integer, int[]> categoriesByProduct = new HashMap<>();
+            visit(root, "", new ArrayList<Integer>(), nodes, paths, catalog, categoriesByProduct);
+
+            Map<String, Integer> nameCounts = new HashMap<>();
+            for (Category node : nodes) {
+                nameCounts.merge(node.getName(), 1, Integer::sum);
+            }
+            String[] keys = new String[nodes.size()];
+            for (int i = 0; i < keys.length; i++) {
+                String name = nodes.get(i).getName();
+                keys[i] = nameCounts.get(name) == 1 ? name : paths.get(i);
+            }
+            return new CategoryIndex(root, catalog, version, nodes.toArray(new Category[0]), keys,
+                    categoriesByProduct);
+        }
+
+        boolean isCurrent(Category root, ProductCatalog catalog) {
+            return this.root == root && this.catalog == catalog
+                    && structureVersion == CategoryLabels.structureVersion(root);
+        }
+
+        private static void visit(Category category, String parentPath, List<Integer> path, List<Category> nodes,
+                                  List<String> paths, ProductCatalog catalog, Map<Integer, int[]> categoriesByProduct) {
+            if (category instanceof ProductLeaf) {
+                if (!(((ProductLeaf) category).getItem() instanceof Consumable)) {
+                    return;   // devices are not stocked in lots
+                }
+                // Leaf products are catalogued so lots added later resolve to the same id
+                int productId = catalog.intern((Consumable) ((ProductLeaf) category).getItem());
+                Set<Integer> ids = new LinkedHashSet<>(path);
+                int[] previous = categoriesByProduct.get(productId);
+                if (previous != null) {
+                    for (int id : previous) {
+                        ids.add(id);
+                    }
+                }
+                int[] merged = new int[ids.size()];
+                int i = 0;
+                for (int id : ids) {
+                    merged[i++] = id;
+                }
+                categoriesByProduct.put(productId, merged);
+                return;
+            }
+            String ownPath = parentPath.isEmpty() ? category.getName() : parentPath + "/" + category.getName();
+            path.add(nodes.size());
+            nodes.add(category);
+            paths.add(ownPath);
+            for (Category child : category.getChildren()) {
+                visit(child, ownPath, path, nodes, paths, catalog, categoriesByProduct);
+            }
+            path.remove(path.size() - 1);
+        }
+    }
+
+    //Accumulated results of a range of lots.
+    private static final class Partial {
+        final InventoryReport.Totals total = new InventoryReport.Totals();
+        final List<LotView> critical = new ArrayList<>();
+        final List<LotView> expiring = new ArrayList<>();
+        final Map<String, InventoryReport.Totals> byType = new HashMap<>();
+        final InventoryReport.Totals[] byCategory;
+
+        Partial(int categoryCount) {
+            byCategory = new InventoryReport.Totals[categoryCount];
+            for (int i = 0; i < categoryCount; i++) {
+                byCategory[i] = new InventoryReport.Totals();
+            }
+        }
+
+        // other covers the lots right after this range
+        Partial merge(Partial other) {
+            total.add(other.total);
+            critical.addAll(other.critical);
+            expiring.addAll(other.expiring);
+            for (Map.Entry<String, InventoryReport.Totals> entry : other.byType.entrySet()) {
+                InventoryReport.Totals totals = byType.get(entry.getKey());
+                if (totals == null) {
+                    byType.put(entry.getKey(), entry.getValue());
+                } else {
+                    totals.add(entry.getValue());
+                }
+            }
+            for (int i = 0; i < byCategory.length; i++) {
+                byCategory[i].add(other.byCategory[i]);
+            }
+            return this;
+        }
+    }
+
+    //Fork-join task over lots[from, to).
+    private final class Pass extends RecursiveTask<Partial> {
+        private static final long serialVersionUID = 1L;
+
+        private final LotView[] lots;
+        private final int from;
+        private final int to;
+        private final long today;
+        private final int categoryCount;
+        private final Map<Integer, int[]> categoriesByProduct;
+
+        Pass(LotView[] lots, int from, int to, long today, int categoryCount, Map<Integer, int[]> categoriesByProduct) {
+            this.lots = lots;
+            this.from = from;
+            this.to = to;
+            this.today = today;
+            this.categoryCount = categoryCount;
+            this.categoriesByProduct = categoriesByProduct;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (to - from > splitThreshold) {
+                int middle = (from + to) >>> 1;
+                Pass left = new Pass(lots, from, middle, today, categoryCount, categoriesByProduct);
+                Pass right = new Pass(lots, middle, to, today, categoryCount, categoriesByProduct);
+                left.fork();
+                Partial rightResult = right.compute();
+                return left.join().merge(rightResult);
+            }
+            Partial partial = new Partial(categoryCount);
+            for (int i = from; i < to; i++) {
+                LotView lot = lots[i];
+                partial.total.add(lot);
+                if (lot.getStock() <= criticalLevel) {
+                    partial.critical.add(lot);
+                }
+                if (lot.hasExpiration() && lot.getExpiryEpochDay() - today < expiryWindowDays) {
+                    partial.expiring.add(lot);
+                }
+                String type = String.valueOf(lot.getType());
+                InventoryReport.Totals typeTotals = partial.byType.get(type);
+                if (typeTotals == null) {
+                    typeTotals = new InventoryReport.Totals();
+                    partial.byType.put(type, typeTotals);
+                }
+                typeTotals.add(lot);
+                int[] categories = categoriesByProduct.get(lot.getProductId());
+                if (categories != null) {
+                    for (int category : categories) {
+                        partial.byCategory[category].add(lot);
+                    }
+                }
+            }
+            return partial;
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package designpatterns16.Stockmonitor;
+
+import designpatterns16.alerts.AlertSinks;
+import designpatterns16.items.Consumable;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+//High-rate stock receipt from GS1 scans at the receiving dock.
+//A batch holds one element string per line (LF or CR LF). Every code adds one unit to the lot
+//identified by its GTIN, lot number and expiry. The codes are parsed in place, GTINs and lots
+//are resolved through primitive long keyed maps, and the units are tallied per lot; the batch
+//then creates or increases each touched lot once, all published as one inventory version.
+//Serial numbers are parsed but not de-duplicated: a code scanned twice counts twice.
+public class ScanIngestor {
+
+    private final Inventory inventory;
+    private final LongObjectMap<Consumable> productsByGtin = new LongObjectMap<>();
+    // Hash of (GTIN, lot number, expiry) -> lot; the rare hash collisions go to collidedLots
+    private final LongObjectMap<StockItem> lotsByKey = new LongObjectMap<>();
+    private final Map<String, StockItem> collidedLots = new HashMap<>();
+    private final Gs1Scan scan = new Gs1Scan();
+    // Units per lot id in the running batch; Tally objects are pooled across batches
+    private final LongObjectMap<Tally> tallies = new LongObjectMap<>();
+    private final List<Tally> tallyPool = new ArrayList<>();
+    private int talliesUsed;
+    private long acceptedCount;
+    private long rejectedCount;
+
+    public ScanIngestor(Inventory inventory) {
+        this.inventory = inventory;
+    }
+
+    // ---------- PRODUCT MASTER DATA ----------
+    public synchronized void registerGtin(String gtin, Consumable product) {
+        productsByGtin.put(Gs1Parser.parseGtin(gtin), inventory.getCatalog().canonical(product));
+    }
+
+    public synchronized Consumable getProduct(String gtin) {
+        return productsByGtin.get(Gs1Parser.parseGtin(gtin));
+    }
+
+    // ---------- INGESTION ----------
+    // Ingests the codes between position and limit (the buffer is consumed); returns the accepted count.
+    // Malformed codes and unknown GTINs are rejected, counted and reported as one alert per batch.
+    public synchronized int ingest(final ByteBuffer batch) {
+        final int[] counts = new int[2];   // accepted, rejected
+        inventory.writeBatch(() -> {
+            try {
+                int end = batch.limit();
+                int lineStart = batch.position();
+                for (int pos = lineStart; pos <= end; pos++) {
+                    if (pos < end && batch.get(pos) != '\n' && batch.get(pos) != '\r') {
+                        continue;
+                    }
+                    if (pos > lineStart) {
+                        counts[accept(batch, lineStart, pos) ? 0 : 1]++;
+                    }
+                    lineStart = pos + 1;
+                }
+                batch.position(end);
+                apply();
+            } finally {
+                for (int i = 0; i < talliesUsed; i++) {
+                    tallyPool.get(i).lot = null;
+                }
+                talliesUsed = 0;
+                tallies.clear();
+            }
+        });
+        acceptedCount += counts[0];
+        rejectedCount += counts[1];
+        if (counts[1] > 0) {
+            AlertSinks.get().emit("SCAN: " + counts[1] + " of " + (counts[0] + counts[1])
+                    + " codes rejected (unreadable or unknown GTIN)");
+        }
+        return counts[0];
+    }
+
+    private boolean accept(ByteBuffer batch, int start, int end) {
+        if (!Gs1Parser.parse(batch, start, end, scan, inventory.getClock().todayEpochDay())) {
+            return false;
+        }
+        Consumable product = productsByGtin.get(scan.getGtin());
+        if (product == null) {
+            return false;
+        }
+        StockItem lot = lot(product);
+        Tally tally = tallies.get(lot.getLotId());
+        if (tally == null) {
+            tally = nextTally(lot);
+            tallies.put(lot.getLotId(), tally);
+        }
+        tally.units++;
+        return true;
+    }
+
+    // The lot receiving the scanned unit; a new (not yet added) lot when none is open
+    private StockItem lot(Consumable product) {
+        long key = lotKey();
+        StockItem lot = lotsByKey.get(key);
+        boolean collided = lot != null && !isScannedLot(lot, product);
+        if (collided) {
+            lot = collidedLots.get(collisionKey());
+        }
+        if (lot != null && (tallies.get(lot.getLotId()) != null || inventory.contains(lot))) {
+            return lot;
+        }
+        lot = StockItem.withExpiry(product, 0, ExpiryDates.toLocalDate(scan.getExpiryEpochDay()));
+        lot.setLotCode(scan.getLotCode());
+        if (collided) {
+            collidedLots.put(collisionKey(), lot);
+        } else {
+            lotsByKey.put(key, lot);
+        }
+        return lot;
+    }
+
+    private boolean isScannedLot(StockItem lot, Consumable product) {
+        return lot.getProduct() == product
+                && lot.getExpiryEpochDay() == scan.getExpiryEpochDay()
+                && scan.lotEquals(lot.getLotCode());
+    }
+
+    // FNV-1a style mix of the lot identity, read straight from the scanned bytes
+    private long lotKey() {
+        long hash = 0xcbf29ce484222325L;
+        hash = (hash ^ scan.getGtin()) * 0x100000001b3L;
+        hash = (hash ^ scan.getExpiryEpochDay()) * 0x100000001b3L;
+        hash = (hash ^ scan.lotLength) * 0x100000001b3L;
+        for (int i = 0; i < scan.lotLength; i++) {
+            hash = (hash ^ scan.source.get(scan.lotStart + i)) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private String collisionKey() {
+        return scan.getGtin() + "|" + scan.getLotCode() + "|" + scan.getExpiryEpochDay();
+    }
+
+    private Tally nextTally(StockItem lot) {
+        if (talliesUsed == tallyPool.size()) {
+            tallyPool.add(new Tally());
+        }
+        Tally tally = tallyPool.get(talliesUsed++);
+        tally.lot = lot;
+        tally.fresh = !inventory.contains(lot);
+        tally.units = 0;
+        return tally;
+    }
+
+    // One inventory write per touched lot: new lots are added, then every lot gets its units
+    private void apply() {
+        for (int i = 0; i < talliesUsed; i++) {
+            Tally tally = tallyPool.get(i);
+            if (tally.fresh) {
+                inventory.addStock(tally.lot);
+            }
+            tally.lot.increaseStock(tally.units);
+        }
+    }
+
+    // ---------- STATISTICS ----------
+    public synchronized long getAcceptedCount() {
+        return acceptedCount;
+    }
+
+    public synchronized long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    private static final class Tally {
+        StockItem lot;
+        boolean fresh;
+        int units;
+    }
+}
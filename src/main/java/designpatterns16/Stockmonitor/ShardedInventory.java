@@ -0,0 +1,152 @@
+package designpatterns16.Stockmonitor;
+
+import designpatterns16.design_patterns.composite.ProductCategory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+//Facade over several Inventory instances (one per site / hospital).
+//Lots are routed to a shard either explicitly by site or by product name hash,
+//network-wide queries fan out to every shard in parallel and are merged.
+public class ShardedInventory {
+
+    private final List<Inventory> shards;
+    private final List<String> siteNames;
+    private final ForkJoinPool pool;
+    // Shared by every shard, so a product has the same id (and instance) at every site
+    private final ProductCatalog catalog = new ProductCatalog();
+
+    public ShardedInventory(int shardCount) {
+        this(createSites(shardCount), ForkJoinPool.commonPool());
+    }
+
+    public ShardedInventory(List<String> siteNames) {
+        this(siteNames, ForkJoinPool.commonPool());
+    }
+
+    public ShardedInventory(List<String> siteNames, ForkJoinPool pool) {
+        if (siteNames.isEmpty()) {
+            throw new IllegalArgumentException("At least one site is required!");
+        }
+        this.siteNames = new ArrayList<>(siteNames);
+        this.shards = new ArrayList<>();
+        for (int i = 0; i < siteNames.size(); i++) {
+            shards.add(new Inventory(catalog));
+        }
+        this.pool = pool;
+    }
+
+    private static List<String> createSites(int shardCount) {
+        List<String> sites = new ArrayList<>();
+        for (int i = 0; i < shardCount; i++) {
+            sites.add("Shard " + i);
+        }
+        return sites;
+    }
+
+    // ---------- ROUTING ----------
+    // Partition by product hash: all lots of one product land on the same shard
+    public void addStock(StockItem item) {
+        shardForProduct(item.getName()).addStock(item);
+    }
+
+    // Partition by site: the lot is stored in the inventory of the given site
+    public void addStock(String site, StockItem item) {
+        getShard(site).addStock(item);
+    }
+
+    public void removeStock(StockItem item) {
+        for (Inventory shard : shards) {
+            if (shard.contains(item)) {
+                shard.removeStock(item);
+                return;
+            }
+        }
+        throw new IllegalArgumentException("Item not found in inventory!");
+    }
+
+    public Inventory shardForProduct(String productName) {
+        return shards.get(Math.floorMod(productName.hashCode(), shards.size()));
+    }
+
+    public Inventory getShard(String site) {
+        int index = siteNames.indexOf(site);
+        if (index < 0) {
+            throw new IllegalArgumentException("Unknown site: " + site);
+        }
+        return shards.get(index);
+    }
+
+    public List<Inventory> getShards() {
+        return Collections.unmodifiableList(shards);
+    }
+
+    public List<String> getSiteNames() {
+        return Collections.unmodifiableList(siteNames);
+    }
+
+    public ProductCatalog getCatalog() {
+        return catalog;
+    }
+
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    // The category tree is shared by every site so category queries mean the same everywhere
+    public void setRootCategory(ProductCategory rootCategory) {
+        for (Inventory shard : shards) {
+            shard.setRootCategory(rootCategory);
+        }
+    }
+
+    // ---------- CROSS-SHARD QUERIES ----------
+    public List<StockItem> getStockByProduct(final String name) {
+        return fanOut(shard -> shard.getStockByProduct(name));
+    }
+
+    public List<StockItem> getStockByCategory(final String categoryName) {
+        return fanOut(shard -> shard.getStockByCategory(categoryName));
+    }
+
+    public List<StockItem> getAllStockItems() {
+        return fanOut(Inventory::getAllStockItems);
+    }
+
+    public double getTotalValue() {
+        double total = 0;
+        for (StockItem item : getAllStockItems()) {
+            total += item.getTotalValue();
+        }
+        return total;
+    }
+
+    // Runs the query on every shard as a fork-join task and merges in shard order
+    private List<StockItem> fanOut(final Function<Inventory, List<StockItem>> query) {
+        if (shards.size() == 1) {
+            return query.apply(shards.get(0));
+        }
+        List<Callable<List<StockItem>>> tasks = new ArrayList<>();
+        for (final Inventory shard : shards) {
+            tasks.add(() -> query.apply(shard));
+        }
+        List<StockItem> result = new ArrayList<>();
+        for (Future<List<StockItem>> future : pool.invokeAll(tasks)) {
+            try {
+                result.addAll(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Shard query interrupted", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Shard query failed", e.getCause());
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,126 @@
+package designpatterns16.Stockmonitor;
+
+import java.util.Arrays;
+
+//Growable sorted set of lot ids backed by a long[].
+//Lot ids are handed out in increasing order, so adds are almost always appends.
+final class SortedLongList {
+
+    private static final long[] EMPTY = new long[0];
+
+    private long[] ids = new long[4];
+    private int size;
+
+    void add(long id) {
+        int pos = size > 0 && ids[size - 1] < id ? size : Arrays.binarySearch(ids, 0, size, id);
+        if (pos >= 0 && pos < size) {
+            return;   // already present
+        }
+        if (pos < 0) {
+            pos = -pos - 1;
+        }
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, size * 2);
+        }
+        System.arraycopy(ids, pos, ids, pos + 1, size - pos);
+        ids[pos] = id;
+        size++;
+    }
+
+    void remove(long id) {
+        int pos = Arrays.binarySearch(ids, 0, size, id);
+        if (pos >= 0) {
+            System.arraycopy(ids, pos + 1, ids, pos, size - pos - 1);
+            size--;
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    long[] toArray() {
+        return size == 0 ? EMPTY : Arrays.copyOf(ids, size);
+    }
+
+    // Appends the ids to target starting at offset, returns the new offset
+    int copyTo(long[] target, int offset) {
+        System.arraycopy(ids, 0, target, offset, size);
+        return offset + size;
+    }
+
+    // Merges pairwise disjoint sorted lists holding total ids; a binary heap orders the lists by their next id
+    static long[] merge(SortedLongList[] lists, int total) {
+        long[] result = new long[total];
+        if (lists.length == 1) {
+            lists[0].copyTo(result, 0);
+            return result;
+        }
+        int[] heap = new int[lists.length];
+        int[] cursor = new int[lists.length];
+        int heapSize = 0;
+        for (int i = 0; i < lists.length; i++) {
+            if (lists[i].size > 0) {
+                heap[heapSize++] = i;
+            }
+        }
+        for (int i = heapSize / 2 - 1; i >= 0; i--) {
+            siftDown(heap, heapSize, i, lists, cursor);
+        }
+        for (int n = 0; n < total; n++) {
+            int top = heap[0];
+            result[n] = lists[top].ids[cursor[top]++];
+            if (cursor[top] == lists[top].size) {
+                heap[0] = heap[--heapSize];
+            }
+            siftDown(heap, heapSize, 0, lists, cursor);
+        }
+        return result;
+    }
+
+    private static void siftDown(int[] heap, int heapSize, int pos, SortedLongList[] lists, int[] cursor) {
+        while (true) {
+            int smallest = pos;
+            for (int child = 2 * pos + 1; child <= 2 * pos + 2 && child < heapSize; child++) {
+                if (head(heap[child], lists, cursor) < head(heap[smallest], lists, cursor)) {
+                    smallest = child;
+                }
+            }
+            if (smallest == pos) {
+                return;
+            }
+            int swap = heap[pos];
+            heap[pos] = heap[smallest];
+            heap[smallest] = swap;
+            pos = smallest;
+        }
+    }
+
+    private static long head(int list, SortedLongList[] lists, int[] cursor) {
+        return lists[list].ids[cursor[list]];
+    }
+
+    // Both inputs sorted; galloping is not worth it at inventory sizes, a linear merge is
+    static long[] intersect(long[] a, long[] b) {
+        long[] result = new long[Math.min(a.length, b.length)];
+        int i = 0;
+        int j = 0;
+        int n = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[n++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return n == result.length ? result : Arrays.copyOf(result, n);
+    }
+}
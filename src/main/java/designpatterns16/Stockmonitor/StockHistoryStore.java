@@ -0,0 +1,225 @@
+package designpatterns16.Stockmonitor;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+//Append-only consumption history, one series per product and one per lot.
+//Every reduceStock / increaseStock appends (timestamp, signed change). Points are packed into
+//blocks of delta encoded varints; each block keeps its time range so range queries skip
+//blocks (and products) that cannot contribute.
+public class StockHistoryStore implements InventoryListener {
+
+    static final int POINTS_PER_BLOCK = 256;
+
+    private final LongSupplier clock;
+    private final ZoneId zone;
+    private final Map<String, Series> products = new HashMap<>();
+    private final Map<Long, Series> lots = new HashMap<>();
+
+    public StockHistoryStore() {
+        this(System::currentTimeMillis, ZoneId.systemDefault());
+    }
+
+    public StockHistoryStore(LongSupplier clock, ZoneId zone) {
+        this.clock = clock;
+        this.zone = zone;
+    }
+
+    // ---------- INGESTION ----------
+    @Override
+    public void lotAdded(StockItem stockItem) {
+        if (stockItem.getStock() > 0) {
+            record(stockItem.getName(), stockItem.getLotId(), stockItem.getStock());
+        }
+    }
+
+    @Override
+    public void lotRemoved(StockItem stockItem) {
+        // history is append-only, the series of a removed lot stays queryable
+    }
+
+    @Override
+    public void lotChanged(StockItem stockItem) {
+        if (stockItem.getLastChange() != 0) {
+            record(stockItem.getName(), stockItem.getLotId(), stockItem.getLastChange());
+        }
+    }
+
+    public synchronized void record(String product, long lotId, int change) {
+        long now = clock.getAsLong();
+        products.computeIfAbsent(product, k -> new Series()).append(now, change);
+        lots.computeIfAbsent(lotId, k -> new Series()).append(now, change);
+    }
+
+    // ---------- QUERIES ----------
+    // Units dispensed per day for a product, index 0 = from, length = days
+    public synchronized long[] dispensedPerDay(String product, LocalDate from, int days) {
+        return perDay(products.get(product), from, days, true);
+    }
+
+    public synchronized long[] receivedPerDay(String product, LocalDate from, int days) {
+        return perDay(products.get(product), from, days, false);
+    }
+
+    public synchronized long[] lotDispensedPerDay(long lotId, LocalDate from, int days) {
+        return perDay(lots.get(lotId), from, days, true);
+    }
+
+    // Total units dispensed in [fromMillis, toMillis)
+    public synchronized long dispensedBetween(String product, long fromMillis, long toMillis) {
+        Series series = products.get(product);
+        if (series == null) {
+            return 0;
+        }
+        long[] total = new long[1];
+        series.scan(fromMillis, toMillis, (time, change) -> {
+            if (change < 0) {
+                total[0] -= change;
+            }
+        });
+        return total[0];
+    }
+
+    public synchronized int getBlockCount(String product) {
+        Series series = products.get(product);
+        return series == null ? 0 : series.blockCount();
+    }
+
+    private long[] perDay(Series series, LocalDate from, int days, final boolean dispensed) {
+        final long[] result = new long[days];
+        if (series == null || days <= 0) {
+            return result;
+        }
+        final long fromDay = from.toEpochDay();
+        long fromMillis = from.atStartOfDay(zone).toInstant().toEpochMilli();
+        long toMillis = from.plusDays(days).atStartOfDay(zone).toInstant().toEpochMilli();
+        series.scan(fromMillis, toMillis, (time, change) -> {
+            if (dispensed ? change < 0 : change > 0) {
+                int day = (int) (Instant.ofEpochMilli(time).atZone(zone).toLocalDate().toEpochDay() - fromDay);
+                result[day] += Math.abs(change);
+            }
+        });
+        return result;
+    }
+
+    interface PointVisitor {
+        void visit(long time, int change);
+    }
+
+    //Time series as a list of sealed, encoded blocks plus the block being filled.
+    static final class Series {
+        private final List<Block> sealed = new ArrayList<>();
+        private Block open = new Block();
+        private long lastTime = Long.MIN_VALUE;
+
+        // Wall clock steps backwards are clamped so blocks stay time ordered
+        void append(long time, int change) {
+            time = Math.max(time, lastTime);
+            lastTime = time;
+            if (open.count == POINTS_PER_BLOCK) {
+                open.seal();
+                sealed.add(open);
+                open = new Block();
+            }
+            open.append(time, change);
+        }
+
+        void scan(long fromMillis, long toMillis, PointVisitor visitor) {
+            for (Block block : sealed) {
+                if (block.overlaps(fromMillis, toMillis)) {
+                    block.scan(fromMillis, toMillis, visitor);
+                }
+            }
+            if (open.count > 0 && open.overlaps(fromMillis, toMillis)) {
+                open.scan(fromMillis, toMillis, visitor);
+            }
+        }
+
+        int blockCount() {
+            return sealed.size() + (open.count > 0 ? 1 : 0);
+        }
+    }
+
+    //Points stored as zig-zag varints: time delta to the previous point, then the change.
+    static final class Block {
+        private long startTime;
+        private long endTime;
+        private int count;
+        private byte[] data = new byte[64];
+        private int length;
+
+        void append(long time, int change) {
+            if (count == 0) {
+                startTime = time;
+                endTime = time;
+            }
+            writeVarLong(zigZag(time - endTime));
+            writeVarLong(zigZag(change));
+            endTime = time;
+            count++;
+        }
+
+        void seal() {
+            data = Arrays.copyOf(data, length);
+        }
+
+        boolean overlaps(long fromMillis, long toMillis) {
+            return startTime < toMillis && endTime >= fromMillis;
+        }
+
+        void scan(long fromMillis, long toMillis, PointVisitor visitor) {
+            int pos = 0;
+            long time = startTime;
+            for (int i = 0; i < count; i++) {
+                long value = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = data[pos++];
+                    value |= (long) (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                time += unZigZag(value);
+                value = 0;
+                shift = 0;
+                do {
+                    b = data[pos++];
+                    value |= (long) (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                if (time >= toMillis) {
+                    return;
+                }
+                if (time >= fromMillis) {
+                    visitor.visit(time, (int) unZigZag(value));
+                }
+            }
+        }
+
+        private void writeVarLong(long value) {
+            if (length + 10 > data.length) {
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+            while ((value & ~0x7FL) != 0) {
+                data[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            data[length++] = (byte) value;
+        }
+
+        private static long zigZag(long value) {
+            return (value << 1) ^ (value >> 63);
+        }
+
+        private static long unZigZag(long value) {
+            return (value >>> 1) ^ -(value & 1);
+        }
+    }
+}
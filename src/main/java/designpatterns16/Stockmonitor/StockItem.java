@@ -4,21 +4,48 @@ import designpatterns16.design_patterns.observer.IObserver;
 import designpatterns16.design_patterns.observer.ISubject;
 import designpatterns16.items.Consumable;
 
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class StockItem implements ISubject {
 
+    private static final AtomicLong NEXT_LOT_ID = new AtomicLong(1);
+
+    private final long lotId;
     private Consumable product;
+    private int productId = ProductCatalog.UNCATALOGUED;   // set when an inventory catalogues the lot
     private int quantity;
-    private Date expirationDate;
+    private int lastChange;   // signed quantity delta of the latest reduce/increase
+    private long expiryEpochDay;   // ExpiryDates.NO_EXPIRY when the lot does not expire
+    private String lotCode;   // manufacturer batch/lot number (GS1 AI 10), null when unknown
+    private boolean temperatureExcursion;   // stored out of range long enough to shorten its expiry
     private List<IObserver> observers = new ArrayList<>();
 
+    // Lot without an expiration date
+    public StockItem(Consumable product, int quantity) {
+        this(NEXT_LOT_ID.getAndIncrement(), product, quantity, ExpiryDates.NO_EXPIRY);
+    }
+
+    // Legacy java.util.Date callers, the date is reduced to its epoch day
     public StockItem(Consumable product, int quantity, Date expirationDate) {
+        this(NEXT_LOT_ID.getAndIncrement(), product, quantity, ExpiryDates.toEpochDay(expirationDate));
+    }
+
+    // A factory rather than a constructor so new StockItem(product, quantity, null) stays unambiguous
+    public static StockItem withExpiry(Consumable product, int quantity, LocalDate expirationDate) {
+        return new StockItem(NEXT_LOT_ID.getAndIncrement(), product, quantity, ExpiryDates.toEpochDay(expirationDate));
+    }
+
+    // Used when a lot is restored with a known id (replicas, storage)
+    public StockItem(long lotId, Consumable product, int quantity, long expiryEpochDay) {
+        this.lotId = lotId;
+        NEXT_LOT_ID.accumulateAndGet(lotId + 1, Math::max);
         this.product = product;
         this.quantity = quantity;
-        this.expirationDate = expirationDate;
+        this.expiryEpochDay = expiryEpochDay;
     }
 
     // ---------- ISubject IMPLEMENTATION ----------
@@ -45,6 +72,7 @@ public class StockItem implements ISubject {
             throw new IllegalArgumentException("Insufficient stock!");
         }
         this.quantity -= amount;
+        this.lastChange = -amount;
 
         // Trigger alarms when threshold or critical level reached
         notifyObservers();
@@ -52,20 +80,87 @@ public class StockItem implements ISubject {
 
     public void increaseStock(int amount) {
         this.quantity += amount;
+        this.lastChange = amount;
+        notifyObservers();
+    }
+
+    // Cold chain breach: the lot must be used by the given day (or its label date if earlier).
+    // Observers see it as a change without a quantity delta, so the expiry alarm re-evaluates.
+    public void recordTemperatureExcursion(long useByEpochDay) {
+        this.temperatureExcursion = true;
+        this.expiryEpochDay = Math.min(expiryEpochDay, useByEpochDay);
+        this.lastChange = 0;
         notifyObservers();
     }
 
     // ---------- GETTERS ----------
+    public long getLotId() {
+        return lotId;
+    }
+
     public Consumable getProduct() {
         return product;
     }
 
+    // Catalog id of the product, ProductCatalog.UNCATALOGUED until the lot joins an inventory
+    public int getProductId() {
+        return productId;
+    }
+
+    // Points the lot at the canonical instance of its product
+    void bindProduct(int productId, Consumable canonical) {
+        this.productId = productId;
+        this.product = canonical;
+    }
+
     public int getStock() {
         return quantity;
     }
 
+    // Negative when stock was dispensed, positive when received; 0 before the first change
+    public int getLastChange() {
+        return lastChange;
+    }
+
+    // Adapter for Date based callers, allocates; prefer getExpiryEpochDay()
     public Date getExpirationDate() {
-        return expirationDate;
+        return ExpiryDates.toDate(expiryEpochDay);
+    }
+
+    public LocalDate getExpirationLocalDate() {
+        return ExpiryDates.toLocalDate(expiryEpochDay);
+    }
+
+    public long getExpiryEpochDay() {
+        return expiryEpochDay;
+    }
+
+    public boolean hasExpiration() {
+        return expiryEpochDay != ExpiryDates.NO_EXPIRY;
+    }
+
+    public boolean hasTemperatureExcursion() {
+        return temperatureExcursion;
+    }
+
+    public String getLotCode() {
+        return lotCode;
+    }
+
+    public void setLotCode(String lotCode) {
+        this.lotCode = lotCode;
+    }
+
+    // Whole days until expiry (negative once expired), Long.MAX_VALUE without a date
+    public long daysUntilExpiry() {
+        return daysUntilExpiry(DayClock.SYSTEM);
+    }
+
+    public long daysUntilExpiry(DayClock clock) {
+        if (expiryEpochDay == ExpiryDates.NO_EXPIRY) {
+            return Long.MAX_VALUE;
+        }
+        return expiryEpochDay - clock.todayEpochDay();
     }
 
     public String getType() {
@@ -81,7 +176,11 @@ public class StockItem implements ISubject {
     }
 
     public boolean isExpired() {
-        return expirationDate != null && expirationDate.before(new Date());
+        return isExpired(DayClock.SYSTEM);
+    }
+
+    public boolean isExpired(DayClock clock) {
+        return expiryEpochDay != ExpiryDates.NO_EXPIRY && expiryEpochDay < clock.todayEpochDay();
     }
 
     // ---------- UTILS ----------
@@ -90,7 +189,7 @@ public class StockItem implements ISubject {
         return "StockItem{" +
                 "product=" + product.getName() +
                 ", quantity=" + quantity +
-                ", expirationDate=" + expirationDate +
+                ", expirationDate=" + (hasExpiration() ? getExpirationLocalDate() : null) +
                 '}';
     }
 }
@@ -0,0 +1,13 @@
+package designpatterns16.alerts;
+
+//Destination for alarm and device event messages.
+//Observers and device states write through AlertSinks.get() instead of System.out.
+public interface AlertSink extends AutoCloseable {
+    void emit(String message);
+
+    // Blocks until everything emitted so far has been written
+    void flush();
+
+    @Override
+    void close();
+}
@@ -0,0 +1,28 @@
+package designpatterns16.alerts;
+
+//Holds the sink used by observers and device states.
+//Defaults to the console behind an AsyncAlertSink so an alert never blocks the caller on I/O;
+//callers that interleave their own output flush() the sink first. Whatever is still queued
+//in the installed sink is flushed at JVM exit.
+public final class AlertSinks {
+
+    private static volatile AlertSink current = new AsyncAlertSink(new ConsoleAlertSink());
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> current.flush(), "alert-sink-flush"));
+    }
+
+    private AlertSinks() {
+    }
+
+    public static AlertSink get() {
+        return current;
+    }
+
+    // Installs a new sink and returns the previous one (which is not closed)
+    public static AlertSink set(AlertSink sink) {
+        AlertSink previous = current;
+        current = sink;
+        return previous;
+    }
+}
@@ -0,0 +1,104 @@
+package designpatterns16.alerts;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+//Makes any sink asynchronous: emit() only enqueues, a background writer drains the queue
+//in batches, writes them to the delegate and flushes it once per batch.
+//When the queue is full new messages are dropped and counted instead of blocking the caller.
+public class AsyncAlertSink implements AlertSink {
+
+    private static final int MAX_BATCH = 512;
+
+    private final AlertSink delegate;
+    private final BlockingQueue<String> queue;
+    private final Thread writer;
+    private volatile boolean running = true;
+    private long enqueued = 0;      // guarded by this
+    private long written = 0;       // guarded by this
+    private long dropped = 0;       // guarded by this
+
+    public AsyncAlertSink(AlertSink delegate) {
+        this(delegate, 8192);
+    }
+
+    public AsyncAlertSink(AlertSink delegate, int capacity) {
+        this.delegate = delegate;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.writer = new Thread(this::writeLoop, "alert-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void emit(String message) {
+        synchronized (this) {
+            if (queue.offer(message)) {
+                enqueued++;
+            } else {
+                dropped++;
+            }
+        }
+    }
+
+    private void writeLoop() {
+        List<String> batch = new ArrayList<>(MAX_BATCH);
+        while (running || !queue.isEmpty()) {
+            try {
+                String first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH - 1);
+                for (String message : batch) {
+                    delegate.emit(message);
+                }
+                delegate.flush();
+            } catch (InterruptedException e) {
+                running = false;
+            } catch (RuntimeException e) {
+                System.err.println("[ALERT SINK] Write failed: " + e.getMessage());
+            }
+            synchronized (this) {
+                written += batch.size();
+                notifyAll();
+            }
+            batch.clear();
+        }
+    }
+
+    @Override
+    public void flush() {
+        synchronized (this) {
+            long target = enqueued;
+            while (written < target && writer.isAlive()) {
+                try {
+                    wait(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    public synchronized long getDroppedCount() {
+        return dropped;
+    }
+
+    @Override
+    public void close() {
+        flush();
+        running = false;
+        try {
+            writer.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        delegate.close();
+    }
+}
@@ -0,0 +1,20 @@
+package designpatterns16.alerts;
+
+//Writes each message synchronously to the current System.out.
+public class ConsoleAlertSink implements AlertSink {
+
+    @Override
+    public void emit(String message) {
+        System.out.println(message);
+    }
+
+    @Override
+    public void flush() {
+        System.out.flush();
+    }
+
+    @Override
+    public void close() {
+        flush();
+    }
+}
@@ -0,0 +1,43 @@
+package designpatterns16.alerts;
+
+import java.util.ArrayList;
+import java.util.List;
+
+//Keeps the latest messages in memory, oldest are overwritten. Meant for tests and diagnostics.
+public class RingBufferAlertSink implements AlertSink {
+
+    private final String[] ring;
+    private long written = 0;
+
+    public RingBufferAlertSink(int capacity) {
+        this.ring = new String[capacity];
+    }
+
+    @Override
+    public synchronized void emit(String message) {
+        ring[(int) (written % ring.length)] = message;
+        written++;
+    }
+
+    // Retained messages, oldest first
+    public synchronized List<String> getMessages() {
+        List<String> messages = new ArrayList<>();
+        long first = Math.max(0, written - ring.length);
+        for (long i = first; i < written; i++) {
+            messages.add(ring[(int) (i % ring.length)]);
+        }
+        return messages;
+    }
+
+    public synchronized long getWrittenCount() {
+        return written;
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+}
@@ -0,0 +1,71 @@
+package designpatterns16.alerts;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+
+//Streams messages as UTF-8 lines to a local collector over TCP.
+//Messages are buffered and go out on flush; a broken connection drops messages (counted)
+//rather than failing the caller.
+public class SocketAlertSink implements AlertSink {
+
+    private final Socket socket;
+    private final BufferedWriter writer;
+    private boolean broken = false;
+    private long dropped = 0;
+
+    public SocketAlertSink(String host, int port) {
+        try {
+            this.socket = new Socket(host, port);
+            this.writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public synchronized void emit(String message) {
+        if (broken) {
+            dropped++;
+            return;
+        }
+        try {
+            writer.write(message);
+            writer.write('\n');
+        } catch (IOException e) {
+            broken = true;
+            dropped++;
+        }
+    }
+
+    @Override
+    public synchronized void flush() {
+        if (broken) {
+            return;
+        }
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            broken = true;
+        }
+    }
+
+    public synchronized long getDroppedCount() {
+        return dropped;
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            if (!broken) {
+                writer.flush();
+            }
+            socket.close();
+        } catch (IOException e) {
+            // nothing left to deliver to
+        }
+    }
+}
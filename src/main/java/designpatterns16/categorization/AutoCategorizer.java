@@ -0,0 +1,182 @@
+package designpatterns16.categorization;
+
+import designpatterns16.Stockmonitor.ProductCatalog;
+import designpatterns16.design_patterns.composite.Category;
+import designpatterns16.design_patterns.composite.ProductCategory;
+import designpatterns16.design_patterns.composite.ProductLeaf;
+import designpatterns16.items.Consumable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+//Places products into the category tree with an ordered rule list; the first matching rule wins.
+//The rules are compiled once into a table keyed by product type: each type maps to the rules
+//naming that type merged with the rules accepting any type, still in rule order. Matching a
+//product is one hash lookup plus the remaining conditions of its few candidate rules.
+//Bulk imports match in parallel, then add each category's new leaves in one published version.
+//Placement is idempotent: a product equal to one already anywhere in the tree is left alone.
+//Rules must not be changed after the categorizer is built.
+public final class AutoCategorizer {
+
+    private static final int NO_RULE = -1;
+
+    private final ProductCategory root;
+    private final CategoryRule[] rules;
+    private final Map<String, int[]> rulesByType = new HashMap<>();
+    private final int[] anyTypeRules;
+    // Products in the tree as of placedVersion, rebuilt once the tree was edited elsewhere (guarded by this)
+    private ProductCatalog placed;
+    private long placedVersion = -1;
+
+    public AutoCategorizer(ProductCategory root, List<CategoryRule> rules) {
+        this.root = root;
+        this.rules = rules.toArray(new CategoryRule[0]);
+        List<Integer> anyType = new ArrayList<>();
+        Map<String, List<Integer>> byType = new HashMap<>();
+        for (int i = 0; i < this.rules.length; i++) {
+            String type = this.rules[i].typeKey();
+            if (type == null) {
+                anyType.add(i);
+            } else {
+                byType.computeIfAbsent(type, k -> new ArrayList<>()).add(i);
+            }
+        }
+        this.anyTypeRules = toArray(anyType);
+        for (Map.Entry<String, List<Integer>> entry : byType.entrySet()) {
+            rulesByType.put(entry.getKey(), merge(toArray(entry.getValue()), anyTypeRules));
+        }
+    }
+
+    // ---------- MATCHING ----------
+    // Target path of the first matching rule, null when no rule matches
+    public String match(Consumable product) {
+        int rule = ruleFor(product);
+        return rule == NO_RULE ? null : rules[rule].getPath();
+    }
+
+    private int ruleFor(Consumable product) {
+        int[] candidates = rulesByType.get(CategoryRule.normalize(product.getType()));
+        if (candidates == null) {
+            candidates = anyTypeRules;
+        }
+        for (int rule : candidates) {
+            if (rules[rule].matchesRest(product)) {
+                return rule;
+            }
+        }
+        return NO_RULE;
+    }
+
+    // ---------- PLACEMENT ----------
+    // Adds the product under its category; returns the category, null when no rule matches.
+    // A product already in the tree is not added again, the rule's category is still returned.
+    public synchronized ProductCategory categorize(Consumable product) {
+        int rule = ruleFor(product);
+        if (rule == NO_RULE) {
+            return null;
+        }
+        boolean isNew = claim(product);
+        ProductCategory category = ensurePath(rules[rule].pathSegments());
+        if (isNew) {
+            category.add(new ProductLeaf(product));
+        }
+        placedVersion = root.structureVersion();
+        return category;
+    }
+
+    // Places every matching product not in the tree yet; returns how many were placed
+    public int categorizeAll(Collection<? extends Consumable> products) {
+        Consumable[] batch = products.toArray(new Consumable[0]);
+        int[] ruleOf = new int[batch.length];
+        IntStream.range(0, batch.length).parallel().forEach(i -> ruleOf[i] = ruleFor(batch[i]));
+
+        synchronized (this) {
+            List<List<Category>> leavesByRule = new ArrayList<>(rules.length);
+            for (int i = 0; i < rules.length; i++) {
+                leavesByRule.add(new ArrayList<>());
+            }
+            int count = 0;
+            for (int i = 0; i < batch.length; i++) {
+                if (ruleOf[i] != NO_RULE && claim(batch[i])) {
+                    leavesByRule.get(ruleOf[i]).add(new ProductLeaf(batch[i]));
+                    count++;
+                }
+            }
+            for (int rule = 0; rule < rules.length; rule++) {
+                if (!leavesByRule.get(rule).isEmpty()) {
+                    ensurePath(rules[rule].pathSegments()).addAll(leavesByRule.get(rule));
+                }
+            }
+            placedVersion = root.structureVersion();
+            return count;
+        }
+    }
+
+    // True when no equal product is in the tree (or claimed before), registering it as placed
+    private boolean claim(Consumable product) {
+        if (placed == null || placedVersion != root.structureVersion()) {
+            placedVersion = root.structureVersion();
+            placed = new ProductCatalog();
+            collect(root, placed);
+        }
+        int before = placed.size();
+        placed.intern(product);
+        return placed.size() > before;
+    }
+
+    private static void collect(Category category, ProductCatalog products) {
+        for (Category child : category.getChildren()) {
+            if (child instanceof ProductLeaf) {
+                if (((ProductLeaf) child).getItem() instanceof Consumable) {
+                    products.intern((Consumable) ((ProductLeaf) child).getItem());
+                }
+            } else {
+                collect(child, products);
+            }
+        }
+    }
+
+    // Walks the path from the root, creating missing categories
+    private synchronized ProductCategory ensurePath(String[] path) {
+        ProductCategory current = root;
+        for (String name : path) {
+            ProductCategory next = null;
+            for (Category child : current.getChildren()) {
+                if (child instanceof ProductCategory && child.getName().equals(name)) {
+                    next = (ProductCategory) child;
+                    break;
+                }
+            }
+            if (next == null) {
+                next = new ProductCategory(name);
+                current.add(next);
+            }
+            current = next;
+        }
+        return current;
+    }
+
+    private static int[] toArray(List<Integer> values) {
+        int[] result = new int[values.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = values.get(i);
+        }
+        return result;
+    }
+
+    // Both inputs ascending; the result keeps rule order
+    private static int[] merge(int[] a, int[] b) {
+        int[] result = new int[a.length + b.length];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < a.length || j < b.length) {
+            result[k++] = j == b.length || (i < a.length && a[i] < b[j]) ? a[i++] : b[j++];
+        }
+        return result;
+    }
+}
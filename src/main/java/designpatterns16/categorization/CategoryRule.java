@@ -0,0 +1,92 @@
+package designpatterns16.categorization;
+
+import designpatterns16.items.Consumable;
+import designpatterns16.items.Medicine;
+
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+//One placement rule: every condition set must hold, unset conditions match anything, e.g.
+//  CategoryRule.into("Medicines/Painkillers").type("Painkiller").drugForm("Tablet")
+//  CategoryRule.into("Medicines/Analgesics").atcPrefix("N02")
+//Types and drug forms compare case-insensitively; the name pattern must match part of the name.
+public final class CategoryRule {
+
+    private final String[] path;
+    private String type;
+    private String drugForm;
+    private Pattern namePattern;
+    private String atcPrefix;
+
+    private CategoryRule(String[] path) {
+        this.path = path;
+    }
+
+    // Target category as a '/' separated path below the root, created on first use
+    public static CategoryRule into(String path) {
+        String[] segments = path.split("/");
+        for (String segment : segments) {
+            if (segment.trim().isEmpty()) {
+                throw new IllegalArgumentException("Empty category name in path: " + path);
+            }
+        }
+        for (int i = 0; i < segments.length; i++) {
+            segments[i] = segments[i].trim();
+        }
+        return new CategoryRule(segments);
+    }
+
+    public CategoryRule type(String type) {
+        this.type = normalize(type);
+        return this;
+    }
+
+    // Only medicines carry a drug form
+    public CategoryRule drugForm(String drugForm) {
+        this.drugForm = normalize(drugForm);
+        return this;
+    }
+
+    public CategoryRule nameMatches(String regex) {
+        this.namePattern = Pattern.compile(regex, Pattern.CASE_INSENSITIVE);
+        return this;
+    }
+
+    public CategoryRule atcPrefix(String prefix) {
+        this.atcPrefix = prefix.toUpperCase(Locale.ROOT);
+        return this;
+    }
+
+    public String getPath() {
+        return String.join("/", path);
+    }
+
+    String[] pathSegments() {
+        return path;
+    }
+
+    // Normalized type, null when the rule accepts any type
+    String typeKey() {
+        return type;
+    }
+
+    // The conditions other than the type, which the compiled rule table already dispatched on
+    boolean matchesRest(Consumable product) {
+        if (drugForm != null) {
+            if (!(product instanceof Medicine) || !drugForm.equals(normalize(((Medicine) product).getDrugForm()))) {
+                return false;
+            }
+        }
+        if (atcPrefix != null) {
+            String atcCode = product.getAtcCode();
+            if (atcCode == null || !atcCode.toUpperCase(Locale.ROOT).startsWith(atcPrefix)) {
+                return false;
+            }
+        }
+        return namePattern == null || (product.getName() != null && namePattern.matcher(product.getName()).find());
+    }
+
+    static String normalize(String value) {
+        return value == null ? null : value.trim().toLowerCase(Locale.ROOT);
+    }
+}
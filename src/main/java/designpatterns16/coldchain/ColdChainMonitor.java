@@ -0,0 +1,258 @@
+package designpatterns16.coldchain;
+
+import designpatterns16.Stockmonitor.DayClock;
+import designpatterns16.Stockmonitor.Inventory;
+import designpatterns16.Stockmonitor.InventoryListener;
+import designpatterns16.Stockmonitor.StockItem;
+import designpatterns16.alerts.AlertSinks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+//Streaming temperature telemetry for the fridges holding temperature sensitive lots.
+//Each fridge keeps constant-size state: a bucketed sliding window for aggregates and running
+//excursion totals (time spent outside its range, integrated between consecutive readings).
+//A lot's exposure is the excursion time of the fridges it sat in; once it reaches the tolerance
+//the lot is marked and its expiry cut to "use within N days", which re-runs the lot's observers
+//(ExpirationAlarmObserver raises the alarm). Attached to an Inventory, its lots are marked under
+//the inventory lock and removed lots are dropped.
+public class ColdChainMonitor implements InventoryListener {
+
+    public static final long DEFAULT_WINDOW_MILLIS = 15 * 60 * 1000L;
+    public static final long DEFAULT_TOLERANCE_MILLIS = 30 * 60 * 1000L;
+    public static final int DEFAULT_USE_WITHIN_DAYS = 7;
+    private static final int WINDOW_BUCKETS = 30;
+
+    private final long windowMillis;
+    private final long toleranceMillis;
+    private final int useWithinDays;
+    private final DayClock clock;   // today, for the shortened use-by day
+    private volatile Inventory inventory;   // holder of the monitored lots, null when not attached
+    private final Map<String, Fridge> fridges = new ConcurrentHashMap<>();
+    private final Map<StockItem, Fridge> fridgeByLot = new IdentityHashMap<>();
+    // Exposure a lot brought along from fridges it left
+    private final Map<StockItem, Long> carriedExposure = new IdentityHashMap<>();
+
+    public ColdChainMonitor() {
+        this(DEFAULT_WINDOW_MILLIS, DEFAULT_TOLERANCE_MILLIS, DEFAULT_USE_WITHIN_DAYS);
+    }
+
+    public ColdChainMonitor(long windowMillis, long toleranceMillis, int useWithinDays) {
+        this(windowMillis, toleranceMillis, useWithinDays, DayClock.SYSTEM);
+    }
+
+    public ColdChainMonitor(long windowMillis, long toleranceMillis, int useWithinDays, DayClock clock) {
+        if (toleranceMillis < 0 || useWithinDays < 0) {
+            throw new IllegalArgumentException("Tolerance and use-within days must not be negative!");
+        }
+        this.windowMillis = windowMillis;
+        this.toleranceMillis = toleranceMillis;
+        this.useWithinDays = useWithinDays;
+        this.clock = clock;
+    }
+
+    // Registers as a listener and marks breached lots of this inventory through Inventory.markExcursion
+    public void attach(Inventory inventory) {
+        this.inventory = inventory;
+        inventory.addListener(this);
+    }
+
+    // ---------- FRIDGES AND LOTS ----------
+    public void addFridge(String fridgeId, double minCelsius, double maxCelsius) {
+        if (minCelsius >= maxCelsius) {
+            throw new IllegalArgumentException("Minimum temperature must be below the maximum!");
+        }
+        Fridge fridge = new Fridge(fridgeId, minCelsius, maxCelsius, new SensorWindow(windowMillis, WINDOW_BUCKETS));
+        if (fridges.putIfAbsent(fridgeId, fridge) != null) {
+            throw new IllegalArgumentException("Fridge already exists: " + fridgeId);
+        }
+    }
+
+    public Set<String> getFridges() {
+        return new TreeSet<>(fridges.keySet());
+    }
+
+    // Places a lot in a fridge; a lot moved from another fridge keeps the exposure it had there
+    public synchronized void assign(StockItem lot, String fridgeId) {
+        Fridge target = fridge(fridgeId);
+        long carried = detach(lot);
+        synchronized (target) {
+            target.lots.put(lot, target.excursionMillis - carried);
+            target.updateNextTrigger(toleranceMillis);
+        }
+        fridgeByLot.put(lot, target);
+        carriedExposure.remove(lot);
+    }
+
+    // Takes a lot out of cold storage tracking, keeping its exposure for a later assign
+    public synchronized void unassign(StockItem lot) {
+        carriedExposure.put(lot, detach(lot));
+    }
+
+    public synchronized long getExposureMillis(StockItem lot) {
+        Fridge fridge = fridgeByLot.get(lot);
+        if (fridge == null) {
+            Long carried = carriedExposure.get(lot);
+            return carried == null ? 0 : carried;
+        }
+        synchronized (fridge) {
+            return fridge.excursionMillis - fridge.lots.get(lot);
+        }
+    }
+
+    private long detach(StockItem lot) {
+        Fridge previous = fridgeByLot.remove(lot);
+        if (previous == null) {
+            Long carried = carriedExposure.remove(lot);
+            return carried == null ? 0 : carried;
+        }
+        synchronized (previous) {
+            long exposure = previous.excursionMillis - previous.lots.remove(lot);
+            previous.flagged.remove(lot);
+            previous.updateNextTrigger(toleranceMillis);
+            return exposure;
+        }
+    }
+
+    // ---------- TELEMETRY ----------
+    // One sensor reading; readings older than the fridge's latest are ignored
+    public void record(String fridgeId, long timestampMillis, double celsius) {
+        Fridge fridge = fridge(fridgeId);
+        List<StockItem> breached = null;
+        synchronized (fridge) {
+            if (timestampMillis < fridge.lastReadingMillis) {
+                return;
+            }
+            if (fridge.outOfRange && fridge.lastReadingMillis != Long.MIN_VALUE) {
+                fridge.excursionMillis += timestampMillis - fridge.lastReadingMillis;
+            }
+            boolean outOfRange = celsius < fridge.minCelsius || celsius > fridge.maxCelsius;
+            if (outOfRange && !fridge.outOfRange) {
+                fridge.excursionCount++;
+                AlertSinks.get().emit("[COLD CHAIN ALERT] Fridge: " + fridgeId
+                        + " | Temperature: " + celsius + " C | Range: "
+                        + fridge.minCelsius + " to " + fridge.maxCelsius + " C");
+            } else if (!outOfRange && fridge.outOfRange) {
+                AlertSinks.get().emit("[COLD CHAIN CLEARED] Fridge: " + fridgeId
+                        + " | Temperature: " + celsius + " C");
+            }
+            fridge.outOfRange = outOfRange;
+            fridge.lastReadingMillis = timestampMillis;
+            fridge.lastCelsius = celsius;
+            fridge.window.add(timestampMillis, celsius);
+            if (fridge.excursionMillis >= fridge.nextTriggerMillis) {
+                breached = fridge.collectBreached(toleranceMillis);
+            }
+        }
+        if (breached != null) {
+            // Outside the fridge lock: marking takes the inventory lock
+            long useBy = clock.todayEpochDay() + useWithinDays;
+            Inventory owner = inventory;
+            for (StockItem lot : breached) {
+                AlertSinks.get().emit("[COLD CHAIN ALERT] Item: " + lot.getName()
+                        + " | Fridge: " + fridgeId + " | Use within " + useWithinDays + " days");
+                if (owner == null || !owner.markExcursion(lot, useBy)) {
+                    lot.recordTemperatureExcursion(useBy);   // not held by the inventory, nothing to lock
+                }
+            }
+        }
+    }
+
+    public FridgeStats getStats(String fridgeId) {
+        Fridge fridge = fridge(fridgeId);
+        synchronized (fridge) {
+            double[] window = fridge.lastReadingMillis == Long.MIN_VALUE
+                    ? new double[4] : fridge.window.aggregate(fridge.lastReadingMillis);
+            return new FridgeStats(fridge.id, fridge.minCelsius, fridge.maxCelsius,
+                    fridge.lastReadingMillis, fridge.lastCelsius, window,
+                    fridge.outOfRange, fridge.excursionCount, fridge.excursionMillis, fridge.lots.size());
+        }
+    }
+
+    private Fridge fridge(String fridgeId) {
+        Fridge fridge = fridges.get(fridgeId);
+        if (fridge == null) {
+            throw new IllegalArgumentException("Unknown fridge: " + fridgeId);
+        }
+        return fridge;
+    }
+
+    // ---------- InventoryListener IMPLEMENTATION ----------
+    @Override
+    public void lotAdded(StockItem stockItem) {
+    }
+
+    @Override
+    public synchronized void lotRemoved(StockItem stockItem) {
+        detach(stockItem);
+    }
+
+    @Override
+    public void lotChanged(StockItem stockItem) {
+    }
+
+    //Sensor state of one fridge, guarded by its own monitor so fridges ingest in parallel.
+    private static final class Fridge {
+        final String id;
+        final double minCelsius;
+        final double maxCelsius;
+        final SensorWindow window;
+        // Lot -> fridge excursion time at which its exposure was zero
+        final Map<StockItem, Long> lots = new IdentityHashMap<>();
+        // Lots handed out for marking, so a concurrent reading does not mark them twice
+        final Set<StockItem> flagged = Collections.newSetFromMap(new IdentityHashMap<StockItem, Boolean>());
+        long lastReadingMillis = Long.MIN_VALUE;
+        double lastCelsius = Double.NaN;
+        boolean outOfRange;
+        int excursionCount;
+        long excursionMillis;
+        // Excursion total at which the next unmarked lot reaches the tolerance
+        long nextTriggerMillis = Long.MAX_VALUE;
+
+        Fridge(String id, double minCelsius, double maxCelsius, SensorWindow window) {
+            this.id = id;
+            this.minCelsius = minCelsius;
+            this.maxCelsius = maxCelsius;
+            this.window = window;
+        }
+
+        void updateNextTrigger(long toleranceMillis) {
+            long next = Long.MAX_VALUE;
+            for (Map.Entry<StockItem, Long> entry : lots.entrySet()) {
+                if (!isMarked(entry.getKey())) {
+                    next = Math.min(next, entry.getValue() + toleranceMillis);
+                }
+            }
+            nextTriggerMillis = next;
+        }
+
+        List<StockItem> collectBreached(long toleranceMillis) {
+            List<StockItem> breached = new ArrayList<>();
+            long next = Long.MAX_VALUE;
+            for (Map.Entry<StockItem, Long> entry : lots.entrySet()) {
+                if (isMarked(entry.getKey())) {
+                    continue;
+                }
+                long trigger = entry.getValue() + toleranceMillis;
+                if (excursionMillis >= trigger) {
+                    breached.add(entry.getKey());
+                    flagged.add(entry.getKey());
+                } else {
+                    next = Math.min(next, trigger);
+                }
+            }
+            nextTriggerMillis = next;
+            return breached;
+        }
+
+        private boolean isMarked(StockItem lot) {
+            return flagged.contains(lot) || lot.hasTemperatureExcursion();
+        }
+    }
+}
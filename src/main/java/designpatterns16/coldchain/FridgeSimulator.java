@@ -0,0 +1,74 @@
+package designpatterns16.coldchain;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+//Local stand-in for the fridge sensors: feeds a ColdChainMonitor with simulated readings.
+//Each fridge drifts around its setpoint (AR(1) noise); scheduled excursions (door left open,
+//power cut) hold it near a given temperature for a while. Runs on simulated time, so an hour
+//of telemetry at one reading per second takes milliseconds and is reproducible from the seed.
+public class FridgeSimulator {
+
+    private final ColdChainMonitor monitor;
+    private final Random random;
+    private final Map<String, SimulatedFridge> fridges = new LinkedHashMap<>();
+
+    public FridgeSimulator(ColdChainMonitor monitor, long seed) {
+        this.monitor = monitor;
+        this.random = new Random(seed);
+    }
+
+    // The fridge must already be registered with the monitor
+    public void addFridge(String fridgeId, double setpointCelsius) {
+        fridges.put(fridgeId, new SimulatedFridge(fridgeId, setpointCelsius));
+    }
+
+    public void scheduleExcursion(String fridgeId, long startMillis, long durationMillis, double celsius) {
+        SimulatedFridge fridge = fridges.get(fridgeId);
+        if (fridge == null) {
+            throw new IllegalArgumentException("Unknown fridge: " + fridgeId);
+        }
+        fridge.excursions.add(new long[]{startMillis, startMillis + durationMillis, Double.doubleToLongBits(celsius)});
+    }
+
+    // Sends one reading per fridge every intervalMillis over [startMillis, startMillis + durationMillis);
+    // returns the number of readings sent
+    public long run(long startMillis, long durationMillis, long intervalMillis) {
+        if (intervalMillis <= 0) {
+            throw new IllegalArgumentException("Interval must be positive!");
+        }
+        long readings = 0;
+        for (long now = startMillis; now < startMillis + durationMillis; now += intervalMillis) {
+            for (SimulatedFridge fridge : fridges.values()) {
+                monitor.record(fridge.id, now, fridge.next(now, random));
+                readings++;
+            }
+        }
+        return readings;
+    }
+
+    private static final class SimulatedFridge {
+        final String id;
+        final double setpoint;
+        final List<long[]> excursions = new ArrayList<>();   // {start, end, celsius bits}
+        double drift;
+
+        SimulatedFridge(String id, double setpoint) {
+            this.id = id;
+            this.setpoint = setpoint;
+        }
+
+        double next(long now, Random random) {
+            drift = 0.9 * drift + 0.05 * random.nextGaussian();
+            for (long[] excursion : excursions) {
+                if (now >= excursion[0] && now < excursion[1]) {
+                    return Double.longBitsToDouble(excursion[2]) + drift;
+                }
+            }
+            return setpoint + drift;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package designpatterns16.coldchain;
+
+//Immutable state of one fridge sensor: aggregates over the sliding window that ends at the
+//latest reading, and the excursion totals since the fridge was added.
+public final class FridgeStats {
+
+    private final String fridgeId;
+    private final double minCelsius;
+    private final double maxCelsius;
+    private final long lastReadingMillis;
+    private final double lastCelsius;
+    private final int windowCount;
+    private final double windowMean;
+    private final double windowMin;
+    private final double windowMax;
+    private final boolean inExcursion;
+    private final int excursionCount;
+    private final long excursionMillis;
+    private final int lotCount;
+
+    FridgeStats(String fridgeId, double minCelsius, double maxCelsius, long lastReadingMillis,
+                double lastCelsius, double[] window, boolean inExcursion, int excursionCount,
+                long excursionMillis, int lotCount) {
+        this.fridgeId = fridgeId;
+        this.minCelsius = minCelsius;
+        this.maxCelsius = maxCelsius;
+        this.lastReadingMillis = lastReadingMillis;
+        this.lastCelsius = lastCelsius;
+        this.windowCount = (int) window[0];
+        this.windowMean = window[0] == 0 ? Double.NaN : window[1] / window[0];
+        this.windowMin = window[0] == 0 ? Double.NaN : window[2];
+        this.windowMax = window[0] == 0 ? Double.NaN : window[3];
+        this.inExcursion = inExcursion;
+        this.excursionCount = excursionCount;
+        this.excursionMillis = excursionMillis;
+        this.lotCount = lotCount;
+    }
+
+    public String getFridgeId() {
+        return fridgeId;
+    }
+
+    public double getMinCelsius() {
+        return minCelsius;
+    }
+
+    public double getMaxCelsius() {
+        return maxCelsius;
+    }
+
+    // Long.MIN_VALUE before the first reading
+    public long getLastReadingMillis() {
+        return lastReadingMillis;
+    }
+
+    public double getLastCelsius() {
+        return lastCelsius;
+    }
+
+    public int getWindowCount() {
+        return windowCount;
+    }
+
+    // NaN when the window holds no readings
+    public double getWindowMean() {
+        return windowMean;
+    }
+
+    public double getWindowMin() {
+        return windowMin;
+    }
+
+    public double getWindowMax() {
+        return windowMax;
+    }
+
+    public boolean isInExcursion() {
+        return inExcursion;
+    }
+
+    public int getExcursionCount() {
+        return excursionCount;
+    }
+
+    public long getExcursionMillis() {
+        return excursionMillis;
+    }
+
+    public int getLotCount() {
+        return lotCount;
+    }
+}
@@ -0,0 +1,64 @@
+package designpatterns16.coldchain;
+
+import java.util.Arrays;
+
+//Sliding-window aggregates of one sensor in constant memory.
+//The window is cut into a fixed ring of buckets holding count, sum, min and max; a bucket is
+//reset when its slot is reused, so the window advances in bucket steps and costs O(buckets).
+final class SensorWindow {
+
+    private final long bucketMillis;
+    private final long[] bucketIndex;
+    private final int[] count;
+    private final double[] sum;
+    private final double[] min;
+    private final double[] max;
+
+    SensorWindow(long windowMillis, int buckets) {
+        if (windowMillis < buckets || buckets < 1) {
+            throw new IllegalArgumentException("Window must span at least one millisecond per bucket!");
+        }
+        this.bucketMillis = windowMillis / buckets;
+        this.bucketIndex = new long[buckets];
+        this.count = new int[buckets];
+        this.sum = new double[buckets];
+        this.min = new double[buckets];
+        this.max = new double[buckets];
+        Arrays.fill(bucketIndex, Long.MIN_VALUE);
+    }
+
+    void add(long timestampMillis, double value) {
+        long index = Math.floorDiv(timestampMillis, bucketMillis);
+        int slot = (int) Math.floorMod(index, (long) count.length);
+        if (bucketIndex[slot] != index) {
+            if (bucketIndex[slot] > index) {
+                return;     // older than the window
+            }
+            bucketIndex[slot] = index;
+            count[slot] = 0;
+            sum[slot] = 0;
+            min[slot] = Double.POSITIVE_INFINITY;
+            max[slot] = Double.NEGATIVE_INFINITY;
+        }
+        count[slot]++;
+        sum[slot] += value;
+        min[slot] = Math.min(min[slot], value);
+        max[slot] = Math.max(max[slot], value);
+    }
+
+    // {count, sum, min, max} of the buckets inside the window ending at the given time
+    double[] aggregate(long nowMillis) {
+        long newest = Math.floorDiv(nowMillis, bucketMillis);
+        long oldest = newest - count.length + 1;
+        double[] result = {0, 0, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        for (int slot = 0; slot < count.length; slot++) {
+            if (bucketIndex[slot] >= oldest && bucketIndex[slot] <= newest) {
+                result[0] += count[slot];
+                result[1] += sum[slot];
+                result[2] = Math.min(result[2], min[slot]);
+                result[3] = Math.max(result[3], max[slot]);
+            }
+        }
+        return result;
+    }
+}
@@ -2,17 +2,32 @@ package designpatterns16.design_patterns.composite;
 
 import designpatterns16.items.Item;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 
 //Composite class for Composite pattern
 //Represents a category that can contain subcategories and products
+//Children are an immutable array replaced copy-on-write: readers take the current array without
+//locking or copying, writers build the next array and publish it with a compare-and-set, retrying
+//when another writer got there first. Edits are rare next to traversals (reports, labelings).
 public class ProductCategory implements Category {
+    private static final Category[] NO_CHILDREN = new Category[0];
+    // Tree versions are drawn from one sequence, so a version value stands for one state of one tree
+    private static final AtomicLong VERSIONS = new AtomicLong();
+
     private String name;
-    private List<Category> children;
+    private final AtomicReference<Category[]> children = new AtomicReference<>(NO_CHILDREN);
+    // Shared by every category of a tree and moved by any add/remove in it; tree labelings compare
+    // it to detect staleness. An added subtree adopts its new parent's counter, a removed one gets
+    // its own, so edits to unrelated trees leave this tree's version alone.
+    private volatile AtomicLong treeVersion = new AtomicLong(VERSIONS.incrementAndGet());
 
     public ProductCategory(String name) {
         this.name = name;
-        this.children = new ArrayList<>();
     }
 
     @Override
@@ -22,23 +37,86 @@ public class ProductCategory implements Category {
 
     @Override
     public void add(Category category) {
-        children.add(category);
+        Category[] current;
+        Category[] next;
+        do {
+            current = children.get();
+            next = Arrays.copyOf(current, current.length + 1);
+            next[current.length] = category;
+        } while (!children.compareAndSet(current, next));
+        adopt(category);
+        changed();
+    }
+
+    // Appends all children in one published version: bulk imports copy the array once, not per child
+    public void addAll(Collection<? extends Category> categories) {
+        if (categories.isEmpty()) {
+            return;
+        }
+        Category[] added = categories.toArray(new Category[0]);
+        Category[] current;
+        Category[] next;
+        do {
+            current = children.get();
+            next = Arrays.copyOf(current, current.length + added.length);
+            System.arraycopy(added, 0, next, current.length, added.length);
+        } while (!children.compareAndSet(current, next));
+        for (Category category : added) {
+            adopt(category);
+        }
+        changed();
     }
 
+    // Removes the first equal child, like List.remove
     @Override
     public void remove(Category category) {
-        children.remove(category);
+        Category[] current;
+        Category[] next;
+        Category removed;
+        do {
+            current = children.get();
+            int index = Arrays.asList(current).indexOf(category);
+            if (index < 0) {
+                return;
+            }
+            removed = current[index];
+            next = new Category[current.length - 1];
+            System.arraycopy(current, 0, next, 0, index);
+            System.arraycopy(current, index + 1, next, index, next.length - index);
+        } while (!children.compareAndSet(current, next));
+        if (removed instanceof ProductCategory) {
+            ((ProductCategory) removed).joinTree(new AtomicLong(VERSIONS.incrementAndGet()));
+        }
+        changed();
+    }
+
+    private void changed() {
+        treeVersion.set(VERSIONS.incrementAndGet());
     }
 
+    private void adopt(Category child) {
+        if (child instanceof ProductCategory) {
+            ((ProductCategory) child).joinTree(treeVersion);
+        }
+    }
+
+    private void joinTree(AtomicLong version) {
+        treeVersion = version;
+        for (Category child : children.get()) {
+            adopt(child);
+        }
+    }
+
+    // Read-only view of the children at the time of the call; later edits do not show through
     @Override
     public List<Category> getChildren() {
-        return new ArrayList<>(children);
+        return Collections.unmodifiableList(Arrays.asList(children.get()));
     }
 
     @Override
     public List<Item> getAllItems() {
         List<Item> allItems = new ArrayList<>();
-        for (Category child : children) {
+        for (Category child : children.get()) {
             allItems.addAll(child.getAllItems());
         }
         return allItems;
@@ -47,11 +125,16 @@ public class ProductCategory implements Category {
     @Override
     public void display(String indent) {
         System.out.println(indent + "Category: " + name);
-        for (Category child : children) {
+        for (Category child : children.get()) {
             child.display(indent + "  ");
         }
     }
 
+    // Version of the whole tree this category belongs to
+    public long structureVersion() {
+        return treeVersion.get();
+    }
+
     public void display() {
         display("");
     }
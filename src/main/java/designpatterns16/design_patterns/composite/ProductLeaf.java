@@ -2,6 +2,7 @@ package designpatterns16.design_patterns.composite;
 
 import designpatterns16.items.Item;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 //Leaf class for Composite pattern
@@ -30,7 +31,7 @@ public class ProductLeaf implements Category {
 
     @Override
     public List<Category> getChildren() {
-        return new ArrayList<>();
+        return Collections.emptyList();
     }
 
     @Override
@@ -0,0 +1,8 @@
+package designpatterns16.design_patterns.state;
+
+import designpatterns16.items.Device;
+
+//Notified by a Device whenever it moves from one DeviceState to another.
+public interface DeviceStateListener {
+    void stateChanged(Device device, DeviceState from, DeviceState to);
+}
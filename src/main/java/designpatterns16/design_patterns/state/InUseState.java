@@ -1,5 +1,6 @@
 package designpatterns16.design_patterns.state;
 
+import designpatterns16.alerts.AlertSinks;
 import designpatterns16.items.Device;
 
 //device is in use, after use it may need maintenance.
@@ -7,19 +8,19 @@ public class InUseState implements DeviceState {
 
     @Override
     public void beginUse(Device device) {
-        System.out.println("Device " + device.getName() + " is already in use.");
+        AlertSinks.get().emit("Device " + device.getName() + " is already in use.");
     }
 
     @Override
     public void sendForMaintenance(Device device) {
-        System.out.println("Cannot send device " + device.getName() + " for maintenance while in use. End use first.");
+        AlertSinks.get().emit("Cannot send device " + device.getName() + " for maintenance while in use. End use first.");
     }
 
     @Override
     public void endUse(Device device) {
-        System.out.println("Device " + device.getName() + " use ended.");
+        AlertSinks.get().emit("Device " + device.getName() + " use ended.");
         if (device.needsMaintenance()) {
-            System.out.println("Device " + device.getName() + " needs maintenance after " + device.getUseCount() + " uses.");
+            AlertSinks.get().emit("Device " + device.getName() + " needs maintenance after " + device.getUseCount() + " uses.");
             device.setState(new NeedsMaintenanceState());
         } else {
             device.setState(new UsableState());
@@ -28,6 +29,6 @@ public class InUseState implements DeviceState {
 
     @Override
     public void completeMaintenance(Device device) {
-        System.out.println("Device " + device.getName() + " is in use. Cannot complete maintenance.");
+        AlertSinks.get().emit("Device " + device.getName() + " is in use. Cannot complete maintenance.");
     }
 }
@@ -1,5 +1,6 @@
 package designpatterns16.design_patterns.state;
 
+import designpatterns16.alerts.AlertSinks;
 import designpatterns16.items.Device;
 
 //device is ready for use.
@@ -7,24 +8,24 @@ public class UsableState implements DeviceState {
     
     @Override
     public void beginUse(Device device) {
-        System.out.println("Device " + device.getName() + " is now in use.");
+        AlertSinks.get().emit("Device " + device.getName() + " is now in use.");
         device.incrementUseCount();
         device.setState(new InUseState());
     }
 
     @Override
     public void sendForMaintenance(Device device) {
-        System.out.println("Device " + device.getName() + " is being sent for maintenance.");
+        AlertSinks.get().emit("Device " + device.getName() + " is being sent for maintenance.");
         device.setState(new InMaintenanceState());
     }
 
     @Override
     public void endUse(Device device) {
-        System.out.println("Device " + device.getName() + " is not in use. Already in UsableState.");
+        AlertSinks.get().emit("Device " + device.getName() + " is not in use. Already in UsableState.");
     }
 
     @Override
     public void completeMaintenance(Device device) {
-        System.out.println("Device " + device.getName() + " is already usable. No maintenance needed.");
+        AlertSinks.get().emit("Device " + device.getName() + " is already usable. No maintenance needed.");
     }
 }
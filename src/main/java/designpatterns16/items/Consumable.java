@@ -10,6 +10,7 @@ import designpatterns16.design_patterns.observer.ISubject;
 public abstract class Consumable extends Item{
     protected String type;
     protected Double pricePerUnit;
+    protected String atcCode;   // ATC classification, e.g. "N02BA01"; null when unknown
 
     Consumable(String name, String type, Double pricePerUnit){
         super(name);
@@ -34,4 +35,10 @@ public abstract class Consumable extends Item{
     public void setType(String type) {
         this.type = type;
     }
+    public String getAtcCode() {
+        return atcCode;
+    }
+    public void setAtcCode(String atcCode) {
+        this.atcCode = atcCode;
+    }
 }
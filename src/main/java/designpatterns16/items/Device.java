@@ -1,20 +1,45 @@
 package designpatterns16.items;
 
 import designpatterns16.design_patterns.state.DeviceState;
+import designpatterns16.design_patterns.state.DeviceStateListener;
 import designpatterns16.design_patterns.state.UsableState;
 
+import java.util.ArrayList;
+import java.util.List;
+
 //Represents high-value assets.
 //(e.g., MR machine, Ultrasound machine).
 // Holds its current DeviceState
 public class Device extends Item {
     private DeviceState state;
     private int useCount;
-    private static final int MAINTENANCE_THRESHOLD = 5; // After 5 uses, needs maintenance
+    private List<DeviceStateListener> stateListeners = new ArrayList<>();
+    private final int maintenanceThreshold;
+    private final String type;   // device model / kind, used to aggregate fleets (e.g. "MRI")
+    public static final int DEFAULT_MAINTENANCE_THRESHOLD = 5; // After 5 uses, needs maintenance
+    public static final String DEFAULT_TYPE = "General";
 
     public Device(String name) {
+        this(name, DEFAULT_TYPE, DEFAULT_MAINTENANCE_THRESHOLD);
+    }
+
+    public Device(String name, int maintenanceThreshold) {
+        this(name, DEFAULT_TYPE, maintenanceThreshold);
+    }
+
+    public Device(String name, String type, int maintenanceThreshold) {
         super(name);
+        if (maintenanceThreshold < 1) {
+            throw new IllegalArgumentException("Maintenance threshold must be positive!");
+        }
         this.state = new UsableState();
         this.useCount = 0;
+        this.maintenanceThreshold = maintenanceThreshold;
+        this.type = type == null ? DEFAULT_TYPE : type;
+    }
+
+    public String getType() {
+        return type;
     }
 
     public DeviceState getState() {
@@ -22,7 +47,19 @@ public class Device extends Item {
     }
 
     public void setState(DeviceState state) {
+        DeviceState previous = this.state;
         this.state = state;
+        for (DeviceStateListener listener : stateListeners) {
+            listener.stateChanged(this, previous, state);
+        }
+    }
+
+    public void addStateListener(DeviceStateListener listener) {
+        stateListeners.add(listener);
+    }
+
+    public void removeStateListener(DeviceStateListener listener) {
+        stateListeners.remove(listener);
     }
 
     public int getUseCount() {
@@ -33,8 +70,17 @@ public class Device extends Item {
         this.useCount++;
     }
 
+    public int getMaintenanceThreshold() {
+        return maintenanceThreshold;
+    }
+
+    // Uses left before the device needs maintenance, 0 once it is due
+    public int getUsesUntilMaintenance() {
+        return Math.max(0, maintenanceThreshold - useCount);
+    }
+
     public boolean needsMaintenance() {
-        return useCount >= MAINTENANCE_THRESHOLD;
+        return useCount >= maintenanceThreshold;
     }
 
     public void resetUseCount() {
@@ -0,0 +1,118 @@
+package designpatterns16.maintenance;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+//Indexed binary min-heap of tracked devices ordered by projected due time.
+//Each entry remembers its heap position, so update and remove of an arbitrary device are O(log n).
+final class DeviceQueue {
+
+    private TrackedDevice[] heap = new TrackedDevice[16];
+    private int size;
+
+    int size() {
+        return size;
+    }
+
+    TrackedDevice peek() {
+        return size == 0 ? null : heap[0];
+    }
+
+    TrackedDevice poll() {
+        TrackedDevice top = peek();
+        if (top != null) {
+            remove(top);
+        }
+        return top;
+    }
+
+    // Inserts the entry or restores heap order after its due time changed
+    void update(TrackedDevice entry) {
+        if (entry.heapIndex < 0) {
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, size * 2);
+            }
+            entry.heapIndex = size;
+            heap[size++] = entry;
+            siftUp(entry.heapIndex);
+        } else {
+            siftDown(siftUp(entry.heapIndex));
+        }
+    }
+
+    void remove(TrackedDevice entry) {
+        int index = entry.heapIndex;
+        if (index < 0) {
+            return;
+        }
+        TrackedDevice last = heap[--size];
+        heap[size] = null;
+        entry.heapIndex = -1;
+        if (index < size) {
+            heap[index] = last;
+            last.heapIndex = index;
+            siftDown(siftUp(index));
+        }
+    }
+
+    // The k earliest entries in order, O(k log k) without touching the heap
+    List<TrackedDevice> earliest(int k) {
+        List<TrackedDevice> result = new ArrayList<>(Math.min(k, size));
+        PriorityQueue<Integer> frontier = new PriorityQueue<>(
+                (a, b) -> Long.compare(heap[a].dueTime, heap[b].dueTime));
+        if (size > 0) {
+            frontier.add(0);
+        }
+        while (!frontier.isEmpty() && result.size() < k) {
+            int index = frontier.poll();
+            result.add(heap[index]);
+            int child = 2 * index + 1;
+            if (child < size) {
+                frontier.add(child);
+            }
+            if (child + 1 < size) {
+                frontier.add(child + 1);
+            }
+        }
+        return result;
+    }
+
+    private int siftUp(int index) {
+        TrackedDevice entry = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heap[parent].dueTime <= entry.dueTime) {
+                break;
+            }
+            heap[index] = heap[parent];
+            heap[index].heapIndex = index;
+            index = parent;
+        }
+        heap[index] = entry;
+        entry.heapIndex = index;
+        return index;
+    }
+
+    private void siftDown(int index) {
+        TrackedDevice entry = heap[index];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && heap[child + 1].dueTime < heap[child].dueTime) {
+                child++;
+            }
+            if (entry.dueTime <= heap[child].dueTime) {
+                break;
+            }
+            heap[index] = heap[child];
+            heap[index].heapIndex = index;
+            index = child;
+        }
+        heap[index] = entry;
+        entry.heapIndex = index;
+    }
+}
@@ -0,0 +1,107 @@
+package designpatterns16.maintenance;
+
+//Point-in-time telemetry of one device or of all devices of a type.
+//Durations are in milliseconds and come from a monotonic clock; the state the device is in
+//right now counts up to the moment the stats were taken.
+public class DeviceStats {
+    private final int devices;
+    private final long usableMillis;
+    private final long inUseMillis;
+    private final long needsMaintenanceMillis;
+    private final long inMaintenanceMillis;
+    private final long sessions;
+    private final double meanSessionMillis;
+    private final long p99SessionMillis;
+    private final long maintenances;
+    private final double meanTurnaroundMillis;
+    private final long p99TurnaroundMillis;
+    private final long maxTurnaroundMillis;
+
+    DeviceStats(int devices, long[] stateMillis, LogHistogram sessions, LogHistogram turnarounds) {
+        this.devices = devices;
+        this.usableMillis = stateMillis[DeviceTelemetry.USABLE];
+        this.inUseMillis = stateMillis[DeviceTelemetry.IN_USE];
+        this.needsMaintenanceMillis = stateMillis[DeviceTelemetry.NEEDS_MAINTENANCE];
+        this.inMaintenanceMillis = stateMillis[DeviceTelemetry.IN_MAINTENANCE];
+        this.sessions = sessions.count();
+        this.meanSessionMillis = sessions.mean();
+        this.p99SessionMillis = sessions.percentile(0.99);
+        this.maintenances = turnarounds.count();
+        this.meanTurnaroundMillis = turnarounds.mean();
+        this.p99TurnaroundMillis = turnarounds.percentile(0.99);
+        this.maxTurnaroundMillis = turnarounds.max();
+    }
+
+    public int getDeviceCount() {
+        return devices;
+    }
+
+    public long getUsableMillis() {
+        return usableMillis;
+    }
+
+    public long getInUseMillis() {
+        return inUseMillis;
+    }
+
+    public long getNeedsMaintenanceMillis() {
+        return needsMaintenanceMillis;
+    }
+
+    public long getInMaintenanceMillis() {
+        return inMaintenanceMillis;
+    }
+
+    public long getTrackedMillis() {
+        return usableMillis + inUseMillis + needsMaintenanceMillis + inMaintenanceMillis;
+    }
+
+    // Share of the tracked time spent in use, 0..100
+    public double getUtilizationPercent() {
+        long tracked = getTrackedMillis();
+        return tracked == 0 ? 0.0 : 100.0 * inUseMillis / tracked;
+    }
+
+    // Share of the tracked time the device could not be used (waiting for or in maintenance)
+    public double getDowntimePercent() {
+        long tracked = getTrackedMillis();
+        return tracked == 0 ? 0.0 : 100.0 * (needsMaintenanceMillis + inMaintenanceMillis) / tracked;
+    }
+
+    public long getSessionCount() {
+        return sessions;
+    }
+
+    public double getMeanSessionMillis() {
+        return meanSessionMillis;
+    }
+
+    public long getP99SessionMillis() {
+        return p99SessionMillis;
+    }
+
+    public long getMaintenanceCount() {
+        return maintenances;
+    }
+
+    // From needing (or being sent to) maintenance until usable again
+    public double getMeanTurnaroundMillis() {
+        return meanTurnaroundMillis;
+    }
+
+    public long getP99TurnaroundMillis() {
+        return p99TurnaroundMillis;
+    }
+
+    public long getMaxTurnaroundMillis() {
+        return maxTurnaroundMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("DeviceStats{devices=%d, utilization=%.1f%%, sessions=%d, meanSession=%.0fms,"
+                        + " p99Session=%dms, maintenances=%d, meanTurnaround=%.0fms}",
+                devices, getUtilizationPercent(), sessions, meanSessionMillis, p99SessionMillis,
+                maintenances, meanTurnaroundMillis);
+    }
+}
@@ -0,0 +1,188 @@
+package designpatterns16.maintenance;
+
+import designpatterns16.design_patterns.state.DeviceState;
+import designpatterns16.design_patterns.state.DeviceStateListener;
+import designpatterns16.design_patterns.state.InMaintenanceState;
+import designpatterns16.design_patterns.state.InUseState;
+import designpatterns16.design_patterns.state.NeedsMaintenanceState;
+import designpatterns16.items.Device;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+//Time-in-state accounting for devices, fed by DeviceState transitions.
+//Every transition is stamped with a monotonic clock (System.nanoTime by default, immune to
+//wall clock changes) and closes the interval of the previous state. Per device and per device
+//type it keeps time per state, in-use session lengths and maintenance turnaround (from needing
+//or entering maintenance until usable again) as cumulative sums plus fixed-size histograms,
+//so memory stays constant however long a device is tracked.
+public class DeviceTelemetry implements DeviceStateListener {
+
+    static final int USABLE = 0;
+    static final int IN_USE = 1;
+    static final int NEEDS_MAINTENANCE = 2;
+    static final int IN_MAINTENANCE = 3;
+
+    private final LongSupplier nanoClock;
+    private final Map<Device, DeviceRecord> devices = new IdentityHashMap<>();
+    private final Map<String, Aggregate> types = new TreeMap<>();
+
+    public DeviceTelemetry() {
+        this(System::nanoTime);
+    }
+
+    public DeviceTelemetry(LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+    }
+
+    public synchronized void register(Device device) {
+        if (devices.containsKey(device)) {
+            throw new IllegalArgumentException("Device already registered: " + device.getName());
+        }
+        long now = nanoClock.getAsLong();
+        Aggregate type = types.computeIfAbsent(device.getType(), k -> new Aggregate());
+        DeviceRecord record = new DeviceRecord(type, stateIndex(device.getState()), now);
+        if (record.state == NEEDS_MAINTENANCE || record.state == IN_MAINTENANCE) {
+            record.maintenanceStart = now;
+        }
+        type.devices++;
+        type.enter(record.state, now);
+        devices.put(device, record);
+        device.addStateListener(this);
+    }
+
+    public synchronized void unregister(Device device) {
+        DeviceRecord record = devices.remove(device);
+        if (record != null) {
+            device.removeStateListener(this);
+            record.type.leave(record.state, record.enteredAt, nanoClock.getAsLong());
+            record.type.devices--;
+        }
+    }
+
+    @Override
+    public synchronized void stateChanged(Device device, DeviceState from, DeviceState to) {
+        DeviceRecord record = devices.get(device);
+        if (record == null) {
+            return;
+        }
+        long now = nanoClock.getAsLong();
+        int next = stateIndex(to);
+        long elapsed = now - record.enteredAt;
+
+        record.own.stateNanos[record.state] += elapsed;
+        record.type.leave(record.state, record.enteredAt, now);
+        if (record.state == IN_USE) {
+            record.own.sessions.record(toMillis(elapsed));
+            record.type.sessions.record(toMillis(elapsed));
+        }
+        if ((next == NEEDS_MAINTENANCE || next == IN_MAINTENANCE) && record.maintenanceStart < 0) {
+            record.maintenanceStart = now;
+        } else if (next == USABLE && record.maintenanceStart >= 0) {
+            long turnaround = toMillis(now - record.maintenanceStart);
+            record.own.turnarounds.record(turnaround);
+            record.type.turnarounds.record(turnaround);
+            record.maintenanceStart = -1;
+        }
+        record.state = next;
+        record.enteredAt = now;
+        record.type.enter(next, now);
+    }
+
+    // ---------- QUERIES ----------
+    public synchronized DeviceStats getStats(Device device) {
+        DeviceRecord record = devices.get(device);
+        if (record == null) {
+            throw new IllegalArgumentException("Device not registered: " + device.getName());
+        }
+        long[] millis = new long[4];
+        long now = nanoClock.getAsLong();
+        for (int state = 0; state < millis.length; state++) {
+            long nanos = record.own.stateNanos[state] + (state == record.state ? now - record.enteredAt : 0);
+            millis[state] = toMillis(nanos);
+        }
+        return new DeviceStats(1, millis, record.own.sessions, record.own.turnarounds);
+    }
+
+    // Aggregate of every registered device of the type, O(1)
+    public synchronized DeviceStats getTypeStats(String type) {
+        Aggregate aggregate = types.get(type);
+        if (aggregate == null) {
+            throw new IllegalArgumentException("Unknown device type: " + type);
+        }
+        long[] millis = new long[4];
+        long now = nanoClock.getAsLong();
+        for (int state = 0; state < millis.length; state++) {
+            // ongoing intervals: sum over devices of (now - enteredAt)
+            long ongoing = aggregate.inState[state] * now - aggregate.enteredSum[state];
+            millis[state] = toMillis(aggregate.stateNanos[state] + ongoing);
+        }
+        return new DeviceStats(aggregate.devices, millis, aggregate.sessions, aggregate.turnarounds);
+    }
+
+    public synchronized Set<String> getTypes() {
+        return new TreeSet<>(types.keySet());
+    }
+
+    private static long toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    // Unknown custom states are accounted as usable time
+    private static int stateIndex(DeviceState state) {
+        if (state instanceof InUseState) {
+            return IN_USE;
+        }
+        if (state instanceof NeedsMaintenanceState) {
+            return NEEDS_MAINTENANCE;
+        }
+        if (state instanceof InMaintenanceState) {
+            return IN_MAINTENANCE;
+        }
+        return USABLE;
+    }
+
+    //Closed intervals and distributions of a device or a type.
+    private static class Totals {
+        final long[] stateNanos = new long[4];
+        final LogHistogram sessions = new LogHistogram();
+        final LogHistogram turnarounds = new LogHistogram();
+    }
+
+    //Type totals plus what is needed to count the intervals still open, without visiting devices.
+    private static final class Aggregate extends Totals {
+        final long[] inState = new long[4];
+        final long[] enteredSum = new long[4];
+        int devices;
+
+        void enter(int state, long now) {
+            inState[state]++;
+            enteredSum[state] += now;
+        }
+
+        void leave(int state, long enteredAt, long now) {
+            inState[state]--;
+            enteredSum[state] -= enteredAt;
+            stateNanos[state] += now - enteredAt;
+        }
+    }
+
+    private static final class DeviceRecord {
+        final Totals own = new Totals();
+        final Aggregate type;
+        int state;
+        long enteredAt;
+        long maintenanceStart = -1;
+
+        DeviceRecord(Aggregate type, int state, long enteredAt) {
+            this.type = type;
+            this.state = state;
+            this.enteredAt = enteredAt;
+        }
+    }
+}
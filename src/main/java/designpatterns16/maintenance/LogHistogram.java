@@ -0,0 +1,70 @@
+package designpatterns16.maintenance;
+
+//Fixed-size histogram of non-negative durations with logarithmic buckets.
+//Four buckets per power of two bound the relative error of a percentile to about 19%,
+//and 256 buckets cover every long value, so memory is constant whatever is recorded.
+final class LogHistogram {
+
+    private static final int SUB_BUCKETS = 4;
+
+    private final long[] buckets = new long[64 * SUB_BUCKETS];
+    private long count;
+    private long sum;
+    private long max;
+
+    void record(long value) {
+        value = Math.max(0, value);
+        buckets[bucket(value)]++;
+        count++;
+        sum += value;
+        max = Math.max(max, value);
+    }
+
+    long count() {
+        return count;
+    }
+
+    double mean() {
+        return count == 0 ? 0.0 : (double) sum / count;
+    }
+
+    long max() {
+        return max;
+    }
+
+    // Upper bound of the bucket holding the q-quantile (0 < q <= 1), capped at the maximum seen
+    long percentile(double q) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(q * count);
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                return Math.min(max, upperBound(i));
+            }
+        }
+        return max;
+    }
+
+    // Values below 4 get a bucket each, then 4 buckets per octave
+    private static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int octave = 63 - Long.numberOfLeadingZeros(value);        // >= 2
+        int sub = (int) (value >>> (octave - 2)) & (SUB_BUCKETS - 1);
+        return (octave - 1) * SUB_BUCKETS + sub;
+    }
+
+    private static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int octave = bucket / SUB_BUCKETS + 1;
+        int sub = bucket % SUB_BUCKETS;
+        long lower = (long) (SUB_BUCKETS + sub) << (octave - 2);
+        return lower + (1L << (octave - 2)) - 1;
+    }
+}
@@ -0,0 +1,232 @@
+package designpatterns16.maintenance;
+
+import designpatterns16.design_patterns.state.DeviceState;
+import designpatterns16.design_patterns.state.DeviceStateListener;
+import designpatterns16.design_patterns.state.InMaintenanceState;
+import designpatterns16.design_patterns.state.InUseState;
+import designpatterns16.items.Device;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.LongSupplier;
+
+//Predictive maintenance planning for a fleet of devices.
+//Each device projects the time it reaches its maintenance threshold from its own usage rate
+//(EWMA of the interval between uses). Devices are kept per team in an indexed heap ordered by
+//that projection; every state change (beginUse, endUse, maintenance) re-positions one entry
+//in O(log n). dispatch() sends due devices to maintenance as far as team capacity allows,
+//plan() projects the upcoming queue of a team including waiting for free capacity.
+public class MaintenanceScheduler implements DeviceStateListener {
+
+    public static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+
+    private final LongSupplier clock;
+    private final double defaultUseIntervalMillis;
+    private final double smoothing;
+    private final Map<String, Team> teams = new LinkedHashMap<>();
+    private final Map<Device, TrackedDevice> tracked = new IdentityHashMap<>();
+
+    public MaintenanceScheduler() {
+        this(System::currentTimeMillis, DAY_MILLIS, 0.3);
+    }
+
+    // defaultUseIntervalMillis: assumed time between uses until a device has been used twice
+    public MaintenanceScheduler(LongSupplier clock, double defaultUseIntervalMillis, double smoothing) {
+        if (smoothing <= 0 || smoothing > 1) {
+            throw new IllegalArgumentException("Smoothing must be in (0, 1]!");
+        }
+        this.clock = clock;
+        this.defaultUseIntervalMillis = defaultUseIntervalMillis;
+        this.smoothing = smoothing;
+    }
+
+    // ---------- FLEET ----------
+    public synchronized void addTeam(MaintenanceTeam team) {
+        if (teams.containsKey(team.getName())) {
+            throw new IllegalArgumentException("Team already exists: " + team.getName());
+        }
+        teams.put(team.getName(), new Team(team));
+    }
+
+    public synchronized void register(Device device, String teamName) {
+        Team team = team(teamName);
+        if (tracked.containsKey(device)) {
+            throw new IllegalArgumentException("Device already registered: " + device.getName());
+        }
+        TrackedDevice entry = new TrackedDevice(device, teamName, defaultUseIntervalMillis, clock.getAsLong());
+        tracked.put(device, entry);
+        if (device.getState() instanceof InMaintenanceState) {
+            startService(team, entry, clock.getAsLong());
+        } else {
+            reproject(team, entry, clock.getAsLong());
+        }
+        device.addStateListener(this);
+    }
+
+    public synchronized void unregister(Device device) {
+        TrackedDevice entry = tracked.remove(device);
+        if (entry == null) {
+            return;
+        }
+        device.removeStateListener(this);
+        Team team = teams.get(entry.team);
+        team.queue.remove(entry);
+        team.servicing.remove(entry);
+    }
+
+    // ---------- STATE TRACKING ----------
+    @Override
+    public synchronized void stateChanged(Device device, DeviceState from, DeviceState to) {
+        TrackedDevice entry = tracked.get(device);
+        if (entry == null) {
+            return;
+        }
+        Team team = teams.get(entry.team);
+        long now = clock.getAsLong();
+        if (to instanceof InMaintenanceState) {
+            startService(team, entry, now);
+            return;
+        }
+        if (from instanceof InMaintenanceState && entry.inService) {
+            entry.inService = false;
+            team.servicing.remove(entry);
+            entry.lastActivity = now;
+        }
+        if (to instanceof InUseState) {
+            if (entry.lastUse >= 0) {
+                double interval = now - entry.lastUse;
+                entry.meanUseIntervalMillis += smoothing * (interval - entry.meanUseIntervalMillis);
+            }
+            entry.lastUse = now;
+            entry.lastActivity = now;
+        }
+        reproject(team, entry, now);
+    }
+
+    private void startService(Team team, TrackedDevice entry, long now) {
+        team.queue.remove(entry);
+        if (!entry.inService) {
+            entry.inService = true;
+            entry.serviceStart = now;
+            team.servicing.add(entry);
+        }
+    }
+
+    // Due when the remaining uses are consumed at the device's own pace
+    private void reproject(Team team, TrackedDevice entry, long now) {
+        int usesLeft = entry.device.getUsesUntilMaintenance();
+        if (usesLeft == 0) {
+            entry.dueTime = Math.min(entry.heapIndex >= 0 ? entry.dueTime : now, now);
+        } else {
+            entry.dueTime = entry.lastActivity + (long) (usesLeft * entry.meanUseIntervalMillis);
+        }
+        team.queue.update(entry);
+    }
+
+    // ---------- DISPATCH AND PLANNING ----------
+    // Sends due devices to maintenance while teams have free capacity; devices in use are skipped
+    public synchronized List<Device> dispatch() {
+        long now = clock.getAsLong();
+        List<Device> dispatched = new ArrayList<>();
+        for (Team team : teams.values()) {
+            List<TrackedDevice> skipped = new ArrayList<>();
+            while (team.servicing.size() < team.definition.getCapacity()) {
+                TrackedDevice next = team.queue.peek();
+                if (next == null || next.dueTime > now) {
+                    break;
+                }
+                team.queue.poll();
+                if (next.device.getState() instanceof InUseState) {
+                    skipped.add(next);
+                    continue;
+                }
+                next.device.sendForMaintenance();   // re-enters stateChanged, which books the team
+                if (!next.inService) {
+                    skipped.add(next);               // the state refused the transition
+                } else {
+                    dispatched.add(next.device);
+                }
+            }
+            for (TrackedDevice entry : skipped) {
+                team.queue.update(entry);
+            }
+        }
+        return dispatched;
+    }
+
+    // The next `count` services of a team in due order, each starting when a team slot is free
+    public synchronized List<PlannedMaintenance> plan(String teamName, int count) {
+        Team team = team(teamName);
+        long now = clock.getAsLong();
+        long serviceMillis = team.definition.getServiceMillis();
+        PriorityQueue<Long> freeAt = new PriorityQueue<>();
+        for (TrackedDevice entry : team.servicing) {
+            freeAt.add(Math.max(now, entry.serviceStart + serviceMillis));
+        }
+        while (freeAt.size() < team.definition.getCapacity()) {
+            freeAt.add(now);
+        }
+        List<PlannedMaintenance> plan = new ArrayList<>();
+        for (TrackedDevice entry : team.queue.earliest(count)) {
+            long due = Math.max(now, entry.dueTime);
+            long start = Math.max(due, freeAt.poll());
+            freeAt.add(start + serviceMillis);
+            plan.add(new PlannedMaintenance(entry.device, teamName, entry.dueTime, start));
+        }
+        return plan;
+    }
+
+    // ---------- QUERIES ----------
+    public synchronized long getProjectedDueTime(Device device) {
+        return tracked(device).dueTime;
+    }
+
+    public synchronized double getUsesPerDay(Device device) {
+        return DAY_MILLIS / tracked(device).meanUseIntervalMillis;
+    }
+
+    public synchronized int getBusy(String teamName) {
+        return team(teamName).servicing.size();
+    }
+
+    public synchronized int getQueued(String teamName) {
+        return team(teamName).queue.size();
+    }
+
+    public synchronized int getTrackedCount() {
+        return tracked.size();
+    }
+
+    private Team team(String name) {
+        Team team = teams.get(name);
+        if (team == null) {
+            throw new IllegalArgumentException("Unknown maintenance team: " + name);
+        }
+        return team;
+    }
+
+    private TrackedDevice tracked(Device device) {
+        TrackedDevice entry = tracked.get(device);
+        if (entry == null) {
+            throw new IllegalArgumentException("Device not registered: " + device.getName());
+        }
+        return entry;
+    }
+
+    //A team with its queue of devices and the devices it is servicing.
+    private static final class Team {
+        final MaintenanceTeam definition;
+        final DeviceQueue queue = new DeviceQueue();
+        final Set<TrackedDevice> servicing = new LinkedHashSet<>();
+
+        Team(MaintenanceTeam definition) {
+            this.definition = definition;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package designpatterns16.maintenance;
+
+//A maintenance crew: how many devices it can service at once and how long one service takes.
+public class MaintenanceTeam {
+    private final String name;
+    private final int capacity;
+    private final long serviceMillis;
+
+    public MaintenanceTeam(String name, int capacity, long serviceMillis) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Team capacity must be positive!");
+        }
+        if (serviceMillis < 0) {
+            throw new IllegalArgumentException("Service time must not be negative!");
+        }
+        this.name = name;
+        this.capacity = capacity;
+        this.serviceMillis = serviceMillis;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    // Expected turnaround of one service, used for planning
+    public long getServiceMillis() {
+        return serviceMillis;
+    }
+}
@@ -0,0 +1,46 @@
+package designpatterns16.maintenance;
+
+import designpatterns16.items.Device;
+
+//One entry of a maintenance plan: when the device is due and when its team can take it.
+public class PlannedMaintenance {
+    private final Device device;
+    private final String team;
+    private final long dueTime;
+    private final long plannedStart;
+
+    PlannedMaintenance(Device device, String team, long dueTime, long plannedStart) {
+        this.device = device;
+        this.team = team;
+        this.dueTime = dueTime;
+        this.plannedStart = plannedStart;
+    }
+
+    public Device getDevice() {
+        return device;
+    }
+
+    public String getTeam() {
+        return team;
+    }
+
+    // Projected time the device reaches its maintenance threshold
+    public long getDueTime() {
+        return dueTime;
+    }
+
+    // Earliest start given the team's capacity and the devices planned before it
+    public long getPlannedStart() {
+        return plannedStart;
+    }
+
+    @Override
+    public String toString() {
+        return "PlannedMaintenance{" +
+                "device=" + device.getName() +
+                ", team=" + team +
+                ", dueTime=" + dueTime +
+                ", plannedStart=" + plannedStart +
+                '}';
+    }
+}
@@ -0,0 +1,23 @@
+package designpatterns16.maintenance;
+
+import designpatterns16.items.Device;
+
+//Scheduler state of one device, constant size.
+final class TrackedDevice {
+    final Device device;
+    final String team;
+    int heapIndex = -1;
+    long dueTime;
+    double meanUseIntervalMillis;   // EWMA of the time between two uses
+    long lastActivity;              // last use start or maintenance completion
+    long lastUse = -1;
+    boolean inService;
+    long serviceStart;
+
+    TrackedDevice(Device device, String team, double meanUseIntervalMillis, long now) {
+        this.device = device;
+        this.team = team;
+        this.meanUseIntervalMillis = meanUseIntervalMillis;
+        this.lastActivity = now;
+    }
+}
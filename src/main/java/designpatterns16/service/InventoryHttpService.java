@@ -0,0 +1,447 @@
+package designpatterns16.service;
+
+import designpatterns16.Stockmonitor.Inventory;
+import designpatterns16.Stockmonitor.InventoryReport;
+import designpatterns16.Stockmonitor.LotView;
+import designpatterns16.Stockmonitor.ReportEngine;
+import designpatterns16.Stockmonitor.StockItem;
+import designpatterns16.design_patterns.state.DeviceState;
+import designpatterns16.items.Device;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+//Embedded HTTP/JSON query service over an Inventory and its devices.
+//  GET  /stock?product=NAME                      lots of one product
+//  POST /dispense?product=NAME&amount=N          dispense, earliest expiry first
+//  GET  /category?name=NAME                      lots of all products under a category
+//  GET  /report                                  totals, critical and expiring lots, per type/category
+//  GET  /devices                                 device states and use counts
+//  POST /devices?name=NAME&action=use|end|maintain|complete
+//Each request runs on its own virtual thread when the JVM supports them (JDK 21+),
+//otherwise on a cached thread pool.
+//There is no authentication, so start(port) only listens on the loopback interface; exposing
+//the service on other interfaces is an explicit start(address) behind a trusted proxy.
+//For bursts of thousands of keep-alive clients raise -Dsun.net.httpserver.maxIdleConnections
+//(default 200) on the command line.
+public class InventoryHttpService {
+
+    private static final int BACKLOG = 4096;
+
+    private final Inventory inventory;
+    private final List<Device> devices;
+    private final ResponseBufferPool buffers = new ResponseBufferPool(256);
+    private final ReportEngine reportEngine = new ReportEngine();
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public InventoryHttpService(Inventory inventory, List<Device> devices) {
+        this.inventory = inventory;
+        this.devices = devices;
+    }
+
+    // Listens on the loopback interface only; port 0 binds a free port, see getPort()
+    public void start(int port) throws IOException {
+        start(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+    }
+
+    public void start(InetSocketAddress address) throws IOException {
+        server = HttpServer.create(address, BACKLOG);
+        executor = newRequestExecutor();
+        server.setExecutor(executor);
+        server.createContext("/stock", this::handleStock);
+        server.createContext("/dispense", this::handleDispense);
+        server.createContext("/category", this::handleCategory);
+        server.createContext("/report", this::handleReport);
+        server.createContext("/devices", this::handleDevices);
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static ExecutorService newRequestExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "http-request");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    // ---------- HANDLERS ----------
+    private void handleStock(HttpExchange exchange) throws IOException {
+        if (!requireMethod(exchange, "GET")) {
+            return;
+        }
+        String product = query(exchange).get("product");
+        if (product == null) {
+            sendError(exchange, 400, "Missing 'product' parameter");
+            return;
+        }
+        sendLots(exchange, "product", product, inventory.getStockByProduct(product));
+    }
+
+    private void handleCategory(HttpExchange exchange) throws IOException {
+        if (!requireMethod(exchange, "GET")) {
+            return;
+        }
+        String name = query(exchange).get("name");
+        if (name == null) {
+            sendError(exchange, 400, "Missing 'name' parameter");
+            return;
+        }
+        sendLots(exchange, "category", name, inventory.getStockByCategory(name));
+    }
+
+    private void handleDispense(HttpExchange exchange) throws IOException {
+        if (!requireMethod(exchange, "POST")) {
+            return;
+        }
+        Map<String, String> params = query(exchange);
+        String product = params.get("product");
+        int amount;
+        try {
+            amount = Integer.parseInt(params.get("amount"));
+        } catch (NumberFormatException e) {
+            sendError(exchange, 400, "Invalid 'amount' parameter");
+            return;
+        }
+        if (product == null) {
+            sendError(exchange, 400, "Missing 'product' parameter");
+            return;
+        }
+        if (amount <= 0) {
+            sendError(exchange, 400, "'amount' must be positive");
+            return;
+        }
+        int remaining = 0;
+        String failure = null;
+        synchronized (inventory) {
+            try {
+                inventory.dispense(product, amount);
+                for (StockItem lot : inventory.getStockByProduct(product)) {
+                    remaining += lot.getStock();
+                }
+            } catch (IllegalArgumentException e) {
+                failure = e.getMessage();
+            }
+        }
+        if (failure != null) {
+            sendError(exchange, 409, failure);
+            return;
+        }
+        ResponseBufferPool.Buffer buffer = buffers.acquire();
+        try {
+            StringBuilder json = buffer.text();
+            json.append("{\"product\":");
+            appendString(json, product);
+            json.append(",\"dispensed\":").append(amount);
+            json.append(",\"remaining\":").append(remaining).append('}');
+            send(exchange, 200, buffer);
+        } finally {
+            buffers.release(buffer);
+        }
+    }
+
+    private void handleReport(HttpExchange exchange) throws IOException {
+        if (!requireMethod(exchange, "GET")) {
+            return;
+        }
+        InventoryReport report = reportEngine.generate(inventory);
+        ResponseBufferPool.Buffer buffer = buffers.acquire();
+        try {
+            StringBuilder json = buffer.text();
+            json.append("{\"version\":").append(report.getSnapshotVersion());
+            json.append(",\"total\":");
+            appendTotals(json, report.getTotal());
+            json.append(",\"criticalLevel\":").append(report.getCriticalLevel());
+            json.append(",\"critical\":");
+            appendLotViews(json, report.getCriticalLots());
+            json.append(",\"expiryWindowDays\":").append(report.getExpiryWindowDays());
+            json.append(",\"expiring\":");
+            appendLotViews(json, report.getExpiringLots());
+            json.append(",\"byType\":");
+            appendTotalsMap(json, report.getByType());
+            json.append(",\"byCategory\":");
+            appendTotalsMap(json, report.getByCategory());
+            json.append('}');
+            send(exchange, 200, buffer);
+        } finally {
+            buffers.release(buffer);
+        }
+    }
+
+    private void handleDevices(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        if (method.equals("POST")) {
+            Map<String, String> params = query(exchange);
+            Device device = findDevice(params.get("name"));
+            if (device == null) {
+                sendError(exchange, 404, "Device not found");
+                return;
+            }
+            String action = String.valueOf(params.get("action"));
+            if (!action.equals("use") && !action.equals("end") && !action.equals("maintain")
+                    && !action.equals("complete")) {
+                sendError(exchange, 400, "Unknown action: " + action);
+                return;
+            }
+            String refused = null;
+            synchronized (device) {
+                DeviceState before = device.getState();
+                switch (action) {
+                    case "use":
+                        device.beginUse();
+                        break;
+                    case "end":
+                        device.endUse();
+                        break;
+                    case "maintain":
+                        device.sendForMaintenance();
+                        break;
+                    default:
+                        device.completeMaintenance();
+                        break;
+                }
+                // every transition installs a new state object; the same one means the state refused
+                if (device.getState() == before) {
+                    refused = "Cannot '" + action + "' a device in " + before.getClass().getSimpleName();
+                }
+            }
+            if (refused != null) {
+                sendError(exchange, 409, refused);
+                return;
+            }
+        } else if (!method.equals("GET")) {
+            sendError(exchange, 405, "Method not allowed");
+            return;
+        }
+        ResponseBufferPool.Buffer buffer = buffers.acquire();
+        try {
+            StringBuilder json = buffer.text();
+            json.append("{\"devices\":[");
+            synchronized (devices) {
+                for (int i = 0; i < devices.size(); i++) {
+                    Device device = devices.get(i);
+                    if (i > 0) {
+                        json.append(',');
+                    }
+                    json.append("{\"name\":");
+                    appendString(json, device.getName());
+                    json.append(",\"state\":");
+                    appendString(json, device.getState().getClass().getSimpleName());
+                    json.append(",\"useCount\":").append(device.getUseCount()).append('}');
+                }
+            }
+            json.append("]}");
+            send(exchange, 200, buffer);
+        } finally {
+            buffers.release(buffer);
+        }
+    }
+
+    private Device findDevice(String name) {
+        synchronized (devices) {
+            for (Device device : devices) {
+                if (device.getName().equals(name)) {
+                    return device;
+                }
+            }
+        }
+        return null;
+    }
+
+    // ---------- JSON ----------
+    private void sendLots(HttpExchange exchange, String key, String value, List<StockItem> lots) throws IOException {
+        ResponseBufferPool.Buffer buffer = buffers.acquire();
+        try {
+            StringBuilder json = buffer.text();
+            json.append("{\"").append(key).append("\":");
+            appendString(json, value);
+            json.append(",\"lots\":[");
+            int total = 0;
+            for (int i = 0; i < lots.size(); i++) {
+                StockItem lot = lots.get(i);
+                if (i > 0) {
+                    json.append(',');
+                }
+                json.append("{\"lotId\":").append(lot.getLotId());
+                json.append(",\"name\":");
+                appendString(json, lot.getName());
+                json.append(",\"type\":");
+                appendString(json, lot.getType());
+                json.append(",\"quantity\":").append(lot.getStock());
+                json.append(",\"expiration\":");
+                if (!lot.hasExpiration()) {
+                    json.append("null");
+                } else {
+                    appendString(json, lot.getExpirationLocalDate().toString());
+                }
+                json.append(",\"totalValue\":").append(lot.getTotalValue()).append('}');
+                total += lot.getStock();
+            }
+            json.append("],\"totalQuantity\":").append(total).append('}');
+            send(exchange, 200, buffer);
+        } finally {
+            buffers.release(buffer);
+        }
+    }
+
+    private static void appendLotViews(StringBuilder json, List<LotView> lots) {
+        json.append('[');
+        for (int i = 0; i < lots.size(); i++) {
+            LotView lot = lots.get(i);
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"lotId\":").append(lot.getLotId());
+            json.append(",\"name\":");
+            appendString(json, lot.getName());
+            json.append(",\"quantity\":").append(lot.getStock());
+            json.append(",\"expiration\":");
+            if (!lot.hasExpiration()) {
+                json.append("null");
+            } else {
+                appendString(json, lot.getExpirationLocalDate().toString());
+            }
+            json.append('}');
+        }
+        json.append(']');
+    }
+
+    private static void appendTotalsMap(StringBuilder json, Map<String, InventoryReport.Totals> totals) {
+        json.append('{');
+        boolean first = true;
+        for (Map.Entry<String, InventoryReport.Totals> entry : totals.entrySet()) {
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            appendString(json, entry.getKey());
+            json.append(':');
+            appendTotals(json, entry.getValue());
+        }
+        json.append('}');
+    }
+
+    private static void appendTotals(StringBuilder json, InventoryReport.Totals totals) {
+        json.append("{\"lots\":").append(totals.getLots());
+        json.append(",\"units\":").append(totals.getUnits());
+        json.append(",\"value\":").append(totals.getValue()).append('}');
+    }
+
+    static void appendString(StringBuilder json, String value) {
+        if (value == null) {
+            json.append("null");
+            return;
+        }
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        json.append('"');
+    }
+
+    private void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        ResponseBufferPool.Buffer buffer = buffers.acquire();
+        try {
+            StringBuilder json = buffer.text();
+            json.append("{\"error\":");
+            appendString(json, message);
+            json.append('}');
+            send(exchange, status, buffer);
+        } finally {
+            buffers.release(buffer);
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, ResponseBufferPool.Buffer buffer) throws IOException {
+        int length = buffer.encode();
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, length);
+        try (OutputStream body = exchange.getResponseBody()) {
+            body.write(buffer.bytes(), 0, length);
+        }
+    }
+
+    private boolean requireMethod(HttpExchange exchange, String method) throws IOException {
+        if (!exchange.getRequestMethod().equals(method)) {
+            sendError(exchange, 405, "Method not allowed");
+            return false;
+        }
+        return true;
+    }
+
+    private static Map<String, String> query(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw == null) {
+            return params;
+        }
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return params;
+    }
+}
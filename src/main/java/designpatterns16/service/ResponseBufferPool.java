@@ -0,0 +1,79 @@
+package designpatterns16.service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+
+//Bounded pool of response buffers (JSON text + encoded UTF-8 bytes).
+//Virtual threads are not reused, so thread-locals would not help; buffers are
+//handed out per request instead and returned afterwards.
+class ResponseBufferPool {
+
+    private static final int INITIAL_SIZE = 1024;
+    private static final int MAX_RETAINED_SIZE = 64 * 1024;   // larger buffers are dropped, not pooled
+
+    private final ArrayBlockingQueue<Buffer> pool;
+
+    ResponseBufferPool(int capacity) {
+        this.pool = new ArrayBlockingQueue<>(capacity);
+    }
+
+    Buffer acquire() {
+        Buffer buffer = pool.poll();
+        if (buffer == null) {
+            return new Buffer();
+        }
+        buffer.text.setLength(0);
+        return buffer;
+    }
+
+    void release(Buffer buffer) {
+        if (buffer.bytes.length <= MAX_RETAINED_SIZE && buffer.text.capacity() <= MAX_RETAINED_SIZE) {
+            pool.offer(buffer);
+        }
+    }
+
+    static final class Buffer {
+        private final StringBuilder text = new StringBuilder(INITIAL_SIZE);
+        private byte[] bytes = new byte[INITIAL_SIZE];
+
+        StringBuilder text() {
+            return text;
+        }
+
+        byte[] bytes() {
+            return bytes;
+        }
+
+        // Encodes the text as UTF-8 into the reusable byte array, returns the length
+        int encode() {
+            int length = 0;
+            for (int i = 0; i < text.length(); i++) {
+                if (length + 4 > bytes.length) {
+                    byte[] grown = new byte[bytes.length * 2];
+                    System.arraycopy(bytes, 0, grown, 0, length);
+                    bytes = grown;
+                }
+                int c = text.charAt(i);
+                if (Character.isHighSurrogate((char) c) && i + 1 < text.length()
+                        && Character.isLowSurrogate(text.charAt(i + 1))) {
+                    c = Character.toCodePoint((char) c, text.charAt(++i));
+                }
+                if (c < 0x80) {
+                    bytes[length++] = (byte) c;
+                } else if (c < 0x800) {
+                    bytes[length++] = (byte) (0xC0 | (c >> 6));
+                    bytes[length++] = (byte) (0x80 | (c & 0x3F));
+                } else if (c < 0x10000) {
+                    bytes[length++] = (byte) (0xE0 | (c >> 12));
+                    bytes[length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    bytes[length++] = (byte) (0x80 | (c & 0x3F));
+                } else {
+                    bytes[length++] = (byte) (0xF0 | (c >> 18));
+                    bytes[length++] = (byte) (0x80 | ((c >> 12) & 0x3F));
+                    bytes[length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    bytes[length++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+            return length;
+        }
+    }
+}
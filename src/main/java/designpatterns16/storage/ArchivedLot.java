@@ -0,0 +1,101 @@
+package designpatterns16.storage;
+
+import designpatterns16.Stockmonitor.ExpiryDates;
+import designpatterns16.items.Consumable;
+
+import java.time.LocalDate;
+
+//A lot as written to the archive. Lots of one product and expiry archived together are
+//consolidated into one record: the quantities are summed and every source lot id is kept.
+public final class ArchivedLot {
+
+    public enum Reason { EXPIRED, DEPLETED }
+
+    private final long lotId;
+    private final long[] sourceLotIds;
+    private final Consumable product;
+    private final int quantity;
+    private final long expiryEpochDay;
+    private final String lotCode;
+    private final long archivedEpochDay;
+    private final Reason reason;
+
+    ArchivedLot(long lotId, long[] sourceLotIds, Consumable product, int quantity, long expiryEpochDay,
+                String lotCode, long archivedEpochDay, Reason reason) {
+        this.lotId = lotId;
+        this.sourceLotIds = sourceLotIds;
+        this.product = product;
+        this.quantity = quantity;
+        this.expiryEpochDay = expiryEpochDay;
+        this.lotCode = lotCode;
+        this.archivedEpochDay = archivedEpochDay;
+        this.reason = reason;
+    }
+
+    // Id of the first consolidated lot
+    public long getLotId() {
+        return lotId;
+    }
+
+    public long[] getSourceLotIds() {
+        return sourceLotIds.clone();
+    }
+
+    public boolean covers(long lotId) {
+        for (long source : sourceLotIds) {
+            if (source == lotId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public Consumable getProduct() {
+        return product;
+    }
+
+    public String getName() {
+        return product.getName();
+    }
+
+    // Units left in the lots when they were archived (written off when expired)
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public long getExpiryEpochDay() {
+        return expiryEpochDay;
+    }
+
+    public LocalDate getExpirationLocalDate() {
+        return ExpiryDates.toLocalDate(expiryEpochDay);
+    }
+
+    // Common lot code of the consolidated lots, null when unknown or when they differ
+    public String getLotCode() {
+        return lotCode;
+    }
+
+    public LocalDate getArchivedDate() {
+        return LocalDate.ofEpochDay(archivedEpochDay);
+    }
+
+    public long getArchivedEpochDay() {
+        return archivedEpochDay;
+    }
+
+    public Reason getReason() {
+        return reason;
+    }
+
+    @Override
+    public String toString() {
+        return "ArchivedLot{" +
+                "product=" + product.getName() +
+                ", lots=" + sourceLotIds.length +
+                ", quantity=" + quantity +
+                ", reason=" + reason +
+                ", archived=" + getArchivedDate() +
+                '}';
+    }
+}
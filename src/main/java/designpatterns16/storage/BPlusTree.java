@@ -0,0 +1,309 @@
+package designpatterns16.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+//B+tree of long keys and fixed-size values in the pages of a PageCache.
+//Page layout: [0] type, [2..3] key count, [8..15] next leaf (leaves) or first child (inner
+//pages), then the entries: key + value for leaves, key + right child for inner pages.
+//Leaves are chained in key order, so range scans walk the leaf level. Deletes only remove the
+//entry from its leaf (no merging): lot ids are never reused, so emptied pages stay rare.
+final class BPlusTree {
+
+    //Receives the entries of a range scan; the value is only valid during the call.
+    interface Visitor {
+        // false stops the scan
+        boolean visit(long key, ByteBuffer page, int valueOffset);
+    }
+
+    private static final byte LEAF = 1;
+    private static final byte INNER = 2;
+    private static final int HEADER = 16;
+    private static final int TYPE = 0;
+    private static final int COUNT = 2;
+    private static final int LINK = 8;
+
+    private final PageCache cache;
+    private final int valueSize;
+    private final int leafCapacity;
+    private final int innerCapacity;
+    private long root;
+
+    // root < 0 creates an empty tree
+    BPlusTree(PageCache cache, long root, int valueSize) throws IOException {
+        this.cache = cache;
+        this.valueSize = valueSize;
+        this.leafCapacity = (PageFile.PAGE_SIZE - HEADER) / (8 + valueSize);
+        this.innerCapacity = (PageFile.PAGE_SIZE - HEADER) / 16;
+        if (root < 0) {
+            int frame = cache.pinNew();
+            cache.buffer(frame).put(TYPE, LEAF);
+            cache.buffer(frame).putLong(LINK, -1);
+            this.root = cache.page(frame);
+            cache.unpin(frame, true);
+        } else {
+            this.root = root;
+        }
+    }
+
+    long getRoot() {
+        return root;
+    }
+
+    // ---------- LOOKUP ----------
+    // Copies the value into `into` (valueSize bytes at its position); false when the key is absent
+    boolean get(long key, byte[] into) throws IOException {
+        int frame = findLeaf(key);
+        try {
+            ByteBuffer page = cache.buffer(frame);
+            int index = search(page, key, leafEntrySize());
+            if (index < 0) {
+                return false;
+            }
+            int offset = HEADER + index * leafEntrySize() + 8;
+            for (int i = 0; i < valueSize; i++) {
+                into[i] = page.get(offset + i);
+            }
+            return true;
+        } finally {
+            cache.unpin(frame, false);
+        }
+    }
+
+    // Visits the keys in [from, to) in ascending order
+    void scan(long from, long to, Visitor visitor) throws IOException {
+        int frame = findLeaf(from);
+        while (true) {
+            ByteBuffer page = cache.buffer(frame);
+            int count = count(page);
+            int index = search(page, from, leafEntrySize());
+            for (int i = index < 0 ? -index - 1 : index; i < count; i++) {
+                int offset = HEADER + i * leafEntrySize();
+                long key = page.getLong(offset);
+                if (key >= to || !visitor.visit(key, page, offset + 8)) {
+                    cache.unpin(frame, false);
+                    return;
+                }
+            }
+            long next = page.getLong(LINK);
+            cache.unpin(frame, false);
+            if (next < 0) {
+                return;
+            }
+            frame = cache.pin(next);
+        }
+    }
+
+    private int findLeaf(long key) throws IOException {
+        int frame = cache.pin(root);
+        while (cache.buffer(frame).get(TYPE) == INNER) {
+            long child = childFor(cache.buffer(frame), key);
+            cache.unpin(frame, false);
+            frame = cache.pin(child);
+        }
+        return frame;
+    }
+
+    // ---------- UPDATES ----------
+    // Inserts or replaces; value holds valueSize bytes
+    void put(long key, byte[] value) throws IOException {
+        long[] split = insert(root, key, value);
+        if (split != null) {
+            int frame = cache.pinNew();
+            ByteBuffer page = cache.buffer(frame);
+            page.put(TYPE, INNER);
+            page.putShort(COUNT, (short) 1);
+            page.putLong(LINK, root);
+            page.putLong(HEADER, split[0]);
+            page.putLong(HEADER + 8, split[1]);
+            root = cache.page(frame);
+            cache.unpin(frame, true);
+        }
+    }
+
+    // true when the key was present
+    boolean remove(long key) throws IOException {
+        int frame = findLeaf(key);
+        ByteBuffer page = cache.buffer(frame);
+        int index = search(page, key, leafEntrySize());
+        if (index < 0) {
+            cache.unpin(frame, false);
+            return false;
+        }
+        int count = count(page);
+        shift(page, HEADER + (index + 1) * leafEntrySize(), HEADER + index * leafEntrySize(),
+                (count - index - 1) * leafEntrySize());
+        page.putShort(COUNT, (short) (count - 1));
+        cache.unpin(frame, true);
+        return true;
+    }
+
+    // {separator, new right page} when the page split, null otherwise
+    private long[] insert(long pageNo, long key, byte[] value) throws IOException {
+        int frame = cache.pin(pageNo);
+        ByteBuffer page = cache.buffer(frame);
+        if (page.get(TYPE) == LEAF) {
+            try {
+                return insertIntoLeaf(frame, key, value);
+            } finally {
+                cache.unpin(frame, true);
+            }
+        }
+        long child = childFor(page, key);
+        cache.unpin(frame, false);
+        long[] split = insert(child, key, value);
+        if (split == null) {
+            return null;
+        }
+        frame = cache.pin(pageNo);
+        try {
+            return insertIntoInner(frame, split[0], split[1]);
+        } finally {
+            cache.unpin(frame, true);
+        }
+    }
+
+    private long[] insertIntoLeaf(int frame, long key, byte[] value) throws IOException {
+        ByteBuffer page = cache.buffer(frame);
+        int entry = leafEntrySize();
+        int index = search(page, key, entry);
+        if (index >= 0) {
+            putValue(page, HEADER + index * entry + 8, value);
+            return null;
+        }
+        index = -index - 1;
+        int count = count(page);
+        if (count < leafCapacity) {
+            shift(page, HEADER + index * entry, HEADER + (index + 1) * entry, (count - index) * entry);
+            page.putLong(HEADER + index * entry, key);
+            putValue(page, HEADER + index * entry + 8, value);
+            page.putShort(COUNT, (short) (count + 1));
+            return null;
+        }
+        // Full: the upper half moves to a new right sibling
+        int rightFrame = cache.pinNew();
+        try {
+            ByteBuffer right = cache.buffer(rightFrame);
+            int keep = (count + 1) / 2;
+            right.put(TYPE, LEAF);
+            right.putLong(LINK, page.getLong(LINK));
+            page.putLong(LINK, cache.page(rightFrame));
+            copy(page, HEADER + keep * entry, right, HEADER, (count - keep) * entry);
+            page.putShort(COUNT, (short) keep);
+            right.putShort(COUNT, (short) (count - keep));
+            if (index <= keep) {
+                insertIntoLeaf(frame, key, value);
+            } else {
+                insertIntoLeaf(rightFrame, key, value);
+            }
+            return new long[]{right.getLong(HEADER), cache.page(rightFrame)};
+        } finally {
+            cache.unpin(rightFrame, true);
+        }
+    }
+
+    private long[] insertIntoInner(int frame, long separator, long rightChild) throws IOException {
+        ByteBuffer page = cache.buffer(frame);
+        int count = count(page);
+        int found = search(page, separator, 16);
+        int index = found >= 0 ? found + 1 : -found - 1;
+        if (count < innerCapacity) {
+            shift(page, HEADER + index * 16, HEADER + (index + 1) * 16, (count - index) * 16);
+            page.putLong(HEADER + index * 16, separator);
+            page.putLong(HEADER + index * 16 + 8, rightChild);
+            page.putShort(COUNT, (short) (count + 1));
+            return null;
+        }
+        // Full: gather the entries with the new one, keep the lower half, promote the middle key
+        long[] keys = new long[count + 1];
+        long[] children = new long[count + 1];
+        for (int i = 0, j = 0; i <= count; i++) {
+            if (i == index) {
+                keys[i] = separator;
+                children[i] = rightChild;
+            } else {
+                keys[i] = page.getLong(HEADER + j * 16);
+                children[i] = page.getLong(HEADER + j * 16 + 8);
+                j++;
+            }
+        }
+        int middle = (count + 1) / 2;
+        int rightFrame = cache.pinNew();
+        try {
+            ByteBuffer right = cache.buffer(rightFrame);
+            right.put(TYPE, INNER);
+            right.putLong(LINK, children[middle]);
+            for (int i = middle + 1; i <= count; i++) {
+                right.putLong(HEADER + (i - middle - 1) * 16, keys[i]);
+                right.putLong(HEADER + (i - middle - 1) * 16 + 8, children[i]);
+            }
+            right.putShort(COUNT, (short) (count - middle));
+            for (int i = 0; i < middle; i++) {
+                page.putLong(HEADER + i * 16, keys[i]);
+                page.putLong(HEADER + i * 16 + 8, children[i]);
+            }
+            page.putShort(COUNT, (short) middle);
+            return new long[]{keys[middle], cache.page(rightFrame)};
+        } finally {
+            cache.unpin(rightFrame, true);
+        }
+    }
+
+    // ---------- PAGE HELPERS ----------
+    private int leafEntrySize() {
+        return 8 + valueSize;
+    }
+
+    private static int count(ByteBuffer page) {
+        return page.getShort(COUNT);
+    }
+
+    // Index of the key, or -(insertion point) - 1; keys sit at the start of each entry
+    private static int search(ByteBuffer page, long key, int entrySize) {
+        int low = 0;
+        int high = count(page) - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long found = page.getLong(HEADER + middle * entrySize);
+            if (found < key) {
+                low = middle + 1;
+            } else if (found > key) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -low - 1;
+    }
+
+    // Child covering the key: the one right of the last separator <= key
+    private static long childFor(ByteBuffer page, long key) {
+        int index = search(page, key, 16);
+        int separators = index >= 0 ? index + 1 : -index - 1;
+        return separators == 0 ? page.getLong(LINK) : page.getLong(HEADER + (separators - 1) * 16 + 8);
+    }
+
+    private void putValue(ByteBuffer page, int offset, byte[] value) {
+        for (int i = 0; i < valueSize; i++) {
+            page.put(offset + i, value[i]);
+        }
+    }
+
+    private static void shift(ByteBuffer page, int from, int to, int length) {
+        if (to > from) {
+            for (int i = length - 1; i >= 0; i--) {
+                page.put(to + i, page.get(from + i));
+            }
+        } else {
+            for (int i = 0; i < length; i++) {
+                page.put(to + i, page.get(from + i));
+            }
+        }
+    }
+
+    private static void copy(ByteBuffer from, int fromOffset, ByteBuffer to, int toOffset, int length) {
+        for (int i = 0; i < length; i++) {
+            to.put(toOffset + i, from.get(fromOffset + i));
+        }
+    }
+}
@@ -0,0 +1,369 @@
+package designpatterns16.storage;
+
+import designpatterns16.Stockmonitor.DayClock;
+import designpatterns16.Stockmonitor.LotStore;
+import designpatterns16.Stockmonitor.ProductCatalog;
+import designpatterns16.Stockmonitor.ProductCodec;
+import designpatterns16.Stockmonitor.StockItem;
+import designpatterns16.items.Consumable;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+//Inventory whose lots live on disk instead of the heap.
+//Two B+trees share one page file behind a clock-evicted page cache:
+//  lots:     lot id -> product id, quantity, expiry day, lot code (fixed 40 byte record)
+//  products: (product id << 40 | lot id) -> nothing, so a product's lots are one range scan
+//Products are few and stay in memory (a catalog replayed from an append-only products file).
+//Dirty pages stay in the cache until a checkpoint: flush(), or automatically after an operation
+//once half the cache is dirty. A checkpoint syncs the products file, then commits the dirty
+//pages and the header (tree roots) atomically through the page file's journal, so a crash
+//loses the changes after the last checkpoint but never leaves a tree half written.
+//Lots returned by the queries are detached copies; change stock through this class.
+public class DiskInventory implements LotStore, Closeable {
+
+    public static final int DEFAULT_CACHE_PAGES = 1024;
+    public static final int MAX_LOT_CODE_BYTES = 20;   // the GS1 limit for AI 10
+
+    private static final long MAGIC = 0x4C4F545354523031L;   // "LOTSTR01"
+    private static final int RECORD_SIZE = 40;
+    private static final int LOT_ID_BITS = 40;
+
+    private final PageFile pages;
+    private final PageCache cache;
+    private final BPlusTree lots;
+    private final BPlusTree byProduct;
+    private final ProductCatalog catalog = new ProductCatalog();
+    private final Map<String, List<Integer>> productIdsByName = new HashMap<>();
+    private final File productsFile;
+    private final DayClock clock;
+    private final FileOutputStream productsFileOut;
+    private DataOutputStream productsOut;
+    private int persistedProducts;
+    private long lotCount;
+    private final byte[] record = new byte[RECORD_SIZE];
+    private final ByteBuffer header = ByteBuffer.allocate(PageFile.PAGE_SIZE);
+
+    public DiskInventory(File directory) throws IOException {
+        this(directory, DEFAULT_CACHE_PAGES);
+    }
+
+    public DiskInventory(File directory, int cachePages) throws IOException {
+        this(directory, cachePages, DayClock.SYSTEM);
+    }
+
+    // The clock decides which lots count as expired
+    public DiskInventory(File directory, int cachePages, DayClock clock) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create storage directory: " + directory);
+        }
+        this.clock = clock;
+        this.productsFile = new File(directory, "products.dat");
+        loadProducts();
+        this.pages = new PageFile(new File(directory, "lots.db").toPath());
+        this.cache = new PageCache(pages, cachePages);
+        if (pages.getPageCount() == 0) {
+            pages.allocate();   // page 0: header
+            this.lots = new BPlusTree(cache, -1, RECORD_SIZE);
+            this.byProduct = new BPlusTree(cache, -1, 0);
+            writeHeader();
+        } else {
+            pages.read(0, header);
+            if (header.getLong(0) != MAGIC) {
+                throw new IOException("Not a lot storage file: " + directory);
+            }
+            this.lotCount = header.getLong(8);
+            this.lots = new BPlusTree(cache, header.getLong(16), RECORD_SIZE);
+            this.byProduct = new BPlusTree(cache, header.getLong(24), 0);
+        }
+        this.productsFileOut = new FileOutputStream(productsFile, true);
+        this.productsOut = new DataOutputStream(new BufferedOutputStream(productsFileOut));
+    }
+
+    @Override
+    public DayClock getClock() {
+        return clock;
+    }
+
+    // ---------- LOTS ----------
+    // Stores the lot with its current stock, expiry and lot code
+    @Override
+    public synchronized void addStock(StockItem item) throws IOException {
+        long lotId = item.getLotId();
+        if (lotId < 0 || lotId >= 1L << LOT_ID_BITS) {
+            throw new IllegalArgumentException("Lot id out of range: " + lotId);
+        }
+        if (lots.get(lotId, record)) {
+            throw new IllegalArgumentException("Lot already stored: " + lotId);
+        }
+        int productId = productId(item.getProduct());
+        encode(productId, item.getStock(), item.getExpiryEpochDay(), item.getLotCode());
+        lots.put(lotId, record);
+        byProduct.put(productKey(productId, lotId), record);
+        lotCount++;
+        checkpointIfDue();
+    }
+
+    // Removes the stored lot with the item's lot id
+    @Override
+    public synchronized void removeStock(StockItem item) throws IOException {
+        removeStock(item.getLotId());
+    }
+
+    public synchronized void removeStock(long lotId) throws IOException {
+        if (!lots.get(lotId, record)) {
+            throw new IllegalArgumentException("Item not found in inventory!");
+        }
+        lots.remove(lotId);
+        byProduct.remove(productKey(ByteBuffer.wrap(record).getInt(0), lotId));
+        lotCount--;
+        checkpointIfDue();
+    }
+
+    public synchronized StockItem getLot(long lotId) throws IOException {
+        return lots.get(lotId, record) ? decode(lotId, ByteBuffer.wrap(record), 0) : null;
+    }
+
+    public synchronized boolean contains(long lotId) throws IOException {
+        return lots.get(lotId, record);
+    }
+
+    public synchronized void increaseStock(long lotId, int amount) throws IOException {
+        changeStock(lotId, amount);
+        checkpointIfDue();
+    }
+
+    public synchronized void reduceStock(long lotId, int amount) throws IOException {
+        changeStock(lotId, -amount);
+        checkpointIfDue();
+    }
+
+    private void changeStock(long lotId, int delta) throws IOException {
+        if (!lots.get(lotId, record)) {
+            throw new IllegalArgumentException("Item not found in inventory!");
+        }
+        ByteBuffer view = ByteBuffer.wrap(record);
+        int quantity = view.getInt(4) + delta;
+        if (quantity < 0) {
+            throw new IllegalArgumentException("Insufficient stock!");
+        }
+        view.putInt(4, quantity);
+        lots.put(lotId, record);
+    }
+
+    // Range scan of the product index, then one point lookup per lot
+    @Override
+    public synchronized List<StockItem> getStockByProduct(String name) throws IOException {
+        List<StockItem> result = new ArrayList<>();
+        List<Integer> productIds = productIdsByName.get(name);
+        if (productIds == null) {
+            return result;
+        }
+        for (int productId : productIds) {
+            List<Long> lotIds = new ArrayList<>();
+            byProduct.scan(productKey(productId, 0), productKey(productId + 1, 0), (key, page, offset) -> {
+                lotIds.add(key & ((1L << LOT_ID_BITS) - 1));
+                return true;
+            });
+            for (long lotId : lotIds) {
+                result.add(getLot(lotId));
+            }
+        }
+        return result;
+    }
+
+    // Leaf-level scan in lot id order
+    @Override
+    public synchronized List<StockItem> getAllStockItems() throws IOException {
+        List<StockItem> result = new ArrayList<>();
+        lots.scan(Long.MIN_VALUE, Long.MAX_VALUE, (key, page, offset) -> {
+            result.add(decode(key, page, offset));
+            return true;
+        });
+        return result;
+    }
+
+    // Dispenses from the lots of a product, earliest expiration first (lots without date last).
+    // Expired lots are never dispensed and do not count as available stock.
+    @Override
+    public synchronized void dispense(String productName, int amount) throws IOException {
+        if (amount <= 0) {
+            throw new IllegalArgumentException("Amount must be positive!");
+        }
+        List<StockItem> productLots = getStockByProduct(productName);
+        if (productLots.isEmpty()) {
+            throw new IllegalArgumentException("Product not found: " + productName);
+        }
+        productLots.removeIf(lot -> lot.isExpired(clock));
+        int available = 0;
+        for (StockItem lot : productLots) {
+            available += lot.getStock();
+        }
+        if (available < amount) {
+            throw new IllegalArgumentException("Insufficient stock!");
+        }
+        Collections.sort(productLots, Comparator.comparingLong(StockItem::getExpiryEpochDay));
+        int remaining = amount;
+        for (StockItem lot : productLots) {
+            int take = Math.min(remaining, lot.getStock());
+            if (take > 0) {
+                changeStock(lot.getLotId(), -take);
+                remaining -= take;
+            }
+            if (remaining == 0) {
+                break;
+            }
+        }
+        checkpointIfDue();
+    }
+
+    public synchronized long size() {
+        return lotCount;
+    }
+
+    public synchronized double getTotalValue() throws IOException {
+        double[] total = new double[1];
+        lots.scan(Long.MIN_VALUE, Long.MAX_VALUE, (key, page, offset) -> {
+            total[0] += catalog.get(page.getInt(offset)).getPricePerUnit() * page.getInt(offset + 4);
+            return true;
+        });
+        return total[0];
+    }
+
+    // ---------- CACHE STATISTICS ----------
+    public synchronized long getCacheHits() {
+        return cache.getHits();
+    }
+
+    public synchronized long getCacheMisses() {
+        return cache.getMisses();
+    }
+
+    public synchronized long getCacheEvictions() {
+        return cache.getEvictions();
+    }
+
+    // ---------- DURABILITY ----------
+    // Checkpoint: every change so far survives a crash from here on
+    public synchronized void flush() throws IOException {
+        productsOut.flush();
+        productsFileOut.getFD().sync();   // lots must never reference a product that is not on disk
+        writeHeader();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        flush();
+        productsOut.close();
+        pages.close();
+    }
+
+    // Between operations only, when the trees are consistent; keeps the cache within its budget
+    private void checkpointIfDue() throws IOException {
+        if (cache.getDirtyCount() >= cache.getBudget() / 2) {
+            flush();
+        }
+    }
+
+    // Commits the header together with the dirty pages it points to
+    private void writeHeader() throws IOException {
+        header.clear();
+        header.putLong(0, MAGIC);
+        header.putLong(8, lotCount);
+        header.putLong(16, lots.getRoot());
+        header.putLong(24, byProduct.getRoot());
+        cache.commit(header);
+    }
+
+    // ---------- PRODUCTS AND RECORDS ----------
+    private int productId(Consumable product) throws IOException {
+        int productId = catalog.intern(product);
+        if (productId == persistedProducts) {
+            ProductCodec.writeProduct(productsOut, catalog.get(productId));
+            persistedProducts++;
+            productIdsByName.computeIfAbsent(product.getName(), k -> new ArrayList<>()).add(productId);
+        }
+        return productId;
+    }
+
+    // Replays the products file. A crash can leave part of a product behind the last complete one
+    // (the buffer spills between checkpoints); it is cut off so new products append after whole records.
+    private void loadProducts() throws IOException {
+        if (!productsFile.exists()) {
+            return;
+        }
+        byte[] bytes = Files.readAllBytes(productsFile.toPath());   // products are few
+        ByteArrayInputStream buffer = new ByteArrayInputStream(bytes);
+        DataInputStream in = new DataInputStream(buffer);
+        int complete = 0;
+        while (buffer.available() > 0) {
+            Consumable product;
+            try {
+                product = ProductCodec.readProduct(in);
+            } catch (EOFException e) {
+                break;   // torn record written after the last checkpoint
+            }
+            complete = bytes.length - buffer.available();
+            int productId = catalog.intern(product);
+            persistedProducts++;
+            productIdsByName.computeIfAbsent(product.getName(), k -> new ArrayList<>()).add(productId);
+        }
+        if (complete < bytes.length) {
+            try (RandomAccessFile file = new RandomAccessFile(productsFile, "rw")) {
+                file.setLength(complete);
+                file.getFD().sync();
+            }
+        }
+    }
+
+    private static long productKey(int productId, long lotId) {
+        return ((long) productId << LOT_ID_BITS) | lotId;
+    }
+
+    // product id, quantity, expiry day, lot code length, lot code bytes
+    private void encode(int productId, int quantity, long expiryEpochDay, String lotCode) {
+        ByteBuffer view = ByteBuffer.wrap(record);
+        view.putInt(0, productId);
+        view.putInt(4, quantity);
+        view.putLong(8, expiryEpochDay);
+        byte[] code = lotCode == null ? new byte[0] : lotCode.getBytes(StandardCharsets.UTF_8);
+        if (code.length > MAX_LOT_CODE_BYTES) {
+            throw new IllegalArgumentException("Lot code longer than " + MAX_LOT_CODE_BYTES + " bytes: " + lotCode);
+        }
+        view.put(16, (byte) (lotCode == null ? -1 : code.length));
+        for (int i = 0; i < MAX_LOT_CODE_BYTES; i++) {
+            view.put(17 + i, i < code.length ? code[i] : 0);
+        }
+    }
+
+    private StockItem decode(long lotId, ByteBuffer page, int offset) {
+        Consumable product = catalog.get(page.getInt(offset));
+        StockItem lot = new StockItem(lotId, product, page.getInt(offset + 4), page.getLong(offset + 8));
+        int codeLength = page.get(offset + 16);
+        if (codeLength >= 0) {
+            byte[] code = new byte[codeLength];
+            for (int i = 0; i < codeLength; i++) {
+                code[i] = page.get(offset + 17 + i);
+            }
+            lot.setLotCode(new String(code, StandardCharsets.UTF_8));
+        }
+        return lot;
+    }
+}
@@ -0,0 +1,312 @@
+package designpatterns16.storage;
+
+import designpatterns16.Stockmonitor.DayClock;
+import designpatterns16.Stockmonitor.Inventory;
+import designpatterns16.Stockmonitor.InventorySnapshot;
+import designpatterns16.Stockmonitor.LotView;
+import designpatterns16.Stockmonitor.ProductCatalog;
+import designpatterns16.Stockmonitor.ProductCodec;
+import designpatterns16.Stockmonitor.StockItem;
+import designpatterns16.items.Consumable;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+//Cold tier for lots that no longer take part in stock keeping (expired or fully dispensed).
+//archive() moves them out of an Inventory into GZIP compressed, append-only segment files:
+//every archive run appends one GZIP member to the newest segment (a new segment is started
+//once it passes maxSegmentBytes) and is synced before the lots leave the inventory. Lots of one
+//product and expiry archived by the same run are consolidated into one record.
+//The inventory lock is only held to pick the lots and to remove them; compression and fsync
+//run without it, so dispensing is never blocked behind the disk.
+//Queries decompress and scan every segment; this is the audit path, not the hot path.
+public class LotArchive {
+
+    public static final long DEFAULT_MAX_SEGMENT_BYTES = 64L * 1024 * 1024;
+
+    private static final String SEGMENT_PREFIX = "lots-";
+    private static final String SEGMENT_SUFFIX = ".gz";
+    private static final byte RECORD = 1;
+    private static final int MAX_ATTEMPTS = 8;
+
+    private final File directory;
+    private final long maxSegmentBytes;
+    private int currentSegment;
+
+    public LotArchive(File directory) throws IOException {
+        this(directory, DEFAULT_MAX_SEGMENT_BYTES);
+    }
+
+    public LotArchive(File directory, long maxSegmentBytes) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create archive directory: " + directory);
+        }
+        this.directory = directory;
+        this.maxSegmentBytes = maxSegmentBytes;
+        int[] segments = segmentNumbers();
+        this.currentSegment = segments.length == 0 ? 1 : segments[segments.length - 1];
+    }
+
+    // ---------- ARCHIVING ----------
+    // Moves every expired or empty lot from the inventory to the archive; returns the number of lots moved.
+    // The lots are captured as immutable views under the inventory lock and written and synced without it.
+    // Back under the lock they are removed only if none of them changed in between (every change publishes
+    // a new view); otherwise the member is truncated away and the run retried without the lots that changed,
+    // which evidently are still in use. A lot is thus never removed unless the record on disk matches it.
+    public synchronized int archive(Inventory inventory) throws IOException {
+        DayClock clock = inventory.getClock();
+        Set<Long> busy = new HashSet<>();
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            List<StockItem> stale = new ArrayList<>();
+            List<LotView> views = new ArrayList<>();
+            synchronized (inventory) {
+                InventorySnapshot snapshot = inventory.snapshot();
+                for (StockItem lot : inventory.getAllStockItems()) {
+                    if ((lot.isExpired(clock) || lot.getStock() == 0) && !busy.contains(lot.getLotId())) {
+                        stale.add(lot);
+                        views.add(snapshot.getLot(lot.getLotId()));
+                    }
+                }
+            }
+            if (stale.isEmpty()) {
+                return 0;
+            }
+            Member member = append(views, clock);
+            afterAppend();
+            synchronized (inventory) {
+                InventorySnapshot snapshot = inventory.snapshot();
+                boolean changed = false;
+                for (int i = 0; i < stale.size(); i++) {
+                    StockItem lot = stale.get(i);
+                    if (!inventory.contains(lot) || snapshot.getLot(lot.getLotId()) != views.get(i)) {
+                        busy.add(lot.getLotId());
+                        changed = true;
+                    }
+                }
+                if (!changed) {
+                    inventory.removeStock(stale);
+                    return stale.size();
+                }
+            }
+            member.discard();
+        }
+        return 0;   // the inventory kept changing under us, the next run picks the lots up
+    }
+
+    // Called between writing a member and re-taking the inventory lock; lets tests change lots in that window
+    void afterAppend() {
+    }
+
+    private Member append(List<LotView> lots, DayClock clock) throws IOException {
+        long today = clock.todayEpochDay();
+        Map<Group, List<LotView>> groups = new LinkedHashMap<>();
+        for (LotView lot : lots) {
+            ArchivedLot.Reason reason = lot.isExpired(clock) ? ArchivedLot.Reason.EXPIRED : ArchivedLot.Reason.DEPLETED;
+            groups.computeIfAbsent(new Group(lot.getProduct(), lot.getExpiryEpochDay(), reason),
+                    k -> new ArrayList<>()).add(lot);
+        }
+        File segment = segmentFile(currentSegment);
+        if (segment.length() >= maxSegmentBytes) {
+            segment = segmentFile(++currentSegment);
+        }
+        Member member;
+        try (FileOutputStream file = new FileOutputStream(segment, true)) {
+            member = new Member(segment, file.getChannel().size());
+            try {
+                GZIPOutputStream gzip = new GZIPOutputStream(file, 8192);
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(gzip));
+                for (Map.Entry<Group, List<LotView>> entry : groups.entrySet()) {
+                    writeRecord(out, entry.getKey(), entry.getValue(), today);
+                }
+                out.flush();
+                gzip.finish();
+                file.getFD().sync();
+            } catch (IOException | RuntimeException e) {
+                file.getChannel().truncate(member.start);   // never leave half a member behind
+                throw e;
+            }
+        }
+        return member;
+    }
+
+    private static void writeRecord(DataOutputStream out, Group group, List<LotView> lots, long today)
+            throws IOException {
+        int quantity = 0;
+        String lotCode = lots.get(0).getLotCode();
+        for (LotView lot : lots) {
+            quantity += lot.getStock();
+            if (lotCode != null && !lotCode.equals(lot.getLotCode())) {
+                lotCode = null;
+            }
+        }
+        out.writeByte(RECORD);
+        out.writeLong(lots.get(0).getLotId());
+        ProductCodec.writeProduct(out, group.product);
+        out.writeInt(quantity);
+        out.writeLong(group.expiryEpochDay);
+        out.writeBoolean(lotCode != null);
+        if (lotCode != null) {
+            out.writeUTF(lotCode);
+        }
+        out.writeLong(today);
+        out.writeByte(group.reason.ordinal());
+        out.writeInt(lots.size());
+        for (LotView lot : lots) {
+            out.writeLong(lot.getLotId());
+        }
+    }
+
+    // ---------- AUDIT QUERIES (full scans) ----------
+    public synchronized void forEach(Consumer<ArchivedLot> action) throws IOException {
+        ProductCatalog products = new ProductCatalog();   // one instance per product while scanning
+        for (int segment : segmentNumbers()) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                    new GZIPInputStream(new FileInputStream(segmentFile(segment)), 8192)))) {
+                ArchivedLot lot;
+                while ((lot = readRecord(in, products)) != null) {
+                    action.accept(lot);
+                }
+            }
+        }
+    }
+
+    public List<ArchivedLot> query(Predicate<ArchivedLot> filter) throws IOException {
+        List<ArchivedLot> result = new ArrayList<>();
+        forEach(lot -> {
+            if (filter.test(lot)) {
+                result.add(lot);
+            }
+        });
+        return result;
+    }
+
+    public List<ArchivedLot> findByProduct(String name) throws IOException {
+        return query(lot -> lot.getName().equals(name));
+    }
+
+    // The record a (possibly consolidated) lot ended up in, null when it was never archived
+    public ArchivedLot findByLotId(long lotId) throws IOException {
+        List<ArchivedLot> found = query(lot -> lot.covers(lotId));
+        return found.isEmpty() ? null : found.get(0);
+    }
+
+    public synchronized int getSegmentCount() {
+        return segmentNumbers().length;
+    }
+
+    private static ArchivedLot readRecord(DataInputStream in, ProductCatalog products) throws IOException {
+        int marker = in.read();
+        if (marker < 0) {
+            return null;
+        }
+        if (marker != RECORD) {
+            throw new IOException("Corrupt archive record marker: " + marker);
+        }
+        try {
+            long lotId = in.readLong();
+            Consumable product = products.canonical(ProductCodec.readProduct(in));
+            int quantity = in.readInt();
+            long expiryEpochDay = in.readLong();
+            String lotCode = in.readBoolean() ? in.readUTF() : null;
+            long archivedEpochDay = in.readLong();
+            ArchivedLot.Reason reason = ArchivedLot.Reason.values()[in.readByte()];
+            long[] sources = new long[in.readInt()];
+            for (int i = 0; i < sources.length; i++) {
+                sources[i] = in.readLong();
+            }
+            return new ArchivedLot(lotId, sources, product, quantity, expiryEpochDay, lotCode,
+                    archivedEpochDay, reason);
+        } catch (EOFException e) {
+            throw new IOException("Truncated archive record", e);
+        }
+    }
+
+    // ---------- SEGMENT FILES ----------
+    private File segmentFile(int number) {
+        return new File(directory, String.format("%s%06d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+
+    private int[] segmentNumbers() {
+        String[] names = directory.list((dir, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+        if (names == null) {
+            throw new UncheckedIOException(new IOException("Cannot list archive directory: " + directory));
+        }
+        int[] numbers = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            numbers[i] = Integer.parseInt(names[i].substring(SEGMENT_PREFIX.length(),
+                    names[i].length() - SEGMENT_SUFFIX.length()));
+        }
+        Arrays.sort(numbers);
+        return numbers;
+    }
+
+    //Where an archive run's member starts, so a run whose lots changed can take it back.
+    private static final class Member {
+        final File segment;
+        final long start;
+
+        Member(File segment, long start) {
+            this.segment = segment;
+            this.start = start;
+        }
+
+        void discard() throws IOException {
+            if (start == 0) {
+                if (!segment.delete()) {   // an empty segment is not a valid GZIP file
+                    throw new IOException("Cannot delete archive segment: " + segment);
+                }
+                return;
+            }
+            try (FileOutputStream file = new FileOutputStream(segment, true)) {
+                file.getChannel().truncate(start);
+                file.getFD().sync();
+            }
+        }
+    }
+
+    //Consolidation key: product instance (canonical within an inventory), expiry and reason.
+    private static final class Group {
+        final Consumable product;
+        final long expiryEpochDay;
+        final ArchivedLot.Reason reason;
+
+        Group(Consumable product, long expiryEpochDay, ArchivedLot.Reason reason) {
+            this.product = product;
+            this.expiryEpochDay = expiryEpochDay;
+            this.reason = reason;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Group)) {
+                return false;
+            }
+            Group other = (Group) o;
+            return product == other.product && expiryEpochDay == other.expiryEpochDay && reason == other.reason;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * System.identityHashCode(product) + Long.hashCode(expiryEpochDay)) + reason.hashCode();
+        }
+    }
+}
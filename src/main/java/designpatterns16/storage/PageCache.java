@@ -0,0 +1,190 @@
+package designpatterns16.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+//Bounded buffer pool over a PageFile with clock (second chance) eviction.
+//pin() returns a frame whose buffer stays valid until unpin(); pinned frames are never evicted.
+//Every access sets the frame's reference bit, the clock hand clears it on its first pass and
+//evicts on the second. Dirty pages are never evicted: they only reach the file through commit(),
+//together with the header that points at them, so a crash never leaves half an update in place.
+//When every frame is pinned or dirty the cache grows by a frame; callers commit before that,
+//see getDirtyCount().
+final class PageCache {
+
+    private static final long EMPTY = -1;
+
+    private final PageFile file;
+    private final int budget;
+    private ByteBuffer[] buffers;
+    private long[] pageOf;
+    private int[] pins;
+    private boolean[] referenced;
+    private boolean[] dirty;
+    private final Map<Long, Integer> frameOf = new HashMap<>();
+    private int hand;
+    private int dirtyCount;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    PageCache(PageFile file, int frames) {
+        if (frames < 8) {
+            throw new IllegalArgumentException("Page cache needs at least 8 frames!");
+        }
+        this.file = file;
+        this.budget = frames;
+        this.buffers = new ByteBuffer[frames];
+        this.pageOf = new long[frames];
+        this.pins = new int[frames];
+        this.referenced = new boolean[frames];
+        this.dirty = new boolean[frames];
+        for (int i = 0; i < frames; i++) {
+            buffers[i] = ByteBuffer.allocateDirect(PageFile.PAGE_SIZE);
+        }
+        Arrays.fill(pageOf, EMPTY);
+    }
+
+    // Frame holding the page, read from disk on a miss
+    int pin(long page) throws IOException {
+        Integer cached = frameOf.get(page);
+        if (cached != null) {
+            hits++;
+            return use(cached);
+        }
+        misses++;
+        int frame = claim(page);
+        file.read(page, buffers[frame]);
+        return use(frame);
+    }
+
+    // A new zeroed page at the end of the file, pinned and dirty
+    int pinNew() throws IOException {
+        long page = file.allocate();
+        int frame = claim(page);
+        ByteBuffer buffer = buffers[frame];
+        for (int i = 0; i < PageFile.PAGE_SIZE; i += 8) {
+            buffer.putLong(i, 0L);
+        }
+        markDirty(frame);
+        return use(frame);
+    }
+
+    ByteBuffer buffer(int frame) {
+        return buffers[frame];
+    }
+
+    long page(int frame) {
+        return pageOf[frame];
+    }
+
+    void unpin(int frame, boolean modified) {
+        if (pins[frame] == 0) {
+            throw new IllegalStateException("Page " + pageOf[frame] + " is not pinned!");
+        }
+        pins[frame]--;
+        if (modified) {
+            markDirty(frame);
+        }
+    }
+
+    // Writes every dirty page and the header page (page 0) as one atomic PageFile commit
+    void commit(ByteBuffer header) throws IOException {
+        List<Long> pages = new ArrayList<>();
+        List<ByteBuffer> images = new ArrayList<>();
+        pages.add(0L);
+        images.add(header);
+        for (int frame = 0; frame < buffers.length; frame++) {
+            if (pageOf[frame] != EMPTY && dirty[frame]) {
+                pages.add(pageOf[frame]);
+                images.add(buffers[frame]);
+            }
+        }
+        file.commit(pages, images);
+        Arrays.fill(dirty, false);
+        dirtyCount = 0;
+    }
+
+    int getDirtyCount() {
+        return dirtyCount;
+    }
+
+    // The frame count asked for; the cache only exceeds it while more pages are dirty than that
+    int getBudget() {
+        return budget;
+    }
+
+    long getHits() {
+        return hits;
+    }
+
+    long getMisses() {
+        return misses;
+    }
+
+    long getEvictions() {
+        return evictions;
+    }
+
+    private int use(int frame) {
+        pins[frame]++;
+        referenced[frame] = true;
+        return frame;
+    }
+
+    private int claim(long page) throws IOException {
+        int frame = victim();
+        if (pageOf[frame] != EMPTY) {
+            frameOf.remove(pageOf[frame]);
+            evictions++;
+        }
+        pageOf[frame] = page;
+        referenced[frame] = false;
+        frameOf.put(page, frame);
+        return frame;
+    }
+
+    private int victim() {
+        for (int step = 0; step < 2 * buffers.length + 1; step++) {
+            int frame = hand;
+            hand = (hand + 1) % buffers.length;
+            if (pageOf[frame] == EMPTY) {
+                return frame;
+            }
+            if (pins[frame] > 0 || dirty[frame]) {
+                continue;
+            }
+            if (referenced[frame]) {
+                referenced[frame] = false;
+                continue;
+            }
+            return frame;
+        }
+        return grow();
+    }
+
+    private void markDirty(int frame) {
+        if (!dirty[frame]) {
+            dirty[frame] = true;
+            dirtyCount++;
+        }
+    }
+
+    // Every frame is pinned or waits for the next commit
+    private int grow() {
+        int frame = buffers.length;
+        buffers = Arrays.copyOf(buffers, frame + 1);
+        buffers[frame] = ByteBuffer.allocateDirect(PageFile.PAGE_SIZE);
+        pageOf = Arrays.copyOf(pageOf, frame + 1);
+        pageOf[frame] = EMPTY;
+        pins = Arrays.copyOf(pins, frame + 1);
+        referenced = Arrays.copyOf(referenced, frame + 1);
+        dirty = Arrays.copyOf(dirty, frame + 1);
+        return frame;
+    }
+}
@@ -0,0 +1,158 @@
+package designpatterns16.storage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32;
+
+//Fixed-size pages of a file, read and written with positional FileChannel I/O.
+//Pages are only ever appended (there is no free list); a page allocated but not yet written
+//reads back as zeros.
+//commit() makes a set of page writes atomic with a redo journal next to the file: the page
+//images go to the journal first and are synced, only then are they written in place. Opening
+//the file replays a complete journal and drops a torn one, so after a crash the file holds
+//either all of the last commit's pages or none of them.
+final class PageFile implements Closeable {
+
+    static final int PAGE_SIZE = 4096;
+
+    private static final long COMMIT = -1;   // journal trailer: COMMIT, page count, CRC32 of the entries
+
+    private final FileChannel channel;
+    private final Path journal;
+    private long pageCount;
+
+    PageFile(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        this.journal = path.resolveSibling(path.getFileName() + "-journal");
+        recover();
+        this.pageCount = (channel.size() + PAGE_SIZE - 1) / PAGE_SIZE;
+    }
+
+    long getPageCount() {
+        return pageCount;
+    }
+
+    long allocate() {
+        return pageCount++;
+    }
+
+    // Fills the whole buffer (PAGE_SIZE bytes) with the page
+    void read(long page, ByteBuffer into) throws IOException {
+        into.clear();
+        long position = page * PAGE_SIZE;
+        while (into.hasRemaining()) {
+            int read = channel.read(into, position + into.position());
+            if (read < 0) {
+                while (into.hasRemaining()) {
+                    into.put((byte) 0);
+                }
+            }
+        }
+        into.clear();
+    }
+
+    void write(long page, ByteBuffer from) throws IOException {
+        from.clear();
+        long position = page * PAGE_SIZE;
+        while (from.hasRemaining()) {
+            channel.write(from, position + from.position());
+        }
+        from.clear();
+    }
+
+    // Writes the pages (pages.get(i) from buffers.get(i)) all or nothing across a crash
+    void commit(List<Long> pages, List<ByteBuffer> buffers) throws IOException {
+        writeJournal(pages, buffers);
+        for (int i = 0; i < pages.size(); i++) {
+            write(pages.get(i), buffers.get(i));
+        }
+        channel.force(true);
+        Files.delete(journal);
+    }
+
+    // First half of a commit; on its own it is what a crash before the in-place writes leaves behind
+    void writeJournal(List<Long> pages, List<ByteBuffer> buffers) throws IOException {
+        ByteBuffer entryHeader = ByteBuffer.allocate(8);
+        ByteBuffer trailer = ByteBuffer.allocate(20);
+        CRC32 crc = new CRC32();
+        try (FileChannel log = FileChannel.open(journal, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (int i = 0; i < pages.size(); i++) {
+                entryHeader.clear();
+                entryHeader.putLong(0, pages.get(i));
+                crc.update(entryHeader.duplicate());
+                writeFully(log, entryHeader);
+                ByteBuffer image = buffers.get(i).duplicate();
+                image.clear();
+                crc.update(image.duplicate());
+                writeFully(log, image);
+            }
+            trailer.putLong(0, COMMIT).putInt(8, pages.size()).putLong(12, crc.getValue());
+            writeFully(log, trailer);
+            log.force(true);
+        }
+    }
+
+    Path getJournal() {
+        return journal;
+    }
+
+    private void recover() throws IOException {
+        if (!Files.exists(journal)) {
+            return;
+        }
+        try (FileChannel log = FileChannel.open(journal, StandardOpenOption.READ)) {
+            long entrySize = 8 + PAGE_SIZE;
+            long entries = (log.size() - 20) / entrySize;
+            if (log.size() >= 20 && (log.size() - 20) % entrySize == 0) {
+                ByteBuffer trailer = ByteBuffer.allocate(20);
+                readFully(log, trailer, entries * entrySize);
+                CRC32 crc = new CRC32();
+                ByteBuffer entry = ByteBuffer.allocate((int) entrySize);
+                for (long i = 0; i < entries; i++) {
+                    readFully(log, entry, i * entrySize);
+                    crc.update(entry.duplicate());
+                }
+                if (trailer.getLong(0) == COMMIT && trailer.getInt(8) == entries && trailer.getLong(12) == crc.getValue()) {
+                    ByteBuffer image = ByteBuffer.allocate(PAGE_SIZE);
+                    for (long i = 0; i < entries; i++) {
+                        readFully(log, entry, i * entrySize);
+                        image.clear();
+                        image.put(entry.array(), 8, PAGE_SIZE);
+                        write(entry.getLong(0), image);
+                    }
+                    channel.force(true);
+                }
+            }
+        }
+        Files.delete(journal);   // replayed, or torn before its commit: the file was not touched then
+    }
+
+    private static void writeFully(FileChannel to, ByteBuffer from) throws IOException {
+        while (from.hasRemaining()) {
+            to.write(from);
+        }
+    }
+
+    private static void readFully(FileChannel from, ByteBuffer into, long position) throws IOException {
+        into.clear();
+        while (into.hasRemaining()) {
+            if (from.read(into, position + into.position()) < 0) {
+                throw new IOException("Truncated page journal");
+            }
+        }
+        into.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -1,6 +1,18 @@
 package designpatterns16;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import designpatterns16.alerts.AlertSink;
+import designpatterns16.alerts.AlertSinks;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
 
 import org.junit.Test;
 
@@ -17,4 +29,49 @@ public class AppTest
     {
         assertTrue( true );
     }
+
+    @Test
+    public void batchModeSkipsExpiredLotsAndRejectsInvalidDates() throws Exception
+    {
+        String commands = String.join("\n",
+                "# expired lot first, then a fresh one",
+                "add medicine \"Aspirin\" Painkiller 2.0 Tablet 10 01/01/2020",
+                "add medicine \"Aspirin\" Painkiller 2.0 Tablet 5 01/01/2099",
+                "dispense Aspirin 5",
+                "dispense Aspirin 1",
+                "add medicine \"Aspirin\" Painkiller 2.0 Tablet 5 31/02/2099",
+                "report stock");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        AlertSink previous = AlertSinks.get();
+        long errors;
+        try (PrintStream out = new PrintStream(bytes, true, "UTF-8")) {
+            errors = App.runBatch(new BufferedReader(new StringReader(commands)), out);
+        }
+        assertEquals(previous, AlertSinks.get());
+
+        String output = bytes.toString("UTF-8");
+        assertEquals(output, 2, errors);
+        assertTrue(output, output.contains("(line 5): Insufficient stock!"));
+        assertTrue(output, output.contains("(line 6): Unparseable date: \"31/02/2099\""));
+        assertTrue(output, output.contains("Commands executed : 6"));
+    }
+
+    @Test
+    public void batchModeRestoresSystemOutWhenTheInputFails() throws Exception
+    {
+        PrintStream console = System.out;
+        BufferedReader failing = new BufferedReader(new StringReader("report stock")) {
+            @Override
+            public String readLine() throws IOException {
+                throw new IOException("disk gone");
+            }
+        };
+        try (PrintStream out = new PrintStream(new ByteArrayOutputStream(), true, "UTF-8")) {
+            App.runBatch(failing, out);
+            fail("The read error must reach the caller");
+        } catch (IOException e) {
+            assertEquals("disk gone", e.getMessage());
+        }
+        assertSame(console, System.out);
+    }
 }
@@ -0,0 +1,100 @@
+package designpatterns16.Stockmonitor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import designpatterns16.items.Medicine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class AlertGateTest {
+
+    @Test
+    public void raisesOnceAndClearsPastHysteresis() {
+        AlertGate gate = new AlertGate(100, 1000, 10);
+        assertEquals(AlertGate.Decision.RAISE, gate.offer(1, true, false));
+        assertEquals(AlertGate.Decision.NONE, gate.offer(1, true, false));
+        // inside the hysteresis band
+        assertEquals(AlertGate.Decision.NONE, gate.offer(1, false, false));
+        assertEquals(AlertGate.Decision.CLEAR, gate.offer(1, false, true));
+        assertEquals(AlertGate.Decision.RAISE, gate.offer(1, true, false));
+    }
+
+    @Test
+    public void rateLimitsWithTokenBucket() {
+        final long[] nanos = {0};
+        AlertGate gate = new AlertGate(100, 1, 2, () -> nanos[0]);
+        assertEquals(AlertGate.Decision.RAISE, gate.offer(1, true, false));
+        assertEquals(AlertGate.Decision.RAISE, gate.offer(2, true, false));
+        assertEquals(AlertGate.Decision.SUPPRESSED, gate.offer(3, true, false));
+        assertEquals(1, gate.getSuppressedCount());
+        nanos[0] = 1_000_000_000L;
+        assertEquals(AlertGate.Decision.RAISE, gate.offer(3, true, false));
+    }
+
+    @Test
+    public void boundsTrackedKeys() {
+        AlertGate gate = new AlertGate(2, 1000, 10);
+        gate.offer(1, true, false);
+        gate.offer(2, true, false);
+        gate.offer(3, true, false);
+        assertFalse(gate.isRaised(1));
+    }
+
+    @Test
+    public void deliversSuppressedAlertsOnceTokensRefill() {
+        final long[] nanos = {0};
+        List<Long> delivered = new ArrayList<>();
+        AlertGate gate = new AlertGate(100, 1, 1, () -> nanos[0]);
+        assertEquals(AlertGate.Decision.RAISE, gate.offer(1, true, false, () -> delivered.add(1L)));
+        assertEquals(AlertGate.Decision.SUPPRESSED, gate.offer(2, true, false, () -> delivered.add(2L)));
+        assertEquals(AlertGate.Decision.SUPPRESSED, gate.offer(3, true, false, () -> delivered.add(3L)));
+        // the condition of lot 3 went away before its turn
+        assertEquals(AlertGate.Decision.NONE, gate.offer(3, false, true, () -> delivered.add(3L)));
+        assertEquals(0, gate.drainPending());
+
+        nanos[0] = 1_000_000_000L;
+        assertEquals(1, gate.drainPending());
+        assertEquals(0, gate.getPendingCount());
+        assertTrue(gate.isRaised(2));
+        assertEquals(AlertGate.Decision.NONE, gate.offer(2, true, false, () -> delivered.add(2L)));
+        assertEquals(1, delivered.size());
+        assertEquals(Long.valueOf(2), delivered.get(0));
+    }
+
+    @Test
+    public void retriesOnItsOwnWithoutFurtherEvents() throws Exception {
+        CountDownLatch delivered = new CountDownLatch(1);
+        AlertGate gate = new AlertGate(100, 20, 1);
+        gate.offer(1, true, false);
+        assertEquals(AlertGate.Decision.SUPPRESSED, gate.offer(2, true, false, delivered::countDown));
+        assertTrue(delivered.await(10, TimeUnit.SECONDS));
+        assertTrue(gate.isRaised(2));
+    }
+
+    @Test
+    public void forgetsLotsRemovedFromTheInventory() {
+        Inventory inventory = new Inventory();
+        final long[] nanos = {0};
+        AlertGate gate = new AlertGate(100, 1, 1, () -> nanos[0]);
+        inventory.addListener(gate);
+        StockItem low = new StockItem(new Medicine("Aspirin", "Painkiller", 2.0, "Tablet"), 3);
+        StockItem lower = new StockItem(new Medicine("Ibuprofen", "Painkiller", 8.75, "Capsule"), 1);
+        inventory.addStock(low);
+        inventory.addStock(lower);
+        gate.offer(low.getLotId(), true, false);
+        gate.offer(lower.getLotId(), true, false, () -> { });
+        assertEquals(1, gate.getPendingCount());
+
+        inventory.removeStock(low);
+        inventory.removeStock(lower);
+        assertFalse(gate.isRaised(low.getLotId()));
+        assertEquals(0, gate.getPendingCount());
+    }
+}
@@ -0,0 +1,121 @@
+package designpatterns16.Stockmonitor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import designpatterns16.design_patterns.composite.Category;
+import designpatterns16.design_patterns.composite.ProductCategory;
+import designpatterns16.design_patterns.composite.ProductLeaf;
+import designpatterns16.items.Item;
+import designpatterns16.items.Medicine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+public class CategoryLabelsTest {
+
+    @Test
+    public void subtreesAreContiguousRanges() {
+        Inventory inventory = new Inventory();
+        ProductCategory medicines = new ProductCategory("Medicines");
+        ProductCategory antibiotics = new ProductCategory("Antibiotics");
+        ProductCategory painkillers = new ProductCategory("Painkillers");
+        inventory.getRootCategory().add(medicines);
+        medicines.add(antibiotics);
+        medicines.add(painkillers);
+        antibiotics.add(new ProductLeaf(new Medicine("Amoxicillin", "Antibiotic", 12.0, "Tablet")));
+        painkillers.add(new ProductLeaf(new Medicine("Aspirin", "Painkiller", 2.0, "Tablet")));
+
+        StockItem aspirin = new StockItem(new Medicine("Aspirin", "Painkiller", 2.0, "Tablet"), 10);
+        StockItem amoxicillin = new StockItem(new Medicine("Amoxicillin", "Antibiotic", 12.0, "Tablet"), 10);
+        StockItem loose = new StockItem(new Medicine("Zinc", "Supplement", 1.0, "Tablet"), 10);
+        inventory.addStock(aspirin);
+        inventory.addStock(amoxicillin);
+        inventory.addStock(loose);
+
+        assertEquals(Arrays.asList(amoxicillin, aspirin), inventory.getStockByCategory("Medicines"));
+        assertEquals(Arrays.asList(aspirin), inventory.getStockByCategory("Painkillers"));
+        assertTrue(inventory.isInCategory(aspirin, "Medicines"));
+        assertFalse(inventory.isInCategory(aspirin, "Antibiotics"));
+        assertFalse(inventory.isInCategory(loose, "All Products"));
+        assertTrue(inventory.getStockByCategory("Missing").isEmpty());
+    }
+
+    @Test
+    public void labelsSurviveEditsToOtherTrees() {
+        ProductCategory root = new ProductCategory("All Products");
+        root.add(new ProductCategory("Medicines"));
+        CategoryLabels labels = CategoryLabels.label(root, new ProductCatalog());
+
+        new ProductCategory("Other").add(new ProductCategory("Child"));
+        assertTrue(labels.isCurrent(root));
+        ((ProductCategory) root.getChildren().get(0)).add(new ProductCategory("Painkillers"));
+        assertFalse(labels.isCurrent(root));
+    }
+
+    @Test
+    public void relabelsAfterTheTreeChanges() {
+        Inventory inventory = new Inventory();
+        ProductCategory painkillers = new ProductCategory("Painkillers");
+        inventory.getRootCategory().add(painkillers);
+        StockItem aspirin = new StockItem(new Medicine("Aspirin", "Painkiller", 2.0, "Tablet"), 10);
+        inventory.addStock(aspirin);
+        assertTrue(inventory.getStockByCategory("Painkillers").isEmpty());
+
+        ProductLeaf leaf = new ProductLeaf(new Medicine("Aspirin", "Painkiller", 2.0, "Tablet"));
+        painkillers.add(leaf);
+        assertEquals(Arrays.asList(aspirin), inventory.getStockByCategory("Painkillers"));
+
+        // Lots added while the labels are current are placed incrementally
+        StockItem second = new StockItem(new Medicine("Aspirin", "Painkiller", 2.0, "Tablet"), 5);
+        inventory.addStock(second);
+        assertEquals(Arrays.asList(aspirin, second), inventory.getStockByCategory("All Products"));
+        inventory.removeStock(aspirin);
+        assertEquals(Arrays.asList(second), inventory.getStockByCategory("Painkillers"));
+
+        painkillers.remove(leaf);
+        assertTrue(inventory.getStockByCategory("Painkillers").isEmpty());
+        assertFalse(inventory.isInCategory(second, "All Products"));
+    }
+
+    @Test
+    public void matchesASubtreeWalkOnARandomTree() {
+        Random random = new Random(5);
+        Inventory inventory = new Inventory();
+        List<ProductCategory> categories = new ArrayList<>();
+        categories.add(inventory.getRootCategory());
+        for (int i = 0; i < 200; i++) {
+            ProductCategory category = new ProductCategory("Category " + i);
+            categories.get(random.nextInt(categories.size())).add(category);
+            categories.add(category);
+        }
+        for (int i = 0; i < 500; i++) {
+            Medicine product = new Medicine("Product " + i, "Type", 1.0 + i, "Tablet");
+            categories.get(random.nextInt(categories.size())).add(new ProductLeaf(product));
+            inventory.addStock(new StockItem(new Medicine("Product " + i, "Type", 1.0 + i, "Tablet"), 1));
+            inventory.addStock(new StockItem(new Medicine("Product " + i, "Type", 1.0 + i, "Tablet"), 2));
+        }
+
+        for (ProductCategory category : categories) {
+            Set<String> expected = new HashSet<>();
+            for (Item item : category.getAllItems()) {
+                expected.add(item.getName());
+            }
+            List<StockItem> lots = inventory.getStockByCategory(category.getName());
+            assertEquals(expected.size() * 2, lots.size());
+            for (StockItem lot : lots) {
+                assertTrue(expected.contains(lot.getName()));
+                assertTrue(inventory.isInCategory(lot, category.getName()));
+            }
+        }
+        Category root = inventory.getRootCategory();
+        assertEquals(1000, inventory.getStockByCategory(root.getName()).size());
+    }
+}
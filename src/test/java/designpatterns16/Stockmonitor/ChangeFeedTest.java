@@ -0,0 +1,116 @@
+package designpatterns16.Stockmonitor;
+
+import static org.junit.Assert.assertEquals;
+
+import designpatterns16.items.Device;
+import designpatterns16.items.Medicine;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ChangeFeedTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void publishesOrderedEventsForLotsAndDevices() throws Exception {
+        ChangeFeed feed = new ChangeFeed(16);
+        Inventory inventory = new Inventory();
+        inventory.addListener(feed);
+        ChangeFeed.Cursor cursor = feed.tail();
+
+        StockItem lot = new StockItem(new Medicine("Paracetamol", "Painkiller", 5.50, "Tablet"), 20, null);
+        inventory.addStock(lot);
+        lot.reduceStock(5);
+        Device mri = new Device("MRI Machine");
+        mri.addStateListener(feed);
+        mri.beginUse();
+        inventory.removeStock(lot);
+
+        List<ChangeEvent> events = feed.poll(cursor, 10);
+        assertEquals(4, events.size());
+        assertEquals(ChangeEvent.Kind.LOT_ADDED, events.get(0).getKind());
+        assertEquals(15, events.get(1).getQuantity());
+        assertEquals("InUseState", events.get(2).getDetail());
+        assertEquals(ChangeEvent.Kind.LOT_REMOVED, events.get(3).getKind());
+        assertEquals(lot.getLotId(), events.get(3).getLotId());
+        assertEquals(5, cursor.getPosition());
+        assertEquals(0, feed.poll(cursor, 10).size());
+        feed.close();
+    }
+
+    @Test
+    public void resumesFromSpilledEvents() throws Exception {
+        File spill = folder.newFile("feed.log");
+        ChangeFeed feed = new ChangeFeed(8, spill.toPath());
+        for (int i = 0; i < 1000; i++) {
+            feed.publish(ChangeEvent.Kind.STOCK_CHANGED, i, "Lot\t" + i, i, "Medicine");
+        }
+        assertEquals(993, feed.getOldestInMemory());
+
+        ChangeFeed.Cursor cursor = feed.cursorAt(300);
+        List<ChangeEvent> first = feed.poll(cursor, 5);
+        assertEquals(300, first.get(0).getSequence());
+        assertEquals(299, first.get(0).getQuantity());
+        assertEquals("Lot 299", first.get(0).getName());
+
+        long seen = 305;
+        List<ChangeEvent> batch;
+        while (!(batch = feed.poll(cursor, 64)).isEmpty()) {
+            for (ChangeEvent event : batch) {
+                assertEquals(seen++, event.getSequence());
+            }
+        }
+        assertEquals(1001, seen);
+        feed.close();
+    }
+
+    @Test
+    public void resumesPersistedCursorAcrossRestarts() throws Exception {
+        File spill = folder.newFile("feed.log");
+        ChangeFeed feed = new ChangeFeed(8, spill.toPath());
+        for (int i = 1; i <= 600; i++) {
+            feed.publish(ChangeEvent.Kind.STOCK_CHANGED, i, "Lot " + i, i, "Medicine");
+        }
+        ChangeFeed.Cursor cursor = feed.cursorAt(1);
+        assertEquals(40, feed.poll(cursor, 40).size());
+        long persisted = cursor.getPosition();
+        feed.close();
+        try (FileOutputStream torn = new FileOutputStream(spill, true)) {
+            torn.write("601\t0\tSTOCK".getBytes(StandardCharsets.UTF_8));   // crash mid-line
+        }
+
+        ChangeFeed restarted = new ChangeFeed(8, spill.toPath());
+        assertEquals(600, restarted.getLastSequence());
+        assertEquals(601, restarted.publish(ChangeEvent.Kind.LOT_ADDED, 601, "Lot 601", 1, "Medicine"));
+        ChangeFeed.Cursor resumed = restarted.cursorAt(persisted);
+        long seen = persisted;
+        List<ChangeEvent> batch;
+        while (!(batch = restarted.poll(resumed, 100)).isEmpty()) {
+            for (ChangeEvent event : batch) {
+                assertEquals(seen, event.getSequence());
+                assertEquals(seen, event.getLotId());
+                seen++;
+            }
+        }
+        assertEquals(602, seen);
+        restarted.close();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void pollAfterCloseFails() throws Exception {
+        ChangeFeed feed = new ChangeFeed(4, folder.newFile("feed.log").toPath());
+        for (int i = 0; i < 10; i++) {
+            feed.publish(ChangeEvent.Kind.STOCK_CHANGED, i, "Lot", i, "Medicine");
+        }
+        feed.close();
+        feed.poll(feed.cursorAt(1), 5);
+    }
+}
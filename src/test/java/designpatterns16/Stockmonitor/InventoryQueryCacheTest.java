@@ -0,0 +1,89 @@
+package designpatterns16.Stockmonitor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import designpatterns16.design_patterns.composite.ProductCategory;
+import designpatterns16.design_patterns.composite.ProductLeaf;
+import designpatterns16.items.Medicine;
+import designpatterns16.items.Serum;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class InventoryQueryCacheTest {
+
+    @Test
+    public void invalidatesOnlyAffectedProductAndAncestors() {
+        Inventory inventory = new Inventory();
+        Medicine paracetamol = new Medicine("Paracetamol", "Painkiller", 5.50, "Tablet");
+        Serum saline = new Serum("Saline Solution", "IV Fluid", 15.00, 500.0);
+        ProductCategory root = inventory.getRootCategory();
+        ProductCategory medicines = new ProductCategory("Medicines");
+        ProductCategory painkillers = new ProductCategory("Painkillers");
+        ProductCategory serums = new ProductCategory("Serums");
+        root.add(medicines);
+        root.add(serums);
+        medicines.add(painkillers);
+        painkillers.add(new ProductLeaf(paracetamol));
+        serums.add(new ProductLeaf(saline));
+
+        StockItem paracetamolLot = new StockItem(paracetamol, 20, null);
+        inventory.addStock(paracetamolLot);
+        inventory.addStock(new StockItem(saline, 10, null));
+
+        InventoryQueryCache cache = new InventoryQueryCache(inventory, 100);
+        List<StockItem> serumsResult = cache.getStockByCategory("Serums");
+        cache.getStockByCategory("Medicines");
+        cache.getStockByCategory("Painkillers");
+        cache.getStockByProduct("Paracetamol");
+        assertEquals(4, cache.getMisses());
+        assertEquals(4, cache.size());
+
+        paracetamolLot.reduceStock(1);
+        // Paracetamol, Painkillers, Medicines and All Products are dropped, Serums stays
+        assertEquals(1, cache.size());
+        assertSame(serumsResult, cache.getStockByCategory("Serums"));
+        assertEquals(1, cache.getHits());
+
+        // Tree edits are noticed without any call to the cache
+        Medicine ibuprofen = new Medicine("Ibuprofen", "Painkiller", 8.75, "Capsule");
+        inventory.addStock(new StockItem(ibuprofen, 5));
+        cache.getStockByCategory("Painkillers");
+        painkillers.add(new ProductLeaf(ibuprofen));
+        assertEquals(2, cache.getStockByCategory("Painkillers").size());
+        assertEquals(6, cache.getMisses());
+        assertEquals(1.0 / 7, cache.getHitRate(), 0.0001);
+    }
+
+    @Test
+    public void dropsCategoryEntriesWhenTheRootIsReplaced() {
+        Inventory inventory = new Inventory();
+        Medicine aspirin = new Medicine("Aspirin", "Painkiller", 2.0, "Tablet");
+        inventory.addStock(new StockItem(aspirin, 10));
+        InventoryQueryCache cache = new InventoryQueryCache(inventory, 100);
+        assertEquals(0, cache.getStockByCategory("Painkillers").size());
+
+        ProductCategory root = new ProductCategory("All Products");
+        ProductCategory painkillers = new ProductCategory("Painkillers");
+        painkillers.add(new ProductLeaf(aspirin));
+        root.add(painkillers);
+        inventory.setRootCategory(root);
+        assertEquals(1, cache.getStockByCategory("Painkillers").size());
+        assertEquals(0, cache.getHits());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        Inventory inventory = new Inventory();
+        InventoryQueryCache cache = new InventoryQueryCache(inventory, 2);
+        cache.getStockByProduct("A");
+        cache.getStockByProduct("B");
+        cache.getStockByProduct("A");
+        cache.getStockByProduct("C");
+        assertEquals(1, cache.getEvictions());
+        cache.getStockByProduct("A");
+        assertEquals(2, cache.getHits());
+    }
+}
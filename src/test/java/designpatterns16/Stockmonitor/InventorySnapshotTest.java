@@ -0,0 +1,106 @@
+package designpatterns16.Stockmonitor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import designpatterns16.items.Medicine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+public class InventorySnapshotTest {
+
+    private final Medicine aspirin = new Medicine("Aspirin", "Painkiller", 2.0, "Tablet");
+
+    @Test
+    public void persistentMapMatchesTreeMapAndKeepsOldVersions() {
+        Random random = new Random(7);
+        TreeMap<Long, Integer> expected = new TreeMap<>();
+        PersistentLotMap<Integer> map = PersistentLotMap.empty();
+        List<PersistentLotMap<Integer>> versions = new ArrayList<>();
+        List<TreeMap<Long, Integer>> expectedVersions = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            long key = random.nextInt(5_000) + (i % 3 == 0 ? 1L << 40 : 0);
+            if (random.nextInt(3) == 0) {
+                map = map.remove(key);
+                expected.remove(key);
+            } else {
+                map = map.put(key, i);
+                expected.put(key, i);
+            }
+            if (i % 2_000 == 0) {
+                versions.add(map);
+                expectedVersions.add(new TreeMap<>(expected));
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        assertEquals(new ArrayList<>(expected.values()), map.values());
+        for (int v = 0; v < versions.size(); v++) {
+            assertEquals(new ArrayList<>(expectedVersions.get(v).values()), versions.get(v).values());
+        }
+        assertNull(map.get(-1));
+        assertNull(map.get(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void snapshotIsUnaffectedByLaterWrites() {
+        Inventory inventory = new Inventory();
+        StockItem lot = new StockItem(aspirin, 50);
+        inventory.addStock(lot);
+        InventorySnapshot before = inventory.snapshot();
+
+        inventory.dispense("Aspirin", 20);
+        inventory.addStock(new StockItem(aspirin, 5));
+
+        assertEquals(1, before.size());
+        assertEquals(50, before.getLot(lot.getLotId()).getStock());
+        InventorySnapshot after = inventory.snapshot();
+        assertEquals(2, after.size());
+        assertEquals(30, after.getLot(lot.getLotId()).getStock());
+        assertSame(after, inventory.snapshot());
+        assertTrue(after.getVersion() > before.getVersion());
+
+        inventory.removeStock(lot);
+        assertNull(inventory.snapshot().getLot(lot.getLotId()));
+        assertEquals(30, after.getLot(lot.getLotId()).getStock());
+    }
+
+    @Test
+    public void readersNeverSeeAPartialDispense() throws InterruptedException {
+        final Inventory inventory = new Inventory();
+        for (int i = 0; i < 10; i++) {
+            inventory.addStock(new StockItem(aspirin, 1_000));
+        }
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicReference<String> failure = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            while (!done.get()) {
+                InventorySnapshot snapshot = inventory.snapshot();
+                int total = 0;
+                for (LotView view : snapshot.getLots()) {
+                    total += view.getStock();
+                }
+                // every dispense takes 15 units across lots, so totals move in steps of 15
+                if ((10_000 - total) % 15 != 0) {
+                    failure.set("Torn read, total " + total);
+                }
+            }
+        });
+        reader.start();
+        for (int i = 0; i < 600; i++) {
+            inventory.dispense("Aspirin", 15);
+        }
+        done.set(true);
+        reader.join();
+        assertNull(failure.get());
+        assertEquals(10_000 - 600 * 15, (int) inventory.snapshot().getTotalValue() / 2);
+    }
+}
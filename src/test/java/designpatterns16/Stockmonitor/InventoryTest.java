@@ -0,0 +1,106 @@
+package designpatterns16.Stockmonitor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import designpatterns16.items.Medicine;
+
+import java.time.LocalDate;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class InventoryTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2026, 10, 19);
+
+    private Inventory inventory;
+    private StockItem expired;
+    private StockItem soon;
+    private StockItem later;
+    private StockItem undated;
+
+    @Before
+    public void setUp() {
+        inventory = new Inventory(DayClock.fixed(TODAY));
+        expired = lot(10, TODAY.minusDays(1));
+        later = lot(5, TODAY.plusDays(90));
+        undated = new StockItem(aspirin(), 5);
+        soon = lot(5, TODAY.plusDays(10));
+        for (StockItem lot : new StockItem[]{expired, later, undated, soon}) {
+            inventory.addStock(lot);
+        }
+    }
+
+    @Test
+    public void dispensesEarliestExpiryFirstAndUndatedLotsLast() {
+        inventory.dispense("Aspirin", 7);
+        assertEquals(0, soon.getStock());
+        assertEquals(3, later.getStock());
+        assertEquals(5, undated.getStock());
+
+        inventory.dispense("Aspirin", 5);
+        assertEquals(0, later.getStock());
+        assertEquals(3, undated.getStock());
+    }
+
+    @Test
+    public void neverDispensesExpiredLots() {
+        inventory.dispense("Aspirin", 15);
+        assertEquals(10, expired.getStock());
+        assertEquals(0, soon.getStock() + later.getStock() + undated.getStock());
+    }
+
+    @Test
+    public void expiredUnitsDoNotCountAsAvailable() {
+        try {
+            inventory.dispense("Aspirin", 16);   // 25 units in stock, 15 of them dispensable
+            fail("expected insufficient stock");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Insufficient stock!", e.getMessage());
+        }
+        assertEquals(5, soon.getStock());
+        assertEquals(10, expired.getStock());
+    }
+
+    @Test
+    public void onlyExpiredStockLeftIsInsufficient() {
+        Inventory stale = new Inventory(DayClock.fixed(TODAY));
+        stale.addStock(lot(10, TODAY.minusDays(30)));
+        try {
+            stale.dispense("Aspirin", 1);
+            fail("expected insufficient stock");
+        } catch (IllegalArgumentException e) {
+            assertEquals("Insufficient stock!", e.getMessage());
+        }
+    }
+
+    @Test
+    public void marksExcursionsOnlyOnItsOwnLots() {
+        long useBy = TODAY.plusDays(3).toEpochDay();
+        long version = inventory.snapshot().getVersion();
+        assertTrue(inventory.markExcursion(later, useBy));
+        assertTrue(later.hasTemperatureExcursion());
+        assertEquals(TODAY.plusDays(3), inventory.snapshot().getLot(later.getLotId()).getExpirationLocalDate());
+        assertEquals(version + 1, inventory.snapshot().getVersion());
+
+        StockItem foreign = lot(5, TODAY.plusDays(90));
+        assertFalse(inventory.markExcursion(foreign, useBy));
+        assertFalse(foreign.hasTemperatureExcursion());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownProducts() {
+        inventory.dispense("Ibuprofen", 1);
+    }
+
+    private static StockItem lot(int quantity, LocalDate expiry) {
+        return StockItem.withExpiry(aspirin(), quantity, expiry);
+    }
+
+    private static Medicine aspirin() {
+        return new Medicine("Aspirin", "Painkiller", 2.0, "Tablet");
+    }
+}
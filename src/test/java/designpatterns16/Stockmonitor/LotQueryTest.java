@@ -0,0 +1,119 @@
+package designpatterns16.Stockmonitor;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import designpatterns16.items.Consumable;
+import designpatterns16.items.Medicine;
+import designpatterns16.items.Serum;
+import designpatterns16.items.Vaccine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class LotQueryTest {
+
+    @Test
+    public void combinesHashAndRangePredicates() {
+        Inventory inventory = new Inventory();
+        StockItem cheapTablet = new StockItem(new Medicine("Amoxicillin", "Antibiotic", 8.0, "Tablet"), 10);
+        StockItem dearTablet = new StockItem(new Medicine("Azithromycin", "Antibiotic", 40.0, "Tablet"), 10);
+        StockItem capsule = new StockItem(new Medicine("Doxycycline", "Antibiotic", 6.0, "Capsule"), 10);
+        StockItem painkiller = new StockItem(new Medicine("Aspirin", "Painkiller", 2.0, "Tablet"), 10);
+        StockItem vaccine = new StockItem(new Vaccine("Flu Vaccine", "Vaccine", 30.0, 0.5), 10);
+        StockItem serum = new StockItem(new Serum("Saline", "Serum", 12.0, 500.0), 10);
+        for (StockItem lot : new StockItem[]{cheapTablet, dearTablet, capsule, painkiller, vaccine, serum}) {
+            inventory.addStock(lot);
+        }
+
+        List<StockItem> tabletAntibiotics = inventory.query()
+                .type("Antibiotic").drugForm("Tablet").priceBelow(20).list();
+        assertEquals(1, tabletAntibiotics.size());
+        assertTrue(tabletAntibiotics.contains(cheapTablet));
+
+        assertEquals(3, inventory.query().drugForm("Tablet").count());
+        assertEquals(1, inventory.query().dosageBetween(0.1, 1.0).count());
+        assertEquals(1, inventory.query().capacityBetween(500, 500).count());
+        assertEquals(2, inventory.query().priceBetween(8, 12).count());
+        assertEquals(0, inventory.query().type("Antibiotic").dosageBetween(0, 10).count());
+        assertEquals(6, inventory.query().count());
+
+        inventory.removeStock(cheapTablet);
+        assertEquals(0, inventory.query().type("Antibiotic").drugForm("Tablet").priceBelow(20).count());
+
+        ((Medicine) dearTablet.getProduct()).setPricePerUnit(15.0);
+        inventory.reindex(dearTablet);
+        assertEquals(1, inventory.query().type("Antibiotic").drugForm("Tablet").priceBelow(20).count());
+    }
+
+    @Test
+    public void matchesAFullScan() {
+        Random random = new Random(3);
+        Inventory inventory = new Inventory();
+        String[] types = {"Antibiotic", "Painkiller", "Antiviral"};
+        String[] forms = {"Tablet", "Capsule", "Syrup"};
+        List<StockItem> all = new ArrayList<>();
+        for (int i = 0; i < 3_000; i++) {
+            Consumable product = new Medicine("Drug " + i, types[random.nextInt(3)],
+                    (double) random.nextInt(100), forms[random.nextInt(3)]);
+            StockItem lot = new StockItem(product, 1);
+            inventory.addStock(lot);
+            all.add(lot);
+        }
+        for (int i = 0; i < all.size(); i += 7) {
+            inventory.removeStock(all.get(i));
+        }
+
+        List<Long> expected = new ArrayList<>();
+        for (StockItem lot : inventory.getAllStockItems()) {
+            Medicine medicine = (Medicine) lot.getProduct();
+            if (medicine.getType().equals("Painkiller") && medicine.getDrugForm().equals("Syrup")
+                    && medicine.getPricePerUnit() >= 10 && medicine.getPricePerUnit() <= 60) {
+                expected.add(lot.getLotId());
+            }
+        }
+        long[] ids = inventory.query().type("Painkiller").drugForm("Syrup").priceBetween(10, 60).ids();
+        long[] expectedIds = new long[expected.size()];
+        for (int i = 0; i < expectedIds.length; i++) {
+            expectedIds[i] = expected.get(i);
+        }
+        assertArrayEquals(expectedIds, ids);
+    }
+
+    @Test
+    public void probesLargePredicatesAndMergesRanges() {
+        Random random = new Random(5);
+        Inventory inventory = new Inventory();
+        for (int i = 0; i < 2_000; i++) {
+            String type = i % 100 == 0 ? "Antiviral" : "Painkiller";
+            inventory.addStock(new StockItem(new Medicine("Drug " + i, type, (double) random.nextInt(500), "Tablet"), 1));
+        }
+
+        // 20 antivirals against ~1900 lots in the price range: the range is probed, not materialized
+        long[] probed = inventory.query().type("Antiviral").priceBetween(5, 495).ids();
+        long[] merged = inventory.query().priceBetween(5, 495).ids();
+        List<Long> expected = new ArrayList<>();
+        List<Long> expectedRange = new ArrayList<>();
+        for (StockItem lot : inventory.getAllStockItems()) {
+            double price = lot.getProduct().getPricePerUnit();
+            if (price >= 5 && price <= 495) {
+                expectedRange.add(lot.getLotId());
+                if (lot.getType().equals("Antiviral")) {
+                    expected.add(lot.getLotId());
+                }
+            }
+        }
+        assertEquals(expected.size(), probed.length);
+        for (int i = 0; i < probed.length; i++) {
+            assertEquals((long) expected.get(i), probed[i]);
+        }
+        assertEquals(expectedRange.size(), merged.length);
+        for (int i = 0; i < merged.length; i++) {
+            assertEquals((long) expectedRange.get(i), merged[i]);
+        }
+    }
+}
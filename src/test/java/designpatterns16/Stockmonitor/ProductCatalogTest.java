@@ -0,0 +1,98 @@
+package designpatterns16.Stockmonitor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+
+import designpatterns16.design_patterns.composite.ProductCategory;
+import designpatterns16.design_patterns.composite.ProductLeaf;
+import designpatterns16.items.Medicine;
+import designpatterns16.items.Serum;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class ProductCatalogTest {
+
+    @Test
+    public void equalProductsShareOneIdAndInstance() {
+        ProductCatalog catalog = new ProductCatalog();
+        Medicine first = catalog.medicine(new String("Paracetamol"), "Painkiller", 5.5, new String("Tablet"));
+        Medicine second = catalog.medicine(new String("Paracetamol"), "Painkiller", 5.5, new String("Tablet"));
+        Medicine capsule = catalog.medicine("Paracetamol", "Painkiller", 5.5, "Capsule");
+        Serum saline = catalog.serum("Saline", "IV Fluid", 15.0, 500.0);
+
+        assertSame(first, second);
+        assertEquals(catalog.idOf(first), catalog.idOf(new Medicine("Paracetamol", "Painkiller", 5.5, "Tablet")));
+        assertNotEquals(catalog.idOf(first), catalog.idOf(capsule));
+        assertSame(first.getName(), capsule.getName());
+        assertSame(first.getType(), capsule.getType());
+        assertEquals(3, catalog.size());
+        assertSame(saline, catalog.get(catalog.idOf(saline)));
+        assertEquals(ProductCatalog.UNCATALOGUED, catalog.idOf(new Serum("Saline", "IV Fluid", 15.0, 250.0)));
+    }
+
+    @Test
+    public void atcCodeIsPartOfTheIdentity() {
+        ProductCatalog catalog = new ProductCatalog();
+        Medicine plain = new Medicine("Amoxicillin", "Antibiotic", 3.0, "Capsule");
+        Medicine coded = new Medicine("Amoxicillin", "Antibiotic", 3.0, "Capsule");
+        coded.setAtcCode("J01CA04");
+
+        assertNotEquals(catalog.intern(plain), catalog.intern(coded));
+        assertEquals("J01CA04", catalog.get(catalog.idOf(coded)).getAtcCode());
+    }
+
+    @Test
+    public void lotsAreBoundToTheCanonicalProduct() {
+        Inventory inventory = new Inventory();
+        StockItem first = new StockItem(new Medicine("Ibuprofen", "Painkiller", 8.75, "Capsule"), 10);
+        StockItem second = new StockItem(new Medicine("Ibuprofen", "Painkiller", 8.75, "Capsule"), 5);
+        assertEquals(ProductCatalog.UNCATALOGUED, first.getProductId());
+
+        inventory.addStock(first);
+        inventory.addStock(second);
+
+        assertEquals(first.getProductId(), second.getProductId());
+        assertSame(first.getProduct(), second.getProduct());
+        assertEquals(2, inventory.getStockByProductId(first.getProductId()).size());
+
+        inventory.removeStock(first);
+        assertEquals(Arrays.asList(second), inventory.getStockByProductId(second.getProductId()));
+    }
+
+    @Test
+    public void categoryLookupMatchesEqualProductsFromOtherInstances() {
+        Inventory inventory = new Inventory();
+        ProductCategory painkillers = new ProductCategory("Painkillers");
+        inventory.getRootCategory().add(painkillers);
+        // The leaf holds its own instance, never added to the inventory
+        painkillers.add(new ProductLeaf(new Medicine("Aspirin", "Painkiller", 2.0, "Tablet")));
+        painkillers.add(new ProductLeaf(new Medicine("Aspirin", "Painkiller", 2.0, "Tablet")));
+
+        StockItem lot1 = new StockItem(new Medicine("Aspirin", "Painkiller", 2.0, "Tablet"), 10);
+        StockItem lot2 = new StockItem(new Medicine("Aspirin", "Painkiller", 2.0, "Tablet"), 20);
+        StockItem other = new StockItem(new Medicine("Aspirin", "Painkiller", 2.0, "Syrup"), 30);
+        inventory.addStock(lot1);
+        inventory.addStock(lot2);
+        inventory.addStock(other);
+
+        List<StockItem> lots = inventory.getStockByCategory("Painkillers");
+        assertEquals(Arrays.asList(lot1, lot2), lots);
+    }
+
+    @Test
+    public void shardsAgreeOnProductIds() {
+        ShardedInventory sharded = new ShardedInventory(3);
+        StockItem atFirst = new StockItem(new Serum("Saline", "IV Fluid", 15.0, 500.0), 10);
+        StockItem atLast = new StockItem(new Serum("Saline", "IV Fluid", 15.0, 500.0), 10);
+        sharded.addStock("Shard 0", atFirst);
+        sharded.addStock("Shard 2", atLast);
+
+        assertEquals(atFirst.getProductId(), atLast.getProductId());
+        assertSame(atFirst.getProduct(), atLast.getProduct());
+        assertEquals(1, sharded.getCatalog().size());
+    }
+}
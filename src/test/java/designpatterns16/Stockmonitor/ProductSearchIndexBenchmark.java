@@ -0,0 +1,60 @@
+package designpatterns16.Stockmonitor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+//Average search latency over a large generated catalog, half prefix and half single-typo queries.
+//Not a surefire test; run the main method with the test classpath.
+//  args: products (default 300000)
+public class ProductSearchIndexBenchmark {
+
+    private static final String[] SYLLABLES = {"ba", "ce", "di", "fo", "gu", "la", "me", "ni", "ox", "pra",
+            "qui", "ro", "sil", "ta", "vek", "zo", "cil", "lin", "mab", "tin"};
+    private static final String[] FORMS = {"tablet", "capsule", "syrup", "injection", "cream"};
+
+    // e.g. "dimeox 250mg syrup"
+    static String randomName(Random random) {
+        StringBuilder stem = new StringBuilder();
+        for (int s = 3 + random.nextInt(3); s > 0; s--) {
+            stem.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+        }
+        return stem + " " + 5 * (1 + random.nextInt(200)) + "mg " + FORMS[random.nextInt(FORMS.length)];
+    }
+
+    public static void main(String[] args) {
+        int productCount = args.length > 0 ? Integer.parseInt(args[0]) : 300_000;
+        Random random = new Random(1);
+        ProductSearchIndex index = new ProductSearchIndex();
+        List<String> stems = new ArrayList<>();
+        long buildStart = System.nanoTime();
+        for (int i = 0; i < productCount; i++) {
+            String name = randomName(random);
+            stems.add(name.substring(0, name.indexOf(' ')));
+            index.addProduct(name);
+        }
+        long buildMillis = (System.nanoTime() - buildStart) / 1_000_000;
+
+        String[] queries = new String[20];
+        for (int i = 0; i < queries.length; i++) {
+            char[] stem = stems.get(random.nextInt(stems.size())).toCharArray();
+            int typo = 1 + random.nextInt(stem.length - 1);
+            stem[typo] = stem[typo - 1];
+            queries[i] = i % 2 == 0 ? new String(stem) : new String(stem, 0, Math.min(5, typo));
+        }
+        for (int warmup = 0; warmup < 50; warmup++) {
+            for (String query : queries) {
+                index.search(query, 10);
+            }
+        }
+        int rounds = 50;
+        long start = System.nanoTime();
+        for (int round = 0; round < rounds; round++) {
+            for (String query : queries) {
+                index.search(query, 10);
+            }
+        }
+        double micros = (System.nanoTime() - start) / 1000.0 / (rounds * queries.length);
+        System.out.printf("%d products indexed in %d ms, average search %.1f us%n", productCount, buildMillis, micros);
+    }
+}
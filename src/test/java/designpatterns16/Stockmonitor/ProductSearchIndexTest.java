@@ -0,0 +1,102 @@
+package designpatterns16.Stockmonitor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import designpatterns16.items.Medicine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class ProductSearchIndexTest {
+
+    private static List<String> names(List<ProductSearchIndex.Hit> hits) {
+        List<String> names = new ArrayList<>();
+        for (ProductSearchIndex.Hit hit : hits) {
+            names.add(hit.getName());
+        }
+        return names;
+    }
+
+    @Test
+    public void ranksExactPrefixWordAndFuzzyMatches() {
+        ProductSearchIndex index = new ProductSearchIndex();
+        index.addProduct("Amoxicillin 500mg");
+        index.addProduct("Amoxicillin 250mg Syrup");
+        index.addProduct("Amoxicillin");
+        index.addProduct("Co-Amoxiclav");
+        index.addProduct("Paracetamol");
+
+        List<ProductSearchIndex.Hit> hits = index.search("amoxicillin", 10);
+        assertEquals(ProductSearchIndex.MatchKind.EXACT, hits.get(0).getKind());
+        assertEquals("Amoxicillin", hits.get(0).getName());
+        assertEquals("Amoxicillin 500mg", hits.get(1).getName());
+
+        assertEquals(names(index.search("AMOXICILLIN 5", 10)).get(0), "Amoxicillin 500mg");
+        assertTrue(names(index.search("amoxiclav", 10)).contains("Co-Amoxiclav"));
+
+        List<ProductSearchIndex.Hit> typo = index.search("paracetmol", 10);
+        assertEquals(1, typo.size());
+        assertEquals("Paracetamol", typo.get(0).getName());
+        assertEquals(1, typo.get(0).getDistance());
+
+        List<ProductSearchIndex.Hit> typoPrefix = index.search("amoxicilin 5", 10);
+        assertEquals("Amoxicillin 500mg", typoPrefix.get(0).getName());
+        assertTrue(index.search("xyzzy", 10).isEmpty());
+    }
+
+    @Test
+    public void followsInventoryIncrementally() {
+        Inventory inventory = new Inventory();
+        ProductSearchIndex index = new ProductSearchIndex();
+        inventory.addListener(index);
+        Medicine ibuprofen = new Medicine("Ibuprofen 400mg", "Painkiller", 3.0, "Tablet");
+        StockItem first = new StockItem(ibuprofen, 10);
+        StockItem second = new StockItem(ibuprofen, 10);
+        inventory.addStock(first);
+        inventory.addStock(second);
+        assertEquals(1, index.size());
+
+        inventory.removeStock(first);
+        assertEquals(names(index.search("ibu", 5)).get(0), "Ibuprofen 400mg");
+        inventory.removeStock(second);
+        assertEquals(0, index.size());
+        assertTrue(index.search("ibu", 5).isEmpty());
+    }
+
+    @Test
+    public void findsGeneratedNamesByPrefixAndTypo() {
+        Random random = new Random(1);
+        ProductSearchIndex index = new ProductSearchIndex();
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            String name = ProductSearchIndexBenchmark.randomName(random);
+            names.add(name);
+            index.addProduct(name);
+        }
+        for (int i = 0; i < 50; i++) {
+            String name = names.get(random.nextInt(names.size()));
+            String stem = name.substring(0, name.indexOf(' '));
+            List<String> exact = names(index.search(name, 10));
+            assertEquals(name, exact.get(0));
+
+            char[] typo = stem.toCharArray();
+            int at = 1 + random.nextInt(typo.length - 1);
+            typo[at] = typo[at] == 'x' ? 'y' : 'x';
+            assertTrue(stem + " from " + new String(typo), containsStem(index.search(new String(typo), 2_000), stem));
+            assertTrue(containsStem(index.search(stem.substring(0, at), 2_000), stem));
+        }
+    }
+
+    private static boolean containsStem(List<ProductSearchIndex.Hit> hits, String stem) {
+        for (ProductSearchIndex.Hit hit : hits) {
+            if (hit.getName().startsWith(stem + " ")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
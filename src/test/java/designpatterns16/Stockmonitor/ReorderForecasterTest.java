@@ -0,0 +1,44 @@
+package designpatterns16.Stockmonitor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import designpatterns16.items.Medicine;
+
+import org.junit.Test;
+
+public class ReorderForecasterTest {
+
+    private static final long DAY = 24L * 60 * 60 * 1000;
+
+    @Test
+    public void learnsSteadyRateAndRaisesReorderOnce() {
+        final long[] now = {0};
+        ReorderForecaster forecaster = new ReorderForecaster(() -> now[0], 7, 5, 1.65);
+        Inventory inventory = new Inventory();
+        inventory.addListener(forecaster);
+        StockItem lot = new StockItem(new Medicine("Paracetamol", "Painkiller", 5.50, "Tablet"), 1000, null);
+        inventory.addStock(lot);
+
+        // 20 units per day, dispensed every hour
+        for (int hour = 1; hour <= 24 * 30; hour++) {
+            now[0] = hour * DAY / 24;
+            if (hour % 6 == 0) {
+                lot.reduceStock(5);
+            }
+        }
+        assertEquals(20.0, forecaster.getDailyRate("Paracetamol"), 1.0);
+        // 5 days lead time: ~100 units + safety stock of ~16
+        assertEquals(116.0, forecaster.getReorderPoint("Paracetamol"), 8.0);
+        assertEquals(1000 - 600, forecaster.getOnHand("Paracetamol"));
+        assertFalse(forecaster.getProductsToReorder().contains("Paracetamol"));
+
+        lot.reduceStock(290);
+        assertTrue(forecaster.getProductsToReorder().contains("Paracetamol"));
+        assertTrue(forecaster.getDaysOfCover("Paracetamol") < 5);
+
+        lot.increaseStock(500);
+        assertFalse(forecaster.getProductsToReorder().contains("Paracetamol"));
+    }
+}
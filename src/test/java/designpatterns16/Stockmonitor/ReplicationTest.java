@@ -0,0 +1,87 @@
+package designpatterns16.Stockmonitor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import designpatterns16.items.Medicine;
+import designpatterns16.items.Serum;
+import designpatterns16.items.Vaccine;
+
+import java.time.LocalDate;
+
+import org.junit.Test;
+
+public class ReplicationTest {
+
+    @Test
+    public void replicaReceivesSnapshotAndStream() throws Exception {
+        Inventory primary = new Inventory();
+        StockItem paracetamol = new StockItem(new Medicine("Paracetamol", "Painkiller", 5.50, "Tablet"), 20, null);
+        primary.addStock(paracetamol);
+
+        try (ReplicationPrimary replication = new ReplicationPrimary(primary, 0);
+             InventoryReplica replica = new InventoryReplica(replication.getPort())) {
+            // snapshot: RESET + one lot
+            assertTrue(replica.awaitApplied(2, 5000));
+            assertEquals(1, replica.getStockByProduct("Paracetamol").size());
+
+            StockItem vaccine = StockItem.withExpiry(new Vaccine("COVID-19 Vaccine", "Vaccine", 25.00, 0.5), 40, LocalDate.of(2030, 1, 1));
+            vaccine.setLotCode("AB12345");
+            primary.addStock(vaccine);
+            paracetamol.reduceStock(5);
+            vaccine.increaseStock(10);
+            primary.removeStock(paracetamol);
+
+            assertTrue(replica.awaitApplied(6, 5000));
+            assertEquals(0, replica.getStockByProduct("Paracetamol").size());
+            LotView replicated = replica.getStockByProduct("COVID-19 Vaccine").get(0);
+            assertEquals(vaccine.getLotId(), replicated.getLotId());
+            assertEquals(50, replicated.getStock());
+            assertEquals(LocalDate.of(2030, 1, 1), replicated.getExpirationLocalDate());
+            assertEquals("AB12345", replicated.getLotCode());
+            assertEquals("AB12345", replica.snapshot().getLot(vaccine.getLotId()).getLotCode());
+            assertEquals(50 * 25.00, replica.getTotalValue(), 0.001);
+            assertEquals(1, replica.snapshot().size());
+            InventoryReport report = replica.generateReport(new ReportEngine());
+            assertEquals(50, report.getTotal().getUnits());
+        }
+    }
+
+    @Test
+    public void replicatesColdChainExcursions() throws Exception {
+        Inventory primary = new Inventory();
+        LocalDate today = DayClock.SYSTEM.today();
+        StockItem insulin = StockItem.withExpiry(new Serum("Insulin", "Hormone", 12.0, 10.0), 30, today.plusDays(200));
+        StockItem flu = StockItem.withExpiry(new Vaccine("Flu Vaccine", "Vaccine", 30.0, 0.5), 10, today.plusDays(300));
+        primary.addStock(insulin);
+        primary.addStock(flu);
+        primary.markExcursion(flu, today.plusDays(5).toEpochDay());   // shipped in the snapshot
+
+        try (ReplicationPrimary replication = new ReplicationPrimary(primary, 0);
+             InventoryReplica replica = new InventoryReplica(replication.getPort())) {
+            assertTrue(replica.awaitApplied(3, 5000));
+            primary.markExcursion(insulin, today.plusDays(2).toEpochDay());   // shipped in the stream
+            assertTrue(replica.awaitApplied(4, 5000));
+
+            LotView replicated = replica.snapshot().getLot(insulin.getLotId());
+            assertEquals(today.plusDays(2), replicated.getExpirationLocalDate());
+            assertEquals(today.plusDays(5), replica.snapshot().getLot(flu.getLotId()).getExpirationLocalDate());
+            assertEquals(2, replica.getAllStockItems().size());
+            InventoryReport report = replica.generateReport(new ReportEngine());
+            assertEquals(2, report.getExpiringLots().size());
+        }
+    }
+
+    @Test
+    public void closedPrimaryStopsCapturing() throws Exception {
+        Inventory primary = new Inventory();
+        StockItem aspirin = new StockItem(new Medicine("Aspirin", "Painkiller", 2.0, "Tablet"), 20);
+        primary.addStock(aspirin);
+        ReplicationPrimary replication = new ReplicationPrimary(primary, 0);
+        replication.close();
+
+        aspirin.reduceStock(1);
+        primary.addStock(new StockItem(new Medicine("Aspirin", "Painkiller", 2.0, "Tablet"), 5));
+        assertEquals(0, replication.getPendingRecords());
+    }
+}
@@ -0,0 +1,137 @@
+package designpatterns16.Stockmonitor;
+
+import static org.junit.Assert.assertEquals;
+
+import designpatterns16.design_patterns.composite.ProductCategory;
+import designpatterns16.design_patterns.composite.ProductLeaf;
+import designpatterns16.items.Medicine;
+import designpatterns16.items.Vaccine;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Test;
+
+public class ReportEngineTest {
+
+    private final Medicine aspirin = new Medicine("Aspirin", "Painkiller", 2.0, "Tablet");
+    private final Medicine amoxicillin = new Medicine("Amoxicillin", "Antibiotic", 10.0, "Capsule");
+    private final Vaccine flu = new Vaccine("Flu Vaccine", "Vaccine", 30.0, 0.5);
+
+    private Inventory sampleInventory() {
+        Inventory inventory = new Inventory(DayClock.fixed(LocalDate.of(2025, 1, 1)));
+        ProductCategory root = inventory.getRootCategory();
+        ProductCategory medicines = new ProductCategory("Medicines");
+        medicines.add(new ProductLeaf(aspirin));
+        medicines.add(new ProductLeaf(amoxicillin));
+        root.add(medicines);
+        ProductCategory vaccines = new ProductCategory("Vaccines");
+        vaccines.add(new ProductLeaf(flu));
+        root.add(vaccines);
+
+        inventory.addStock(StockItem.withExpiry(aspirin, 100, LocalDate.of(2025, 1, 20)));   // expiring
+        inventory.addStock(new StockItem(aspirin, 5));                                // critical
+        inventory.addStock(StockItem.withExpiry(amoxicillin, 40, LocalDate.of(2026, 1, 1)));
+        inventory.addStock(StockItem.withExpiry(flu, 8, LocalDate.of(2024, 12, 1)));         // both, expired
+        return inventory;
+    }
+
+    @Test
+    public void computesAllReportsInOnePass() {
+        InventoryReport report = new ReportEngine().generate(sampleInventory());
+
+        assertEquals(4, report.getTotal().getLots());
+        assertEquals(153, report.getTotal().getUnits());
+        assertEquals(210 + 400 + 240, report.getTotal().getValue(), 1e-9);
+        assertEquals(2, report.getCriticalLots().size());
+        assertEquals(5, report.getCriticalLots().get(0).getStock());
+        assertEquals(2, report.getExpiringLots().size());
+        assertEquals("Aspirin", report.getExpiringLots().get(0).getName());
+
+        assertEquals(105, report.getByType().get("Painkiller").getUnits());
+        assertEquals(1, report.getByType().get("Antibiotic").getLots());
+        assertEquals(153, report.getByCategory().get("All Products").getUnits());
+        assertEquals(145, report.getByCategory().get("Medicines").getUnits());
+        assertEquals(240, report.getByCategory().get("Vaccines").getValue(), 1e-9);
+    }
+
+    @Test
+    public void parallelSplitMatchesSequentialPass() {
+        DayClock clock = DayClock.fixed(LocalDate.of(2025, 1, 1));
+        Inventory inventory = new Inventory(clock);
+        inventory.getRootCategory().add(new ProductLeaf(aspirin));
+        for (int i = 0; i < 5_000; i++) {
+            inventory.addStock(StockItem.withExpiry(i % 2 == 0 ? aspirin : flu, i % 50,
+                    LocalDate.of(2025, 1, 1).plusDays(i % 90)));
+        }
+        InventorySnapshot snapshot = inventory.snapshot();
+        InventoryReport sequential = new ReportEngine(10, 30, Integer.MAX_VALUE, ForkJoinPool.commonPool())
+                .generate(snapshot, inventory.getRootCategory(), inventory.getCatalog(), clock);
+        InventoryReport parallel = new ReportEngine(10, 30, 64, new ForkJoinPool(4))
+                .generate(snapshot, inventory.getRootCategory(), inventory.getCatalog(), clock);
+
+        assertEquals(sequential.getTotal().getUnits(), parallel.getTotal().getUnits());
+        assertEquals(ids(sequential.getCriticalLots()), ids(parallel.getCriticalLots()));
+        assertEquals(ids(sequential.getExpiringLots()), ids(parallel.getExpiringLots()));
+        assertEquals(sequential.getByType().get("Vaccine").getUnits(), parallel.getByType().get("Vaccine").getUnits());
+        assertEquals(sequential.getByCategory().get("All Products").getLots(),
+                parallel.getByCategory().get("All Products").getLots());
+        assertEquals(2_500, parallel.getByCategory().get("All Products").getLots());
+    }
+
+    @Test
+    public void sameNamedCategoriesKeepSeparateTotals() {
+        Inventory inventory = new Inventory(DayClock.fixed(LocalDate.of(2025, 1, 1)));
+        ProductCategory medicinesOther = new ProductCategory("Other");
+        medicinesOther.add(new ProductLeaf(aspirin));
+        ProductCategory medicines = new ProductCategory("Medicines");
+        medicines.add(medicinesOther);
+        ProductCategory vaccinesOther = new ProductCategory("Other");
+        vaccinesOther.add(new ProductLeaf(flu));
+        ProductCategory vaccines = new ProductCategory("Vaccines");
+        vaccines.add(vaccinesOther);
+        inventory.getRootCategory().add(medicines);
+        inventory.getRootCategory().add(vaccines);
+        inventory.addStock(new StockItem(aspirin, 100));
+        inventory.addStock(new StockItem(flu, 8));
+        inventory.addStock(new StockItem(amoxicillin, 40));
+
+        ReportEngine engine = new ReportEngine();
+        InventoryReport report = engine.generate(inventory);
+        assertEquals(100, report.getCategoryTotals(medicinesOther).getUnits());
+        assertEquals(8, report.getCategoryTotals(vaccinesOther).getUnits());
+        assertEquals(100, report.getByCategory().get("All Products/Medicines/Other").getUnits());
+        assertEquals(8, report.getByCategory().get("All Products/Vaccines/Other").getUnits());
+        assertEquals(100, report.getByCategory().get("Medicines").getUnits());
+
+        // the cached index follows later edits of the tree
+        medicinesOther.add(new ProductLeaf(amoxicillin));
+        report = engine.generate(inventory);
+        assertEquals(140, report.getCategoryTotals(medicinesOther).getUnits());
+        assertEquals(148, report.getByCategory().get("All Products").getUnits());
+    }
+
+    @Test
+    public void leavesMatchLotsHoldingAnEqualProductInstance() {
+        Inventory inventory = new Inventory(DayClock.fixed(LocalDate.of(2025, 1, 1)));
+        inventory.addStock(new StockItem(new Medicine("Aspirin", "Painkiller", 2.0, "Tablet"), 7));
+        ProductCategory painkillers = new ProductCategory("Painkillers");
+        painkillers.add(new ProductLeaf(new Medicine("Aspirin", "Painkiller", 2.0, "Tablet")));
+        inventory.getRootCategory().add(painkillers);
+
+        InventoryReport report = new ReportEngine().generate(inventory);
+        assertEquals(inventory.getStockByCategory("Painkillers").size(),
+                report.getByCategory().get("Painkillers").getLots());
+        assertEquals(7, report.getCategoryTotals(painkillers).getUnits());
+    }
+
+    private static List<Long> ids(List<LotView> lots) {
+        List<Long> ids = new ArrayList<>();
+        for (LotView lot : lots) {
+            ids.add(lot.getLotId());
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,174 @@
+package designpatterns16.Stockmonitor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import designpatterns16.alerts.AlertSink;
+import designpatterns16.alerts.AlertSinks;
+import designpatterns16.items.Medicine;
+import designpatterns16.items.Vaccine;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ScanIngestorTest {
+
+    private static final String GS = "\u001d";
+    private static final DayClock TODAY = DayClock.fixed(LocalDate.of(2026, 10, 19));
+
+    private AlertSink previousSink;
+
+    @Before
+    public void setUp() {
+        previousSink = AlertSinks.get();
+        AlertSinks.set(new AlertSink() {
+            @Override
+            public void emit(String message) {
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+    }
+
+    @After
+    public void tearDown() {
+        AlertSinks.set(previousSink);
+    }
+
+    // Appends the mod-10 check digit to 13 digits
+    private static String gtin(String thirteenDigits) {
+        int sum = 0;
+        for (int i = 0; i < 13; i++) {
+            sum += (thirteenDigits.charAt(12 - i) - '0') * (i % 2 == 0 ? 3 : 1);
+        }
+        return thirteenDigits + (10 - sum % 10) % 10;
+    }
+
+    private static ByteBuffer bytes(String text) {
+        return ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static boolean parse(String code, Gs1Scan scan) {
+        ByteBuffer buffer = bytes(code);
+        return Gs1Parser.parse(buffer, 0, buffer.limit(), scan, TODAY.todayEpochDay());
+    }
+
+    @Test
+    public void parsesElementStrings() {
+        String gtin = gtin("0950110153000");
+        Gs1Scan scan = new Gs1Scan();
+
+        assertTrue(parse("]d201" + gtin + "17270500" + "10AB-123" + GS + "210042", scan));
+        assertEquals(Long.parseLong(gtin), scan.getGtin());
+        assertEquals(LocalDate.of(2027, 5, 31).toEpochDay(), scan.getExpiryEpochDay());
+        assertEquals("AB-123", scan.getLotCode());
+        assertEquals("0042", scan.getSerial());
+
+        // AI order is free, unknown AIs are skipped (11 fixed length, 240 FNC1 terminated)
+        assertTrue(parse("21X9" + GS + "11250101" + "240ABC" + GS + "01" + gtin, scan));
+        assertEquals(Long.parseLong(gtin), scan.getGtin());
+        assertEquals(ExpiryDates.NO_EXPIRY, scan.getExpiryEpochDay());
+        assertNull(scan.getLotCode());
+        assertEquals("X9", scan.getSerial());
+
+        // Century window: 99 is 1999 in 2026, a leap day only where it exists
+        assertTrue(parse("01" + gtin + "17990101", scan));
+        assertEquals(LocalDate.of(1999, 1, 1).toEpochDay(), scan.getExpiryEpochDay());
+        assertTrue(parse("01" + gtin + "17280229", scan));
+        assertFalse(parse("01" + gtin + "17270229", scan));
+
+        String badCheck = gtin.substring(0, 13) + (char) ('0' + (gtin.charAt(13) - '0' + 1) % 10);
+        assertFalse(parse("01" + badCheck, scan));
+        assertFalse(parse("10LOT", scan));
+        assertFalse(parse("01" + gtin + "1", scan));
+        assertFalse(parse("01" + gtin + "10" + "123456789012345678901", scan));
+    }
+
+    @Test
+    public void tallysScansIntoLots() {
+        Inventory inventory = new Inventory(TODAY);
+        ScanIngestor ingestor = new ScanIngestor(inventory);
+        String flu = gtin("0860000000001");
+        String aspirin = gtin("0860000000002");
+        ingestor.registerGtin(flu, new Vaccine("Flu Vaccine", "Vaccine", 30.0, 0.5));
+        ingestor.registerGtin(aspirin, new Medicine("Aspirin", "Painkiller", 2.0, "Tablet"));
+
+        StringBuilder batch = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            batch.append("01").append(flu).append("17270101").append("10LOT-A").append(GS)
+                    .append("21").append(i).append("\r\n");
+        }
+        for (int i = 0; i < 200; i++) {
+            batch.append("01").append(flu).append("17270101").append("10LOT-B\n");
+        }
+        batch.append("01").append(aspirin).append('\n');
+        batch.append("01").append(gtin("0860000000099")).append('\n');    // unknown GTIN
+        batch.append("garbage\n");
+        long versionBefore = inventory.snapshot().getVersion();
+
+        assertEquals(701, ingestor.ingest(bytes(batch.toString())));
+        assertEquals(2, ingestor.getRejectedCount());
+        assertEquals(versionBefore + 1, inventory.snapshot().getVersion());
+
+        List<StockItem> fluLots = inventory.getStockByProduct("Flu Vaccine");
+        assertEquals(2, fluLots.size());
+        assertEquals("LOT-A", fluLots.get(0).getLotCode());
+        assertEquals(500, fluLots.get(0).getStock());
+        assertEquals(LocalDate.of(2027, 1, 1), fluLots.get(0).getExpirationLocalDate());
+        assertEquals(200, fluLots.get(1).getStock());
+        assertEquals(1, inventory.getStockByProduct("Aspirin").get(0).getStock());
+
+        // The next batch adds to the open lot; a removed lot is replaced by a new one
+        ingestor.ingest(bytes("01" + flu + "17270101" + "10LOT-A\n"));
+        assertEquals(501, fluLots.get(0).getStock());
+        inventory.removeStock(fluLots.get(1));
+        ingestor.ingest(bytes("01" + flu + "17270101" + "10LOT-B\n"));
+        List<StockItem> after = inventory.getStockByProduct("Flu Vaccine");
+        assertEquals(2, after.size());
+        assertEquals(1, after.get(1).getStock());
+    }
+
+    @Test
+    public void parsingDoesNotAllocate() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        Assume.assumeTrue(allocations.isThreadAllocatedMemorySupported());
+
+        ByteBuffer code = ByteBuffer.allocateDirect(64);
+        code.put(("01" + gtin("0950110153000") + "17270531" + "10AB-123" + GS + "210042")
+                .getBytes(StandardCharsets.US_ASCII));
+        code.flip();
+        Gs1Scan scan = new Gs1Scan();
+        for (int i = 0; i < 100_000; i++) {
+            Gs1Parser.parse(code, 0, code.limit(), scan);   // warm up
+        }
+        long thread = Thread.currentThread().getId();
+        long before = allocations.getThreadAllocatedBytes(thread);
+        long parsed = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (Gs1Parser.parse(code, 0, code.limit(), scan)) {
+                parsed++;
+            }
+        }
+        long allocated = allocations.getThreadAllocatedBytes(thread) - before;
+        assertEquals(100_000, parsed);
+        assertTrue("allocated " + allocated + " bytes", allocated < 4096);
+    }
+}
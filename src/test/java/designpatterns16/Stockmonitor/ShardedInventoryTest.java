@@ -0,0 +1,57 @@
+package designpatterns16.Stockmonitor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import designpatterns16.design_patterns.composite.ProductCategory;
+import designpatterns16.design_patterns.composite.ProductLeaf;
+import designpatterns16.items.Medicine;
+import designpatterns16.items.Serum;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class ShardedInventoryTest {
+
+    @Test
+    public void productHashRoutingKeepsProductOnOneShard() {
+        ShardedInventory sharded = new ShardedInventory(4);
+        Medicine paracetamol = new Medicine("Paracetamol", "Painkiller", 5.50, "Tablet");
+        StockItem first = new StockItem(paracetamol, 20, null);
+        StockItem second = new StockItem(paracetamol, 5, null);
+        sharded.addStock(first);
+        sharded.addStock(second);
+
+        Inventory shard = sharded.shardForProduct("Paracetamol");
+        assertEquals(2, shard.getStockByProduct("Paracetamol").size());
+        assertEquals(2, sharded.getStockByProduct("Paracetamol").size());
+    }
+
+    @Test
+    public void queriesFanOutAcrossSites() {
+        ShardedInventory sharded = new ShardedInventory(Arrays.asList("Ankara", "Izmir"));
+        Medicine ibuprofen = new Medicine("Ibuprofen", "Painkiller", 8.75, "Capsule");
+        Serum saline = new Serum("Saline Solution", "IV Fluid", 15.00, 500.0);
+
+        ProductCategory root = new ProductCategory("All Products");
+        ProductCategory painkillers = new ProductCategory("Painkillers");
+        root.add(painkillers);
+        painkillers.add(new ProductLeaf(ibuprofen));
+        sharded.setRootCategory(root);
+
+        sharded.addStock("Ankara", new StockItem(ibuprofen, 10, null));
+        sharded.addStock("Izmir", new StockItem(ibuprofen, 7, null));
+        StockItem salineLot = new StockItem(saline, 3, null);
+        sharded.addStock("Izmir", salineLot);
+
+        assertEquals(2, sharded.getStockByProduct("Ibuprofen").size());
+        assertEquals(2, sharded.getStockByCategory("Painkillers").size());
+        assertEquals(3, sharded.getAllStockItems().size());
+        assertEquals(17 * 8.75 + 3 * 15.00, sharded.getTotalValue(), 0.001);
+
+        sharded.removeStock(salineLot);
+        assertEquals(0, sharded.getShard("Izmir").getStockByProduct("Saline Solution").size());
+        assertSame(sharded.getShards().get(1), sharded.getShard("Izmir"));
+    }
+}
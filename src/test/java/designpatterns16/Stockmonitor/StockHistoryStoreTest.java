@@ -0,0 +1,55 @@
+package designpatterns16.Stockmonitor;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import designpatterns16.items.Medicine;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+
+import org.junit.Test;
+
+public class StockHistoryStoreTest {
+
+    private static final long DAY = 24L * 60 * 60 * 1000;
+
+    @Test
+    public void answersDailyConsumptionFromEncodedBlocks() {
+        final long[] now = {LocalDate.of(2024, 1, 1).toEpochDay() * DAY};
+        StockHistoryStore history = new StockHistoryStore(() -> now[0], ZoneOffset.UTC);
+        Inventory inventory = new Inventory();
+        inventory.addListener(history);
+
+        StockItem paracetamol = new StockItem(new Medicine("Paracetamol", "Painkiller", 5.50, "Tablet"), 10000, null);
+        StockItem ibuprofen = new StockItem(new Medicine("Ibuprofen", "Painkiller", 8.75, "Capsule"), 100, null);
+        inventory.addStock(paracetamol);
+        inventory.addStock(ibuprofen);
+
+        // 90 days, day d dispenses d+10 units in ten hourly steps
+        for (int d = 0; d < 90; d++) {
+            for (int step = 0; step < 10; step++) {
+                now[0] = LocalDate.of(2024, 1, 1).plusDays(d).toEpochDay() * DAY + step * 3_600_000L;
+                if (step == 0) {
+                    paracetamol.reduceStock(d + 1);
+                } else {
+                    paracetamol.reduceStock(1);
+                }
+            }
+        }
+        ibuprofen.reduceStock(7);
+        paracetamol.increaseStock(50);
+
+        long[] perDay = history.dispensedPerDay("Paracetamol", LocalDate.of(2024, 1, 1), 90);
+        for (int d = 0; d < 90; d++) {
+            assertEquals(d + 10, perDay[d]);
+        }
+        assertArrayEquals(new long[]{12, 13}, history.dispensedPerDay("Paracetamol", LocalDate.of(2024, 1, 3), 2));
+        assertEquals(10000 + 50, history.receivedPerDay("Paracetamol", LocalDate.of(2024, 1, 1), 90)[0]
+                + history.receivedPerDay("Paracetamol", LocalDate.of(2024, 3, 30), 1)[0]);
+        assertEquals(7, history.lotDispensedPerDay(ibuprofen.getLotId(), LocalDate.of(2024, 3, 29), 2)[1]);
+        assertEquals(12, history.dispensedBetween("Paracetamol", 2 * DAY + LocalDate.of(2024, 1, 1).toEpochDay() * DAY,
+                3 * DAY + LocalDate.of(2024, 1, 1).toEpochDay() * DAY));
+        assertEquals(4, history.getBlockCount("Paracetamol"));
+    }
+}
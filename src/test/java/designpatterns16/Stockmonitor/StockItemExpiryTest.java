@@ -0,0 +1,44 @@
+package designpatterns16.Stockmonitor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import designpatterns16.items.Vaccine;
+
+import java.time.LocalDate;
+import java.util.Date;
+
+import org.junit.Test;
+
+public class StockItemExpiryTest {
+
+    private final Vaccine vaccine = new Vaccine("COVID-19 Vaccine", "Vaccine", 25.00, 0.5);
+
+    @Test
+    public void computesDaysLeftFromEpochDays() {
+        DayClock before = DayClock.fixed(LocalDate.of(2024, 2, 27));
+        StockItem lot = StockItem.withExpiry(vaccine, 10, LocalDate.of(2024, 3, 1));
+        assertEquals(3, lot.daysUntilExpiry(before));   // leap day included
+        assertFalse(lot.isExpired(before));
+
+        DayClock after = DayClock.fixed(LocalDate.of(2024, 3, 2));
+        assertEquals(-1, lot.daysUntilExpiry(after));
+        assertTrue(lot.isExpired(after));
+    }
+
+    @Test
+    public void adaptsLegacyDates() {
+        Date legacy = ExpiryDates.toDate(LocalDate.of(2030, 6, 15).toEpochDay());
+        StockItem lot = new StockItem(vaccine, 10, legacy);
+        assertEquals(LocalDate.of(2030, 6, 15), lot.getExpirationLocalDate());
+        assertEquals(legacy, lot.getExpirationDate());
+
+        StockItem undated = new StockItem(vaccine, 10);
+        assertFalse(undated.hasExpiration());
+        assertNull(undated.getExpirationDate());
+        assertEquals(Long.MAX_VALUE, undated.daysUntilExpiry());
+        assertFalse(undated.isExpired());
+    }
+}
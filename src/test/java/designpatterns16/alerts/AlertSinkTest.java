@@ -0,0 +1,122 @@
+package designpatterns16.alerts;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import designpatterns16.Stockmonitor.CriticalStockObserver;
+import designpatterns16.Stockmonitor.StockItem;
+import designpatterns16.items.Device;
+import designpatterns16.items.Medicine;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class AlertSinkTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private AlertSink previous;
+
+    @After
+    public void restoreSink() {
+        if (previous != null) {
+            AlertSinks.set(previous);
+        }
+    }
+
+    @Test
+    public void observersAndDeviceStatesWriteThroughTheSink() {
+        RingBufferAlertSink ring = new RingBufferAlertSink(16);
+        AsyncAlertSink async = new AsyncAlertSink(ring);
+        previous = AlertSinks.set(async);
+
+        StockItem lot = new StockItem(new Medicine("Paracetamol", "Painkiller", 5.50, "Tablet"), 12, null);
+        lot.addObserver(new CriticalStockObserver(10));
+        lot.reduceStock(5);
+        new Device("MRI Machine").beginUse();
+        async.flush();
+
+        List<String> messages = ring.getMessages();
+        assertEquals(2, messages.size());
+        assertTrue(messages.get(0).startsWith("[CRITICAL STOCK ALERT] Item: Paracetamol"));
+        assertEquals("Device MRI Machine is now in use.", messages.get(1));
+        async.close();
+    }
+
+    @Test
+    public void ringKeepsLatestMessages() {
+        RingBufferAlertSink ring = new RingBufferAlertSink(3);
+        for (int i = 0; i < 5; i++) {
+            ring.emit("m" + i);
+        }
+        assertEquals(5, ring.getWrittenCount());
+        assertEquals("[m2, m3, m4]", ring.getMessages().toString());
+    }
+
+    @Test
+    public void rollingFileRollsOverAtSizeLimit() throws Exception {
+        File log = new File(folder.getRoot(), "alerts.log");
+        AsyncAlertSink sink = new AsyncAlertSink(new RollingFileAlertSink(log.toPath(), 100, 2));
+        for (int i = 0; i < 30; i++) {
+            sink.emit("alert number " + i);
+        }
+        sink.close();
+
+        assertTrue(new File(folder.getRoot(), "alerts.log.1").exists());
+        assertTrue(new File(folder.getRoot(), "alerts.log.2").exists());
+        List<String> last = Files.readAllLines(log.toPath(), StandardCharsets.UTF_8);
+        assertEquals("alert number 29", last.get(last.size() - 1));
+    }
+
+    @Test
+    public void rollingFileCountsEncodedBytes() throws Exception {
+        File log = new File(folder.getRoot(), "alerts.log");
+        RollingFileAlertSink sink = new RollingFileAlertSink(log.toPath(), 10, 1);
+        sink.emit("\u00e7\u00f6\u015f\u00fc\u011f");   // 5 chars, 10 bytes
+        sink.emit("next");
+        sink.close();
+
+        assertEquals(1, Files.readAllLines(new File(folder.getRoot(), "alerts.log.1").toPath(),
+                StandardCharsets.UTF_8).size());
+        assertEquals("next", Files.readAllLines(log.toPath(), StandardCharsets.UTF_8).get(0));
+        assertEquals(6, RollingFileAlertSink.utf8Length("\ud83d\udc89ab"));
+    }
+
+    @Test
+    public void socketSinkStreamsLinesAndCountsDropsAfterDisconnect() throws Exception {
+        try (ServerSocket collector = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            SocketAlertSink sink = new SocketAlertSink(collector.getInetAddress().getHostAddress(), collector.getLocalPort());
+            try (Socket accepted = collector.accept()) {
+                BufferedReader lines = new BufferedReader(
+                        new InputStreamReader(accepted.getInputStream(), StandardCharsets.UTF_8));
+                sink.emit("first");
+                sink.emit("ikinci \u015fi\u015fe");
+                sink.flush();
+                assertEquals("first", lines.readLine());
+                assertEquals("ikinci \u015fi\u015fe", lines.readLine());
+            }
+
+            // the collector is gone: writes fail once the reset arrives, then messages are dropped
+            for (int i = 0; i < 1000 && sink.getDroppedCount() == 0; i++) {
+                sink.emit("lost " + i);
+                sink.flush();
+                Thread.sleep(1);
+            }
+            assertTrue(sink.getDroppedCount() > 0);
+            sink.close();
+        }
+    }
+}
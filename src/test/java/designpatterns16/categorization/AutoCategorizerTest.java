@@ -0,0 +1,117 @@
+package designpatterns16.categorization;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import designpatterns16.Stockmonitor.Inventory;
+import designpatterns16.Stockmonitor.ProductCodec;
+import designpatterns16.Stockmonitor.StockItem;
+import designpatterns16.design_patterns.composite.Category;
+import designpatterns16.design_patterns.composite.ProductCategory;
+import designpatterns16.items.Consumable;
+import designpatterns16.items.Medicine;
+import designpatterns16.items.Serum;
+import designpatterns16.items.Vaccine;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class AutoCategorizerTest {
+
+    private static List<CategoryRule> rules() {
+        return Arrays.asList(
+                CategoryRule.into("Medicines/Antibiotics").atcPrefix("j01"),
+                CategoryRule.into("Medicines/Painkillers").type("painkiller").drugForm("Tablet"),
+                CategoryRule.into("Medicines/Painkillers/Other forms").type("Painkiller"),
+                CategoryRule.into("Vaccines").nameMatches("vaccin"),
+                CategoryRule.into("Serums").type("IV Fluid"));
+    }
+
+    @Test
+    public void firstMatchingRuleWinsAcrossTypedAndUntypedRules() {
+        AutoCategorizer categorizer = new AutoCategorizer(new ProductCategory("Root"), rules());
+        Medicine amoxicillin = new Medicine("Amoxicillin", "Painkiller", 3.0, "Tablet");
+        amoxicillin.setAtcCode("J01CA04");
+
+        assertEquals("Medicines/Antibiotics", categorizer.match(amoxicillin));
+        assertEquals("Medicines/Painkillers", categorizer.match(new Medicine("Aspirin", "Painkiller", 2.0, "tablet")));
+        assertEquals("Medicines/Painkillers/Other forms",
+                categorizer.match(new Medicine("Ibuprofen", "Painkiller", 8.0, "Capsule")));
+        assertEquals("Vaccines", categorizer.match(new Vaccine("Flu VACCINE", "Seasonal", 30.0, 0.5)));
+        assertEquals("Serums", categorizer.match(new Serum("Saline", "IV Fluid", 15.0, 500.0)));
+        assertNull(categorizer.match(new Medicine("Cough Syrup", "Antitussive", 4.0, "Syrup")));
+    }
+
+    @Test
+    public void bulkImportBuildsPathsAndFeedsCategoryQueries() {
+        ProductCategory root = new ProductCategory("All Products");
+        ProductCategory medicines = new ProductCategory("Medicines");
+        root.add(medicines);
+        AutoCategorizer categorizer = new AutoCategorizer(root, rules());
+
+        List<Consumable> products = new ArrayList<>();
+        for (int i = 0; i < 30000; i++) {
+            products.add(i % 3 == 0 ? new Medicine("Pain " + i, "Painkiller", 1.0, "Tablet")
+                    : i % 3 == 1 ? new Serum("Serum " + i, "IV Fluid", 1.0, 100.0)
+                    : new Medicine("Other " + i, "Antitussive", 1.0, "Syrup"));
+        }
+        assertEquals(20000, categorizer.categorizeAll(products));
+
+        assertEquals(2, root.getChildren().size());
+        assertTrue(root.getChildren().get(0) == medicines);
+        Category painkillers = medicines.getChildren().get(0);
+        assertEquals("Painkillers", painkillers.getName());
+        assertEquals(10000, painkillers.getAllItems().size());
+        assertEquals("Pain 0", painkillers.getChildren().get(0).getName());
+        assertEquals(10000, root.getChildren().get(1).getAllItems().size());
+
+        Inventory inventory = new Inventory();
+        inventory.setRootCategory(root);
+        inventory.addStock(new StockItem(products.get(3), 5));
+        inventory.addStock(new StockItem(products.get(4), 5));
+        assertEquals(1, inventory.getStockByCategory("Painkillers").size());
+        assertTrue(inventory.findCategory("Serums") == root.getChildren().get(1));
+
+        Medicine late = new Medicine("Late Pain", "Painkiller", 1.0, "Tablet");
+        assertTrue(categorizer.categorize(late) == painkillers);
+        assertEquals(1, inventory.getStockByCategory("Painkillers").size());
+    }
+
+    @Test
+    public void placesEachProductOnce() {
+        ProductCategory root = new ProductCategory("All Products");
+        AutoCategorizer categorizer = new AutoCategorizer(root, rules());
+        Medicine aspirin = new Medicine("Aspirin", "Painkiller", 2.0, "Tablet");
+        ProductCategory painkillers = categorizer.categorize(aspirin);
+        assertTrue(categorizer.categorize(new Medicine("Aspirin", "Painkiller", 2.0, "Tablet")) == painkillers);
+        assertEquals(1, painkillers.getChildren().size());
+
+        Serum saline = new Serum("Saline", "IV Fluid", 15.0, 500.0);
+        assertEquals(1, categorizer.categorizeAll(Arrays.asList(aspirin, saline,
+                new Serum("Saline", "IV Fluid", 15.0, 500.0))));
+        assertEquals(1, painkillers.getChildren().size());
+        assertEquals(2, root.getAllItems().size());
+    }
+
+    @Test
+    public void atcRulesStillMatchProductsReadBackFromStorage() throws IOException {
+        Medicine amoxicillin = new Medicine("Amoxicillin", "Antibiotic", 3.0, "Capsule");
+        amoxicillin.setAtcCode("J01CA04");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ProductCodec.writeProduct(new DataOutputStream(bytes), amoxicillin);
+        Consumable restored = ProductCodec.readProduct(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        assertEquals("J01CA04", restored.getAtcCode());
+        AutoCategorizer categorizer = new AutoCategorizer(new ProductCategory("Root"), rules());
+        assertEquals("Medicines/Antibiotics", categorizer.match(restored));
+    }
+}
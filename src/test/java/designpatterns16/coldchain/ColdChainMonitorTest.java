@@ -0,0 +1,141 @@
+package designpatterns16.coldchain;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import designpatterns16.Stockmonitor.DayClock;
+import designpatterns16.Stockmonitor.ExpirationAlarmObserver;
+import designpatterns16.Stockmonitor.Inventory;
+import designpatterns16.Stockmonitor.StockItem;
+import designpatterns16.alerts.AlertSink;
+import designpatterns16.alerts.AlertSinks;
+import designpatterns16.items.Serum;
+import designpatterns16.items.Vaccine;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ColdChainMonitorTest {
+
+    private static final long MINUTE = 60 * 1000L;
+    private static final LocalDate TODAY = LocalDate.of(2026, 10, 19);
+    private static final DayClock CLOCK = DayClock.fixed(TODAY);
+
+    private final List<String> alerts = new ArrayList<>();
+    private AlertSink previousSink;
+    private ColdChainMonitor monitor;
+
+    @Before
+    public void setUp() {
+        previousSink = AlertSinks.get();
+        AlertSinks.set(new AlertSink() {
+            @Override
+            public void emit(String message) {
+                alerts.add(message);
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        monitor = new ColdChainMonitor(10 * MINUTE, 30 * MINUTE, 5, CLOCK);
+        monitor.addFridge("Fridge A", 2.0, 8.0);
+        monitor.addFridge("Fridge B", 2.0, 8.0);
+    }
+
+    @After
+    public void tearDown() {
+        AlertSinks.set(previousSink);
+    }
+
+    @Test
+    public void excursionShortensExpiryAndRaisesTheExpiryAlarm() {
+        Inventory inventory = new Inventory(CLOCK);
+        monitor.attach(inventory);
+        long versionBefore = inventory.snapshot().getVersion();
+        StockItem exposed = StockItem.withExpiry(new Vaccine("Flu Vaccine", "Vaccine", 30.0, 0.5), 100, TODAY.plusDays(200));
+        StockItem safe = StockItem.withExpiry(new Serum("Saline", "IV Fluid", 15.0, 500.0), 50, TODAY.plusDays(200));
+        exposed.addObserver(new ExpirationAlarmObserver(30, 0, null, CLOCK));
+        inventory.addStock(exposed);
+        inventory.addStock(safe);
+        monitor.assign(exposed, "Fridge A");
+        monitor.assign(safe, "Fridge B");
+
+        FridgeSimulator simulator = new FridgeSimulator(monitor, 42);
+        simulator.addFridge("Fridge A", 5.0);
+        simulator.addFridge("Fridge B", 5.0);
+        simulator.scheduleExcursion("Fridge A", 60 * MINUTE, 20 * MINUTE, 12.0);
+        simulator.scheduleExcursion("Fridge A", 120 * MINUTE, 15 * MINUTE, 11.0);
+        assertEquals(2 * 180 * 60, simulator.run(0, 180 * MINUTE, 1000));
+
+        FridgeStats a = monitor.getStats("Fridge A");
+        assertEquals(2, a.getExcursionCount());
+        assertEquals(35 * MINUTE, a.getExcursionMillis(), 2000);
+        assertFalse(a.isInExcursion());
+        assertEquals(0, monitor.getStats("Fridge B").getExcursionMillis());
+
+        assertTrue(exposed.hasTemperatureExcursion());
+        assertEquals(TODAY.plusDays(5), exposed.getExpirationLocalDate());
+        assertEquals(TODAY.plusDays(5), inventory.snapshot().getLot(exposed.getLotId()).getExpirationLocalDate());
+        assertEquals(versionBefore + 3, inventory.snapshot().getVersion());   // two adds and one marking
+        assertFalse(safe.hasTemperatureExcursion());
+        assertEquals(1, countAlerts("[EXPIRATION ALERT] Item: Flu Vaccine"));
+        assertEquals(1, countAlerts("[COLD CHAIN ALERT] Item: Flu Vaccine"));
+        assertEquals(100, exposed.getStock());
+    }
+
+    @Test
+    public void exposureTravelsWithTheLot() {
+        StockItem lot = StockItem.withExpiry(new Vaccine("MMR", "Vaccine", 20.0, 0.5), 10, TODAY.plusDays(90));
+        monitor.assign(lot, "Fridge A");
+        monitor.record("Fridge A", 0, 5.0);
+        monitor.record("Fridge A", MINUTE, 9.0);
+        monitor.record("Fridge A", 21 * MINUTE, 5.0);       // 20 minutes out of range
+        assertEquals(20 * MINUTE, monitor.getExposureMillis(lot));
+
+        monitor.assign(lot, "Fridge B");
+        monitor.record("Fridge B", 30 * MINUTE, 1.0);
+        monitor.record("Fridge B", 39 * MINUTE, 4.0);       // 9 more minutes
+        assertEquals(29 * MINUTE, monitor.getExposureMillis(lot));
+        assertFalse(lot.hasTemperatureExcursion());
+
+        monitor.record("Fridge B", 40 * MINUTE, 0.5);
+        monitor.record("Fridge B", 41 * MINUTE, 0.5);       // crosses the 30 minute tolerance
+        assertTrue(lot.hasTemperatureExcursion());
+        assertEquals(TODAY.plusDays(5), lot.getExpirationLocalDate());
+    }
+
+    @Test
+    public void windowAggregatesFollowTheLatestReadings() {
+        for (int second = 0; second < 20 * 60; second++) {
+            monitor.record("Fridge A", second * 1000L, second < 10 * 60 ? 3.0 : 6.0);
+        }
+        FridgeStats stats = monitor.getStats("Fridge A");
+        // 10 minute window in 30 buckets: only the later readings remain
+        assertEquals(6.0, stats.getWindowMean(), 1e-9);
+        assertEquals(6.0, stats.getWindowMin(), 1e-9);
+        assertEquals(10 * 60, stats.getWindowCount());
+        assertEquals(6.0, stats.getLastCelsius(), 1e-9);
+        assertEquals(0, stats.getExcursionCount());
+    }
+
+    private int countAlerts(String prefix) {
+        int count = 0;
+        for (String alert : alerts) {
+            if (alert.startsWith(prefix)) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
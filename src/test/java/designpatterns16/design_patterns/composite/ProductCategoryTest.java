@@ -0,0 +1,124 @@
+package designpatterns16.design_patterns.composite;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import designpatterns16.items.Medicine;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Test;
+
+public class ProductCategoryTest {
+
+    @Test
+    public void childrenAreAReadOnlySnapshot() {
+        ProductCategory root = new ProductCategory("Root");
+        ProductCategory painkillers = new ProductCategory("Painkillers");
+        root.add(painkillers);
+        List<Category> before = root.getChildren();
+        root.add(new ProductLeaf(new Medicine("Aspirin", "Painkiller", 2.0, "Tablet")));
+        root.remove(painkillers);
+
+        assertEquals(1, before.size());
+        assertTrue(before.get(0) == painkillers);
+        assertEquals("Aspirin", root.getChildren().get(0).getName());
+        try {
+            before.add(painkillers);
+            throw new AssertionError("children view must be read-only");
+        } catch (UnsupportedOperationException expected) {
+            // expected
+        }
+    }
+
+    @Test
+    public void structureVersionIsPerTree() {
+        ProductCategory root = new ProductCategory("Root");
+        ProductCategory medicines = new ProductCategory("Medicines");
+        ProductCategory painkillers = new ProductCategory("Painkillers");
+        medicines.add(painkillers);
+        root.add(medicines);
+        ProductCategory unrelated = new ProductCategory("Other tree");
+
+        long version = root.structureVersion();
+        unrelated.add(new ProductCategory("Child"));
+        assertEquals(version, root.structureVersion());
+
+        painkillers.add(new ProductLeaf(new Medicine("Aspirin", "Painkiller", 2.0, "Tablet")));
+        assertTrue(root.structureVersion() != version);
+        assertEquals(root.structureVersion(), painkillers.structureVersion());
+
+        root.remove(medicines);
+        version = root.structureVersion();
+        painkillers.add(new ProductCategory("Detached edit"));
+        assertEquals(version, root.structureVersion());
+        assertEquals(medicines.structureVersion(), painkillers.structureVersion());
+    }
+
+    @Test
+    public void concurrentEditsAreNotLostWhileReadersTraverse() throws Exception {
+        ProductCategory root = new ProductCategory("Root");
+        int writers = 4;
+        int perWriter = 2000;
+        ExecutorService pool = Executors.newFixedThreadPool(writers + 2);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        List<Future<?>> results = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            int writer = w;
+            results.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < perWriter; i++) {
+                    ProductCategory child = new ProductCategory("W" + writer + "-" + i);
+                    root.add(child);
+                    if (i % 2 == 1) {
+                        root.remove(child);
+                    }
+                }
+                return null;
+            }));
+        }
+        for (int r = 0; r < 2; r++) {
+            results.add(pool.submit(() -> {
+                start.await();
+                while (writing.get()) {
+                    Set<String> seen = new HashSet<>();
+                    for (Category child : root.getChildren()) {
+                        assertTrue(seen.add(child.getName()));
+                    }
+                    root.getAllItems();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (int i = 0; i < writers; i++) {
+            results.get(i).get(30, TimeUnit.SECONDS);
+        }
+        writing.set(false);
+        for (Future<?> result : results) {
+            result.get(30, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        Set<String> names = new HashSet<>();
+        for (Category child : root.getChildren()) {
+            names.add(child.getName());
+        }
+        assertEquals(writers * perWriter / 2, names.size());
+        for (int w = 0; w < writers; w++) {
+            assertTrue(names.contains("W" + w + "-0"));
+            assertFalse(names.contains("W" + w + "-1"));
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package designpatterns16.maintenance;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import designpatterns16.alerts.AlertSink;
+import designpatterns16.alerts.AlertSinks;
+import designpatterns16.items.Device;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DeviceTelemetryTest {
+
+    private final AtomicLong nanos = new AtomicLong(123_456_789L);
+    private DeviceTelemetry telemetry;
+    private AlertSink previousSink;
+
+    @Before
+    public void setUp() {
+        previousSink = AlertSinks.get();
+        AlertSinks.set(new AlertSink() {
+            @Override
+            public void emit(String message) {
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        telemetry = new DeviceTelemetry(nanos::get);
+    }
+
+    @After
+    public void tearDown() {
+        AlertSinks.set(previousSink);
+    }
+
+    private void advance(long millis) {
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    @Test
+    public void accountsTimeInEveryState() {
+        Device mri = new Device("MRI 1", "MRI", 2);
+        telemetry.register(mri);
+
+        advance(1_000);          // usable
+        mri.beginUse();
+        advance(3_000);          // session 1
+        mri.endUse();
+        advance(1_000);
+        mri.beginUse();
+        advance(5_000);          // session 2, reaches the threshold
+        mri.endUse();
+        advance(4_000);          // waiting for service
+        mri.sendForMaintenance();
+        advance(6_000);          // in maintenance
+        mri.completeMaintenance();
+        advance(2_000);          // usable, still open
+
+        DeviceStats stats = telemetry.getStats(mri);
+        assertEquals(4_000, stats.getUsableMillis());
+        assertEquals(8_000, stats.getInUseMillis());
+        assertEquals(4_000, stats.getNeedsMaintenanceMillis());
+        assertEquals(6_000, stats.getInMaintenanceMillis());
+        assertEquals(100.0 * 8 / 22, stats.getUtilizationPercent(), 1e-9);
+        assertEquals(2, stats.getSessionCount());
+        assertEquals(4_000, stats.getMeanSessionMillis(), 1e-9);
+        assertTrue(stats.getP99SessionMillis() >= 5_000 && stats.getP99SessionMillis() <= 6_000);
+        assertEquals(1, stats.getMaintenanceCount());
+        assertEquals(10_000, stats.getMeanTurnaroundMillis(), 1e-9);
+    }
+
+    @Test
+    public void aggregatesPerTypeIncludingOpenIntervals() {
+        Device first = new Device("MRI 1", "MRI", 5);
+        Device second = new Device("MRI 2", "MRI", 5);
+        Device xray = new Device("X-Ray 1", "X-Ray", 5);
+        telemetry.register(first);
+        telemetry.register(second);
+        telemetry.register(xray);
+
+        first.beginUse();
+        advance(1_000);
+        second.beginUse();
+        advance(1_000);
+        first.endUse();
+        advance(2_000);
+
+        DeviceStats mri = telemetry.getTypeStats("MRI");
+        assertEquals(2, mri.getDeviceCount());
+        assertEquals(2_000 + 3_000, mri.getInUseMillis());      // second is still in use
+        assertEquals(8_000, mri.getTrackedMillis());
+        assertEquals(1, mri.getSessionCount());
+        assertEquals(0, telemetry.getTypeStats("X-Ray").getInUseMillis());
+        assertEquals(4_000, telemetry.getTypeStats("X-Ray").getUsableMillis());
+        assertEquals(2, telemetry.getTypes().size());
+    }
+
+    @Test
+    public void histogramPercentilesStayWithinBucketError() {
+        LogHistogram histogram = new LogHistogram();
+        for (int value = 1; value <= 10_000; value++) {
+            histogram.record(value);
+        }
+        long p99 = histogram.percentile(0.99);
+        assertTrue(p99 >= 9_900 && p99 <= 9_900 * 1.19);
+        assertEquals(10_000, histogram.percentile(1.0));
+        assertEquals(5_000.5, histogram.mean(), 1e-9);
+    }
+}
@@ -0,0 +1,136 @@
+package designpatterns16.maintenance;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import designpatterns16.alerts.AlertSink;
+import designpatterns16.alerts.AlertSinks;
+import designpatterns16.design_patterns.state.InMaintenanceState;
+import designpatterns16.design_patterns.state.UsableState;
+import designpatterns16.items.Device;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MaintenanceSchedulerTest {
+
+    private static final long HOUR = 60L * 60 * 1000;
+
+    private final AtomicLong now = new AtomicLong(1_000_000);
+    private MaintenanceScheduler scheduler;
+    private AlertSink previousSink;
+
+    @Before
+    public void setUp() {
+        previousSink = AlertSinks.get();
+        AlertSinks.set(new AlertSink() {
+            @Override
+            public void emit(String message) {
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        scheduler = new MaintenanceScheduler(now::get, 24 * HOUR, 0.5);
+        scheduler.addTeam(new MaintenanceTeam("Biomed", 1, 4 * HOUR));
+    }
+
+    @After
+    public void tearDown() {
+        AlertSinks.set(previousSink);
+    }
+
+    private void use(Device device) {
+        device.beginUse();
+        now.addAndGet(HOUR / 2);
+        device.endUse();
+    }
+
+    @Test
+    public void heavilyUsedDevicesComeFirst() {
+        Device mri = new Device("MRI", 10);
+        Device xray = new Device("X-Ray", 10);
+        scheduler.register(mri, "Biomed");
+        scheduler.register(xray, "Biomed");
+
+        for (int i = 0; i < 6; i++) {
+            use(mri);            // every hour
+            now.addAndGet(HOUR / 2);
+        }
+        use(xray);
+        now.addAndGet(10 * HOUR);
+        use(xray);               // every ~10 hours
+
+        List<PlannedMaintenance> plan = scheduler.plan("Biomed", 5);
+        assertEquals(2, plan.size());
+        assertEquals(mri, plan.get(0).getDevice());
+        assertTrue(scheduler.getUsesPerDay(mri) > scheduler.getUsesPerDay(xray));
+        // one team slot: the second service waits for the first
+        assertTrue(plan.get(1).getPlannedStart() >= plan.get(0).getPlannedStart() + 4 * HOUR);
+    }
+
+    @Test
+    public void dispatchRespectsCapacityAndStates() {
+        Device first = new Device("Ultrasound 1", 2);
+        Device second = new Device("Ultrasound 2", 2);
+        scheduler.register(first, "Biomed");
+        scheduler.register(second, "Biomed");
+        use(first);
+        use(first);
+        use(second);
+        use(second);
+        assertTrue(first.needsMaintenance() && second.needsMaintenance());
+
+        List<Device> dispatched = scheduler.dispatch();
+        assertEquals(1, dispatched.size());
+        assertTrue(dispatched.get(0).getState() instanceof InMaintenanceState);
+        assertEquals(1, scheduler.getBusy("Biomed"));
+        assertEquals(1, scheduler.getQueued("Biomed"));
+        assertTrue(scheduler.dispatch().isEmpty());
+
+        dispatched.get(0).completeMaintenance();
+        assertTrue(dispatched.get(0).getState() instanceof UsableState);
+        assertEquals(0, scheduler.getBusy("Biomed"));
+        assertEquals(1, scheduler.dispatch().size());
+        assertEquals(2, scheduler.getQueued("Biomed") + scheduler.getBusy("Biomed"));
+    }
+
+    @Test
+    public void heapOrderHoldsUnderRandomUpdates() {
+        Random random = new Random(11);
+        scheduler.addTeam(new MaintenanceTeam("Fleet", 1000, HOUR));
+        List<Device> fleet = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            Device device = new Device("Device " + i, 50);
+            fleet.add(device);
+            scheduler.register(device, "Fleet");
+        }
+        for (int i = 0; i < 50_000; i++) {
+            Device device = fleet.get(random.nextInt(fleet.size()));
+            now.addAndGet(random.nextInt(1000));
+            if (device.getState() instanceof UsableState) {
+                device.beginUse();
+                device.endUse();
+            }
+        }
+        List<PlannedMaintenance> plan = scheduler.plan("Fleet", fleet.size());
+        assertEquals(fleet.size(), plan.size());
+        for (int i = 1; i < plan.size(); i++) {
+            assertTrue(plan.get(i - 1).getDueTime() <= plan.get(i).getDueTime());
+        }
+        for (PlannedMaintenance entry : plan) {
+            assertEquals(scheduler.getProjectedDueTime(entry.getDevice()), entry.getDueTime());
+        }
+    }
+}
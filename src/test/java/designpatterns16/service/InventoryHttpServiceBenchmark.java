@@ -0,0 +1,56 @@
+package designpatterns16.service;
+
+import designpatterns16.Stockmonitor.Inventory;
+import designpatterns16.Stockmonitor.StockItem;
+import designpatterns16.items.Device;
+import designpatterns16.items.Medicine;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+//Fires N concurrent dispenses at the embedded service. Not a surefire test; run the main method
+//with the test classpath, e.g. with -Dsun.net.httpserver.maxIdleConnections=4096 so the JDK
+//server keeps that many keep-alive connections open.
+//  args: connections (default 2000)
+public class InventoryHttpServiceBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        Inventory inventory = new Inventory();
+        inventory.addStock(new StockItem(new Medicine("Paracetamol", "Painkiller", 5.50, "Tablet"), connections));
+        List<Device> devices = new ArrayList<>();
+        InventoryHttpService service = new InventoryHttpService(inventory, devices);
+        service.start(0);
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+        try {
+            URI uri = URI.create("http://localhost:" + service.getPort() + "/dispense?product=Paracetamol&amount=1");
+            long start = System.nanoTime();
+            List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+            for (int i = 0; i < connections; i++) {
+                responses.add(client.sendAsync(HttpRequest.newBuilder(uri).POST(HttpRequest.BodyPublishers.noBody()).build(),
+                        HttpResponse.BodyHandlers.ofString()));
+            }
+            int ok = 0;
+            for (CompletableFuture<HttpResponse<String>> response : responses) {
+                if (response.join().statusCode() == 200) {
+                    ok++;
+                }
+            }
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+            System.out.printf("%d of %d concurrent dispenses succeeded in %d ms, %d units left%n", ok, connections,
+                    elapsedMillis, inventory.getStockByProduct("Paracetamol").get(0).getStock());
+        } finally {
+            service.stop();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package designpatterns16.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import designpatterns16.Stockmonitor.Inventory;
+import designpatterns16.Stockmonitor.StockItem;
+import designpatterns16.items.Device;
+import designpatterns16.items.Medicine;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class InventoryHttpServiceTest {
+
+    private static final int STOCK = 100;
+
+    private Inventory inventory;
+    private InventoryHttpService service;
+    private HttpClient client;
+
+    @Before
+    public void startService() throws Exception {
+        inventory = new Inventory();
+        inventory.addStock(new StockItem(new Medicine("Paracetamol", "Painkiller", 5.50, "Tablet"), STOCK));
+        List<Device> devices = new ArrayList<>();
+        devices.add(new Device("MRI Machine"));
+        service = new InventoryHttpService(inventory, devices);
+        service.start(0);
+        client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(30))
+                .build();
+    }
+
+    @After
+    public void stopService() {
+        service.stop();
+    }
+
+    @Test
+    public void listensOnLoopbackByDefault() {
+        assertTrue(service.getAddress().getAddress().isLoopbackAddress());
+    }
+
+    @Test
+    public void answersLookupsAndDevices() throws Exception {
+        HttpResponse<String> stock = client.send(get("/stock?product=Paracetamol"), HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, stock.statusCode());
+        assertTrue(stock.body().contains("\"quantity\":" + STOCK));
+
+        HttpResponse<String> devices = client.send(get("/devices"), HttpResponse.BodyHandlers.ofString());
+        assertTrue(devices.body().contains("\"state\":\"UsableState\""));
+
+        HttpResponse<String> report = client.send(get("/report"), HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, report.statusCode());
+        assertTrue(report.body().contains("\"byType\":{\"Painkiller\":{\"lots\":1,\"units\":" + STOCK));
+
+        HttpResponse<String> missing = client.send(post("/dispense?product=Nope&amount=1"), HttpResponse.BodyHandlers.ofString());
+        assertEquals(409, missing.statusCode());
+    }
+
+    @Test
+    public void rejectsBadAmountsAndRefusedTransitions() throws Exception {
+        HttpResponse<String> zero = client.send(post("/dispense?product=Paracetamol&amount=0"),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(400, zero.statusCode());
+
+        HttpResponse<String> maintain = client.send(post("/devices?name=MRI%20Machine&action=maintain"),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, maintain.statusCode());
+        HttpResponse<String> use = client.send(post("/devices?name=MRI%20Machine&action=use"),
+                HttpResponse.BodyHandlers.ofString());
+        assertEquals(409, use.statusCode());
+        HttpResponse<String> devices = client.send(get("/devices"), HttpResponse.BodyHandlers.ofString());
+        assertTrue(devices.body().contains("\"state\":\"InMaintenanceState\""));
+    }
+
+    @Test
+    public void concurrentDispensesAreAllApplied() {
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < STOCK; i++) {
+            responses.add(client.sendAsync(post("/dispense?product=Paracetamol&amount=1"),
+                    HttpResponse.BodyHandlers.ofString()));
+        }
+        int ok = 0;
+        for (CompletableFuture<HttpResponse<String>> response : responses) {
+            if (response.join().statusCode() == 200) {
+                ok++;
+            }
+        }
+        assertEquals(STOCK, ok);
+        assertEquals(0, inventory.getStockByProduct("Paracetamol").get(0).getStock());
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + service.getPort() + path)).GET().build();
+    }
+
+    private HttpRequest post(String path) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:" + service.getPort() + path))
+                .POST(HttpRequest.BodyPublishers.noBody()).build();
+    }
+}
@@ -0,0 +1,80 @@
+package designpatterns16.storage;
+
+import designpatterns16.Stockmonitor.Inventory;
+import designpatterns16.Stockmonitor.StockItem;
+import designpatterns16.items.Consumable;
+import designpatterns16.items.Medicine;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+
+//Rough comparison of DiskInventory against the heap Inventory: inserts, point lookups and
+//product scans. Not a surefire test; run the main method with the test classpath.
+//  args: lots (default 200000), cache pages (default 1024)
+public class DiskInventoryBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int lotCount = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        int cachePages = args.length > 1 ? Integer.parseInt(args[1]) : DiskInventory.DEFAULT_CACHE_PAGES;
+        Consumable[] products = new Consumable[500];
+        for (int i = 0; i < products.length; i++) {
+            products[i] = new Medicine("Drug " + i, "Type", 1.0, "Tablet");
+        }
+        StockItem[] lots = new StockItem[lotCount];
+        for (int i = 0; i < lotCount; i++) {
+            lots[i] = new StockItem(i + 1, products[i % products.length], 10, 20000 + i % 365);
+        }
+        Random random = new Random(1);
+        File directory = Files.createTempDirectory("disk-inventory-bench").toFile();
+
+        Inventory heap = new Inventory();
+        long start = System.nanoTime();
+        for (StockItem lot : lots) {
+            heap.addStock(lot);
+        }
+        report("heap insert", start, lotCount);
+        start = System.nanoTime();
+        for (int i = 0; i < lotCount; i++) {
+            heap.contains(lots[random.nextInt(lotCount)]);
+        }
+        report("heap lookup", start, lotCount);
+        start = System.nanoTime();
+        for (Consumable product : products) {
+            heap.getStockByProduct(product.getName());
+        }
+        report("heap product scan", start, products.length);
+
+        try (DiskInventory disk = new DiskInventory(directory, cachePages)) {
+            start = System.nanoTime();
+            for (StockItem lot : lots) {
+                disk.addStock(lot);
+            }
+            disk.flush();
+            report("disk insert + flush", start, lotCount);
+            start = System.nanoTime();
+            for (int i = 0; i < lotCount; i++) {
+                disk.getLot(lots[random.nextInt(lotCount)].getLotId());
+            }
+            report("disk lookup", start, lotCount);
+            start = System.nanoTime();
+            for (Consumable product : products) {
+                disk.getStockByProduct(product.getName());
+            }
+            report("disk product scan", start, products.length);
+            System.out.printf("cache hits %d, misses %d, evictions %d%n",
+                    disk.getCacheHits(), disk.getCacheMisses(), disk.getCacheEvictions());
+        } finally {
+            for (File file : directory.listFiles()) {
+                file.delete();
+            }
+            directory.delete();
+        }
+    }
+
+    private static void report(String label, long start, int operations) {
+        long nanos = System.nanoTime() - start;
+        System.out.printf("%-22s %8d ms %10.0f ns/op%n", label, nanos / 1000000, (double) nanos / operations);
+    }
+}
@@ -0,0 +1,197 @@
+package designpatterns16.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import designpatterns16.Stockmonitor.DayClock;
+import designpatterns16.Stockmonitor.LotStore;
+import designpatterns16.Stockmonitor.StockItem;
+import designpatterns16.items.Consumable;
+import designpatterns16.items.Medicine;
+import designpatterns16.items.Vaccine;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DiskInventoryTest {
+
+    private static final DayClock CLOCK = DayClock.fixed(LocalDate.ofEpochDay(20000));
+
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("disk-inventory").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void matchesAnInMemoryMapThroughSplitsEvictionsAndRestarts() throws IOException {
+        Consumable[] products = new Consumable[50];
+        for (int i = 0; i < products.length; i++) {
+            products[i] = new Medicine("Drug " + i, "Type", 1.0 + i, "Tablet");
+        }
+        Map<Long, StockItem> expected = new HashMap<>();
+        Random random = new Random(7);
+        try (DiskInventory store = new DiskInventory(directory, 16)) {
+            for (int i = 0; i < 20000; i++) {
+                long lotId = 1000 + random.nextInt(1 << 30);
+                if (expected.containsKey(lotId)) {
+                    continue;
+                }
+                StockItem lot = new StockItem(lotId, products[random.nextInt(products.length)], 1 + random.nextInt(100),
+                        20000 + random.nextInt(1000));
+                lot.setLotCode("L" + i);
+                store.addStock(lot);
+                expected.put(lotId, lot);
+            }
+            int removed = 0;
+            for (Long lotId : expected.keySet().toArray(new Long[0])) {
+                if (removed++ % 3 == 0) {
+                    store.removeStock(lotId);
+                    expected.remove(lotId);
+                }
+            }
+            assertTrue(store.getCacheEvictions() > 0);
+            assertEquals(expected.size(), store.size());
+            assertSame(expected, store);
+        }
+
+        try (DiskInventory reopened = new DiskInventory(directory, 16)) {
+            assertEquals(expected.size(), reopened.size());
+            assertSame(expected, reopened);
+            assertEquals(expected.size(), reopened.getAllStockItems().size());
+        }
+    }
+
+    @Test
+    public void dispensesEarliestExpiryFirstAndKeepsItAfterReopen() throws IOException {
+        Vaccine flu = new Vaccine("Flu Vaccine", "Vaccine", 30.0, 0.5);
+        try (DiskInventory store = new DiskInventory(directory, DiskInventory.DEFAULT_CACHE_PAGES, CLOCK)) {
+            LotStore lots = store;
+            lots.addStock(new StockItem(1, flu, 5, 20100));
+            lots.addStock(new StockItem(2, flu, 5, 20050));
+            lots.addStock(new StockItem(3, new Vaccine("Flu Vaccine", "Vaccine", 30.0, 0.5), 5, 20200));
+            lots.addStock(new StockItem(4, flu, 50, 19990));   // expired, never dispensed
+            try {
+                lots.dispense("Flu Vaccine", 16);
+                fail("Expired stock must not count as available");
+            } catch (IllegalArgumentException e) {
+                assertEquals("Insufficient stock!", e.getMessage());
+            }
+            lots.dispense("Flu Vaccine", 7);
+            assertEquals(50, store.getLot(4).getStock());
+            assertEquals(0, store.getLot(2).getStock());
+            assertEquals(3, store.getLot(1).getStock());
+            assertEquals(5, store.getLot(3).getStock());
+            lots.removeStock(store.getLot(4));
+            assertEquals(8 * 30.0, store.getTotalValue(), 1e-9);
+        }
+        try (DiskInventory reopened = new DiskInventory(directory)) {
+            assertEquals(3, reopened.getStockByProduct("Flu Vaccine").size());
+            assertEquals(3, reopened.getLot(1).getStock());
+            assertNull(reopened.getLot(1).getLotCode());
+            assertFalse(reopened.contains(4));
+        }
+    }
+
+    @Test
+    public void reopensAtTheLastCheckpointAfterACrash() throws IOException {
+        Medicine aspirin = new Medicine("Aspirin", "Painkiller", 2.0, "Tablet");
+        List<Long> added = new ArrayList<>();
+        DiskInventory crashed = new DiskInventory(directory, 16);   // checkpoints every 8 dirty pages
+        Random random = new Random(11);
+        for (int i = 0; i < 3000; i++) {
+            long lotId = 1 + random.nextInt(1 << 30);
+            if (!crashed.contains(lotId)) {
+                crashed.addStock(new StockItem(lotId, aspirin, 1, 20100));
+                added.add(lotId);
+            }
+        }
+        assertTrue(crashed.getCacheEvictions() > 0);
+        // never flushed or closed: whatever reached the file came from a checkpoint
+
+        try (DiskInventory reopened = new DiskInventory(directory, 16)) {
+            long size = reopened.size();
+            assertTrue(size > 0 && size <= added.size());
+            Set<Long> stored = new HashSet<>();
+            for (StockItem lot : reopened.getAllStockItems()) {
+                stored.add(lot.getLotId());
+            }
+            assertEquals(new HashSet<>(added.subList(0, (int) size)), stored);
+            assertEquals(size, reopened.getStockByProduct("Aspirin").size());
+        }
+    }
+
+    @Test
+    public void dropsATornProductRecordAfterACrash() throws IOException {
+        DiskInventory crashed = new DiskInventory(directory);   // large cache: no checkpoint happens
+        for (int i = 0; i < 400; i++) {
+            crashed.addStock(new StockItem(i + 1, new Medicine("Drug " + i, "Type", 1.0, "Tablet"), 1, 20100));
+        }
+        File products = new File(directory, "products.dat");
+        assertTrue(products.length() > 0);   // the stream buffer spilled, most likely mid-record
+        // never flushed or closed
+
+        try (DiskInventory reopened = new DiskInventory(directory)) {
+            assertEquals(0, reopened.size());
+            reopened.addStock(new StockItem(1000, new Medicine("Aspirin", "Painkiller", 2.0, "Tablet"), 5, 20100));
+        }
+        try (DiskInventory reopened = new DiskInventory(directory)) {
+            assertEquals(1, reopened.getStockByProduct("Aspirin").size());
+            assertEquals(1, reopened.getAllStockItems().size());
+            assertEquals("Aspirin", reopened.getAllStockItems().get(0).getProduct().getName());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsDuplicateLots() throws IOException {
+        try (DiskInventory store = new DiskInventory(directory)) {
+            Medicine aspirin = new Medicine("Aspirin", "Painkiller", 2.0, "Tablet");
+            store.addStock(new StockItem(1, aspirin, 5, 20100));
+            store.addStock(new StockItem(1, aspirin, 5, 20100));
+        }
+    }
+
+    private static void assertSame(Map<Long, StockItem> expected, DiskInventory store) throws IOException {
+        Map<String, Integer> lotsByProduct = new HashMap<>();
+        for (StockItem lot : expected.values()) {
+            StockItem stored = store.getLot(lot.getLotId());
+            assertEquals(lot.getStock(), stored.getStock());
+            assertEquals(lot.getExpiryEpochDay(), stored.getExpiryEpochDay());
+            assertEquals(lot.getLotCode(), stored.getLotCode());
+            assertEquals(lot.getProduct().getName(), stored.getProduct().getName());
+            lotsByProduct.merge(lot.getProduct().getName(), 1, Integer::sum);
+        }
+        for (Map.Entry<String, Integer> entry : lotsByProduct.entrySet()) {
+            List<StockItem> lots = store.getStockByProduct(entry.getKey());
+            assertEquals(entry.getValue().intValue(), lots.size());
+        }
+    }
+}
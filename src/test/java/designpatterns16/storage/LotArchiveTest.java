@@ -0,0 +1,127 @@
+package designpatterns16.storage;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import designpatterns16.Stockmonitor.DayClock;
+import designpatterns16.Stockmonitor.Inventory;
+import designpatterns16.Stockmonitor.StockItem;
+import designpatterns16.items.Medicine;
+import designpatterns16.items.Vaccine;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class LotArchiveTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2026, 10, 19);
+    private static final DayClock CLOCK = DayClock.fixed(TODAY);
+
+    private File directory;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("lot-archive").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void movesStaleLotsAndConsolidatesThem() throws IOException {
+        Inventory inventory = new Inventory(CLOCK);
+        StockItem expiredA = StockItem.withExpiry(new Vaccine("Flu Vaccine", "Vaccine", 30.0, 0.5), 4, TODAY.minusDays(3));
+        StockItem expiredB = StockItem.withExpiry(new Vaccine("Flu Vaccine", "Vaccine", 30.0, 0.5), 6, TODAY.minusDays(3));
+        StockItem expiredOther = StockItem.withExpiry(new Vaccine("Flu Vaccine", "Vaccine", 30.0, 0.5), 1, TODAY.minusDays(9));
+        StockItem empty = new StockItem(new Medicine("Aspirin", "Painkiller", 2.0, "Tablet"), 5);
+        StockItem live = StockItem.withExpiry(new Medicine("Aspirin", "Painkiller", 2.0, "Tablet"), 20, TODAY.plusDays(30));
+        for (StockItem lot : new StockItem[]{expiredA, expiredB, expiredOther, empty, live}) {
+            inventory.addStock(lot);
+        }
+        empty.reduceStock(5);
+
+        LotArchive archive = new LotArchive(directory);
+        assertEquals(4, archive.archive(inventory));
+        assertEquals(1, inventory.getAllStockItems().size());
+        assertEquals(1, inventory.snapshot().size());
+        assertEquals(0, archive.archive(inventory));
+
+        List<ArchivedLot> flu = archive.findByProduct("Flu Vaccine");
+        assertEquals(2, flu.size());
+        assertEquals(10, flu.get(0).getQuantity());
+        assertArrayEquals(new long[]{expiredA.getLotId(), expiredB.getLotId()}, flu.get(0).getSourceLotIds());
+        assertEquals(ArchivedLot.Reason.EXPIRED, flu.get(0).getReason());
+        assertEquals(TODAY.minusDays(3), flu.get(0).getExpirationLocalDate());
+        assertTrue(flu.get(0).getProduct() == flu.get(1).getProduct());
+
+        ArchivedLot aspirin = archive.findByLotId(empty.getLotId());
+        assertEquals(ArchivedLot.Reason.DEPLETED, aspirin.getReason());
+        assertEquals(TODAY, aspirin.getArchivedDate());
+        assertNull(archive.findByLotId(live.getLotId()));
+    }
+
+    @Test
+    public void keepsLotsThatChangeWhileTheMemberIsWritten() throws IOException {
+        Inventory inventory = new Inventory(CLOCK);
+        final StockItem restocked = new StockItem(new Medicine("Aspirin", "Painkiller", 2.0, "Tablet"), 5);
+        StockItem expired = StockItem.withExpiry(new Vaccine("Flu Vaccine", "Vaccine", 30.0, 0.5), 4, TODAY.minusDays(3));
+        inventory.addStock(restocked);
+        inventory.addStock(expired);
+        restocked.reduceStock(5);
+
+        LotArchive archive = new LotArchive(directory) {
+            @Override
+            void afterAppend() {
+                if (restocked.getStock() == 0) {
+                    restocked.increaseStock(10);   // a delivery lands while the first member is synced
+                }
+            }
+        };
+        assertEquals(1, archive.archive(inventory));
+        assertTrue(inventory.contains(restocked));
+        assertFalse(inventory.contains(expired));
+        assertEquals(10, inventory.snapshot().getLot(restocked.getLotId()).getStock());
+
+        assertNull(archive.findByLotId(restocked.getLotId()));
+        assertEquals(4, archive.findByLotId(expired.getLotId()).getQuantity());
+        assertEquals(1, archive.query(lot -> true).size());
+        assertEquals(1, archive.getSegmentCount());
+    }
+
+    @Test
+    public void appendsAcrossRunsSegmentsAndRestarts() throws IOException {
+        LotArchive archive = new LotArchive(directory, 1);    // every run after the first rolls a segment
+        for (int run = 0; run < 3; run++) {
+            Inventory inventory = new Inventory(CLOCK);
+            for (int i = 0; i < 50; i++) {
+                StockItem lot = StockItem.withExpiry(new Medicine("Drug " + i, "Type", 1.0, "Tablet"), 1, TODAY.minusDays(1));
+                lot.setLotCode("L" + run);
+                inventory.addStock(lot);
+            }
+            assertEquals(50, archive.archive(inventory));
+        }
+        assertEquals(3, archive.getSegmentCount());
+
+        LotArchive reopened = new LotArchive(directory);
+        assertEquals(150, reopened.query(lot -> true).size());
+        assertEquals(50, reopened.query(lot -> "L2".equals(lot.getLotCode())).size());
+    }
+}
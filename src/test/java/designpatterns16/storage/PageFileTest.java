@@ -0,0 +1,91 @@
+package designpatterns16.storage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PageFileTest {
+
+    private File directory;
+    private Path path;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("page-file").toFile();
+        path = new File(directory, "pages.db").toPath();
+        try (PageFile file = new PageFile(path)) {
+            file.allocate();
+            file.allocate();
+            file.commit(Arrays.asList(0L, 1L), Arrays.asList(page(1), page(1)));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void replaysACompleteJournalOnOpen() throws IOException {
+        try (PageFile file = new PageFile(path)) {
+            file.writeJournal(Arrays.asList(0L, 1L, 2L), Arrays.asList(page(2), page(2), page(2)));
+        }
+        try (PageFile reopened = new PageFile(path)) {
+            assertEquals(3, reopened.getPageCount());
+            for (long page = 0; page < 3; page++) {
+                assertEquals(2, read(reopened, page));
+            }
+            assertFalse(Files.exists(reopened.getJournal()));
+        }
+    }
+
+    @Test
+    public void dropsATornJournal() throws IOException {
+        Path journal;
+        try (PageFile file = new PageFile(path)) {
+            file.writeJournal(Arrays.asList(0L, 1L), Arrays.asList(page(2), page(2)));
+            journal = file.getJournal();
+        }
+        try (RandomAccessFile torn = new RandomAccessFile(journal.toFile(), "rw")) {
+            torn.setLength(torn.length() - 1);   // the trailer never made it to disk
+        }
+        try (PageFile reopened = new PageFile(path)) {
+            assertEquals(1, read(reopened, 0));
+            assertEquals(1, read(reopened, 1));
+            assertFalse(Files.exists(journal));
+        }
+    }
+
+    private static ByteBuffer page(int fill) {
+        ByteBuffer page = ByteBuffer.allocate(PageFile.PAGE_SIZE);
+        for (int i = 0; i < PageFile.PAGE_SIZE; i += 4) {
+            page.putInt(i, fill);
+        }
+        return page;
+    }
+
+    private static int read(PageFile file, long page) throws IOException {
+        ByteBuffer into = ByteBuffer.allocate(PageFile.PAGE_SIZE);
+        file.read(page, into);
+        int fill = into.getInt(0);
+        assertEquals(fill, into.getInt(PageFile.PAGE_SIZE - 4));
+        return fill;
+    }
+}